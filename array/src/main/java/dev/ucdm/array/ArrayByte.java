@@ -170,6 +170,11 @@ final class ArrayByte extends Array<Byte> {
       this.storage = storage;
     }
 
+    /** The backing primitive array, not copied. */
+    byte[] primitiveArray() {
+      return storage;
+    }
+
     @Override
     public long length() {
       return storage.length;
@@ -188,7 +193,9 @@ final class ArrayByte extends Array<Byte> {
     @Override
     public boolean equals(Object o) {
       if (this == o) return true;
-      if (!(o instanceof StorageS bytes)) return false;
+      if (!(o instanceof StorageS bytes)) {
+        return (o instanceof StorageBB<?> || o instanceof StorageLazy<?>) && o.equals(this);
+      }
       return java.util.Arrays.equals(storage, bytes.storage);
     }
 
@@ -31,7 +31,7 @@ final class ArrayDouble extends Array<Double> {
   }
 
   /** Create an Array of type double and the given indexFn and storage. */
-  private ArrayDouble(IndexFn indexFn, Storage<Double> storageD) {
+  ArrayDouble(IndexFn indexFn, Storage<Double> storageD) {
     super(ArrayType.DOUBLE, indexFn);
     Preconditions.checkArgument(indexFn.length() <= storageD.length());
     this.storageD = storageD;
@@ -106,6 +106,11 @@ final class ArrayDouble extends Array<Double> {
       this.storage = storage;
     }
 
+    /** The backing primitive array, not copied. */
+    double[] primitiveArray() {
+      return storage;
+    }
+
     @Override
     public long length() {
       return storage.length;
@@ -124,7 +129,9 @@ final class ArrayDouble extends Array<Double> {
     @Override
     public boolean equals(Object o) {
       if (this == o) return true;
-      if (!(o instanceof StorageD doubles)) return false;
+      if (!(o instanceof StorageD doubles)) {
+        return (o instanceof StorageBB<?> || o instanceof StorageLazy<?>) && o.equals(this);
+      }
       return Arrays.equals(storage, doubles.storage);
     }
 
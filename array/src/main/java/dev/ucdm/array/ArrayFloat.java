@@ -31,7 +31,7 @@ final class ArrayFloat extends Array<Float> {
   }
 
   /** Create an Array of type float and the given indexFn and storage. */
-  private ArrayFloat(IndexFn indexFn, Storage<Float> storageF) {
+  ArrayFloat(IndexFn indexFn, Storage<Float> storageF) {
     super(ArrayType.FLOAT, indexFn);
     Preconditions.checkArgument(indexFn.length() <= storageF.length());
     this.storageF = storageF;
@@ -105,6 +105,11 @@ final class ArrayFloat extends Array<Float> {
       this.storage = storage;
     }
 
+    /** The backing primitive array, not copied. */
+    float[] primitiveArray() {
+      return storage;
+    }
+
     @Override
     public long length() {
       return storage.length;
@@ -123,7 +128,9 @@ final class ArrayFloat extends Array<Float> {
     @Override
     public boolean equals(Object o) {
       if (this == o) return true;
-      if (!(o instanceof StorageF floats)) return false;
+      if (!(o instanceof StorageF floats)) {
+        return (o instanceof StorageBB<?> || o instanceof StorageLazy<?>) && o.equals(this);
+      }
       return Arrays.equals(storage, floats.storage);
     }
 
@@ -114,6 +114,11 @@ class ArrayInteger extends Array<Integer> {
       this.storage = storage;
     }
 
+    /** The backing primitive array, not copied. */
+    int[] primitiveArray() {
+      return storage;
+    }
+
     @Override
     public long length() {
       return storage.length;
@@ -132,7 +137,9 @@ class ArrayInteger extends Array<Integer> {
     @Override
     public boolean equals(Object o) {
       if (this == o) return true;
-      if (!(o instanceof StorageS integers)) return false;
+      if (!(o instanceof StorageS integers)) {
+        return (o instanceof StorageBB<?> || o instanceof StorageLazy<?>) && o.equals(this);
+      }
       return Arrays.equals(storage, integers.storage);
     }
 
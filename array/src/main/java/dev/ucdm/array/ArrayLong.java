@@ -106,6 +106,11 @@ final class ArrayLong extends Array<Long> {
       this.storage = storage;
     }
 
+    /** The backing primitive array, not copied. */
+    long[] primitiveArray() {
+      return storage;
+    }
+
     @Override
     public long length() {
       return storage.length;
@@ -124,7 +129,9 @@ final class ArrayLong extends Array<Long> {
     @Override
     public boolean equals(Object o) {
       if (this == o) return true;
-      if (!(o instanceof StorageS longs)) return false;
+      if (!(o instanceof StorageS longs)) {
+        return (o instanceof StorageBB<?> || o instanceof StorageLazy<?>) && o.equals(this);
+      }
       return Arrays.equals(storage, longs.storage);
     }
 
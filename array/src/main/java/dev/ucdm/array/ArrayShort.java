@@ -106,6 +106,11 @@ final class ArrayShort extends Array<Short> {
       this.storage = storage;
     }
 
+    /** The backing primitive array, not copied. */
+    short[] primitiveArray() {
+      return storage;
+    }
+
     @Override
     public long length() {
       return storage.length;
@@ -124,7 +129,9 @@ final class ArrayShort extends Array<Short> {
     @Override
     public boolean equals(Object o) {
       if (this == o) return true;
-      if (!(o instanceof StorageS shorts)) return false;
+      if (!(o instanceof StorageS shorts)) {
+        return (o instanceof StorageBB<?> || o instanceof StorageLazy<?>) && o.equals(this);
+      }
       return Arrays.equals(storage, shorts.storage);
     }
 
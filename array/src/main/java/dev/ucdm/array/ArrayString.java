@@ -125,7 +125,7 @@ final class ArrayString extends Array<String> {
     @Override
     public boolean equals(Object o) {
       if (this == o) return true;
-      if (!(o instanceof StorageS strings)) return false;
+      if (!(o instanceof StorageS strings)) return o instanceof StorageLazy<?> && o.equals(this);
       return Arrays.equals(storage, strings.storage);
     }
 
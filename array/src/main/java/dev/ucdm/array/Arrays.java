@@ -7,8 +7,10 @@ package dev.ucdm.array;
 import com.google.common.base.Preconditions;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Supplier;
 import org.jetbrains.annotations.Nullable;
 
 /** Static helper classes for {@link Array} */
@@ -73,6 +75,88 @@ public class Arrays {
     }
   }
 
+  /**
+   * Create a numeric or byte Array whose storage is a ByteBuffer, eg a slice of a memory mapped file.
+   * The ByteBuffer is not copied, and the values are read using its byte order, from its position to its limit.
+   * The calling routine must not change the ByteBuffer contents.
+   *
+   * @param dataType data type of the data, not STRING, STRUCTURE, SEQUENCE, or VLEN.
+   * @param shape multidimensional shape, must have same total length as the ByteBuffer has elements.
+   * @param bb the data.
+   */
+  public static <T> Array<T> factory(ArrayType dataType, int[] shape, ByteBuffer bb) {
+    switch (dataType) {
+      case CHAR, OPAQUE, BYTE, ENUM1, UBYTE -> {
+        return (Array<T>) new ArrayByte(dataType, shape, new StorageBB.OfByte(bb));
+      }
+      case DOUBLE -> {
+        return (Array<T>) new ArrayDouble(shape, new StorageBB.OfDouble(bb));
+      }
+      case FLOAT -> {
+        return (Array<T>) new ArrayFloat(shape, new StorageBB.OfFloat(bb));
+      }
+      case INT, ENUM4, UINT -> {
+        return (Array<T>) new ArrayInteger(dataType, shape, new StorageBB.OfInt(bb));
+      }
+      case LONG, ULONG -> {
+        return (Array<T>) new ArrayLong(dataType, shape, new StorageBB.OfLong(bb));
+      }
+      case SHORT, ENUM2, USHORT -> {
+        return (Array<T>) new ArrayShort(dataType, shape, new StorageBB.OfShort(bb));
+      }
+      default -> throw new IllegalArgumentException("Unsupported ArrayType for ByteBuffer storage= " + dataType);
+    }
+  }
+
+  /**
+   * Create a numeric, byte or String Array whose values are not read until they are first accessed.
+   * Getting the shape, size or type does not read the values.
+   * The reader is called at most once. If it fails, it should throw an unchecked exception, eg UncheckedIOException,
+   * which is thrown to the caller that accessed the values.
+   *
+   * @param dataType data type of the data, not STRUCTURE, SEQUENCE, or VLEN.
+   * @param shape multidimensional shape.
+   * @param reader returns the values as an Array of the same type and size, in canonical order, eg from factory().
+   */
+  public static <T> Array<T> factoryLazy(ArrayType dataType, int[] shape, Supplier<Array<T>> reader) {
+    long size = computeSize(shape);
+    switch (dataType) {
+      case CHAR, OPAQUE, BYTE, ENUM1, UBYTE -> {
+        return (Array<T>) new ArrayByte(dataType, shape, lazyStorage(size, reader));
+      }
+      case DOUBLE -> {
+        return (Array<T>) new ArrayDouble(shape, lazyStorage(size, reader));
+      }
+      case FLOAT -> {
+        return (Array<T>) new ArrayFloat(shape, lazyStorage(size, reader));
+      }
+      case INT, ENUM4, UINT -> {
+        return (Array<T>) new ArrayInteger(dataType, shape, lazyStorage(size, reader));
+      }
+      case LONG, ULONG -> {
+        return (Array<T>) new ArrayLong(dataType, shape, lazyStorage(size, reader));
+      }
+      case SHORT, ENUM2, USHORT -> {
+        return (Array<T>) new ArrayShort(dataType, shape, lazyStorage(size, reader));
+      }
+      case STRING -> {
+        return (Array<T>) new ArrayString(shape, lazyStorage(size, reader));
+      }
+      default -> throw new IllegalArgumentException("Unsupported ArrayType for lazy storage= " + dataType);
+    }
+  }
+
+  // the reader returns an Array of the element type that matches dataType
+  @SuppressWarnings("unchecked")
+  private static <U> StorageLazy<U> lazyStorage(long size, Supplier<? extends Array<?>> reader) {
+    return new StorageLazy<>(size, (Supplier<Array<U>>) (Supplier<?>) reader);
+  }
+
+  /** True if the Array was made by factoryLazy() and its values have not been read yet. */
+  public static boolean isLazyUnread(Array<?> array) {
+    return array.storage() instanceof StorageLazy<?> lazy && !lazy.isRead();
+  }
+
   /**
    * Create Array using empty java array of T, or java primitive array, same size as shape.
    * Do not use this for Vlens or Structures.*
@@ -0,0 +1,409 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.array;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.stream.IntStream;
+
+/**
+ * Converts packed numeric data to FLOAT or DOUBLE: optionally treats integer data as unsigned, applies
+ * scale and offset, and replaces missing values with NaN.
+ * <p>
+ * {@link #view(Array)} makes a lazy Array that shares the packed storage and converts each element when accessed.
+ * {@link #convert(Array)} converts all elements into new storage, with a primitive loop for each pair of packed
+ * and converted types, split across threads for large Arrays.
+ */
+@Immutable
+public final class PackedConverter {
+  private static int parallelThreshold = 1 << 20;
+
+  /** Arrays with at least this many elements are converted in parallel by {@link #convert(Array)}. */
+  public static void setParallelThreshold(int nelems) {
+    parallelThreshold = nelems;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final ArrayType resultType;
+  private final boolean unsigned;
+  private final boolean useScaleOffset;
+  private final double scale;
+  private final double offset;
+  @Nullable
+  private final IsMissingEvaluator missing;
+
+  private PackedConverter(Builder builder) {
+    Preconditions.checkArgument(builder.resultType == ArrayType.FLOAT || builder.resultType == ArrayType.DOUBLE,
+        "result type must be FLOAT or DOUBLE, not %s", builder.resultType);
+    this.resultType = builder.resultType;
+    this.unsigned = builder.unsigned;
+    this.useScaleOffset = builder.useScaleOffset;
+    this.scale = builder.scale;
+    this.offset = builder.offset;
+    this.missing = (builder.missing != null && builder.missing.hasMissing()) ? builder.missing : null;
+  }
+
+  /** The ArrayType of the converted data, FLOAT or DOUBLE. */
+  public ArrayType getResultType() {
+    return resultType;
+  }
+
+  /**
+   * Make a lazy view of the packed Array that converts each element when accessed.
+   * No new storage is allocated, so this is efficient when only some of the elements are used.
+   * Note that the view is not {@link Array#equals(Object)} to a converted copy with the same values.
+   */
+  public <T> Array<T> view(Array<?> packed) {
+    checkNumeric(packed);
+    ElementFn elems = elementFn(packed.storage());
+    long length = packed.storage().length();
+    if (resultType == ArrayType.FLOAT) {
+      return (Array<T>) new ArrayFloat(packed.indexFn(), new LazyStorageF(elems, length));
+    } else {
+      return (Array<T>) new ArrayDouble(packed.indexFn(), new LazyStorageD(elems, length));
+    }
+  }
+
+  /** Convert all of the packed Array into a new Array in canonical order. */
+  public <T> Array<T> convert(Array<?> packed) {
+    checkNumeric(packed);
+    int npts = (int) packed.length();
+    Object src = primitiveArray(packed);
+    Object dest = (resultType == ArrayType.FLOAT) ? new float[npts] : new double[npts];
+
+    if (npts >= parallelThreshold) {
+      int nchunks = 4 * Runtime.getRuntime().availableProcessors();
+      int chunkSize = (npts + nchunks - 1) / nchunks;
+      IntStream.range(0, nchunks).parallel()
+          .forEach(chunk -> convert(src, dest, chunk * chunkSize, Math.min(npts, (chunk + 1) * chunkSize)));
+    } else {
+      convert(src, dest, 0, npts);
+    }
+    return Arrays.factory(resultType, packed.getShape(), dest);
+  }
+
+  private void checkNumeric(Array<?> packed) {
+    Preconditions.checkArgument(packed.getArrayType().isNumeric(), "packed data must be numeric, not %s",
+        packed.getArrayType());
+  }
+
+  /** The backing primitive array if in canonical order, else a copy in canonical order. */
+  private static Object primitiveArray(Array<?> packed) {
+    if (packed.indexFn().isCanonicalOrder()) {
+      Storage<?> storage = packed.storage();
+      if (storage instanceof ArrayByte.StorageS s) {
+        return s.primitiveArray();
+      } else if (storage instanceof ArrayShort.StorageS s) {
+        return s.primitiveArray();
+      } else if (storage instanceof ArrayInteger.StorageS s) {
+        return s.primitiveArray();
+      } else if (storage instanceof ArrayLong.StorageS s) {
+        return s.primitiveArray();
+      } else if (storage instanceof ArrayFloat.StorageF s) {
+        return s.primitiveArray();
+      } else if (storage instanceof ArrayDouble.StorageD s) {
+        return s.primitiveArray();
+      }
+    }
+
+    int npts = (int) packed.length();
+    Object copy = switch (packed.getArrayType()) {
+      case BYTE, UBYTE -> new byte[npts];
+      case SHORT, USHORT -> new short[npts];
+      case INT, UINT -> new int[npts];
+      case LONG, ULONG -> new long[npts];
+      case FLOAT -> new float[npts];
+      case DOUBLE -> new double[npts];
+      default -> throw new IllegalArgumentException("Unsupported packed type " + packed.getArrayType());
+    };
+    packed.arraycopy(0, copy, 0, npts);
+    return copy;
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////////////////
+  // bulk conversion
+
+  private void convert(Object src, Object dest, int start, int end) {
+    boolean toFloat = dest instanceof float[];
+    if (src instanceof byte[] bsrc) {
+      int mask = unsigned ? 0xff : -1;
+      if (toFloat) {
+        float[] fdest = (float[]) dest;
+        for (int i = start; i < end; i++) {
+          fdest[i] = (float) unpack(bsrc[i] & mask);
+        }
+      } else {
+        double[] ddest = (double[]) dest;
+        for (int i = start; i < end; i++) {
+          ddest[i] = unpack(bsrc[i] & mask);
+        }
+      }
+
+    } else if (src instanceof short[] ssrc) {
+      int mask = unsigned ? 0xffff : -1;
+      if (toFloat) {
+        float[] fdest = (float[]) dest;
+        for (int i = start; i < end; i++) {
+          fdest[i] = (float) unpack(ssrc[i] & mask);
+        }
+      } else {
+        double[] ddest = (double[]) dest;
+        for (int i = start; i < end; i++) {
+          ddest[i] = unpack(ssrc[i] & mask);
+        }
+      }
+
+    } else if (src instanceof int[] isrc) {
+      long mask = unsigned ? 0xffffffffL : -1L;
+      if (toFloat) {
+        float[] fdest = (float[]) dest;
+        for (int i = start; i < end; i++) {
+          fdest[i] = (float) unpack(isrc[i] & mask);
+        }
+      } else {
+        double[] ddest = (double[]) dest;
+        for (int i = start; i < end; i++) {
+          ddest[i] = unpack(isrc[i] & mask);
+        }
+      }
+
+    } else if (src instanceof long[] lsrc) {
+      if (toFloat) {
+        float[] fdest = (float[]) dest;
+        for (int i = start; i < end; i++) {
+          fdest[i] = (float) unpack(unsigned ? unsignedToDouble(lsrc[i]) : lsrc[i]);
+        }
+      } else {
+        double[] ddest = (double[]) dest;
+        for (int i = start; i < end; i++) {
+          ddest[i] = unpack(unsigned ? unsignedToDouble(lsrc[i]) : lsrc[i]);
+        }
+      }
+
+    } else if (src instanceof float[] fsrc) {
+      if (toFloat) {
+        float[] fdest = (float[]) dest;
+        for (int i = start; i < end; i++) {
+          fdest[i] = (float) unpack(fsrc[i]);
+        }
+      } else {
+        double[] ddest = (double[]) dest;
+        for (int i = start; i < end; i++) {
+          ddest[i] = unpack(fsrc[i]);
+        }
+      }
+
+    } else if (src instanceof double[] dsrc) {
+      if (toFloat) {
+        float[] fdest = (float[]) dest;
+        for (int i = start; i < end; i++) {
+          fdest[i] = (float) unpack(dsrc[i]);
+        }
+      } else {
+        double[] ddest = (double[]) dest;
+        for (int i = start; i < end; i++) {
+          ddest[i] = unpack(dsrc[i]);
+        }
+      }
+
+    } else {
+      throw new IllegalArgumentException("Unsupported packed storage " + src.getClass());
+    }
+  }
+
+  /** Apply scale/offset and missing to a value that has already been widened. */
+  private double unpack(double value) {
+    if (useScaleOffset) {
+      value = scale * value + offset;
+    }
+    if (missing != null && missing.isMissing(value)) {
+      value = Double.NaN;
+    }
+    return value;
+  }
+
+  /** Correctly rounded unsigned long to double, as in Guava UnsignedLong.doubleValue(). */
+  private static double unsignedToDouble(long value) {
+    if (value >= 0) {
+      return (double) value;
+    }
+    return (double) ((value >>> 1) | (value & 1)) * 2.0;
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////////////////
+  // lazy conversion
+
+  /** Get a widened packed element from storage. */
+  private interface ElementFn {
+    double get(int elem);
+  }
+
+  private ElementFn elementFn(Storage<?> storage) {
+    if (storage instanceof ArrayByte.StorageS s) {
+      byte[] values = s.primitiveArray();
+      int mask = unsigned ? 0xff : -1;
+      return elem -> values[elem] & mask;
+    } else if (storage instanceof ArrayShort.StorageS s) {
+      short[] values = s.primitiveArray();
+      int mask = unsigned ? 0xffff : -1;
+      return elem -> values[elem] & mask;
+    } else if (storage instanceof ArrayInteger.StorageS s) {
+      int[] values = s.primitiveArray();
+      long mask = unsigned ? 0xffffffffL : -1L;
+      return elem -> values[elem] & mask;
+    } else if (storage instanceof ArrayLong.StorageS s) {
+      long[] values = s.primitiveArray();
+      return unsigned ? elem -> unsignedToDouble(values[elem]) : elem -> values[elem];
+    } else if (storage instanceof ArrayFloat.StorageF s) {
+      float[] values = s.primitiveArray();
+      return elem -> values[elem];
+    } else if (storage instanceof ArrayDouble.StorageD s) {
+      double[] values = s.primitiveArray();
+      return elem -> values[elem];
+    }
+    Storage<Number> numbers = (Storage<Number>) storage;
+    return unsigned ? elem -> ArrayType.widenNumberIfNegative(numbers.get(elem)).doubleValue()
+        : elem -> numbers.get(elem).doubleValue();
+  }
+
+  @Immutable
+  private final class LazyStorageF implements Storage<Float> {
+    private final ElementFn elems;
+    private final long length;
+
+    LazyStorageF(ElementFn elems, long length) {
+      this.elems = elems;
+      this.length = length;
+    }
+
+    @Override
+    public long length() {
+      return length;
+    }
+
+    @Override
+    public Float get(long elem) {
+      return (float) unpack(elems.get((int) elem));
+    }
+
+    @Override
+    public void arraycopy(int srcPos, Object dest, int destPos, long length) {
+      float[] fdest = (float[]) dest;
+      for (int i = 0; i < length; i++) {
+        fdest[destPos + i] = (float) unpack(elems.get(srcPos + i));
+      }
+    }
+
+    @Override
+    public Iterator<Float> iterator() {
+      return new Iterator<>() {
+        private int count = 0;
+
+        @Override
+        public boolean hasNext() {
+          return count < length;
+        }
+
+        @Override
+        public Float next() {
+          return get(count++);
+        }
+      };
+    }
+  }
+
+  @Immutable
+  private final class LazyStorageD implements Storage<Double> {
+    private final ElementFn elems;
+    private final long length;
+
+    LazyStorageD(ElementFn elems, long length) {
+      this.elems = elems;
+      this.length = length;
+    }
+
+    @Override
+    public long length() {
+      return length;
+    }
+
+    @Override
+    public Double get(long elem) {
+      return unpack(elems.get((int) elem));
+    }
+
+    @Override
+    public void arraycopy(int srcPos, Object dest, int destPos, long length) {
+      double[] ddest = (double[]) dest;
+      for (int i = 0; i < length; i++) {
+        ddest[destPos + i] = unpack(elems.get(srcPos + i));
+      }
+    }
+
+    @Override
+    public Iterator<Double> iterator() {
+      return new Iterator<>() {
+        private int count = 0;
+
+        @Override
+        public boolean hasNext() {
+          return count < length;
+        }
+
+        @Override
+        public Double next() {
+          return get(count++);
+        }
+      };
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////////////////
+
+  public static class Builder {
+    private ArrayType resultType = ArrayType.FLOAT;
+    private boolean unsigned;
+    private boolean useScaleOffset;
+    private double scale = 1.0;
+    private double offset;
+    private IsMissingEvaluator missing;
+
+    /** FLOAT or DOUBLE, default FLOAT. */
+    public Builder setResultType(ArrayType resultType) {
+      this.resultType = resultType;
+      return this;
+    }
+
+    /** Treat integer packed data as unsigned. */
+    public Builder setUnsigned(boolean unsigned) {
+      this.unsigned = unsigned;
+      return this;
+    }
+
+    /** Unpacked = scale * packed + offset. */
+    public Builder setScaleOffset(double scale, double offset) {
+      this.useScaleOffset = true;
+      this.scale = scale;
+      this.offset = offset;
+      return this;
+    }
+
+    /** Unpacked values that are missing are replaced with NaN. */
+    public Builder setMissing(@Nullable IsMissingEvaluator missing) {
+      this.missing = missing;
+      return this;
+    }
+
+    public PackedConverter build() {
+      return new PackedConverter(this);
+    }
+  }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.array;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+/**
+ * Storage backed by a ByteBuffer, eg a memory mapped file, using the ByteBuffer's byte order.
+ * The ByteBuffer is not copied, and only absolute gets are used, so this is thread-safe.
+ * Equal to any Storage with the same values.
+ */
+@Immutable
+abstract class StorageBB<T> implements Storage<T> {
+  final ByteBuffer bb;
+  final long length;
+
+  /**
+   * @param bb the data starts at bb.position(). The ByteBuffer must not be changed.
+   * @param elemSize element size in bytes.
+   */
+  StorageBB(ByteBuffer bb, int elemSize) {
+    this.bb = bb.slice().order(bb.order());
+    this.length = this.bb.remaining() / elemSize;
+  }
+
+  @Override
+  public long length() {
+    return length;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof Storage<?> other) || other.length() != length) return false;
+    for (long i = 0; i < length; i++) {
+      if (!get(i).equals(other.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // same as java.util.Arrays.hashCode() of the primitive array.
+  @Override
+  public int hashCode() {
+    int result = 1;
+    for (long i = 0; i < length; i++) {
+      result = 31 * result + get(i).hashCode();
+    }
+    return result;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return new Iterator<>() {
+      private long count = 0;
+
+      @Override
+      public boolean hasNext() {
+        return count < length;
+      }
+
+      @Override
+      public T next() {
+        return get(count++);
+      }
+    };
+  }
+
+  // a copy with its own position, so the shared bb is never changed
+  ByteBuffer positioned(int elem, int elemSize) {
+    return bb.duplicate().order(bb.order()).position(elem * elemSize);
+  }
+
+  static final class OfByte extends StorageBB<Byte> {
+    OfByte(ByteBuffer bb) {
+      super(bb, 1);
+    }
+
+    @Override
+    public Byte get(long elem) {
+      return bb.get((int) elem);
+    }
+
+    @Override
+    public void arraycopy(int srcPos, Object dest, int destPos, long length) {
+      bb.get(srcPos, (byte[]) dest, destPos, (int) length);
+    }
+  }
+
+  static final class OfShort extends StorageBB<Short> {
+    OfShort(ByteBuffer bb) {
+      super(bb, 2);
+    }
+
+    @Override
+    public Short get(long elem) {
+      return bb.getShort((int) elem * 2);
+    }
+
+    @Override
+    public void arraycopy(int srcPos, Object dest, int destPos, long length) {
+      positioned(srcPos, 2).asShortBuffer().get((short[]) dest, destPos, (int) length);
+    }
+  }
+
+  static final class OfInt extends StorageBB<Integer> {
+    OfInt(ByteBuffer bb) {
+      super(bb, 4);
+    }
+
+    @Override
+    public Integer get(long elem) {
+      return bb.getInt((int) elem * 4);
+    }
+
+    @Override
+    public void arraycopy(int srcPos, Object dest, int destPos, long length) {
+      positioned(srcPos, 4).asIntBuffer().get((int[]) dest, destPos, (int) length);
+    }
+  }
+
+  static final class OfLong extends StorageBB<Long> {
+    OfLong(ByteBuffer bb) {
+      super(bb, 8);
+    }
+
+    @Override
+    public Long get(long elem) {
+      return bb.getLong((int) elem * 8);
+    }
+
+    @Override
+    public void arraycopy(int srcPos, Object dest, int destPos, long length) {
+      positioned(srcPos, 8).asLongBuffer().get((long[]) dest, destPos, (int) length);
+    }
+  }
+
+  static final class OfFloat extends StorageBB<Float> {
+    OfFloat(ByteBuffer bb) {
+      super(bb, 4);
+    }
+
+    @Override
+    public Float get(long elem) {
+      return bb.getFloat((int) elem * 4);
+    }
+
+    @Override
+    public void arraycopy(int srcPos, Object dest, int destPos, long length) {
+      positioned(srcPos, 4).asFloatBuffer().get((float[]) dest, destPos, (int) length);
+    }
+  }
+
+  static final class OfDouble extends StorageBB<Double> {
+    OfDouble(ByteBuffer bb) {
+      super(bb, 8);
+    }
+
+    @Override
+    public Double get(long elem) {
+      return bb.getDouble((int) elem * 8);
+    }
+
+    @Override
+    public void arraycopy(int srcPos, Object dest, int destPos, long length) {
+      positioned(srcPos, 8).asDoubleBuffer().get((double[]) dest, destPos, (int) length);
+    }
+  }
+
+}
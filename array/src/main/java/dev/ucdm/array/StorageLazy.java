@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.array;
+
+import java.util.Iterator;
+import java.util.function.Supplier;
+
+/**
+ * Storage whose values are not read until they are first needed. The length is known in advance.
+ * Equal to any Storage with the same values.
+ */
+final class StorageLazy<T> implements Storage<T> {
+  private final long length;
+  private Supplier<Array<T>> reader;
+  private volatile Storage<T> delegate;
+
+  /**
+   * @param length number of elements.
+   * @param reader called once, on first access, returns the values in canonical order, with the given length.
+   */
+  StorageLazy(long length, Supplier<Array<T>> reader) {
+    this.length = length;
+    this.reader = reader;
+  }
+
+  private Storage<T> delegate() {
+    Storage<T> result = delegate;
+    if (result == null) {
+      synchronized (this) {
+        result = delegate;
+        if (result == null) {
+          Array<T> values = reader.get();
+          if (values.length() != length) {
+            throw new IllegalStateException(
+                String.format("Lazy storage expected %d values, got %d", length, values.length()));
+          }
+          result = values.storage();
+          delegate = result;
+          reader = null;
+        }
+      }
+    }
+    return result;
+  }
+
+  /** Have the values been read. */
+  boolean isRead() {
+    return delegate != null;
+  }
+
+  @Override
+  public long length() {
+    return length;
+  }
+
+  @Override
+  public T get(long elem) {
+    return delegate().get(elem);
+  }
+
+  @Override
+  public void arraycopy(int srcPos, Object dest, int destPos, long length) {
+    delegate().arraycopy(srcPos, dest, destPos, length);
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return delegate().iterator();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o instanceof StorageLazy<?> other) {
+      return delegate().equals(other.delegate());
+    }
+    return delegate().equals(o);
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate().hashCode();
+  }
+}
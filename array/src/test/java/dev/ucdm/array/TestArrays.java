@@ -7,8 +7,11 @@ package dev.ucdm.array;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertThrows;
@@ -455,4 +458,64 @@ public class TestArrays {
             .isEqualTo(Arrays.factory(ArrayType.FLOAT, new int[] {3}, new float[] {.1f, Long.MAX_VALUE, Long.MIN_VALUE}));
   }
 
+  @Test
+  public void testFactoryByteBuffer() throws InvalidRangeException {
+    ByteBuffer bb = ByteBuffer.allocate(4 + 6 * 8).order(ByteOrder.LITTLE_ENDIAN);
+    bb.putInt(99);
+    for (int i = 0; i < 6; i++) {
+      bb.putDouble(i * 1.5);
+    }
+    bb.position(4);
+    Array<Double> darray = Arrays.factory(ArrayType.DOUBLE, new int[] {2, 3}, bb);
+    Array<Double> expected = Arrays.factory(ArrayType.DOUBLE, new int[] {2, 3}, new double[] {0, 1.5, 3, 4.5, 6, 7.5});
+    assertThat(bb.position()).isEqualTo(4);
+    assertThat(darray.get(1, 2)).isEqualTo(7.5);
+    assertThat(darray).isEqualTo(expected);
+    assertThat(expected).isEqualTo(darray);
+    assertThat(darray.hashCode()).isEqualTo(expected.hashCode());
+    assertThat(Arrays.copyPrimitiveArray(darray)).isEqualTo(new double[] {0, 1.5, 3, 4.5, 6, 7.5});
+
+    Array<Double> section = Arrays.section(darray, new Section("1,1:2"));
+    assertThat(Arrays.copyPrimitiveArray(section)).isEqualTo(new double[] {6, 7.5});
+
+    ByteBuffer sbb = ByteBuffer.wrap(new byte[] {0, 1, 0, 2, -1, -1});
+    Array<Short> sarray = Arrays.factory(ArrayType.SHORT, new int[] {3}, sbb);
+    assertThat(sarray).isEqualTo(Arrays.factory(ArrayType.SHORT, new int[] {3}, new short[] {1, 2, -1}));
+
+    Array<Byte> barray = Arrays.factory(ArrayType.CHAR, new int[] {3}, ByteBuffer.wrap("abc".getBytes(StandardCharsets.UTF_8)));
+    assertThat(Arrays.makeStringFromChar(barray)).isEqualTo("abc");
+
+    assertThrows(IllegalArgumentException.class, () -> Arrays.factory(ArrayType.STRING, new int[] {1}, sbb));
+  }
+
+  @Test
+  public void testFactoryLazy() throws InvalidRangeException {
+    AtomicInteger count = new AtomicInteger();
+    Array<Double> lazy = Arrays.factoryLazy(ArrayType.DOUBLE, new int[] {2, 3}, () -> {
+      count.incrementAndGet();
+      return Arrays.factory(ArrayType.DOUBLE, new int[] {6}, new double[] {0, 1.5, 3, 4.5, 6, 7.5});
+    });
+    assertThat(lazy.length()).isEqualTo(6);
+    assertThat(lazy.getShape()).isEqualTo(new int[] {2, 3});
+    assertThat(Arrays.isLazyUnread(lazy)).isTrue();
+    assertThat(count.get()).isEqualTo(0);
+
+    Array<Double> expected = Arrays.factory(ArrayType.DOUBLE, new int[] {2, 3}, new double[] {0, 1.5, 3, 4.5, 6, 7.5});
+    assertThat(lazy.get(1, 2)).isEqualTo(7.5);
+    assertThat(Arrays.isLazyUnread(lazy)).isFalse();
+    assertThat(lazy).isEqualTo(expected);
+    assertThat(expected).isEqualTo(lazy);
+    assertThat(lazy.hashCode()).isEqualTo(expected.hashCode());
+    assertThat(Arrays.copyPrimitiveArray(Arrays.section(lazy, new Section("1,1:2")))).isEqualTo(new double[] {6, 7.5});
+    assertThat(count.get()).isEqualTo(1);
+
+    Array<String> slazy = Arrays.factoryLazy(ArrayType.STRING, new int[] {2}, () -> Arrays.factory(ArrayType.STRING,
+        new int[] {2}, new String[] {"one", "two"}));
+    assertThat(slazy.get(1)).isEqualTo("two");
+
+    Array<Integer> wrong = Arrays.factoryLazy(ArrayType.INT, new int[] {3}, () -> Arrays.factory(ArrayType.INT,
+        new int[] {2}, new int[] {1, 2}));
+    assertThrows(IllegalStateException.class, () -> wrong.get(0));
+  }
+
 }
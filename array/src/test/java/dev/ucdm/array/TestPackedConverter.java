@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.array;
+
+import org.junit.jupiter.api.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Test {@link PackedConverter} */
+public class TestPackedConverter {
+
+  private static final IsMissingEvaluator MISSING = new IsMissingEvaluator() {
+    @Override
+    public boolean hasMissing() {
+      return true;
+    }
+
+    @Override
+    public boolean isMissing(double val) {
+      return Double.isNaN(val) || val == 1.5;
+    }
+  };
+
+  @Test
+  public void testShortToFloat() {
+    short[] packed = new short[] {-1, 0, 1, 2, 3, 4};
+    Array<Short> array = Arrays.factory(ArrayType.SHORT, new int[] {2, 3}, packed);
+    PackedConverter converter = PackedConverter.builder().setScaleOffset(.5, 1).setMissing(MISSING).build();
+
+    float[] expected = new float[] {.5f, 1f, Float.NaN, 2f, 2.5f, 3f};
+    Array<Float> converted = converter.convert(array);
+    assertThat(converted.getArrayType()).isEqualTo(ArrayType.FLOAT);
+    assertThat(converted.getShape()).isEqualTo(new int[] {2, 3});
+    assertThat((float[]) Arrays.copyPrimitiveArray(converted)).isEqualTo(expected);
+
+    Array<Float> view = converter.view(array);
+    assertThat(view.getArrayType()).isEqualTo(ArrayType.FLOAT);
+    assertThat(view.get(1, 2)).isEqualTo(3f);
+    assertThat(view.get(0, 2)).isNaN();
+    assertThat((float[]) Arrays.copyPrimitiveArray(view)).isEqualTo(expected);
+  }
+
+  @Test
+  public void testUnsigned() {
+    byte[] packed = new byte[] {-1, -128, 0, 127};
+    Array<Byte> array = Arrays.factory(ArrayType.UBYTE, new int[] {4}, packed);
+    PackedConverter converter = PackedConverter.builder().setResultType(ArrayType.DOUBLE).setUnsigned(true).build();
+
+    double[] expected = new double[] {255, 128, 0, 127};
+    assertThat((double[]) Arrays.copyPrimitiveArray(converter.convert(array))).isEqualTo(expected);
+    assertThat((double[]) Arrays.copyPrimitiveArray(converter.view(array))).isEqualTo(expected);
+
+    long[] lpacked = new long[] {-1, 1};
+    Array<Long> larray = Arrays.factory(ArrayType.ULONG, new int[] {2}, lpacked);
+    Array<Double> lconverted = converter.convert(larray);
+    assertThat(lconverted.get(0)).isEqualTo(1.8446744073709552E19);
+    assertThat(lconverted.get(1)).isEqualTo(1.0);
+  }
+
+  @Test
+  public void testNonCanonicalOrder() throws InvalidRangeException {
+    int[] packed = new int[] {1, 2, 3, 4, 5, 6};
+    Array<Integer> array = Arrays.factory(ArrayType.INT, new int[] {2, 3}, packed);
+    Array<Integer> flipped = Arrays.flip(array, 1);
+    PackedConverter converter = PackedConverter.builder().setScaleOffset(10, 0).build();
+
+    float[] expected = new float[] {30, 20, 10, 60, 50, 40};
+    assertThat((float[]) Arrays.copyPrimitiveArray(converter.convert(flipped))).isEqualTo(expected);
+    assertThat((float[]) Arrays.copyPrimitiveArray(converter.view(flipped))).isEqualTo(expected);
+
+    // a section of the view is still lazy, and uses the same storage
+    Array<Float> section = Arrays.section(converter.view(array), new Section("1,1:2"));
+    assertThat((float[]) Arrays.copyPrimitiveArray(section)).isEqualTo(new float[] {50, 60});
+  }
+
+  @Test
+  public void testParallel() {
+    int npts = 100_000;
+    short[] packed = new short[npts];
+    for (int i = 0; i < npts; i++) {
+      packed[i] = (short) i;
+    }
+    Array<Short> array = Arrays.factory(ArrayType.USHORT, new int[] {npts}, packed);
+    PackedConverter converter = PackedConverter.builder().setUnsigned(true).setScaleOffset(2, -1).build();
+
+    PackedConverter.setParallelThreshold(1000);
+    try {
+      float[] result = (float[]) Arrays.copyPrimitiveArray(converter.convert(array));
+      for (int i = 0; i < npts; i++) {
+        assertThat(result[i]).isEqualTo((float) (2.0 * (i & 0xffff) - 1));
+      }
+    } finally {
+      PackedConverter.setParallelThreshold(1 << 20);
+    }
+  }
+}
@@ -25,7 +25,8 @@ import java.util.StringTokenizer;
  * <p>
  * Read-only scientific datasets that are accessible through the netCDF API.
  * Immutable after {@code setImmutable()} is called. Reading data is not
- * thread-safe because of the use of {@code RandomAccessFile}.
+ * thread-safe because of the use of {@code RandomAccessFile}, unless the file is opened with the
+ * {@code IOSP_MESSAGE_CONCURRENT_READS} iospMessage.
  * <p>
  * Using this class's {@code Builder} scheme to create a {@code CdmFile} object could, for
  * example, be accomplished as follows, using a try/finally block to ensure that the
@@ -86,6 +87,13 @@ public class CdmFile implements Closeable {
   public static final String IOSP_MESSAGE_GET_IOSP = "IOSP";
   public static final String IOSP_MESSAGE_GET_NETCDF_FILE_FORMAT = "CdmFileFormat";
   public static final String IOSP_MESSAGE_RANDOM_ACCESS_FILE = "RandomAccessFile";
+  /** Open the file so that it can be read by multiple threads at once, see ConcurrentRandomAccessFile. */
+  public static final String IOSP_MESSAGE_CONCURRENT_READS = "ConcurrentReads";
+  /**
+   * Memory map a local file, see MappedRandomAccessFile. Contiguous reads may then return Arrays backed by the mapped
+   * file. To also share it between threads, open a ConcurrentRandomAccessFile wrapping a MappedRandomAccessFile.
+   */
+  public static final String IOSP_MESSAGE_MEMORY_MAPPED = "MemoryMapped";
 
   static boolean debugSPI, debugCompress;
   static boolean debugStructureIterator;
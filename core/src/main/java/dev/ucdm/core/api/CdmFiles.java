@@ -5,16 +5,20 @@
 package dev.ucdm.core.api;
 
 import com.google.common.base.Preconditions;
+import dev.ucdm.core.io.ConcurrentRandomAccessFile;
 import dev.ucdm.core.io.InMemoryRandomAccessFile;
+import dev.ucdm.core.io.MappedRandomAccessFile;
 import dev.ucdm.core.io.RandomAccessFile;
 import dev.ucdm.core.io.Uncompress;
+import dev.ucdm.core.iosp.HeaderSnapshotCache;
 import dev.ucdm.core.iosp.IOServiceProvider;
 import dev.ucdm.core.util.CancelTask;
 import dev.ucdm.core.util.DiskCache;
 import dev.ucdm.core.util.EscapeStrings;
 import dev.ucdm.core.io.RandomAccessFileProvider;
 import dev.ucdm.core.util.IO;
-import dev.ucdm.core.util.StringLocker;
+import dev.ucdm.core.util.KeyedWork;
+import dev.ucdm.core.util.ManagedDiskCache;
 import dev.ucdm.core.util.StringUtil2;
 import dev.ucdm.core.util.URLnaming;
 
@@ -27,6 +31,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
@@ -35,6 +40,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Static helper methods for CdmFile objects.
@@ -45,9 +51,9 @@ import java.util.ServiceLoader;
  */
 public class CdmFiles {
   private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CdmFile.class);
-  private static final List<IOServiceProvider> registeredProviders = new ArrayList<>();
+  private static final List<IOServiceProvider> registeredProviders = new CopyOnWriteArrayList<>();
   private static final int default_buffersize = 8092;
-  private static final StringLocker stringLocker = new StringLocker();
+  private static final KeyedWork<String> uncompressing = new KeyedWork<>();
   private static final List<String> possibleCompressedSuffixes = Arrays.asList("Z", "zip", "gzip", "gz", "bz2");
   private static final boolean loadWarnings = false;
   private static final boolean userLoadsFirst;
@@ -82,6 +88,19 @@ public class CdmFiles {
   private CdmFiles() {
   }
 
+  // The ServiceLoader is run once, the first time its needed. The instances are only used to find the provider,
+  // they must not keep any state.
+  private static class LoadedProviders {
+    private static final List<IOServiceProvider> iosps = load(IOServiceProvider.class);
+    private static final List<RandomAccessFileProvider> rafProviders = load(RandomAccessFileProvider.class);
+
+    private static <T> List<T> load(Class<T> service) {
+      List<T> result = new ArrayList<>();
+      ServiceLoader.load(service).forEach(result::add);
+      return result;
+    }
+  }
+
   //////////////////////////////////////////////////////////////////////////////////////////
 
   /**
@@ -215,6 +234,7 @@ public class CdmFiles {
 
     String urlCanonical = URLnaming.canonicalizeUriString(location);
     RandomAccessFile raf = new RandomAccessFile(urlCanonical, "r", bufferSize);
+    raf = wrapForConcurrentReads(mapForMemoryMapped(raf, iospMessage), iospMessage);
 
     CdmFile result = build(spi, raf, location, cancelTask);
     spi.buildFinish(result);
@@ -263,7 +283,7 @@ public class CdmFiles {
     RandomAccessFile raf = null;
 
     // look for dynamically loaded RandomAccessFile Providers
-    for (RandomAccessFileProvider provider : ServiceLoader.load(RandomAccessFileProvider.class)) {
+    for (RandomAccessFileProvider provider : LoadedProviders.rafProviders) {
       if (provider.isOwnerOf(location)) {
         raf = provider.open(location, bufferSize);
         Preconditions.checkNotNull(raf);
@@ -284,25 +304,18 @@ public class CdmFiles {
         uriString = StringUtil2.unescape(uriString.substring(5)); // 11/10/2010 from erussell@ngs.org
       }
 
-      String uncompressedFileName = null;
       if (looksCompressed(uriString)) {
         try {
-          // Avoid race condition where the decompressed file is trying to be read by one
-          // thread while another is decompressing it
-          stringLocker.control(uriString);
-          uncompressedFileName = Uncompress.makeUncompressedFile(uriString);
-        } catch (Exception e) {
+          raf = openUncompressed(uriString, bufferSize);
+        } catch (InterruptedIOException e) {
+          throw e;
+        } catch (IOException e) {
           log.warn("Failed to uncompress {}, err= {}; try as a regular file.", uriString, e.getMessage());
           // allow to fall through to open the "compressed" file directly - may be a misnamed suffix
-        } finally {
-          stringLocker.release(uriString);
         }
       }
 
-      if (uncompressedFileName != null) {
-        // open uncompressed file as a RandomAccessFile.
-        raf = new RandomAccessFile(uncompressedFileName, "r", bufferSize);
-      } else {
+      if (raf == null) {
         // normal case - not compressed
         raf = new RandomAccessFile(uriString, "r", bufferSize);
       }
@@ -310,6 +323,69 @@ public class CdmFiles {
     return raf;
   }
 
+  /**
+   * Uncompress the file if needed, and open the uncompressed file. The uncompressed file is pinned in the
+   * ManagedDiskCache until the returned RandomAccessFile is closed, so it is not evicted while it is being read.
+   *
+   * @return the open uncompressed file, or null if the compressed file does not exist.
+   */
+  @Nullable
+  private static RandomAccessFile openUncompressed(String compressedFileName, int bufferSize) throws IOException {
+    // the file may be evicted between being published and being pinned, so check after pinning and try again
+    for (int tries = 0; tries < 3; tries++) {
+      String uncompressedFileName;
+      try {
+        // Avoid race condition where the decompressed file is trying to be read by one
+        // thread while another is decompressing it: other threads wait for the first one, and share its result
+        uncompressedFileName = uncompressing.run(compressedFileName,
+            () -> Uncompress.makeUncompressedFile(compressedFileName));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted waiting to uncompress " + compressedFileName);
+      } catch (IOException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new IOException(e.getMessage(), e);
+      }
+      if (uncompressedFileName == null) {
+        return null;
+      }
+
+      File uncompressedFile = new File(uncompressedFileName);
+      ManagedDiskCache.Pin pin = ManagedDiskCache.getDefault().pin(uncompressedFile);
+      if (!uncompressedFile.exists()) {
+        pin.close();
+        continue;
+      }
+      try {
+        return new PinnedRandomAccessFile(uncompressedFileName, bufferSize, pin);
+      } catch (IOException | RuntimeException e) {
+        pin.close();
+        throw e;
+      }
+    }
+    throw new IOException("Uncompressed file was evicted before it could be opened: " + compressedFileName);
+  }
+
+  /** A RandomAccessFile that holds a ManagedDiskCache.Pin on its file, and releases it when closed. */
+  private static class PinnedRandomAccessFile extends RandomAccessFile {
+    private final ManagedDiskCache.Pin pin;
+
+    private PinnedRandomAccessFile(String location, int bufferSize, ManagedDiskCache.Pin pin) throws IOException {
+      super(location, "r", bufferSize);
+      this.pin = pin;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        pin.close();
+      }
+    }
+  }
+
   private static boolean looksCompressed(String filename) {
     int pos = filename.lastIndexOf('.');
     boolean looksCompressed = false;
@@ -333,12 +409,11 @@ public class CdmFiles {
 
     uriString = DiskCache.getFileStandardPolicy(tmp + sep + filename).getPath();
     copy(raf, new FileOutputStream(uriString), 1 << 20);
-    try {
-      String uncompressedFileName = Uncompress.makeUncompressedFile(uriString);
-      return new RandomAccessFile(uncompressedFileName, "r", bufferSize);
-    } catch (Exception e) {
-      throw new IOException();
+    RandomAccessFile uncompressed = openUncompressed(uriString, bufferSize);
+    if (uncompressed == null) {
+      throw new IOException("Failed to uncompress " + uriString);
     }
+    return uncompressed;
   }
 
   private static void copy(RandomAccessFile in, OutputStream out, int bufferSize) throws IOException {
@@ -447,6 +522,7 @@ public class CdmFiles {
       spi.sendIospMessage(iospMessage);
     }
 
+    raf = wrapForConcurrentReads(mapForMemoryMapped(raf, iospMessage), iospMessage);
     CdmFile ncfile = build(spi, raf, location, cancelTask);
     spi.buildFinish(ncfile);
 
@@ -458,50 +534,131 @@ public class CdmFiles {
     return ncfile;
   }
 
+  // all reads go through the raf, so wrapping it makes the IOSPs safe for concurrent reads
+  private static RandomAccessFile wrapForConcurrentReads(RandomAccessFile raf, @Nullable Object iospMessage)
+      throws IOException {
+    if (CdmFile.IOSP_MESSAGE_CONCURRENT_READS.equals(iospMessage) && !(raf instanceof ConcurrentRandomAccessFile)) {
+      try {
+        return new ConcurrentRandomAccessFile(raf);
+      } catch (IOException e) {
+        raf.close();
+        throw e;
+      }
+    }
+    return raf;
+  }
+
+  // only a plain local file is replaced; the original raf is closed
+  private static RandomAccessFile mapForMemoryMapped(RandomAccessFile raf, @Nullable Object iospMessage)
+      throws IOException {
+    if (CdmFile.IOSP_MESSAGE_MEMORY_MAPPED.equals(iospMessage) && raf.getClass() == RandomAccessFile.class
+        && raf.getRandomAccessFile() != null) {
+      int bufferSize = raf.getBufferSize();
+      raf.close();
+      return new MappedRandomAccessFile(raf.getLocation(), bufferSize);
+    }
+    return raf;
+  }
+
+  /*
+   * Find the IOSP that can open the file:
+   * 1) Registered providers override defaults, so ones that dont declare magic numbers are tried first.
+   * 2) Read the start of the file once, and try the providers whose magic number matches it.
+   * 3) If none of those can open it, try the rest in order, registered first, then those from the ServiceLoader.
+   * This avoids calling isValidFile() on providers that must search the file to reject it.
+   */
   @Nullable
   private static IOServiceProvider getIosp(RandomAccessFile raf) throws IOException {
     if (CdmFile.debugSPI)
       log.info("CdmFile try to open = {}", raf.getLocation());
 
-    // Registered providers override defaults.
-    for (IOServiceProvider registeredSpi : registeredProviders) {
-      if (CdmFile.debugSPI) {
-        log.info(" try iosp = {}", registeredSpi.getClass().getName());
+    List<IOServiceProvider> providers = new ArrayList<>(registeredProviders);
+    int nregistered = providers.size();
+    providers.addAll(LoadedProviders.iosps);
+    boolean[] tried = new boolean[providers.size()];
+
+    for (int i = 0; i < nregistered; i++) {
+      IOServiceProvider spi = providers.get(i);
+      if (spi.getMagicNumbers().isEmpty()) {
+        tried[i] = true;
+        if (isValidFile(spi, raf)) {
+          return newInstance(spi);
+        }
       }
+    }
 
-      if (registeredSpi.isValidFile(raf)) {
-        // need a new instance for thread safety
-        Class<?> c = registeredSpi.getClass();
-        try {
-          return (IOServiceProvider) c.getDeclaredConstructor().newInstance();
-        } catch (Exception e) {
-          throw new IOException("IOServiceProvider failed for " + c.getName(), e);
+    byte[] probe = readProbe(raf, providers);
+    for (int i = 0; i < providers.size(); i++) {
+      IOServiceProvider spi = providers.get(i);
+      if (!tried[i] && matchesMagicNumber(probe, spi)) {
+        tried[i] = true;
+        if (isValidFile(spi, raf)) {
+          return newInstance(spi);
         }
       }
     }
 
-    // look for dynamically loaded IOSPs
-    for (IOServiceProvider loadedSpi : ServiceLoader.load(IOServiceProvider.class)) {
-      if (loadedSpi.isValidFile(raf)) {
-        Class<?> c = loadedSpi.getClass();
-        try {
-          return (IOServiceProvider) c.getDeclaredConstructor().newInstance();
-        } catch (Exception e) {
-          throw new IOException("IOServiceProvider ServiceLoader failed for " + c.getName(), e);
-        }
+    for (int i = 0; i < providers.size(); i++) {
+      IOServiceProvider spi = providers.get(i);
+      if (!tried[i] && isValidFile(spi, raf)) {
+        return newInstance(spi);
       }
     }
     return null;
   }
 
+  private static boolean isValidFile(IOServiceProvider spi, RandomAccessFile raf) throws IOException {
+    if (CdmFile.debugSPI) {
+      log.info(" try iosp = {}", spi.getClass().getName());
+    }
+    return spi.isValidFile(raf);
+  }
+
+  // need a new instance for thread safety
+  private static IOServiceProvider newInstance(IOServiceProvider spi) throws IOException {
+    Class<?> c = spi.getClass();
+    try {
+      return (IOServiceProvider) c.getDeclaredConstructor().newInstance();
+    } catch (Exception e) {
+      throw new IOException("IOServiceProvider failed for " + c.getName(), e);
+    }
+  }
+
+  // read enough of the start of the file to compare against the longest magic number; may be shorter than that
+  private static byte[] readProbe(RandomAccessFile raf, List<IOServiceProvider> providers) throws IOException {
+    int len = 0;
+    for (IOServiceProvider spi : providers) {
+      for (byte[] magic : spi.getMagicNumbers()) {
+        len = Math.max(len, magic.length);
+      }
+    }
+    byte[] probe = new byte[(int) Math.min(len, raf.length())];
+    raf.seek(0);
+    int nread = probe.length == 0 ? 0 : raf.readBytes(probe, 0, probe.length);
+    return nread == probe.length ? probe : Arrays.copyOf(probe, Math.max(nread, 0));
+  }
+
+  private static boolean matchesMagicNumber(byte[] probe, IOServiceProvider spi) {
+    for (byte[] magic : spi.getMagicNumbers()) {
+      if (magic.length <= probe.length && Arrays.equals(probe, 0, magic.length, magic, 0, magic.length)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public static CdmFile build(IOServiceProvider spi, RandomAccessFile raf, String location,
                               CancelTask cancelTask) throws IOException {
 
     CdmFile.Builder<?> builder = CdmFile.builder().setIosp(spi).setLocation(location);
 
     try {
-      Group.Builder root = Group.builder().setName("");
-      spi.build(raf, root, cancelTask);
+      Group.Builder root = HeaderSnapshotCache.restore(spi, raf);
+      if (root == null) {
+        root = Group.builder().setName("");
+        spi.build(raf, root, cancelTask);
+        HeaderSnapshotCache.save(spi, raf, root);
+      }
       builder.setRootGroup(root);
 
       String id = root.getAttributeContainer().findAttributeString("_Id", null);
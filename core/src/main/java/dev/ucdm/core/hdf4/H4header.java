@@ -43,7 +43,7 @@ import java.util.Set;
 public class H4header implements HdfHeaderIF {
   private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(H4header.class);
 
-  private static final byte[] H4HEAD = {(byte) 0x0e, (byte) 0x03, (byte) 0x13, (byte) 0x01};
+  static final byte[] H4HEAD = {(byte) 0x0e, (byte) 0x03, (byte) 0x13, (byte) 0x01};
   private static final String H4HEAD_STRING = new String(H4HEAD, StandardCharsets.UTF_8);
   private static final long maxHeaderPos = 500000; // header's gotta be within this
 
@@ -1062,6 +1062,7 @@ public class H4header implements HdfHeaderIF {
 
     // below is not set until setLayoutInfo() is called
     boolean isLinked, isCompressed, isChunked, hasNoData;
+    private boolean layoutInfoSet;
 
     // regular
     int start = -1;
@@ -1107,10 +1108,11 @@ public class H4header implements HdfHeaderIF {
     }
 
     // make sure needed info is present : call this when variable needs to be read
-    // this allows us to defer getting layout info until then
-    void setLayoutInfo(CdmFile ncfile) throws IOException {
-      if (data == null)
+    // this allows us to defer getting layout info until then. synchronized for concurrent reads.
+    synchronized void setLayoutInfo(CdmFile ncfile) throws IOException {
+      if (data == null || layoutInfoSet)
         return;
+      layoutInfoSet = true;
 
       if (null != data.linked) {
         isLinked = true;
@@ -46,6 +46,11 @@ public class H4iosp extends AbstractIOServiceProvider {
     return H4header.isValidFile(raf);
   }
 
+  @Override
+  public List<byte[]> getMagicNumbers() {
+    return List.of(H4header.H4HEAD.clone()); // the header may also be at 512, 1024, ..
+  }
+
   @Override
   public String getCdmFileTypeId() {
     if (header != null && header.isEos()) {
@@ -44,6 +44,7 @@ import dev.ucdm.core.netcdf3.NetcdfFormatUtils;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.DoubleBuffer;
@@ -89,7 +90,7 @@ public class H5header implements HdfHeaderIF {
     warnings = warn;
   }
 
-  private static final byte[] magic = {(byte) 0x89, 'H', 'D', 'F', '\r', '\n', 0x1a, '\n'};
+  static final byte[] magic = {(byte) 0x89, 'H', 'D', 'F', '\r', '\n', 0x1a, '\n'};
   private static final String magicString = new String(magic, StandardCharsets.UTF_8);
   private static final boolean transformReference = true;
 
@@ -119,6 +120,7 @@ public class H5header implements HdfHeaderIF {
   private final RandomAccessFile raf;
   private final Group.Builder root;
   private final H5iosp h5iosp;
+  private boolean closed; // guarded by this
 
   private long baseAddress;
   byte sizeOffsets, sizeLengths;
@@ -929,7 +931,7 @@ public class H5header implements HdfHeaderIF {
 
     } else {
       // make a single attribute
-      Attribute att = makeAttribute(matt);
+      Attribute att = h5iosp.lazyAttributes ? makeLazyAttribute(matt) : makeAttribute(matt);
       if (att != null)
         attContainer.addAttribute(att);
     }
@@ -980,6 +982,43 @@ public class H5header implements HdfHeaderIF {
     return result;
   }
 
+  // large numeric attributes are read when first used; others are read now
+  private Attribute makeLazyAttribute(MessageAttribute matt) throws IOException {
+    Vinfo vinfo = new Vinfo(matt.mdt, matt.mds, matt.dataPos);
+    ArrayType dtype = vinfo.getNCArrayType();
+    boolean fixedOrFloat = vinfo.typeInfo.hdfType == 0 || vinfo.typeInfo.hdfType == 1;
+    if (matt.mds.type == 2 || !fixedOrFloat || !dtype.isNumeric()
+        || Arrays.computeSize(matt.mds.dimLength) < H5iosp.lazyAttributeMinElements) {
+      return makeAttribute(matt);
+    }
+    int[] shape = matt.mds.dimLength;
+    return Attribute.fromArray(matt.name, lazyArray(dtype, shape, () -> readAttributeData(matt, vinfo, dtype)));
+  }
+
+  private interface HeaderReader {
+    Array<?> read() throws IOException, InvalidRangeException;
+  }
+
+  // read the values the first time they are used, possibly after the header has been read
+  private Array<?> lazyArray(ArrayType dtype, int[] shape, HeaderReader reader) {
+    return Arrays.factoryLazy(dtype, shape, () -> {
+      synchronized (this) {
+        if (closed) {
+          throw new UncheckedIOException(new IOException("Lazy values read after closing " + raf.getLocation()));
+        }
+        try {
+          return (Array) reader.read();
+        } catch (IOException e) {
+          throw new UncheckedIOException("Failed to read from " + raf.getLocation(), e);
+        } catch (InvalidRangeException e) {
+          throw new IllegalStateException(e);
+        } finally {
+          raf.order(RandomAccessFile.LITTLE_ENDIAN);
+        }
+      }
+    });
+  }
+
   // read non-Structure attribute values without creating a Variable
   private Array<?> readAttributeData(MessageAttribute matt, Vinfo vinfo, ArrayType dataType)
       throws IOException, InvalidRangeException {
@@ -990,8 +1029,7 @@ public class H5header implements HdfHeaderIF {
     // Strings
     if ((vinfo.typeInfo.hdfType == 9) && (vinfo.typeInfo.isVString)) {
       int size = (int) layout2.getTotalNelems();
-      String[] sarray = new String[size];
-      int count = 0;
+      List<HeapIdentifier> heapIds = new ArrayList<>(size);
       while (layout2.hasNext()) {
         Layout.Chunk chunk = layout2.next();
         if (chunk == null) {
@@ -999,11 +1037,10 @@ public class H5header implements HdfHeaderIF {
         }
         for (int i = 0; i < chunk.getNelems(); i++) {
           long address = chunk.getSrcPos() + layout2.getElemSize() * i;
-          String sval = readHeapString(address);
-          sarray[count++] = sval;
+          heapIds.add(h5objects.readHeapIdentifier(address));
         }
       }
-      return Arrays.factory(ArrayType.STRING, new int[] {size}, sarray);
+      return Arrays.factory(ArrayType.STRING, new int[] {size}, readHeapStrings(heapIds));
     } // vlen Strings case
 
     // Vlen (non-String)
@@ -1358,8 +1395,13 @@ public class H5header implements HdfHeaderIF {
     if (transformReference && (facade.dobj.mdt.type == 7) && (facade.dobj.mdt.referenceType == 0)) { // object reference
       // System.out.printf("new transform object Reference: facade= %s variable name=%s%n", facade.name, vb.shortName);
       vb.setArrayType(ArrayType.STRING);
-      Array<Long> rawData = (Array<Long>) vinfo.readArray();
-      Array<String> refData = findReferenceObjectNames(rawData);
+      Array<?> refData;
+      if (h5iosp.lazyAttributes) {
+        refData = lazyArray(ArrayType.STRING, facade.dobj.mds.dimLength,
+            () -> findReferenceObjectNames((Array<Long>) vinfo.readArray()));
+      } else {
+        refData = findReferenceObjectNames((Array<Long>) vinfo.readArray());
+      }
       vb.setSourceData(refData); // so H5iosp.read() is never called
       vb.addAttribute(new Attribute("_HDF5ReferenceType", "values are names of referenced Variables"));
     }
@@ -1987,6 +2029,22 @@ public class H5header implements HdfHeaderIF {
     return raf.readString((int) ho.dataSize, valueCharset);
   }
 
+  /**
+   * Fetch Strings from the heap, reading each global heap collection once.
+   *
+   * @param heapIds the heap ids, eg from readHeapIdentifier()
+   * @return the Strings read from the heap, in the same order as heapIds.
+   * @throws IOException on read error
+   */
+  String[] readHeapStrings(List<HeapIdentifier> heapIds) throws IOException {
+    return h5objects.readHeapStrings(heapIds, valueCharset, NULL_STRING_VALUE);
+  }
+
+  /** Read the heap identifier that has already been put into a ByteBuffer at given pos. */
+  HeapIdentifier readHeapIdentifier(ByteBuffer bb, int pos) {
+    return h5objects.readHeapIdentifier(bb, pos);
+  }
+
   Array<?> readHeapVlen(ByteBuffer bb, int pos, ArrayType dataType, ByteOrder endian) throws IOException {
     HeapIdentifier heapId = h5objects.readHeapIdentifier(bb, pos);
     return getHeapDataArray(heapId, dataType, endian);
@@ -2142,7 +2200,8 @@ public class H5header implements HdfHeaderIF {
     return false; // TODO
   }
 
-  public void close() {
+  public synchronized void close() {
+    closed = true; // waits for lazy reads in progress, see lazyArray()
     if (debugTracker) {
       Formatter f = new Formatter();
       memTracker.report(f);
@@ -29,6 +29,9 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static dev.ucdm.core.api.CdmFile.IOSP_MESSAGE_GET_NETCDF_FILE_FORMAT;
@@ -36,6 +39,13 @@ import static dev.ucdm.core.api.CdmFile.IOSP_MESSAGE_GET_NETCDF_FILE_FORMAT;
 /** HDF5 I/O */
 public class H5iosp extends AbstractIOServiceProvider {
   public static final String IOSP_MESSAGE_INCLUDE_ORIGINAL_ATTRIBUTES = "IncludeOrgAttributes";
+  /**
+   * Send before the file is opened to defer reading large attribute values and object reference names until they
+   * are first used. Speeds up opening files with many large attributes, eg over a network.
+   * The values are read from the open file, so use them before closing it: values that were not read before the
+   * CdmFile was closed throw an UncheckedIOException when they are used.
+   */
+  public static final String IOSP_MESSAGE_LAZY_ATTRIBUTES = "LazyAttributes";
 
   static final int VLEN_T_SIZE = 16; // Appears to be no way to compute on the fly.
 
@@ -50,6 +60,8 @@ public class H5iosp extends AbstractIOServiceProvider {
   static boolean debugVlen;
   static boolean debugStructure;
   static boolean useHdfEos = true;
+  static int lazyAttributeMinElements = 1000;
+  static long globalHeapCacheBytes = 16L * 1000 * 1000;
 
   static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(H5iosp.class);
 
@@ -58,6 +70,7 @@ public class H5iosp extends AbstractIOServiceProvider {
   H5header header;
   boolean isEos;
   boolean includeOriginalAttributes;
+  boolean lazyAttributes;
   private Charset valueCharset;
 
   @Override
@@ -85,6 +98,11 @@ public class H5iosp extends AbstractIOServiceProvider {
     return H5header.isValidFile(raf);
   }
 
+  @Override
+  public List<byte[]> getMagicNumbers() {
+    return List.of(H5header.magic.clone()); // the superblock may also be at 512, 1024, ..
+  }
+
   @Override
   public String getCdmFileTypeId() {
     if (isEos) {
@@ -105,6 +123,22 @@ public class H5iosp extends AbstractIOServiceProvider {
     useHdfEos = val;
   }
 
+  /**
+   * Set the maximum bytes of global heap collections (where variable length Strings and vlens are stored) to keep in
+   * memory for each open file. Takes effect for files opened after this call. Default is 16 MB.
+   */
+  public static void setGlobalHeapCacheBytes(long maxBytes) {
+    globalHeapCacheBytes = maxBytes;
+  }
+
+  /**
+   * With IOSP_MESSAGE_LAZY_ATTRIBUTES, numeric attributes with at least this many values are read lazily, default 1000.
+   * Lazy values that are first used after the CdmFile is closed throw an UncheckedIOException.
+   */
+  public static void setLazyAttributeMinElements(int minElements) {
+    lazyAttributeMinElements = minElements;
+  }
+
   @Override
   public String getCdmFileTypeVersion() {
     // TODO this only works for files writtten by netcdf4 c library. what about plain hdf5?
@@ -120,6 +154,10 @@ public class H5iosp extends AbstractIOServiceProvider {
     if (message.toString().equals(CdmFile.IOSP_MESSAGE_GET_HEADER)) {
       return header;
     }
+    if (message.equals(IOSP_MESSAGE_LAZY_ATTRIBUTES)) {
+      lazyAttributes = true;
+      return Boolean.TRUE;
+    }
     if (message.equals(IOSP_MESSAGE_GET_NETCDF_FILE_FORMAT)) {
       if (!header.isNetcdf4()) {
         return null;
@@ -131,8 +169,11 @@ public class H5iosp extends AbstractIOServiceProvider {
 
   @Override
   public void close() throws IOException {
+    // first, so lazy attribute reads see it is closed
+    if (header != null) {
+      header.close();
+    }
     super.close();
-    header.close();
   }
 
   @Override
@@ -326,7 +367,7 @@ public class H5iosp extends AbstractIOServiceProvider {
 
   private String[] readFilteredStringData(LayoutBB layout) throws IOException {
     int size = (int) layout.getTotalNelems();
-    String[] sa = new String[size];
+    List<H5objects.HeapIdentifier> heapIds = new ArrayList<>(Collections.nCopies(size, null));
     while (layout.hasNext()) {
       LayoutBB.Chunk chunk = layout.next();
       ByteBuffer bb = chunk.getByteBuffer();
@@ -336,10 +377,11 @@ public class H5iosp extends AbstractIOServiceProvider {
       int destPos = (int) chunk.getDestElem();
       for (int i = 0; i < chunk.getNelems(); i++) { // 16 byte "heap ids"
         // TODO does this handle section correctly ??
-        sa[destPos++] = header.readHeapString(bb, (chunk.getSrcElem() + i) * 16);
+        heapIds.set(destPos++, header.readHeapIdentifier(bb, (chunk.getSrcElem() + i) * 16));
       }
     }
-    return sa;
+    // the Strings are read after all the heap ids, so each global heap collection is read once
+    return header.readHeapStrings(heapIds);
   }
 
   /**
@@ -389,17 +431,22 @@ public class H5iosp extends AbstractIOServiceProvider {
 
     if (dataType == ArrayType.STRING) {
       int size = (int) layout.getTotalNelems();
-      String[] sa = new String[size];
-      int count = 0;
+      List<H5objects.HeapIdentifier> heapIds = new ArrayList<>(size);
       while (layout.hasNext()) {
         Layout.Chunk chunk = layout.next();
         if (chunk == null)
           continue;
-        for (int i = 0; i < chunk.getNelems(); i++) { // 16 byte "heap ids"
-          sa[count++] = header.readHeapString(chunk.getSrcPos() + layout.getElemSize() * i);
+        // read all the heap ids in the chunk at once
+        int elemSize = layout.getElemSize();
+        ByteBuffer bb = ByteBuffer.allocate(chunk.getNelems() * elemSize);
+        raf.seek(chunk.getSrcPos());
+        raf.readFully(bb.array());
+        for (int i = 0; i < chunk.getNelems(); i++) {
+          heapIds.add(header.readHeapIdentifier(bb, i * elemSize));
         }
       }
-      return sa;
+      // the Strings are read after all the heap ids, so each global heap collection is read once
+      return header.readHeapStrings(heapIds);
     }
 
     if (dataType == ArrayType.OPAQUE) {
@@ -4,6 +4,9 @@
  */
 package dev.ucdm.core.hdf5;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import dev.ucdm.array.Array;
 import dev.ucdm.array.ArrayType;
 import dev.ucdm.array.Arrays;
@@ -15,14 +18,17 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Formatter;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
 
 /** The low-level HDF5 data objects. */
 public class H5objects {
@@ -74,7 +80,9 @@ public class H5objects {
 
   private final PrintWriter debugOut;
   private final MemTracker memTracker;
-  private final Map<Long, GlobalHeap> heapMap = new HashMap<>();
+  // populated while reading data, bounded by H5iosp.globalHeapCacheBytes
+  private final Cache<Long, GlobalHeap> heapCache = CacheBuilder.newBuilder()
+      .maximumWeight(H5iosp.globalHeapCacheBytes).weigher((Long address, GlobalHeap gheap) -> gheap.weight()).build();
   private final Map<Long, H5Group> hashGroups = new HashMap<>();
 
   H5objects(H5header header, PrintWriter debugOut, MemTracker memTracker) {
@@ -2556,12 +2564,7 @@ public class H5objects {
     GlobalHeap.HeapObject getHeapObject() throws IOException {
       if (isEmpty())
         return null;
-      GlobalHeap gheap;
-      if (null == (gheap = heapMap.get(heapAddress))) {
-        gheap = new GlobalHeap(heapAddress);
-        heapMap.put(heapAddress, gheap);
-      }
-
+      GlobalHeap gheap = getGlobalHeap(heapAddress);
       GlobalHeap.HeapObject ho = gheap.getHeapObject((short) index);
       if (ho == null)
         throw new IllegalStateException("cant find HeapObject");
@@ -2570,6 +2573,95 @@ public class H5objects {
 
   } // HeapIdentifier
 
+  private GlobalHeap getGlobalHeap(long heapAddress) throws IOException {
+    try {
+      return heapCache.get(heapAddress, () -> new GlobalHeap(heapAddress));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException ioe) {
+        throw ioe;
+      }
+      if (cause instanceof RuntimeException re) {
+        throw re;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * Fetch Strings from the heap. The heap ids are grouped by global heap collection. Small collections are kept in
+   * memory; otherwise the span of the wanted Strings is read once, if not too large, instead of seeking to each String.
+   *
+   * @param heapIds the heap ids, in the order of the result. A null heap id gives a null String.
+   * @param charset decode the Strings with this Charset.
+   * @param nullValue use this for an empty heap id.
+   */
+  String[] readHeapStrings(List<HeapIdentifier> heapIds, Charset charset, String nullValue) throws IOException {
+    String[] result = new String[heapIds.size()];
+    Map<Long, List<Integer>> byCollection = new LinkedHashMap<>();
+    for (int i = 0; i < heapIds.size(); i++) {
+      HeapIdentifier heapId = heapIds.get(i);
+      if (heapId == null) { // not read, leave as null
+        continue;
+      }
+      if (heapId.isEmpty()) {
+        result[i] = nullValue;
+      } else {
+        byCollection.computeIfAbsent(heapId.heapAddress, k -> new ArrayList<>()).add(i);
+      }
+    }
+
+    for (Map.Entry<Long, List<Integer>> entry : byCollection.entrySet()) {
+      GlobalHeap gheap = getGlobalHeap(entry.getKey());
+      List<Integer> wanted = new ArrayList<>(entry.getValue().size());
+      long spanStart = Long.MAX_VALUE;
+      long spanEnd = Long.MIN_VALUE;
+      for (int i : entry.getValue()) {
+        HeapIdentifier heapId = heapIds.get(i);
+        GlobalHeap.HeapObject ho = gheap.getHeapObject((short) heapId.index);
+        if (ho == null) {
+          throw new IllegalStateException("Cant find Heap Object,heapId=" + heapId);
+        }
+        if (ho.dataSize > 1000 * 1000) { // same as H5header.readHeapString
+          result[i] = String.format("Bad HeapObject.dataSize=%s", ho);
+          continue;
+        }
+        wanted.add(i);
+        spanStart = Math.min(spanStart, ho.dataPos);
+        spanEnd = Math.max(spanEnd, ho.dataPos + ho.dataSize);
+      }
+      if (wanted.isEmpty()) {
+        continue;
+      }
+
+      // use the kept collection, else read the span of the wanted objects if its not too big
+      byte[] data = gheap.data;
+      long dataStart = gheap.dataStart;
+      if (data == null) {
+        spanStart = Math.max(spanStart, gheap.dataStart);
+        spanEnd = Math.min(spanEnd, gheap.dataStart + gheap.dataSize);
+        if (spanEnd > spanStart && spanEnd - spanStart <= H5iosp.globalHeapCacheBytes / 8) {
+          data = new byte[(int) (spanEnd - spanStart)];
+          raf.seek(spanStart);
+          raf.readFully(data);
+          dataStart = spanStart;
+        }
+      }
+
+      for (int i : wanted) {
+        GlobalHeap.HeapObject ho = gheap.getHeapObject((short) heapIds.get(i).index);
+        long offset = ho.dataPos - dataStart;
+        if (data != null && offset >= 0 && offset + ho.dataSize <= data.length) {
+          result[i] = new String(data, (int) offset, (int) ho.dataSize, charset);
+        } else { // scattered objects in a large collection, or past the end of a truncated collection
+          raf.seek(ho.dataPos);
+          result[i] = raf.readString((int) ho.dataSize, charset);
+        }
+      }
+    }
+    return result;
+  }
+
   class RegionReference {
     private final long heapAddress;
     private final int index;
@@ -2581,12 +2673,7 @@ public class H5objects {
       heapAddress = header.readOffset();
       index = raf.readInt();
 
-      GlobalHeap gheap;
-      if (null == (gheap = heapMap.get(heapAddress))) {
-        gheap = new GlobalHeap(heapAddress);
-        heapMap.put(heapAddress, gheap);
-      }
-
+      GlobalHeap gheap = getGlobalHeap(heapAddress);
       GlobalHeap.HeapObject want = gheap.getHeapObject((short) index);
       if (debugRegionReference) {
         log.debug(" found ho={}", want);
@@ -2617,6 +2704,9 @@ public class H5objects {
     private final byte version;
     private final int sizeBytes;
     private final Map<Short, GlobalHeap.HeapObject> hos = new HashMap<>();
+    private final long dataStart; // file position of the heap objects
+    private final int dataSize; // number of bytes of heap objects in the file
+    private final byte[] data; // the heap objects, if the collection is small enough to keep
 
     GlobalHeap(long address) throws IOException {
       long filePos = header.getFileOffset(address);
@@ -2682,12 +2772,28 @@ public class H5objects {
       }
       if (debugTracker)
         memTracker.addByLen("GlobalHeap", address, sizeBytes);
+
+      // the collection size includes the 16 byte header
+      dataStart = filePos + 16;
+      dataSize = (int) Math.max(0, Math.min(sizeBytes - 16, raf.length() - dataStart));
+      if (dataSize <= H5iosp.globalHeapCacheBytes / 8) {
+        data = new byte[dataSize];
+        raf.seek(dataStart);
+        raf.readFully(data);
+      } else {
+        data = null;
+      }
     }
 
     GlobalHeap.HeapObject getHeapObject(short id) {
       return hos.get(id);
     }
 
+    // approximate number of bytes used, for the cache
+    int weight() {
+      return (data == null ? 0 : data.length) + 48 * hos.size();
+    }
+
     class HeapObject {
       short id, refCount;
       long dataSize;
@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.io;
+
+import dev.ucdm.core.util.KMPMatch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only RandomAccessFile that may be shared by multiple threads.
+ * Each thread gets its own view, with its own buffer, file position and byte order. The views read from the
+ * underlying file with positional reads (FileChannel.read(ByteBuffer, pos)), which do not change any shared state.
+ * <p/>
+ * Wraps another RandomAccessFile, which must not be used directly once wrapped. Closing this closes the wrapped file.
+ * The byte order and buffer size set by one thread are used as the defaults for threads that have not yet read,
+ * so set them before sharing.
+ */
+public class ConcurrentRandomAccessFile extends RandomAccessFile {
+  private final RandomAccessFile delegate;
+  private final ThreadLocal<View> views = ThreadLocal.withInitial(View::new);
+
+  private volatile FileChannel channel; // null if delegate is not a local file
+  private volatile boolean defaultBigEndian;
+  private volatile int defaultBufferSize;
+  private volatile boolean extendReads;
+  private volatile boolean closed;
+
+  /**
+   * Wrap a RandomAccessFile for concurrent reading.
+   *
+   * @param delegate read from this file, which is closed when this is closed.
+   * @throws IOException on error opening a file channel.
+   */
+  public ConcurrentRandomAccessFile(RandomAccessFile delegate) throws IOException {
+    super(0);
+    this.delegate = delegate;
+    this.location = delegate.getLocation();
+    this.defaultBigEndian = delegate.bigEndian;
+    this.defaultBufferSize = delegate.getBufferSize();
+    if (delegate.file != null) {
+      this.channel = openChannel();
+    }
+  }
+
+  /** The wrapped RandomAccessFile. */
+  public RandomAccessFile getDelegate() {
+    return delegate;
+  }
+
+  private FileChannel openChannel() throws IOException {
+    return FileChannel.open(Paths.get(location), StandardOpenOption.READ);
+  }
+
+  // An interrupted thread closes the FileChannel for everyone, so open a new one.
+  private synchronized void reopenChannel(FileChannel failed) throws IOException {
+    if (!closed && channel == failed) {
+      channel = openChannel();
+    }
+  }
+
+  // Positional read, does not change any shared state.
+  private int readAt(long pos, byte[] b, int offset, int len) throws IOException {
+    if (channel == null) {
+      return delegate.read_(pos, b, offset, len); // InMemory and Remote are stateless
+    }
+    while (true) {
+      FileChannel fc = channel;
+      ByteBuffer bb = ByteBuffer.wrap(b, offset, len);
+      try {
+        int n = 0;
+        while (bb.hasRemaining()) {
+          int count = fc.read(bb, pos + n);
+          if (count < 0) {
+            break;
+          }
+          n += count;
+        }
+        if (extendReads && (n < len)) {
+          n = len;
+        }
+        return (n == 0 && len > 0) ? -1 : n;
+
+      } catch (ClosedChannelException e) {
+        if (closed) {
+          throw e;
+        }
+        reopenChannel(fc);
+        if (Thread.currentThread().isInterrupted()) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  private View view() {
+    return views.get();
+  }
+
+  /** The per-thread state. */
+  private class View extends RandomAccessFile {
+    View() {
+      super(defaultBufferSize);
+      this.location = ConcurrentRandomAccessFile.this.location;
+      this.bigEndian = defaultBigEndian;
+    }
+
+    @Override
+    protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
+      return readAt(pos, b, offset, len);
+    }
+
+    @Override
+    public long length() throws IOException {
+      return ConcurrentRandomAccessFile.this.length();
+    }
+
+    @Override
+    public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
+      return ConcurrentRandomAccessFile.this.readToByteChannel(dest, offset, nbytes);
+    }
+  }
+
+  //////////////////////////////////////////////////////////////////////////
+  // shared state
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (channel != null) {
+      channel.close();
+    }
+    delegate.close();
+  }
+
+  @Override
+  public long length() throws IOException {
+    return delegate.length();
+  }
+
+  @Override
+  protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
+    return readAt(pos, b, offset, len);
+  }
+
+  @Override
+  public void setExtendMode() {
+    this.extendReads = true;
+  }
+
+  @Override
+  public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
+    if (channel == null) {
+      return delegate.readToByteChannel(dest, offset, nbytes);
+    }
+    long need = nbytes;
+    while (need > 0) {
+      long count = channel.transferTo(offset, need, dest);
+      if (count == 0)
+        break; // EOF condition
+      need -= count;
+      offset += count;
+    }
+    return nbytes - need;
+  }
+
+  @Override
+  public ByteBuffer getByteBuffer(long pos, int nbytes) throws IOException {
+    return delegate.getByteBuffer(pos, nbytes);
+  }
+
+  @Override
+  public String toString() {
+    return location;
+  }
+
+  //////////////////////////////////////////////////////////////////////////
+  // per-thread state
+
+  @Override
+  public void setBufferSize(int bufferSize) {
+    this.defaultBufferSize = bufferSize;
+    view().setBufferSize(bufferSize);
+  }
+
+  @Override
+  public int getBufferSize() {
+    return view().getBufferSize();
+  }
+
+  @Override
+  public void order(int endian) {
+    if (endian < 0)
+      return;
+    this.defaultBigEndian = (endian == BIG_ENDIAN);
+    view().order(endian);
+  }
+
+  @Override
+  public void order(ByteOrder bo) {
+    if (bo == null)
+      return;
+    this.defaultBigEndian = bo.equals(ByteOrder.BIG_ENDIAN);
+    view().order(bo);
+  }
+
+  @Override
+  public ByteOrder getByteOrder() {
+    return view().getByteOrder();
+  }
+
+  @Override
+  public boolean isAtEndOfFile() {
+    return view().isAtEndOfFile();
+  }
+
+  @Override
+  public void seek(long pos) throws IOException {
+    view().seek(pos);
+  }
+
+  @Override
+  public long getFilePointer() {
+    return view().getFilePointer();
+  }
+
+  @Override
+  public int skipBytes(int n) throws IOException {
+    return view().skipBytes(n);
+  }
+
+  @Override
+  public long skipBytes(long n) throws IOException {
+    return view().skipBytes(n);
+  }
+
+  @Override
+  public void unread() {
+    view().unread();
+  }
+
+  @Override
+  public int read() throws IOException {
+    return view().read();
+  }
+
+  @Override
+  public int readBytes(byte[] b, int off, int len) throws IOException {
+    return view().readBytes(b, off, len);
+  }
+
+  @Override
+  public void readFully(byte[] b, int off, int len) throws IOException {
+    view().readFully(b, off, len);
+  }
+
+  @Override
+  public short readShort() throws IOException {
+    return view().readShort();
+  }
+
+  @Override
+  public void readShort(short[] pa, int start, int n) throws IOException {
+    view().readShort(pa, start, n);
+  }
+
+  @Override
+  public int readUnsignedShort() throws IOException {
+    return view().readUnsignedShort();
+  }
+
+  @Override
+  public char readChar() throws IOException {
+    return view().readChar();
+  }
+
+  @Override
+  public int readInt() throws IOException {
+    return view().readInt();
+  }
+
+  @Override
+  public int readIntUnbuffered(long pos) throws IOException {
+    return view().readIntUnbuffered(pos);
+  }
+
+  @Override
+  public void readInt(int[] pa, int start, int n) throws IOException {
+    view().readInt(pa, start, n);
+  }
+
+  @Override
+  public long readLong() throws IOException {
+    return view().readLong();
+  }
+
+  @Override
+  public void readLong(long[] pa, int start, int n) throws IOException {
+    view().readLong(pa, start, n);
+  }
+
+  @Override
+  public float readFloat() throws IOException {
+    return view().readFloat();
+  }
+
+  @Override
+  public void readFloat(float[] pa, int start, int n) throws IOException {
+    view().readFloat(pa, start, n);
+  }
+
+  @Override
+  public double readDouble() throws IOException {
+    return view().readDouble();
+  }
+
+  @Override
+  public void readDouble(double[] pa, int start, int n) throws IOException {
+    view().readDouble(pa, start, n);
+  }
+
+  @Override
+  public boolean searchForward(KMPMatch match, int maxBytes) throws IOException {
+    return view().searchForward(match, maxBytes);
+  }
+
+  //////////////////////////////////////////////////////////////////////////
+  // read only
+
+  @Override
+  public void write(int b) {
+    throw new UnsupportedOperationException("ConcurrentRandomAccessFile is read only");
+  }
+
+  @Override
+  public void writeBytes(byte[] b, int off, int len) {
+    throw new UnsupportedOperationException("ConcurrentRandomAccessFile is read only");
+  }
+}
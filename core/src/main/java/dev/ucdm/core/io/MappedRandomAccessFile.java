@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.io;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A read-only RandomAccessFile that memory maps a local file, so that reads are served from the OS page cache
+ * without a system call. Files larger than 2 Gb are mapped as multiple overlapping segments; any range no larger
+ * than the overlap lies entirely within one segment, and can be returned without copying by getByteBuffer().
+ * <p/>
+ * Reads do not change any shared state, so this may be wrapped by a ConcurrentRandomAccessFile to share it between
+ * threads. The mapping is released when the segments are garbage collected, not when the file is closed.
+ */
+public class MappedRandomAccessFile extends RandomAccessFile {
+  static final long DEFAULT_SEGMENT_SIZE = 1L << 30;
+  static final long DEFAULT_OVERLAP = 1L << 28;
+
+  private final long length;
+  private final long step;
+  private volatile MappedByteBuffer[] segments;
+  private boolean extendReads;
+
+  /**
+   * Memory map a local file, default buffer size.
+   *
+   * @param location path of the file
+   * @throws IOException on open error
+   */
+  public MappedRandomAccessFile(String location) throws IOException {
+    this(location, defaultBufferSize);
+  }
+
+  /**
+   * Memory map a local file.
+   *
+   * @param location path of the file
+   * @param bufferSize size of the read buffer, used only by the DataInput methods.
+   * @throws IOException on open error
+   */
+  public MappedRandomAccessFile(String location, int bufferSize) throws IOException {
+    this(location, bufferSize, DEFAULT_SEGMENT_SIZE, DEFAULT_OVERLAP);
+  }
+
+  // segment sizes may be set by tests.
+  MappedRandomAccessFile(String location, int bufferSize, long segmentSize, long overlap) throws IOException {
+    super(bufferSize < 0 ? defaultBufferSize : bufferSize);
+    Preconditions.checkArgument(segmentSize <= Integer.MAX_VALUE);
+    Preconditions.checkArgument(overlap > 0 && overlap < segmentSize);
+    this.location = location;
+    this.step = segmentSize - overlap;
+    if (debugLeaks) {
+      allFiles.add(location);
+    }
+
+    try (FileChannel channel = FileChannel.open(Paths.get(location), StandardOpenOption.READ)) {
+      this.length = channel.size();
+      int nsegments = (length <= segmentSize) ? 1 : 1 + (int) ((length - segmentSize + step - 1) / step);
+      MappedByteBuffer[] mapped = new MappedByteBuffer[nsegments];
+      for (int i = 0; i < nsegments; i++) {
+        long start = i * step;
+        mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, length - start));
+      }
+      this.segments = mapped;
+    }
+
+    if (debugLeaks) {
+      openFiles.add(location);
+    }
+  }
+
+  /** Number of mapped segments. */
+  int getNumberOfSegments() {
+    return segments.length;
+  }
+
+  private MappedByteBuffer[] segments() throws IOException {
+    MappedByteBuffer[] result = segments;
+    if (result == null) {
+      throw new IOException("MappedRandomAccessFile " + location + " is closed");
+    }
+    return result;
+  }
+
+  private int segmentIndex(long pos, int nsegments) {
+    return (int) Math.min(pos / step, nsegments - 1);
+  }
+
+  @Override
+  public long length() {
+    return length;
+  }
+
+  @Override
+  public void setExtendMode() {
+    this.extendReads = true;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    super.close();
+    segments = null;
+  }
+
+  @Override
+  protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
+    MappedByteBuffer[] mapped = segments();
+    int n = 0;
+    while (n < len && pos + n < length) {
+      int index = segmentIndex(pos + n, mapped.length);
+      MappedByteBuffer segment = mapped[index];
+      int segOffset = (int) (pos + n - index * step);
+      int count = Math.min(len - n, segment.limit() - segOffset);
+      segment.get(segOffset, b, offset + n, count);
+      n += count;
+    }
+    if (extendReads && (n < len)) {
+      Arrays.fill(b, offset + n, offset + len, (byte) 0);
+      n = len;
+    }
+    return (n == 0 && len > 0) ? -1 : n;
+  }
+
+  @Override
+  public ByteBuffer getByteBuffer(long pos, int nbytes) throws IOException {
+    MappedByteBuffer[] mapped = segments();
+    if (pos < 0 || nbytes < 0 || pos + nbytes > length) {
+      return null;
+    }
+    int index = segmentIndex(pos, mapped.length);
+    MappedByteBuffer segment = mapped[index];
+    int segOffset = (int) (pos - index * step);
+    if (segOffset + nbytes > segment.limit()) {
+      return null; // larger than the overlap
+    }
+    return segment.slice(segOffset, nbytes);
+  }
+
+  @Override
+  public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
+    MappedByteBuffer[] mapped = segments();
+    long done = 0;
+    while (done < nbytes && offset + done < length) {
+      int index = segmentIndex(offset + done, mapped.length);
+      MappedByteBuffer segment = mapped[index];
+      int segOffset = (int) (offset + done - index * step);
+      int count = (int) Math.min(nbytes - done, segment.limit() - segOffset);
+      ByteBuffer src = segment.slice(segOffset, count);
+      while (src.hasRemaining()) {
+        dest.write(src);
+      }
+      done += count;
+    }
+    return done;
+  }
+
+  @Override
+  public String toString() {
+    return location;
+  }
+
+  //////////////////////////////////////////////////////////////////////////
+  // read only
+
+  @Override
+  public void write(int b) {
+    throw new UnsupportedOperationException("MappedRandomAccessFile is read only");
+  }
+
+  @Override
+  public void writeBytes(byte[] b, int off, int len) {
+    throw new UnsupportedOperationException("MappedRandomAccessFile is read only");
+  }
+}
@@ -5,6 +5,7 @@
 package dev.ucdm.core.io;
 
 import dev.ucdm.core.util.KMPMatch;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.Closeable;
 import java.io.DataInput;
@@ -14,6 +15,7 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
@@ -45,6 +47,7 @@ import java.util.concurrent.atomic.AtomicLong;
  * Freeware Java Classes</a>.
  * <p/>
  * Mutable, must be thread confined - that is, can only be used by a single thread at a time.
+ * Use ConcurrentRandomAccessFile to share a file between threads.
  *
  * @author Alex McManus
  * @author Russ Rew
@@ -379,6 +382,11 @@ public class RandomAccessFile implements DataInput, DataOutput, Closeable {
     this.bigEndian = bo.equals(ByteOrder.BIG_ENDIAN);
   }
 
+  /** The current byte order, used by subsequent reads. */
+  public ByteOrder getByteOrder() {
+    return bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+  }
+
   /**
    * Copy the contents of the buffer to the disk.
    *
@@ -559,6 +567,42 @@ public class RandomAccessFile implements DataInput, DataOutput, Closeable {
     return n;
   }
 
+  /**
+   * Read exactly <code>len</code> bytes starting at the specified file position, directly from the file.
+   * Does not use or change the buffer or the file position.
+   *
+   * @param pos start here in the file
+   * @param b the buffer into which the data is read.
+   * @param off the start offset of the data.
+   * @param len the number of bytes to read.
+   * @throws EOFException if this file reaches the end before reading all the bytes.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void readFullyUnbuffered(long pos, byte[] b, int off, int len) throws IOException {
+    int n = 0;
+    while (n < len) {
+      int count = read_(pos + n, b, off + n, len - n);
+      if (count <= 0) {
+        throw new EOFException("Reading " + location + " at " + (pos + n) + " file length = " + length());
+      }
+      n += count;
+    }
+  }
+
+  /**
+   * Get a read-only view of the file contents, without copying, if this RandomAccessFile supports it.
+   * Does not use or change the buffer or the file position. The ByteBuffer has big endian byte order.
+   *
+   * @param pos start here in the file
+   * @param nbytes the number of bytes
+   * @return a ByteBuffer with position 0 and limit nbytes, or null if not supported for this file or range.
+   * @see MappedRandomAccessFile
+   */
+  @Nullable
+  public ByteBuffer getByteBuffer(long pos, int nbytes) throws IOException {
+    return null;
+  }
+
   /**
    * Read up to <code>len</code> bytes into an array, at a specified
    * offset. This will block until at least one byte has been read.
@@ -628,7 +672,7 @@ public class RandomAccessFile implements DataInput, DataOutput, Closeable {
    *         all the bytes.
    * @throws IOException if an I/O error occurs.
    */
-  public final void readFully(byte[] b, int off, int len) throws IOException {
+  public void readFully(byte[] b, int off, int len) throws IOException {
     int n = 0;
     while (n < len) {
       int count = this.read(b, off + n, len - n);
@@ -898,7 +942,7 @@ public class RandomAccessFile implements DataInput, DataOutput, Closeable {
    *         two bytes.
    * @throws IOException if an I/O error occurs.
    */
-  public final short readShort() throws IOException {
+  public short readShort() throws IOException {
     int ch1 = this.read();
     int ch2 = this.read();
     if ((ch1 | ch2) < 0) {
@@ -919,7 +963,7 @@ public class RandomAccessFile implements DataInput, DataOutput, Closeable {
    * @param n read this many elements
    * @throws IOException on read error
    */
-  public final void readShort(short[] pa, int start, int n) throws IOException {
+  public void readShort(short[] pa, int start, int n) throws IOException {
     for (int i = 0; i < n; i++) {
       pa[start + i] = readShort();
     }
@@ -946,7 +990,7 @@ public class RandomAccessFile implements DataInput, DataOutput, Closeable {
    *         two bytes.
    * @throws IOException if an I/O error occurs.
    */
-  public final int readUnsignedShort() throws IOException {
+  public int readUnsignedShort() throws IOException {
     int ch1 = this.read();
     int ch2 = this.read();
     if ((ch1 | ch2) < 0) {
@@ -994,7 +1038,7 @@ public class RandomAccessFile implements DataInput, DataOutput, Closeable {
    *         two bytes.
    * @throws IOException if an I/O error occurs.
    */
-  public final char readChar() throws IOException {
+  public char readChar() throws IOException {
     int ch1 = this.read();
     int ch2 = this.read();
     if ((ch1 | ch2) < 0) {
@@ -1028,7 +1072,7 @@ public class RandomAccessFile implements DataInput, DataOutput, Closeable {
    *         four bytes.
    * @throws IOException if an I/O error occurs.
    */
-  public final int readInt() throws IOException {
+  public int readInt() throws IOException {
     int ch1 = this.read();
     int ch2 = this.read();
     int ch3 = this.read();
@@ -1051,7 +1095,7 @@ public class RandomAccessFile implements DataInput, DataOutput, Closeable {
    * @return The int that was read
    * @throws IOException if an I/O error occurs.
    */
-  public final int readIntUnbuffered(long pos) throws IOException {
+  public int readIntUnbuffered(long pos) throws IOException {
     byte[] bb = new byte[4];
     read_(pos, bb, 0, 4);
     int ch1 = bb[0] & 0xff;
@@ -1078,7 +1122,7 @@ public class RandomAccessFile implements DataInput, DataOutput, Closeable {
    * @param n read this many elements
    * @throws IOException on read error
    */
-  public final void readInt(int[] pa, int start, int n) throws IOException {
+  public void readInt(int[] pa, int start, int n) throws IOException {
     for (int i = 0; i < n; i++) {
       pa[start + i] = readInt();
     }
@@ -1116,7 +1160,7 @@ public class RandomAccessFile implements DataInput, DataOutput, Closeable {
    *         eight bytes.
    * @throws IOException if an I/O error occurs.
    */
-  public final long readLong() throws IOException {
+  public long readLong() throws IOException {
     if (bigEndian) {
       return ((long) (readInt()) << 32) + (readInt() & 0xFFFFFFFFL); // tested ok
     } else {
@@ -1152,7 +1196,7 @@ public class RandomAccessFile implements DataInput, DataOutput, Closeable {
    * @param n read this many elements
    * @throws IOException on read error
    */
-  public final void readLong(long[] pa, int start, int n) throws IOException {
+  public void readLong(long[] pa, int start, int n) throws IOException {
     for (int i = 0; i < n; i++) {
       pa[start + i] = readLong();
     }
@@ -1177,7 +1221,7 @@ public class RandomAccessFile implements DataInput, DataOutput, Closeable {
    * @see java.io.RandomAccessFile#readInt()
    * @see Float#intBitsToFloat(int)
    */
-  public final float readFloat() throws IOException {
+  public float readFloat() throws IOException {
     return Float.intBitsToFloat(readInt());
   }
 
@@ -1189,7 +1233,7 @@ public class RandomAccessFile implements DataInput, DataOutput, Closeable {
    * @param n read this many elements
    * @throws IOException on read error
    */
-  public final void readFloat(float[] pa, int start, int n) throws IOException {
+  public void readFloat(float[] pa, int start, int n) throws IOException {
     for (int i = 0; i < n; i++) {
       pa[start + i] = Float.intBitsToFloat(readInt());
     }
@@ -1214,7 +1258,7 @@ public class RandomAccessFile implements DataInput, DataOutput, Closeable {
    * @see java.io.RandomAccessFile#readLong()
    * @see Double#longBitsToDouble(long)
    */
-  public final double readDouble() throws IOException {
+  public double readDouble() throws IOException {
     return Double.longBitsToDouble(readLong());
   }
 
@@ -1226,7 +1270,7 @@ public class RandomAccessFile implements DataInput, DataOutput, Closeable {
    * @param n read this many elements
    * @throws IOException on read error
    */
-  public final void readDouble(double[] pa, int start, int n) throws IOException {
+  public void readDouble(double[] pa, int start, int n) throws IOException {
     for (int i = 0; i < n; i++) {
       pa[start + i] = Double.longBitsToDouble(readLong());
     }
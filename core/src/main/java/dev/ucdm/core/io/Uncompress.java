@@ -3,53 +3,37 @@ package dev.ucdm.core.io;
 import dev.ucdm.core.io.bzip2.CBZip2InputStream;
 import dev.ucdm.core.util.DiskCache;
 import dev.ucdm.core.util.IO;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import dev.ucdm.core.util.ManagedDiskCache;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.nio.channels.FileLock;
-import java.nio.channels.OverlappingFileLockException;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 public class Uncompress {
-  private static final Logger log = LoggerFactory.getLogger(Uncompress.class);
 
+  /**
+   * Uncompress the file into a file without the suffix, using the DiskCache standard policy to decide where to put it.
+   * The uncompressed file is published through the ManagedDiskCache, so it appears atomically, and if it is in the
+   * cache directory, it counts against the cache budget.
+   *
+   * @param filename compressed file ending with ".Z", ".zip", ".bz2", ".gzip" or ".gz".
+   * @return the uncompressed filename, or null if neither it nor the compressed file exists.
+   */
   public static String makeUncompressedFile(String filename) throws Exception {
     int pos = filename.lastIndexOf('.');
     String suffix = filename.substring(pos + 1);
     String uncompressedFilename = filename.substring(0, pos);
 
     File uncompressedFile = DiskCache.getFileStandardPolicy(uncompressedFilename);
+    ManagedDiskCache cache = ManagedDiskCache.getDefault();
     if (uncompressedFile.exists() && uncompressedFile.length() > 0) {
-      // see if its locked - another thread is writing it
-      FileLock lock = null;
-      try (FileInputStream stream = new FileInputStream(uncompressedFile)) {
-        // obtain the lock
-        while (true) { // loop waiting for the lock
-          try {
-            lock = stream.getChannel().lock(0, 1, true); // wait till its unlocked
-            break;
-          } catch (OverlappingFileLockException oe) { // not sure why lock() doesnt block
-            try {
-              Thread.sleep(100); // msecs
-            } catch (InterruptedException e1) {
-              break;
-            }
-          }
-        }
-
-        return uncompressedFile.getPath();
-
-      } finally {
-        if (lock != null && lock.isValid()) {
-          lock.release();
-        }
-      }
+      cache.hit(uncompressedFile);
+      return uncompressedFile.getPath();
     }
 
     // ok gonna write it
@@ -59,63 +43,39 @@ public class Uncompress {
       return null; // bail out */
     }
 
-    try (FileOutputStream fout = new FileOutputStream(uncompressedFile)) {
-      // obtain the lock
-      FileLock lock;
-      while (true) { // loop waiting for the lock
-        try {
-          lock = fout.getChannel().lock(0, 1, false);
-          break;
+    File result = cache.publish(uncompressedFile, temp -> {
+      uncompress(filename, suffix, temp);
+      return true;
+    });
+    return result == null ? null : result.getPath();
+  }
 
-        } catch (OverlappingFileLockException oe) { // not sure why lock() doesnt block
-          try {
-            Thread.sleep(100); // msecs
-          } catch (InterruptedException ignored) {
-          }
+  private static void uncompress(String filename, String suffix, File out) throws IOException {
+    try (FileOutputStream fout = new FileOutputStream(out)) {
+      if (suffix.equalsIgnoreCase("Z")) {
+        try (InputStream in = new UncompressInputStream(new FileInputStream(filename))) {
+          IO.copyBuffered(in, fout, 100000);
         }
-      }
 
-      try {
-        if (suffix.equalsIgnoreCase("Z")) {
-          try (InputStream in = new UncompressInputStream(new FileInputStream(filename))) {
-            IO.copyBuffered(in, fout, 100000);
-          }
-
-        } else if (suffix.equalsIgnoreCase("zip")) {
+      } else if (suffix.equalsIgnoreCase("zip")) {
 
-          try (ZipInputStream zin = new ZipInputStream(new FileInputStream(filename))) {
-            ZipEntry ze = zin.getNextEntry();
-            if (ze != null) {
-              IO.copyBuffered(zin, fout, 100000);
-            }
-          }
-
-        } else if (suffix.equalsIgnoreCase("bz2")) {
-          try (InputStream in = new CBZip2InputStream(new FileInputStream(filename), true)) {
-            IO.copyBuffered(in, fout, 100000);
-          }
-
-        } else if (suffix.equalsIgnoreCase("gzip") || suffix.equalsIgnoreCase("gz")) {
-          try (InputStream in = new GZIPInputStream(new FileInputStream(filename))) {
-            IO.copyBuffered(in, fout, 100000);
+        try (ZipInputStream zin = new ZipInputStream(new FileInputStream(filename))) {
+          ZipEntry ze = zin.getNextEntry();
+          if (ze != null) {
+            IO.copyBuffered(zin, fout, 100000);
           }
         }
-      } catch (Exception e) {
-        // dont leave bad files around
-        if (uncompressedFile.exists()) {
-          if (!uncompressedFile.delete()) {
-            log.warn("failed to delete uncompressed file (IOException) {}", uncompressedFile);
-          }
+
+      } else if (suffix.equalsIgnoreCase("bz2")) {
+        try (InputStream in = new CBZip2InputStream(new FileInputStream(filename), true)) {
+          IO.copyBuffered(in, fout, 100000);
         }
-        throw e;
 
-      } finally {
-        if (lock != null && lock.isValid()) {
-          lock.release();
+      } else if (suffix.equalsIgnoreCase("gzip") || suffix.equalsIgnoreCase("gz")) {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(filename))) {
+          IO.copyBuffered(in, fout, 100000);
         }
       }
     }
-
-    return uncompressedFile.getPath();
   }
 }
@@ -0,0 +1,409 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.iosp;
+
+import com.google.common.hash.Hashing;
+import dev.ucdm.array.ArrayType;
+import dev.ucdm.array.Arrays;
+import dev.ucdm.core.api.Attribute;
+import dev.ucdm.core.api.AttributeContainer;
+import dev.ucdm.core.api.AttributeContainerMutable;
+import dev.ucdm.core.api.Dimension;
+import dev.ucdm.core.api.Group;
+import dev.ucdm.core.api.Structure;
+import dev.ucdm.core.api.Variable;
+import dev.ucdm.core.io.RandomAccessFile;
+import dev.ucdm.core.util.ManagedDiskCache;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Saves the header of a file that has been opened, and restores it the next time the file is opened, so the IOSP
+ * does not have to read and parse the header again. Only used for IOSPs that implement
+ * {@link SnapshotIOServiceProvider}, and only for files whose length and lastModified date are known.
+ * A snapshot is used only if the file location, length and lastModified date are unchanged.
+ * <p>
+ * Disabled by default; enable with setRootDirectory(). Snapshots are kept in a {@link ManagedDiskCache}.
+ * Groups with enum typedefs, Structures, and enum or opaque attributes are not snapshotted.
+ */
+public class HeaderSnapshotCache {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger("cacheLogger");
+  private static final int MAGIC = 0x43444d53; // "CDMS"
+  private static final int VERSION = 1;
+  private static final String SUFFIX = ".snap";
+
+  private static volatile ManagedDiskCache cache;
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+  private static final AtomicLong failures = new AtomicLong();
+
+  /** Set the directory to keep snapshots in, or null to disable. */
+  public static void setRootDirectory(@Nullable String rootDirectory) {
+    cache = (rootDirectory == null) ? null : ManagedDiskCache.forRoot(rootDirectory);
+  }
+
+  public static boolean isEnabled() {
+    return cache != null;
+  }
+
+  /**
+   * Restore the header from a snapshot, if there is one.
+   *
+   * @param spi the IOSP that is opening the file.
+   * @param raf the file being opened.
+   * @return the populated root group, or null if there is no usable snapshot, in which case call build().
+   */
+  @Nullable
+  public static Group.Builder restore(IOServiceProvider spi, RandomAccessFile raf) {
+    ManagedDiskCache useCache = cache;
+    if (useCache == null || !(spi instanceof SnapshotIOServiceProvider sspi) || !sspi.canUseSnapshot()) {
+      return null;
+    }
+    String key = makeKey(spi, raf);
+    if (key == null) {
+      return null;
+    }
+    File snapshot = makeFile(useCache, key);
+    if (!snapshot.exists()) {
+      misses.incrementAndGet();
+      return null;
+    }
+
+    try (ManagedDiskCache.Pin pin = useCache.pin(snapshot);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshot)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(key)) {
+        misses.incrementAndGet();
+        return null;
+      }
+      Group.Builder root = Group.builder().setName("");
+      readGroup(sspi, root, in);
+      sspi.buildFromSnapshot(raf, root, in);
+      useCache.hit(snapshot);
+      hits.incrementAndGet();
+      return root;
+
+    } catch (IOException | RuntimeException e) {
+      failures.incrementAndGet();
+      logger.warn("HeaderSnapshotCache failed to read {} for {}: {}", snapshot, raf.getLocation(), e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Save the header in a snapshot, after the IOSP has built it.
+   *
+   * @param spi the IOSP that opened the file.
+   * @param raf the file that was opened.
+   * @param root the root group, populated by the IOSP.
+   */
+  public static void save(IOServiceProvider spi, RandomAccessFile raf, Group.Builder root) {
+    ManagedDiskCache useCache = cache;
+    if (useCache == null || !(spi instanceof SnapshotIOServiceProvider sspi) || !sspi.canUseSnapshot()) {
+      return;
+    }
+    String key = makeKey(spi, raf);
+    if (key == null || !canWrite(root)) {
+      return;
+    }
+    File snapshot = makeFile(useCache, key);
+    try {
+      useCache.publish(snapshot, file -> {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+          out.writeInt(MAGIC);
+          out.writeInt(VERSION);
+          out.writeUTF(key);
+          writeGroup(sspi, root, out);
+          sspi.writeSnapshot(root, out);
+        }
+        return true;
+      });
+    } catch (IOException | RuntimeException e) {
+      failures.incrementAndGet();
+      logger.warn("HeaderSnapshotCache failed to write {} for {}: {}", snapshot, raf.getLocation(), e.getMessage());
+    }
+  }
+
+  @Nullable
+  private static String makeKey(IOServiceProvider spi, RandomAccessFile raf) {
+    try {
+      long lastModified = raf.getLastModified();
+      if (lastModified <= 0) {
+        return null;
+      }
+      return String.format("%s|%s|%d|%d", spi.getClass().getName(), raf.getLocation(), raf.length(), lastModified);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static File makeFile(ManagedDiskCache useCache, String key) {
+    String name = Hashing.sha256().hashString(key, StandardCharsets.UTF_8) + SUFFIX;
+    return new File(useCache.getRootDirectory(), name);
+  }
+
+  public static long getHits() {
+    return hits.get();
+  }
+
+  public static long getMisses() {
+    return misses.get();
+  }
+
+  public static long getFailures() {
+    return failures.get();
+  }
+
+  public static void showStats(Formatter f) {
+    f.format("HeaderSnapshotCache: hits = %d misses = %d failures = %d%n", hits.get(), misses.get(), failures.get());
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////////////////
+  // encoding of the Group tree
+
+  // check before writing, so that a partial snapshot is never published
+  private static boolean canWrite(Group.Builder group) {
+    if (!group.enumTypedefs.isEmpty() || !canWrite(group.getAttributeContainer())) {
+      return false;
+    }
+    for (Variable.Builder<?> vb : group.vbuilders) {
+      if (vb instanceof Structure.Builder<?> || vb.proxyReader != null || vb.getEnumTypeName() != null
+          || !canWrite(vb.getAttributeContainer())) {
+        return false;
+      }
+    }
+    for (Group.Builder nested : group.gbuilders) {
+      if (!canWrite(nested)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean canWrite(AttributeContainer atts) {
+    for (Attribute att : atts) {
+      ArrayType dtype = att.getArrayType();
+      if (att.getEnumType() != null || (dtype != ArrayType.STRING && !dtype.isNumeric())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeGroup(SnapshotIOServiceProvider spi, Group.Builder group, DataOutputStream out)
+      throws IOException {
+    out.writeUTF(group.shortName);
+    writeAttributes(group.getAttributeContainer(), out);
+
+    out.writeInt(group.dimensions.size());
+    for (Dimension dim : group.dimensions) {
+      writeDimension(dim, out);
+    }
+
+    out.writeInt(group.vbuilders.size());
+    for (Variable.Builder<?> vb : group.vbuilders) {
+      out.writeUTF(vb.shortName);
+      out.writeUTF(vb.dataType.name());
+      List<Dimension> dims = vb.getDimensions();
+      out.writeInt(dims.size());
+      for (Dimension dim : dims) {
+        writeDimension(dim, out);
+      }
+      writeAttributes(vb.getAttributeContainer(), out);
+      spi.writeVariableSnapshot(vb, out);
+    }
+
+    out.writeInt(group.gbuilders.size());
+    for (Group.Builder nested : group.gbuilders) {
+      writeGroup(spi, nested, out);
+    }
+  }
+
+  private static void readGroup(SnapshotIOServiceProvider spi, Group.Builder group, DataInputStream in)
+      throws IOException {
+    group.setName(in.readUTF());
+    readAttributes(group.getAttributeContainer(), in);
+
+    int ndims = in.readInt();
+    for (int i = 0; i < ndims; i++) {
+      group.addDimension(readDimension(in));
+    }
+
+    int nvars = in.readInt();
+    for (int i = 0; i < nvars; i++) {
+      Variable.Builder<?> vb = Variable.builder().setName(in.readUTF());
+      vb.setArrayType(ArrayType.valueOf(in.readUTF()));
+      int rank = in.readInt();
+      List<Dimension> dims = new ArrayList<>(rank);
+      for (int j = 0; j < rank; j++) {
+        Dimension dim = readDimension(in);
+        // use the same object as the group
+        dims.add(dim.isShared() ? group.findDimension(dim.getShortName()).orElse(dim) : dim);
+      }
+      vb.addDimensions(dims);
+      readAttributes(vb.getAttributeContainer(), in);
+      vb.setSPobject(spi.readVariableSnapshot(in));
+      group.addVariable(vb);
+    }
+
+    int ngroups = in.readInt();
+    for (int i = 0; i < ngroups; i++) {
+      Group.Builder nested = Group.builder();
+      group.addGroup(nested);
+      readGroup(spi, nested, in);
+    }
+  }
+
+  private static void writeDimension(Dimension dim, DataOutputStream out) throws IOException {
+    out.writeBoolean(dim.getShortName() != null);
+    if (dim.getShortName() != null) {
+      out.writeUTF(dim.getShortName());
+    }
+    out.writeInt(dim.getLength());
+    out.writeBoolean(dim.isShared());
+    out.writeBoolean(dim.isUnlimited());
+    out.writeBoolean(dim.isVariableLength());
+  }
+
+  private static Dimension readDimension(DataInputStream in) throws IOException {
+    String name = in.readBoolean() ? in.readUTF() : null;
+    int length = in.readInt();
+    boolean isShared = in.readBoolean();
+    boolean isUnlimited = in.readBoolean();
+    boolean isVariableLength = in.readBoolean();
+    // set the flags before the length, which is checked against them
+    return Dimension.builder().setName(name).setIsShared(isShared).setIsUnlimited(isUnlimited)
+        .setIsVariableLength(isVariableLength).setLength(length).build();
+  }
+
+  private static void writeAttributes(AttributeContainer atts, DataOutputStream out) throws IOException {
+    List<Attribute> list = new ArrayList<>();
+    atts.forEach(list::add);
+    out.writeInt(list.size());
+    for (Attribute att : list) {
+      ArrayType dtype = att.getArrayType();
+      out.writeUTF(att.getShortName());
+      out.writeUTF(dtype.name());
+      int n = att.getLength();
+      out.writeInt(n);
+      for (int i = 0; i < n; i++) {
+        if (dtype == ArrayType.STRING) {
+          String sval = att.getStringValue(i);
+          out.writeBoolean(sval != null);
+          if (sval != null) {
+            writeString(sval, out);
+          }
+          continue;
+        }
+        Number val = att.getNumericValue(i);
+        switch (dtype) {
+          case BYTE, UBYTE -> out.writeByte(val.byteValue());
+          case SHORT, USHORT -> out.writeShort(val.shortValue());
+          case INT, UINT -> out.writeInt(val.intValue());
+          case LONG, ULONG -> out.writeLong(val.longValue());
+          case FLOAT -> out.writeFloat(val.floatValue());
+          case DOUBLE -> out.writeDouble(val.doubleValue());
+          default -> throw new IllegalStateException("Cant snapshot attribute type " + dtype);
+        }
+      }
+    }
+  }
+
+  private static void readAttributes(AttributeContainerMutable atts, DataInputStream in) throws IOException {
+    int natts = in.readInt();
+    for (int i = 0; i < natts; i++) {
+      String name = in.readUTF();
+      ArrayType dtype = ArrayType.valueOf(in.readUTF());
+      int n = in.readInt();
+      if (n == 0) {
+        atts.addAttribute(Attribute.emptyValued(name, dtype));
+        continue;
+      }
+      int[] shape = new int[] {n};
+      Object values;
+      switch (dtype) {
+        case STRING -> {
+          String[] svals = new String[n];
+          for (int j = 0; j < n; j++) {
+            svals[j] = in.readBoolean() ? readString(in) : null;
+          }
+          values = svals;
+        }
+        case BYTE, UBYTE -> {
+          byte[] bvals = new byte[n];
+          in.readFully(bvals);
+          values = bvals;
+        }
+        case SHORT, USHORT -> {
+          short[] svals = new short[n];
+          for (int j = 0; j < n; j++) {
+            svals[j] = in.readShort();
+          }
+          values = svals;
+        }
+        case INT, UINT -> {
+          int[] ivals = new int[n];
+          for (int j = 0; j < n; j++) {
+            ivals[j] = in.readInt();
+          }
+          values = ivals;
+        }
+        case LONG, ULONG -> {
+          long[] lvals = new long[n];
+          for (int j = 0; j < n; j++) {
+            lvals[j] = in.readLong();
+          }
+          values = lvals;
+        }
+        case FLOAT -> {
+          float[] fvals = new float[n];
+          for (int j = 0; j < n; j++) {
+            fvals[j] = in.readFloat();
+          }
+          values = fvals;
+        }
+        case DOUBLE -> {
+          double[] dvals = new double[n];
+          for (int j = 0; j < n; j++) {
+            dvals[j] = in.readDouble();
+          }
+          values = dvals;
+        }
+        default -> throw new IOException("Cant read snapshot attribute type " + dtype);
+      }
+      if (dtype == ArrayType.STRING && n == 1) {
+        atts.addAttribute(new Attribute(name, ((String[]) values)[0]));
+      } else {
+        atts.addAttribute(Attribute.fromArray(name, Arrays.factory(dtype, shape, values)));
+      }
+    }
+  }
+
+  // writeUTF is limited to 64K bytes
+  private static void writeString(String s, DataOutputStream out) throws IOException {
+    byte[] b = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(b.length);
+    out.write(b);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] b = new byte[in.readInt()];
+    in.readFully(b);
+    return new String(b, StandardCharsets.UTF_8);
+  }
+
+}
@@ -15,6 +15,7 @@ import org.jetbrains.annotations.Nullable;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * This is the service provider interface for the low-level I/O access classes (read only).
@@ -27,7 +28,8 @@ import java.util.Iterator;
  * <ol>
  * <li>the file is opened as a ucar.unidata.io.RandomAccessFile;</li>
  * <li>the file is handed to the isValidFile() method of each registered
- * IOServiceProvider class (until one returns true, which means it can read the file).</li>
+ * IOServiceProvider class (until one returns true, which means it can read the file).
+ * IOServiceProviders whose getMagicNumbers() match the start of the file are tried first.</li>
  * <li>the open() method on the resulting IOServiceProvider class is handed the file.</li>
  */
 public interface IOServiceProvider extends Closeable {
@@ -42,6 +44,16 @@ public interface IOServiceProvider extends Closeable {
    */
   boolean isValidFile(RandomAccessFile raf) throws IOException;
 
+  /**
+   * The byte sequences that the files of this IOServiceProvider usually start with. When the start of the file matches
+   * one of them, isValidFile() is called before the other IOServiceProviders are tried. A file that matches none still
+   * has isValidFile() called, after the IOServiceProviders with a matching signature, so this is only an optimization.
+   * Default is none, which means always call isValidFile() in registration order.
+   */
+  default List<byte[]> getMagicNumbers() {
+    return List.of();
+  }
+
   /**
    * Read an existing RandomAccessFile, and populate rootGroup.
    * Note that you cannot reference the CdmFile within this routine, since it hasnt been created yet.
@@ -16,6 +16,7 @@ import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.nio.ShortBuffer;
+import java.util.Arrays;
 
 /** Helper methods for IOSP's for reading data. */
 public class IospArrayHelper {
@@ -58,94 +59,227 @@ public class IospArrayHelper {
     if (showLayoutTypes)
       System.out.println("***RAF LayoutType=" + layout.getClass().getName());
 
-    if (arrayType.getPrimitiveClass() == Byte.class || arrayType == ArrayType.CHAR) {
-      byte[] pa = (byte[]) arr;
+    if (arrayType == ArrayType.STRING) {
+      int size = (int) layout.getTotalNelems();
+      int elemSize = layout.getElemSize();
+      StringBuilder sb = new StringBuilder(size);
       while (layout.hasNext()) {
         Layout.Chunk chunk = layout.next();
-        raf.order(byteOrder);
-        raf.seek(chunk.getSrcPos());
-        raf.readFully(pa, (int) chunk.getDestElem(), chunk.getNelems());
+        if (chunk == null) {
+          continue;
+        }
+        for (int i = 0; i < chunk.getNelems(); i++) {
+          sb.append(raf.readString(elemSize));
+        }
       }
-      return pa;
+      return sb.toString();
+    }
 
+    int elemSize;
+    if (arrayType.getPrimitiveClass() == Byte.class || arrayType == ArrayType.CHAR) {
+      elemSize = 1;
     } else if (arrayType.getPrimitiveClass() == Short.class) {
-      short[] pa = (short[]) arr;
-      while (layout.hasNext()) {
-        Layout.Chunk chunk = layout.next();
-        raf.order(byteOrder);
-        raf.seek(chunk.getSrcPos());
-        raf.readShort(pa, (int) chunk.getDestElem(), chunk.getNelems());
-      }
-      return pa;
+      elemSize = 2;
+    } else if (arrayType.getPrimitiveClass() == Integer.class || arrayType == ArrayType.FLOAT) {
+      elemSize = 4;
+    } else if (arrayType.getPrimitiveClass() == Long.class || arrayType == ArrayType.DOUBLE) {
+      elemSize = 8;
+    } else if (arrayType == ArrayType.STRUCTURE) {
+      elemSize = layout.getElemSize();
+    } else {
+      throw new IllegalStateException("unknown type= " + arrayType);
+    }
 
-    } else if (arrayType.getPrimitiveClass() == Integer.class) {
-      int[] pa = (int[]) arr;
+    raf.order(byteOrder);
+    new CoalescedReader(raf, arr, elemSize, raf.getByteOrder()).read(layout);
+    return arr;
+  }
+
+  private static int maxCoalesceGap = 64 * 1024;
+  private static int maxCoalesceSpan = 4 * 1024 * 1024;
+
+  /**
+   * Set how Layout chunks are merged when reading from a RandomAccessFile.
+   * Chunks whose gap is no larger than maxGap are read with one read, of no more than maxSpan bytes.
+   *
+   * @param maxGap largest gap in bytes between merged chunks; use 0 to merge only adjacent chunks.
+   * @param maxSpan largest read in bytes.
+   */
+  public static void setReadCoalescing(int maxGap, int maxSpan) {
+    IospArrayHelper.maxCoalesceGap = Math.max(0, maxGap);
+    IospArrayHelper.maxCoalesceSpan = Math.max(1, maxSpan);
+  }
+
+  /**
+   * Reads Layout chunks that are close together in the file with a single read into a scratch buffer, or uses the
+   * mapping if the RandomAccessFile is memory mapped, then scatters the chunks into the primitive array with bulk
+   * ByteBuffer conversions.
+   * Chunks larger than maxCoalesceSpan are read in pieces.
+   */
+  private static class CoalescedReader {
+    private final RandomAccessFile raf;
+    private final Object arr;
+    private final int elemSize;
+    private final ByteOrder byteOrder;
+    private final int maxGap = maxCoalesceGap;
+    private final int maxSpan = maxCoalesceSpan;
+
+    // the pending group of chunks
+    private long groupStart = -1;
+    private long groupEnd = -1;
+    private int nchunks;
+    private long[] srcPos = new long[16];
+    private long[] destElem = new long[16];
+    private int[] nelems = new int[16];
+    private byte[] scratch;
+
+    CoalescedReader(RandomAccessFile raf, Object arr, int elemSize, ByteOrder byteOrder) {
+      this.raf = raf;
+      this.arr = arr;
+      this.elemSize = elemSize;
+      this.byteOrder = byteOrder;
+    }
+
+    void read(Layout layout) throws IOException {
+      int maxElems = Math.max(1, maxSpan / elemSize);
       while (layout.hasNext()) {
         Layout.Chunk chunk = layout.next();
-        raf.order(byteOrder);
-        raf.seek(chunk.getSrcPos());
-        raf.readInt(pa, (int) chunk.getDestElem(), chunk.getNelems());
+        long pos = chunk.getSrcPos();
+        long dest = chunk.getDestElem();
+        int n = chunk.getNelems();
+        if (n <= 0) {
+          continue;
+        }
+
+        // large chunks are read in pieces of no more than maxSpan
+        while (n > maxElems) {
+          add(pos, dest, maxElems);
+          pos += (long) maxElems * elemSize;
+          dest += maxElems;
+          n -= maxElems;
+        }
+        add(pos, dest, n);
       }
-      return pa;
+      flush();
+    }
 
-    } else if (arrayType == ArrayType.FLOAT) {
-      float[] pa = (float[]) arr;
-      while (layout.hasNext()) {
-        Layout.Chunk chunk = layout.next();
-        raf.order(byteOrder);
-        raf.seek(chunk.getSrcPos());
-        raf.readFloat(pa, (int) chunk.getDestElem(), chunk.getNelems());
+    private void add(long pos, long dest, int n) throws IOException {
+      long end = pos + (long) n * elemSize;
+      if (nchunks > 0 && (pos < groupEnd || pos - groupEnd > maxGap || end - groupStart > maxSpan)) {
+        flush();
       }
-      return pa;
+      if (nchunks == 0) {
+        groupStart = pos;
+      }
+      if (nchunks == srcPos.length) {
+        srcPos = Arrays.copyOf(srcPos, 2 * nchunks);
+        destElem = Arrays.copyOf(destElem, 2 * nchunks);
+        nelems = Arrays.copyOf(nelems, 2 * nchunks);
+      }
+      srcPos[nchunks] = pos;
+      destElem[nchunks] = dest;
+      nelems[nchunks] = n;
+      nchunks++;
+      groupEnd = end;
+    }
 
-    } else if (arrayType == ArrayType.DOUBLE) {
-      double[] pa = (double[]) arr;
-      while (layout.hasNext()) {
-        Layout.Chunk chunk = layout.next();
-        raf.order(byteOrder);
-        raf.seek(chunk.getSrcPos());
-        raf.readDouble(pa, (int) chunk.getDestElem(), chunk.getNelems());
+    private void flush() throws IOException {
+      if (nchunks == 0) {
+        return;
       }
-      return pa;
+      int span = (int) (groupEnd - groupStart);
 
-    } else if (arrayType.getPrimitiveClass() == Long.class) {
-      long[] pa = (long[]) arr;
-      while (layout.hasNext()) {
-        Layout.Chunk chunk = layout.next();
-        raf.order(byteOrder);
-        raf.seek(chunk.getSrcPos());
-        raf.readLong(pa, (int) chunk.getDestElem(), chunk.getNelems());
+      // a single byte chunk goes straight into the destination
+      if (nchunks == 1 && arr instanceof byte[]) {
+        readSpan(groupStart, (byte[]) arr, (int) destElem[0] * elemSize, span);
+        nchunks = 0;
+        return;
       }
-      return pa;
 
-    } else if (arrayType == ArrayType.STRUCTURE) {
-      byte[] pa = (byte[]) arr;
-      int recsize = layout.getElemSize();
-      while (layout.hasNext()) {
-        Layout.Chunk chunk = layout.next();
-        raf.order(byteOrder);
-        raf.seek(chunk.getSrcPos());
-        raf.readFully(pa, (int) chunk.getDestElem() * recsize, chunk.getNelems() * recsize);
+      // a memory mapped file is scattered directly from the mapping
+      ByteBuffer bb = raf.getByteBuffer(groupStart, span);
+      if (bb == null) {
+        if (scratch == null || scratch.length < span) {
+          scratch = new byte[span];
+        }
+        readSpan(groupStart, scratch, 0, span);
+        bb = ByteBuffer.wrap(scratch, 0, span);
       }
-      return pa;
+      bb.order(byteOrder);
 
-    } else if (arrayType == ArrayType.STRING) {
-      int size = (int) layout.getTotalNelems();
-      int elemSize = layout.getElemSize();
-      StringBuilder sb = new StringBuilder(size);
-      while (layout.hasNext()) {
-        Layout.Chunk chunk = layout.next();
-        if (chunk == null) {
-          continue;
+      if (arr instanceof byte[]) {
+        for (int i = 0; i < nchunks; i++) {
+          bb.get(offset(i), (byte[]) arr, (int) destElem[i] * elemSize, nelems[i] * elemSize);
         }
-        for (int i = 0; i < chunk.getNelems(); i++) {
-          sb.append(raf.readString(elemSize));
+      } else if (arr instanceof short[]) {
+        short[] pa = (short[]) arr;
+        for (int i = 0; i < nchunks; i++) {
+          if (nelems[i] == 1) {
+            pa[(int) destElem[i]] = bb.getShort(offset(i));
+          } else {
+            bb.position(offset(i));
+            bb.asShortBuffer().get(pa, (int) destElem[i], nelems[i]);
+          }
+        }
+      } else if (arr instanceof int[]) {
+        int[] pa = (int[]) arr;
+        for (int i = 0; i < nchunks; i++) {
+          if (nelems[i] == 1) {
+            pa[(int) destElem[i]] = bb.getInt(offset(i));
+          } else {
+            bb.position(offset(i));
+            bb.asIntBuffer().get(pa, (int) destElem[i], nelems[i]);
+          }
         }
+      } else if (arr instanceof float[]) {
+        float[] pa = (float[]) arr;
+        for (int i = 0; i < nchunks; i++) {
+          if (nelems[i] == 1) {
+            pa[(int) destElem[i]] = bb.getFloat(offset(i));
+          } else {
+            bb.position(offset(i));
+            bb.asFloatBuffer().get(pa, (int) destElem[i], nelems[i]);
+          }
+        }
+      } else if (arr instanceof double[]) {
+        double[] pa = (double[]) arr;
+        for (int i = 0; i < nchunks; i++) {
+          if (nelems[i] == 1) {
+            pa[(int) destElem[i]] = bb.getDouble(offset(i));
+          } else {
+            bb.position(offset(i));
+            bb.asDoubleBuffer().get(pa, (int) destElem[i], nelems[i]);
+          }
+        }
+      } else if (arr instanceof long[]) {
+        long[] pa = (long[]) arr;
+        for (int i = 0; i < nchunks; i++) {
+          if (nelems[i] == 1) {
+            pa[(int) destElem[i]] = bb.getLong(offset(i));
+          } else {
+            bb.position(offset(i));
+            bb.asLongBuffer().get(pa, (int) destElem[i], nelems[i]);
+          }
+        }
+      } else {
+        throw new IllegalStateException("unknown array type= " + arr.getClass().getName());
       }
-      return sb.toString();
+      nchunks = 0;
+    }
+
+    private int offset(int i) {
+      return (int) (srcPos[i] - groupStart);
     }
 
-    throw new IllegalStateException("unknown type= " + arrayType);
+    // small reads go through the raf buffer, so nearby reads can use it
+    private void readSpan(long pos, byte[] b, int off, int len) throws IOException {
+      if (len < raf.getBufferSize()) {
+        raf.seek(pos);
+        raf.readFully(b, off, len);
+      } else {
+        raf.readFullyUnbuffered(pos, b, off, len);
+      }
+    }
   }
 
   /**
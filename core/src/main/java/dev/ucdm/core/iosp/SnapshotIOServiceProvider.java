@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.iosp;
+
+import dev.ucdm.core.api.Group;
+import dev.ucdm.core.api.Variable;
+import dev.ucdm.core.io.RandomAccessFile;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * An IOServiceProvider whose header can be saved in the {@link HeaderSnapshotCache}, and later restored from the
+ * snapshot instead of being read from the file.
+ * The HeaderSnapshotCache writes the Group tree; the IOSP writes the state it needs to read data.
+ */
+public interface SnapshotIOServiceProvider extends IOServiceProvider {
+
+  /**
+   * Can the header be saved to or restored from a snapshot. Return false if the header depends on messages sent to
+   * the IOSP, eg a Charset.
+   */
+  boolean canUseSnapshot();
+
+  /** Write the SPobject of a Variable, called after build(). */
+  void writeVariableSnapshot(Variable.Builder<?> vb, DataOutputStream out) throws IOException;
+
+  /** Read back what writeVariableSnapshot() wrote, and return the SPobject of the Variable. */
+  Object readVariableSnapshot(DataInputStream in) throws IOException;
+
+  /** Write the state of the IOSP, called after build() and after the Group tree has been written. */
+  void writeSnapshot(Group.Builder rootGroup, DataOutputStream out) throws IOException;
+
+  /**
+   * Use instead of build(). The rootGroup has been restored from the snapshot, read back what writeSnapshot() wrote.
+   *
+   * @param raf the file to work on.
+   * @param rootGroup the root group, already populated.
+   * @param in read the snapshot from here.
+   */
+  void buildFromSnapshot(RandomAccessFile raf, Group.Builder rootGroup, DataInputStream in) throws IOException;
+}
@@ -14,6 +14,8 @@ import dev.ucdm.core.api.Variable;
 import dev.ucdm.core.io.RandomAccessFile;
 import dev.ucdm.core.write.NetcdfFileFormat;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -314,7 +316,16 @@ public class N3header {
       System.out.println("  actualSize= " + actualSize);
     }
 
-    // check for truncated files
+    checkTruncation(actualSize);
+
+    // add a record structure if asked to do so
+    if (n3iospNew.useRecordStructure && uvars.size() > 0) {
+      makeRecordStructure(root, uvars);
+    }
+  }
+
+  // check for truncated files
+  private void checkTruncation(long actualSize) throws IOException {
     // theres a "wart" that allows a file to be up to 3 bytes smaller than you expect.
     long calcSize = dataStart + nonRecordDataSize + recsize * numrecs;
     if (calcSize > actualSize + 3) {
@@ -325,11 +336,41 @@ public class N3header {
         raf.setExtendMode();
       }
     }
+  }
 
-    // add a record structure if asked to do so
-    if (n3iospNew.useRecordStructure && uvars.size() > 0) {
-      makeRecordStructure(root, uvars);
+  /** Write what is needed to read data, instead of reading the header. See readSnapshot(). */
+  void writeSnapshot(DataOutputStream out) throws IOException {
+    out.writeBoolean(useLongOffset);
+    out.writeBoolean(isStreaming);
+    out.writeInt(numrecs);
+    out.writeLong(recsize);
+    out.writeLong(recStart);
+    out.writeLong(nonRecordDataSize);
+    out.writeLong(dataStart);
+  }
+
+  /**
+   * Restore the header from a snapshot.
+   *
+   * @param raf the file
+   * @param root the root Group builder, already restored from the snapshot, with Vinfo SPobjects.
+   * @param in read what writeSnapshot() wrote.
+   */
+  void readSnapshot(RandomAccessFile raf, Group.Builder root, DataInputStream in) throws IOException {
+    this.raf = raf;
+    useLongOffset = in.readBoolean();
+    isStreaming = in.readBoolean();
+    numrecs = in.readInt();
+    recsize = in.readLong();
+    recStart = in.readLong();
+    nonRecordDataSize = in.readLong();
+    dataStart = in.readLong();
+
+    udim = root.dimensions.stream().filter(Dimension::isUnlimited).findFirst().orElse(null);
+    for (Variable.Builder<?> vb : root.vbuilders) {
+      vars.add((Vinfo) vb.spiObject);
     }
+    checkTruncation(raf.length());
   }
 
   /**
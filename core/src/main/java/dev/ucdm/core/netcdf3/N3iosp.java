@@ -10,26 +10,30 @@ import dev.ucdm.core.api.Variable;
 import dev.ucdm.core.constants.DataFormatType;
 import dev.ucdm.core.io.RandomAccessFile;
 import dev.ucdm.core.iosp.AbstractIOServiceProvider;
-import dev.ucdm.core.iosp.IOServiceProvider;
 import dev.ucdm.core.iosp.IospArrayHelper;
 import dev.ucdm.core.iosp.Layout;
 import dev.ucdm.core.iosp.LayoutRegular;
 import dev.ucdm.core.iosp.LayoutRegularSegmented;
+import dev.ucdm.core.iosp.SnapshotIOServiceProvider;
 import dev.ucdm.core.util.CancelTask;
 
 import dev.ucdm.core.write.NetcdfFileFormat;
 import org.jetbrains.annotations.Nullable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.util.Formatter;
+import java.util.List;
 import java.util.Optional;
 
 import static dev.ucdm.core.api.CdmFile.IOSP_MESSAGE_GET_NETCDF_FILE_FORMAT;
 
 /** Netcdf 3 version iosp, using Builders for immutability. */
-public class N3iosp extends AbstractIOServiceProvider implements IOServiceProvider {
+public class N3iosp extends AbstractIOServiceProvider implements SnapshotIOServiceProvider {
   protected static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(N3iosp.class);
 
   /*
@@ -79,6 +83,11 @@ public class N3iosp extends AbstractIOServiceProvider implements IOServiceProvid
     return N3header.isValidFile(raf);
   }
 
+  @Override
+  public List<byte[]> getMagicNumbers() {
+    return List.of(N3header.MAGIC.clone(), N3header.MAGIC_LONG.clone());
+  }
+
   @Override
   public String getDetailInfo() {
     Formatter f = new Formatter();
@@ -185,6 +194,42 @@ public class N3iosp extends AbstractIOServiceProvider implements IOServiceProvid
     header.read(raf, rootGroup, null);
   }
 
+  @Override
+  public boolean canUseSnapshot() {
+    // subclasses may write to the file
+    return getClass() == N3iosp.class && !useRecordStructure && valueCharset == null;
+  }
+
+  @Override
+  public void writeVariableSnapshot(Variable.Builder<?> vb, DataOutputStream out) throws IOException {
+    N3header.Vinfo vinfo = (N3header.Vinfo) vb.spiObject;
+    out.writeUTF(vinfo.name);
+    out.writeLong(vinfo.vsize);
+    out.writeLong(vinfo.begin);
+    out.writeBoolean(vinfo.isRecord);
+    out.writeLong(vinfo.attsPos);
+  }
+
+  @Override
+  public Object readVariableSnapshot(DataInputStream in) throws IOException {
+    return new N3header.Vinfo(in.readUTF(), in.readLong(), in.readLong(), in.readBoolean(), in.readLong());
+  }
+
+  @Override
+  public void writeSnapshot(Group.Builder rootGroup, DataOutputStream out) throws IOException {
+    header.writeSnapshot(out);
+  }
+
+  @Override
+  public void buildFromSnapshot(RandomAccessFile raf, Group.Builder rootGroup, DataInputStream in)
+      throws IOException {
+    setRaf(raf);
+    lastModified = raf.getLastModified();
+    raf.order(RandomAccessFile.BIG_ENDIAN);
+    header = createHeader();
+    header.readSnapshot(raf, rootGroup, in);
+  }
+
   /** Create header for reading netcdf file. */
   private N3header createHeader() {
     return new N3header(this);
@@ -200,18 +245,52 @@ public class N3iosp extends AbstractIOServiceProvider implements IOServiceProvid
       return readStructureDataArray((Structure) v2, section);
     }
 
+    Array<?> mapped = readMappedArray(v2, section);
+    if (mapped != null) {
+      return mapped;
+    }
     Object data = readDataObject(v2, section);
     return Arrays.factory(v2.getArrayType(), section.getShape(), data);
   }
 
-  /** Read data subset from file for a variable, create primitive array. */
-  private Object readDataObject(Variable v2, Section section) throws IOException, InvalidRangeException {
-    N3header.Vinfo vinfo = (N3header.Vinfo) v2.getSPobject();
-    ArrayType dataType = v2.getArrayType();
+  /**
+   * If the section is contiguous in the file, and the file is memory mapped, return an Array backed by the mapped
+   * file, without copying. Otherwise return null.
+   */
+  @Nullable
+  private Array<?> readMappedArray(Variable v2, Section section) throws IOException, InvalidRangeException {
+    if (v2.getArrayType() == ArrayType.STRING) {
+      return null;
+    }
+    // cheap probe, so that unmapped files dont make a layout twice
+    if (raf.getByteBuffer(0, 0) == null) {
+      return null;
+    }
+    Layout layout = makeLayout(v2, section);
+    if (!layout.hasNext()) {
+      return null;
+    }
+    Layout.Chunk chunk = layout.next();
+    if (chunk.getNelems() != layout.getTotalNelems()) {
+      return null;
+    }
+    ByteBuffer bb = raf.getByteBuffer(chunk.getSrcPos(), chunk.getNelems() * layout.getElemSize());
+    if (bb == null) {
+      return null;
+    }
+    return Arrays.factory(v2.getArrayType(), section.getShape(), bb.order(ByteOrder.BIG_ENDIAN));
+  }
 
-    Layout layout = (!v2.isUnlimited()) ? new LayoutRegular(vinfo.begin, v2.getElementSize(), v2.getShape(), section)
+  private Layout makeLayout(Variable v2, Section section) throws InvalidRangeException {
+    N3header.Vinfo vinfo = (N3header.Vinfo) v2.getSPobject();
+    return (!v2.isUnlimited()) ? new LayoutRegular(vinfo.begin, v2.getElementSize(), v2.getShape(), section)
         : new LayoutRegularSegmented(vinfo.begin, v2.getElementSize(), header.recsize, v2.getShape(), section);
-    return IospArrayHelper.readDataFill(raf, layout, dataType, null, null);
+  }
+
+  /** Read data subset from file for a variable, create primitive array. */
+  private Object readDataObject(Variable v2, Section section) throws IOException, InvalidRangeException {
+    Layout layout = makeLayout(v2, section);
+    return IospArrayHelper.readDataFill(raf, layout, v2.getArrayType(), null, null);
   }
 
   /**
@@ -16,8 +16,16 @@ public interface CancelTask {
   /** Called routine checks to see if task was cancelled. */
   boolean isCancel();
 
+  /**
+   * Called routine reports its progress. Default does nothing.
+   *
+   * @param msg describes the progress, eg the throughput.
+   * @param progress percent done, 0 - 100.
+   */
+  default void setProgress(String msg, int progress) {}
+
   class CancelTaskImpl implements CancelTask {
-    private boolean cancel;
+    private volatile boolean cancel;
 
     @Override
     public void cancel() {
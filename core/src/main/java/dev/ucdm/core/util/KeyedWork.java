@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coordinates work that is identified by a key, so that only one thread at a time does the work for any given key.
+ * The first caller for a key does the work; callers for the same key that arrive while it is in progress wait for it,
+ * and get the same result or exception. Callers for other keys do not block.
+ * When the work is done the key is forgotten, so a later caller does the work again.
+ */
+public class KeyedWork<V> {
+  private final ConcurrentHashMap<String, CompletableFuture<V>> inProgress = new ConcurrentHashMap<>();
+
+  /**
+   * Do the work for this key, or wait for the thread that is already doing it.
+   *
+   * @param key identifies the work.
+   * @param work called if no other thread is doing the work for this key.
+   * @return the result of the work.
+   * @throws Exception the exception thrown by the work, or InterruptedException if interrupted while waiting.
+   */
+  public V run(String key, Callable<V> work) throws Exception {
+    CompletableFuture<V> mine = new CompletableFuture<>();
+    CompletableFuture<V> existing = inProgress.putIfAbsent(key, mine);
+    if (existing != null) {
+      return await(existing);
+    }
+
+    try {
+      V result = work.call();
+      mine.complete(result);
+      return result;
+    } catch (Throwable t) {
+      mine.completeExceptionally(t);
+      throw t;
+    } finally {
+      inProgress.remove(key, mine);
+    }
+  }
+
+  private V await(CompletableFuture<V> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception ex) {
+        throw ex;
+      }
+      if (cause instanceof Error err) {
+        throw err;
+      }
+      throw e;
+    }
+  }
+
+  /** Number of keys whose work is in progress. */
+  public int size() {
+    return inProgress.size();
+  }
+
+}
@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Formatter;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Manages the files written into a cache directory, such as uncompressed files and grib indexes.
+ * <ul>
+ * <li>Files are published atomically: they are written to a temporary file in the same directory, then renamed, so
+ * readers never see a partially written file. Only one thread at a time writes any given file.</li>
+ * <li>The cache directory has a byte budget. When a publish takes it over budget, the least recently accessed files
+ * are deleted until it is back under budget.</li>
+ * <li>A file that is pinned is never deleted, so pin a file while you are using it.</li>
+ * <li>Hits, misses and evictions are counted.</li>
+ * </ul>
+ * Files may be published anywhere, eg next to the original file. Only files published under the root directory count
+ * against the budget and are candidates for eviction. Other files under the root directory, such as ones written
+ * directly through DiskCache, are never tracked or deleted.
+ * <p>
+ * The published files are listed in a manifest file in the root directory, so they are still managed after a restart.
+ * Access times are kept in memory. When the cache is first used, the manifest is read, and each file's lastModified
+ * date is used as its access time.
+ */
+public class ManagedDiskCache {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger("cacheLogger");
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final String MANIFEST = ".managedFiles";
+  private static final Map<Path, ManagedDiskCache> caches = new ConcurrentHashMap<>();
+  private static long defaultMaxBytes = 10L * 1000 * 1000 * 1000;
+
+  static {
+    String maxBytes = System.getProperty("nj22.cacheMaxBytes");
+    if (maxBytes != null) {
+      try {
+        defaultMaxBytes = Long.parseLong(maxBytes);
+      } catch (NumberFormatException e) {
+        logger.warn("Illegal value for nj22.cacheMaxBytes = {}", maxBytes);
+      }
+    }
+  }
+
+  /** Set the byte budget of caches created after this call. Default is 10 GB, or the "nj22.cacheMaxBytes" property. */
+  public static void setDefaultMaxBytes(long maxBytes) {
+    defaultMaxBytes = maxBytes;
+  }
+
+  /** The cache for the DiskCache root directory. */
+  public static ManagedDiskCache getDefault() {
+    return forRoot(DiskCache.getRootDirectory());
+  }
+
+  /** The cache for this root directory. There is only one cache for any directory. */
+  public static ManagedDiskCache forRoot(String rootDirectory) {
+    Path root = normalize(new File(rootDirectory));
+    return caches.computeIfAbsent(root, r -> new ManagedDiskCache(r, defaultMaxBytes));
+  }
+
+  private static Path normalize(File file) {
+    return file.toPath().toAbsolutePath().normalize();
+  }
+
+  /** Writes the contents of a file. */
+  public interface Producer {
+    /**
+     * Write the file.
+     *
+     * @param file write to this file. It exists, and is empty.
+     * @return true on success, false to abandon the file.
+     */
+    boolean write(File file) throws IOException;
+  }
+
+  private static class Entry {
+    private long size;
+    private long lastAccess;
+    private int pins;
+    private boolean removed;
+    private boolean published; // else only pinned, and never evicted
+
+    private Entry(long size, long lastAccess) {
+      this.size = size;
+      this.lastAccess = lastAccess;
+    }
+  }
+
+  private final Path root;
+  private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+  private final KeyedWork<File> publishing = new KeyedWork<>();
+  private final AtomicLong totalBytes = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong evictedBytes = new AtomicLong();
+  private volatile long maxBytes;
+  private final Object manifestLock = new Object();
+  private volatile boolean scanned;
+
+  // package private for testing; otherwise use forRoot()
+  ManagedDiskCache(Path root, long maxBytes) {
+    this.root = root;
+    this.maxBytes = maxBytes;
+  }
+
+  public String getRootDirectory() {
+    return root.toString();
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /** Set the byte budget. Takes effect at the next publish or evict(). */
+  public void setMaxBytes(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /** Is this file under the root directory, so that it counts against the budget. */
+  public boolean isManaged(File file) {
+    return normalize(file).startsWith(root);
+  }
+
+  /**
+   * Get the file if it exists, else write it with the producer and publish it.
+   *
+   * @param target the file to get or write.
+   * @param producer writes the file if it does not exist.
+   * @return the target file, or null if the producer returned false.
+   */
+  @Nullable
+  public File getOrPublish(File target, Producer producer) throws IOException {
+    if (target.exists()) {
+      hit(target);
+      return target;
+    }
+    return publish(target, producer, false);
+  }
+
+  /**
+   * Write the file with the producer and publish it, replacing the file if it exists.
+   *
+   * @param target the file to write.
+   * @param producer writes the file.
+   * @return the target file, or null if the producer returned false.
+   */
+  @Nullable
+  public File publish(File target, Producer producer) throws IOException {
+    return publish(target, producer, true);
+  }
+
+  private File publish(File target, Producer producer, boolean replace) throws IOException {
+    Path key = normalize(target);
+    try {
+      return publishing.run(key.toString(), () -> {
+        // another thread may have published it while we waited
+        if (!replace && target.exists()) {
+          hit(target);
+          return target;
+        }
+        misses.incrementAndGet();
+        if (!write(target, producer)) {
+          return null;
+        }
+        record(key, target.length());
+        // dont evict the file we just wrote
+        try (Pin pin = pin(target)) {
+          evict();
+        }
+        return target;
+      });
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted publishing " + target);
+    } catch (Exception e) {
+      throw new IOException(e);
+    }
+  }
+
+  private boolean write(File target, Producer producer) throws IOException {
+    File dir = target.getAbsoluteFile().getParentFile();
+    if (!dir.exists() && !dir.mkdirs()) {
+      throw new IOException("Failed to create directory " + dir);
+    }
+    File temp = File.createTempFile(target.getName() + ".", TEMP_SUFFIX, dir);
+    boolean ok = false;
+    try {
+      if (producer.write(temp)) {
+        try {
+          Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+              StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        ok = true;
+      }
+    } finally {
+      if (!ok) {
+        Files.deleteIfExists(temp.toPath());
+      }
+    }
+    return ok;
+  }
+
+  /** Record that an existing file was found and used. */
+  public void hit(File file) {
+    hits.incrementAndGet();
+    Path key = normalize(file);
+    if (key.startsWith(root)) {
+      scan();
+      Entry entry = entries.get(key);
+      if (entry != null) {
+        synchronized (entry) {
+          entry.lastAccess = System.currentTimeMillis();
+        }
+      }
+    }
+  }
+
+  // add or update the entry for a newly published file
+  private void record(Path key, long size) throws IOException {
+    if (!key.startsWith(root)) {
+      return;
+    }
+    scan();
+    while (true) {
+      Entry entry = entries.computeIfAbsent(key, k -> new Entry(0, 0));
+      synchronized (entry) {
+        if (!entry.removed) {
+          if (!entry.published) {
+            entry.published = true;
+            entry.size = 0;
+            addToManifest(key);
+          }
+          totalBytes.addAndGet(size - entry.size);
+          entry.size = size;
+          entry.lastAccess = System.currentTimeMillis();
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Pin the file, so that it will not be evicted until the Pin is closed. Also records an access.
+   * Files that are not under the root directory are never evicted, and pinning them does nothing.
+   */
+  public Pin pin(File file) {
+    Path key = normalize(file);
+    if (!key.startsWith(root)) {
+      return new Pin(null, null, null);
+    }
+    scan();
+    while (true) {
+      // a file that has not been published yet gets an entry too, in case it is published while pinned
+      Entry entry = entries.computeIfAbsent(key, k -> new Entry(0, 0));
+      synchronized (entry) {
+        if (!entry.removed) {
+          entry.pins++;
+          entry.lastAccess = System.currentTimeMillis();
+          return new Pin(this, key, entry);
+        }
+      }
+    }
+  }
+
+  /** A file that is in use. Close to release it. */
+  public static class Pin implements Closeable {
+    private final ManagedDiskCache cache;
+    private final Path key;
+    private Entry entry;
+
+    private Pin(@Nullable ManagedDiskCache cache, @Nullable Path key, @Nullable Entry entry) {
+      this.cache = cache;
+      this.key = key;
+      this.entry = entry;
+    }
+
+    @Override
+    public void close() {
+      if (entry != null) {
+        synchronized (entry) {
+          entry.pins--;
+          // forget files that were only pinned
+          if (entry.pins == 0 && !entry.published) {
+            entry.removed = true;
+            cache.entries.remove(key, entry);
+          }
+        }
+        entry = null;
+      }
+    }
+  }
+
+  private record Candidate(Path path, Entry entry, long lastAccess) {
+  }
+
+  /**
+   * If the files under the root directory are over budget, delete the least recently accessed ones that are not pinned,
+   * until they are back under budget.
+   *
+   * @return number of files deleted.
+   */
+  public synchronized int evict() {
+    scan();
+    if (totalBytes.get() <= maxBytes) {
+      return 0;
+    }
+
+    // snapshot lastAccess under each entry's lock, since hit() and pin() change it concurrently
+    List<Candidate> lru = new ArrayList<>(entries.size());
+    for (Map.Entry<Path, Entry> e : entries.entrySet()) {
+      Entry entry = e.getValue();
+      synchronized (entry) {
+        if (entry.published) {
+          lru.add(new Candidate(e.getKey(), entry, entry.lastAccess));
+        }
+      }
+    }
+    lru.sort(Comparator.comparingLong(Candidate::lastAccess));
+    int count = 0;
+    for (Candidate candidate : lru) {
+      if (totalBytes.get() <= maxBytes) {
+        break;
+      }
+      Entry entry = candidate.entry();
+      synchronized (entry) {
+        if (entry.pins > 0 || entry.removed) {
+          continue;
+        }
+        File file = candidate.path().toFile();
+        if (file.exists() && !file.delete()) {
+          logger.warn("ManagedDiskCache failed to delete {}", file);
+          continue;
+        }
+        entry.removed = true;
+        entries.remove(candidate.path());
+        totalBytes.addAndGet(-entry.size);
+        evictions.incrementAndGet();
+        evictedBytes.addAndGet(entry.size);
+        count++;
+        logger.debug("ManagedDiskCache evicted {}", file);
+      }
+    }
+    return count;
+  }
+
+  // find the files published by earlier instances, from the manifest; rewrite it without the ones that are gone
+  private void scan() {
+    if (scanned) {
+      return;
+    }
+    synchronized (this) {
+      if (scanned) {
+        return;
+      }
+      Path manifest = root.resolve(MANIFEST);
+      if (Files.isRegularFile(manifest)) {
+        try {
+          Set<Path> published = new LinkedHashSet<>();
+          for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            Path p = root.resolve(line).normalize();
+            if (!line.isEmpty() && p.startsWith(root) && Files.isRegularFile(p)) {
+              published.add(p);
+            }
+          }
+          for (Path p : published) {
+            File file = p.toFile();
+            Entry entry = new Entry(file.length(), file.lastModified());
+            entry.published = true;
+            if (entries.putIfAbsent(p, entry) == null) {
+              totalBytes.addAndGet(entry.size);
+            }
+          }
+          writeManifest(published);
+        } catch (IOException | RuntimeException e) {
+          logger.warn("ManagedDiskCache failed to read manifest {}: {}", manifest, e.getMessage());
+        }
+      }
+      scanned = true;
+    }
+  }
+
+  private void writeManifest(Set<Path> published) throws IOException {
+    List<String> lines = new ArrayList<>(published.size());
+    for (Path p : published) {
+      lines.add(root.relativize(p).toString());
+    }
+    synchronized (manifestLock) {
+      Path temp = Files.createTempFile(root, MANIFEST + ".", TEMP_SUFFIX);
+      try {
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, root.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    }
+  }
+
+  // evicted files are left in the manifest until the next scan
+  private void addToManifest(Path key) throws IOException {
+    synchronized (manifestLock) {
+      Files.writeString(root.resolve(MANIFEST), root.relativize(key) + "\n", StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  /** Number of bytes in the files under the root directory. */
+  public long getTotalBytes() {
+    scan();
+    return totalBytes.get();
+  }
+
+  public void showStats(Formatter f) {
+    f.format("ManagedDiskCache %s: %d files, %d / %d bytes; hits = %d misses = %d evictions = %d (%d bytes)%n", root,
+        entries.size(), getTotalBytes(), maxBytes, hits.get(), misses.get(), evictions.get(), evictedBytes.get());
+  }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded pool of daemon threads, shared by all read requests, instead of making a thread pool for each one.
+ * The pool is created on first use; idle threads exit after a minute. Thread safe.
+ * A task that itself calls run() on the same SharedExecutor runs those tasks in its own thread, so that nested
+ * calls, eg an aggregation whose members are aggregations, cannot deadlock waiting for pool threads.
+ */
+public class SharedExecutor {
+  private final String name;
+  private int nthreads; // guarded by this
+  private ThreadPoolExecutor executor; // guarded by this
+  private final ThreadLocal<Boolean> inPool = ThreadLocal.withInitial(() -> false); // true on the pool threads
+
+  /**
+   * @param name prefix of the thread names.
+   * @param nthreads maximum number of threads.
+   */
+  public SharedExecutor(String name, int nthreads) {
+    this.name = name;
+    this.nthreads = nthreads;
+  }
+
+  /** Maximum number of threads. If less than 2, run() uses the calling thread. */
+  public synchronized int getThreads() {
+    return nthreads;
+  }
+
+  /** Set the maximum number of threads. If less than 2, run() uses the calling thread. */
+  public synchronized void setThreads(int nthreads) {
+    this.nthreads = nthreads;
+    if (executor != null && nthreads > 0) {
+      if (nthreads > executor.getMaximumPoolSize()) {
+        executor.setMaximumPoolSize(nthreads);
+        executor.setCorePoolSize(nthreads);
+      } else {
+        executor.setCorePoolSize(nthreads);
+        executor.setMaximumPoolSize(nthreads);
+      }
+    }
+  }
+
+  private synchronized ThreadPoolExecutor getExecutor() {
+    if (executor == null) {
+      executor = new ThreadPoolExecutor(nthreads, nthreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+          new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).setThreadFactory(this::newThread)
+              .build());
+      executor.allowCoreThreadTimeOut(true);
+    }
+    return executor;
+  }
+
+  private Thread newThread(Runnable runnable) {
+    return new Thread(() -> {
+      inPool.set(true);
+      runnable.run();
+    });
+  }
+
+  /**
+   * Run the tasks and wait for all of them to finish. If one fails, the ones not yet finished are cancelled, and its
+   * exception is rethrown, wrapped in an IOException if needed. Runs in the calling thread if there is only one task,
+   * or if called from a task of this SharedExecutor.
+   *
+   * @param tasks the tasks to run.
+   * @param what describes the tasks, for the exception message if interrupted.
+   */
+  public void run(List<? extends Callable<?>> tasks, String what) throws IOException {
+    if (tasks.size() <= 1 || getThreads() < 2 || inPool.get()) {
+      for (Callable<?> task : tasks) {
+        call(task);
+      }
+      return;
+    }
+
+    List<Future<?>> futures = new ArrayList<>(tasks.size());
+    try {
+      ThreadPoolExecutor exec = getExecutor();
+      for (Callable<?> task : tasks) {
+        futures.add(exec.submit(task));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted " + what, e);
+    } catch (ExecutionException e) {
+      throw asIOException(e.getCause());
+    } finally {
+      for (Future<?> future : futures) {
+        future.cancel(true); // does nothing if done
+      }
+    }
+  }
+
+  private static void call(Callable<?> task) throws IOException {
+    try {
+      task.call();
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static IOException asIOException(Throwable cause) {
+    return (cause instanceof IOException ioe) ? ioe : new IOException(cause);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("SharedExecutor{%s, %d threads}", name, getThreads());
+  }
+}
@@ -11,17 +11,27 @@ import dev.ucdm.array.Arrays;
 import dev.ucdm.array.Index;
 import dev.ucdm.array.InvalidRangeException;
 import dev.ucdm.array.Section;
+import dev.ucdm.core.api.Attribute;
 import dev.ucdm.core.api.CdmFile;
 import dev.ucdm.core.api.Dimension;
 import dev.ucdm.core.api.Group;
 import dev.ucdm.core.api.Structure;
 import dev.ucdm.core.api.Variable;
+import dev.ucdm.core.constants.CDM;
+import dev.ucdm.core.io.ConcurrentRandomAccessFile;
 import dev.ucdm.core.util.CancelTask;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Utility class for copying a CdmFile object, or parts of one, to a netcdf-3 or netcdf-4 file.
@@ -32,13 +42,31 @@ import java.nio.charset.StandardCharsets;
  * the NcML) is written to the new file. If the NcML does not have a referenced dataset, then the new file is filled
  * with fill values, like ncgen.
  * <p/>
+ * The data is copied in chunks, which are read by a pool of reader threads while the calling thread writes them in
+ * order. Progress and throughput are reported through CancelTask.setProgress().
+ * <p/>
  * Use Nccopy for a command line interface.
  * Use Netcdf3FormatWriter object for a lower level API.
  */
 public class NetcdfCopier implements Closeable {
-  private static final long maxSize = 50 * 1000 * 1000; // 50 Mbytes
+  private static long maxChunkSize = 16 * 1000 * 1000; // 16 Mbytes
+  private static int readThreads = 4;
   private static boolean debug, debugWrite;
 
+  /** Set the largest chunk of data that is read and written at once, in bytes. */
+  public static void setMaxChunkSize(long maxBytes) {
+    maxChunkSize = Math.max(1, maxBytes);
+  }
+
+  /**
+   * Set the number of threads that read the input file, while the calling thread writes the output file.
+   * Reads are done in parallel only if the input file was opened with CdmFile.IOSP_MESSAGE_CONCURRENT_READS,
+   * otherwise one read at a time overlaps the writing.
+   */
+  public static void setReadThreads(int nthreads) {
+    readThreads = Math.max(1, nthreads);
+  }
+
   //////////////////////////////////////////////////////////////////////////////////////
   private final CdmFile fileIn;
   private final Netcdf3FormatWriter.Builder<?> writerb;
@@ -90,12 +118,7 @@ public class NetcdfCopier implements Closeable {
         return;
       }
 
-      Count counter = new Count();
-      copyVariableData(ncwriter, fileIn.getRootGroup(), ncwriter.getRootGroup(), counter, cancel);
-      if (cancel.isCancel()) {
-        return;
-      }
-      // System.out.format("FileCopier done: total bytes written = %d, number of variables = %d%n", counter.bytes, counter.countVars);
+      copyVariableData(ncwriter, cancel);
     }
   }
 
@@ -173,106 +196,174 @@ public class NetcdfCopier implements Closeable {
 
   }
 
-  private static class Count {
-    long bytes;
-    int countVars;
+  /** A section of one variable, read by a reader thread and written in order by the writer. */
+  private record CopyChunk(Variable oldVar, Variable newVar, @Nullable Section section, long nbytes) {}
+
+  /**
+   * Copy the data with a pipeline: reader threads read the chunks ahead of the writer, while the calling thread
+   * writes them in order. No more than 2 * readThreads chunks are held in memory.
+   */
+  private void copyVariableData(Netcdf3FormatWriter ncwriter, CancelTask cancel) throws IOException {
+    List<CopyChunk> chunks = new ArrayList<>();
+    makeChunks(fileIn.getRootGroup(), ncwriter.getRootGroup(), chunks);
+    long totalBytes = 0;
+    for (CopyChunk chunk : chunks) {
+      totalBytes += chunk.nbytes;
+    }
+
+    // reads are serialized unless the input file can be read by multiple threads
+    Object readLock = isConcurrentReadSafe() ? null : new Object();
+    int maxQueued = 2 * readThreads;
+    ArrayDeque<Future<Array<?>>> queue = new ArrayDeque<>();
+    int next = 0;
+    long bytesWritten = 0;
+    long start = System.nanoTime();
+
+    ExecutorService executor = Executors.newFixedThreadPool(readThreads);
+    try {
+      for (CopyChunk chunk : chunks) {
+        while (next < chunks.size() && queue.size() < maxQueued) {
+          CopyChunk ahead = chunks.get(next++);
+          queue.add(executor.submit(() -> readChunk(ahead, readLock, cancel)));
+        }
+        Array<?> data = queue.remove().get();
+        if (cancel.isCancel()) {
+          return;
+        }
+        writeChunk(ncwriter, chunk, data);
+        bytesWritten += chunk.nbytes;
+        reportProgress(cancel, bytesWritten, totalBytes, start);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted copying " + fileIn.getLocation(), e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException ioe) {
+        throw ioe;
+      }
+      throw new IOException(cause);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private boolean isConcurrentReadSafe() {
+    return fileIn.sendIospMessage(CdmFile.IOSP_MESSAGE_RANDOM_ACCESS_FILE) instanceof ConcurrentRandomAccessFile;
   }
 
-  private void copyVariableData(Netcdf3FormatWriter ncwriter, Group groupIn, Group groupOut, Count counter,
-      CancelTask cancel) throws IOException {
+  /**
+   * Divide the variables into chunks no larger than maxChunkSize bytes, in the order they are written.
+   * Strings are copied all at once, since they are converted to chars using the maximum length.
+   */
+  private void makeChunks(Group groupIn, Group groupOut, List<CopyChunk> chunks) throws IOException {
     for (Variable oldVar : groupIn.getVariables()) {
-      if (cancel.isCancel()) {
-        break;
-      }
       Variable newVar = groupOut.findVariableLocal(oldVar.getShortName());
       if (debug) {
         System.out.format("write var= %s size = %d type = %s%n", oldVar.getFullName(), oldVar.getSize(),
             oldVar.getArrayType());
       }
 
-      long size = oldVar.getSize() * oldVar.getElementSize();
-      counter.bytes += size;
+      int elemSize = oldVar.getElementSize();
+      long size = oldVar.getSize() * elemSize;
+      if (size <= maxChunkSize || oldVar.getArrayType() == ArrayType.STRING) {
+        chunks.add(new CopyChunk(oldVar, newVar, null, size));
+        continue;
+      }
+
+      // use whole multiples of what the source reads at once
+      long maxChunkElems = Math.max(1, maxChunkSize / elemSize);
+      long unit = nativeReadElems(oldVar);
+      long chunkElems = (unit >= maxChunkElems) ? maxChunkElems : (maxChunkElems / unit) * unit;
 
-      if (size <= maxSize) {
-        copyAll(ncwriter, oldVar, newVar);
-      } else {
-        copySome(ncwriter, oldVar, newVar, maxSize, cancel);
+      ChunkingIndex index = new ChunkingIndex(oldVar.getShape());
+      while (index.currentElement() < index.size()) {
+        int[] chunkOrigin = index.currentCounter();
+        int[] chunkShape = index.computeChunkShape(chunkElems);
+        long nelems = Arrays.computeSize(chunkShape);
+        try {
+          chunks.add(new CopyChunk(oldVar, newVar, new Section(chunkOrigin, chunkShape), nelems * elemSize));
+        } catch (InvalidRangeException e) {
+          throw new IOException(e.getMessage() + " for Variable " + oldVar.getFullName());
+        }
+        index.setCurrentCounter(index.currentElement() + nelems);
       }
-      counter.countVars++;
     }
 
     for (Group nestedIn : groupIn.getGroups()) {
-      if (cancel.isCancel()) {
-        break;
-      }
       Group nestedOut = groupOut.findGroupLocal(nestedIn.getShortName());
-      copyVariableData(ncwriter, nestedIn, nestedOut, counter, cancel);
+      makeChunks(nestedIn, nestedOut, chunks);
     }
   }
 
-  // copy all the data in oldVar to the newVar
-  private void copyAll(Netcdf3FormatWriter ncwriter, Variable oldVar, Variable newVar) throws IOException {
-    Array<?> data = oldVar.readArray();
-    try {
-      if (!extended && oldVar.getArrayType() == ArrayType.STRING) {
-        data = convertStringDataToChar(newVar, data);
-      }
-      if (data.getSize() > 0) { // zero when record dimension = 0
-        ncwriter.write(newVar, data.getIndex(), data);
+  /**
+   * The number of elements the source reads at once: a row of HDF5 chunks along the outer dimension,
+   * or else a 2D horizontal slice, which is one record in a GRIB file.
+   */
+  private static long nativeReadElems(Variable v) {
+    int[] shape = v.getShape();
+    int rank = shape.length;
+    Attribute chunkSizes = v.findAttribute(CDM.CHUNK_SIZES);
+    if (chunkSizes != null && chunkSizes.getLength() == rank && rank > 0) {
+      long unit = Math.max(1, chunkSizes.getNumericValue(0).intValue());
+      for (int i = 1; i < rank; i++) {
+        unit *= shape[i];
       }
-
-    } catch (InvalidRangeException e) {
-      e.printStackTrace();
-      throw new IOException(e.getMessage() + " for Variable " + oldVar.getFullName());
+      return unit;
     }
+    if (rank > 2) {
+      return Math.max(1, (long) shape[rank - 2] * shape[rank - 1]);
+    }
+    return 1;
   }
 
-  /**
-   * Copies data from {@code oldVar} to {@code newVar}. The writes are done in a series of chunks no larger than
-   * {@code maxChunkSize} bytes.
-   *
-   * @param oldVar a variable from the original file to copy data from.
-   * @param newVar a variable from the new file to copy data to.
-   * @param maxChunkSize the size, <b>in bytes</b>, of the largest chunk to write.
-   * @param cancel allow user to cancel, may be null.
-   * @throws IOException if an I/O error occurs.
-   */
-  private void copySome(Netcdf3FormatWriter ncwriter, Variable oldVar, Variable newVar, long maxChunkSize,
-      CancelTask cancel) throws IOException {
-    long maxChunkElems = maxChunkSize / oldVar.getElementSize();
-
-    ChunkingIndex index = new ChunkingIndex(oldVar.getShape());
-    int nelemsWritten = 0;
-    while (nelemsWritten < oldVar.getSize()) {
-      try {
-        int[] chunkOrigin = index.currentCounter();
-        int[] chunkShape = index.computeChunkShape(maxChunkElems);
-
-        Array<?> data = oldVar.readArray(new Section(chunkOrigin, chunkShape));
-        if (!getOutputFormat().isNetdf4format() && oldVar.getArrayType() == ArrayType.STRING) {
-          data = convertStringDataToChar(newVar, data);
-        }
-
-        if (data.getSize() > 0) { // zero when record dimension = 0
-          ncwriter.write(newVar, Index.of(chunkOrigin), data);
-          if (debugWrite) {
-            System.out.println(" write " + data.getSize() + " bytes at " + new Section(chunkOrigin, chunkShape));
-          }
-          nelemsWritten += data.getSize();
-        }
+  @Nullable
+  private Array<?> readChunk(CopyChunk chunk, @Nullable Object readLock, CancelTask cancel)
+      throws IOException, InvalidRangeException {
+    if (cancel.isCancel()) {
+      return null;
+    }
+    Array<?> data;
+    if (readLock == null) {
+      data = readChunk(chunk);
+    } else {
+      synchronized (readLock) {
+        data = readChunk(chunk);
+      }
+    }
+    if (!extended && chunk.oldVar.getArrayType() == ArrayType.STRING) {
+      data = convertStringDataToChar(chunk.newVar, data);
+    }
+    return data;
+  }
 
-        index.setCurrentCounter(index.currentElement() + (int) Arrays.computeSize(chunkShape));
-        if (cancel.isCancel()) {
-          return;
-        }
+  private Array<?> readChunk(CopyChunk chunk) throws IOException, InvalidRangeException {
+    return (chunk.section == null) ? chunk.oldVar.readArray() : chunk.oldVar.readArray(chunk.section);
+  }
 
-      } catch (InvalidRangeException e) {
-        e.printStackTrace();
-        throw new IOException(e.getMessage());
-      }
+  private void writeChunk(Netcdf3FormatWriter ncwriter, CopyChunk chunk, Array<?> data) throws IOException {
+    if (data.getSize() == 0) { // zero when record dimension = 0
+      return;
+    }
+    Index origin = (chunk.section == null) ? data.getIndex() : Index.of(chunk.section.getOrigin());
+    try {
+      ncwriter.write(chunk.newVar, origin, data);
+    } catch (InvalidRangeException e) {
+      throw new IOException(e.getMessage() + " for Variable " + chunk.oldVar.getFullName());
+    }
+    if (debugWrite) {
+      System.out.println(" write " + data.getSize() + " elements at " + chunk.section);
     }
   }
 
+  private static void reportProgress(CancelTask cancel, long bytesWritten, long totalBytes, long startNanos) {
+    double mbytes = bytesWritten * 1.0e-6;
+    double secs = (System.nanoTime() - startNanos) * 1.0e-9;
+    int percent = (totalBytes == 0) ? 100 : (int) (100 * bytesWritten / totalBytes);
+    cancel.setProgress(String.format("copied %.1f of %.1f Mbytes, %.1f Mbytes/sec", mbytes, totalBytes * 1.0e-6,
+        (secs > 0) ? mbytes / secs : 0.0), percent);
+  }
+
   private Array<Byte> convertStringDataToChar(Variable newVar, Array<?> oldData) {
     byte[] parray = new byte[(int) newVar.getSize()];
     int maxlen = newVar.getShape()[newVar.getRank() - 1];
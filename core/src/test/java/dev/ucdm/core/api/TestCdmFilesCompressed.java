@@ -1,14 +1,21 @@
 package dev.ucdm.core.api;
 
+import dev.ucdm.core.util.DiskCache;
+import dev.ucdm.core.util.ManagedDiskCache;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 
 import static com.google.common.truth.Truth.assertThat;
 
 public class TestCdmFilesCompressed {
 
+  @TempDir
+  public File tempFolder;
+
   @Test
   public void testCompressionZ() throws IOException {
     File uncompressedFile = new File(TestCdmFiles.coreLocalDir + "compress/testCompress.nc");
@@ -108,4 +115,35 @@ public class TestCdmFilesCompressed {
       assertThat(temp.findAttributeString("units", "barf")).isEqualTo("K");
     }
   }
+
+  @Test
+  public void testNotEvictedWhileOpen() throws IOException {
+    File compressed = new File(tempFolder, "testGzip.nc.gz");
+    Files.copy(new File(TestCdmFiles.coreLocalDir + "compress/testGzip.nc.gz").toPath(), compressed.toPath());
+    String saveRoot = DiskCache.getRootDirectory();
+    DiskCache.setRootDirectory(new File(tempFolder, "cache").getPath());
+    DiskCache.setCachePolicy(true);
+    try {
+      ManagedDiskCache cache = ManagedDiskCache.getDefault();
+      File uncompressed = DiskCache.getCacheFile(compressed.getPath().replace(".gz", ""));
+
+      try (CdmFile ncfile = CdmFiles.open(compressed.getPath())) {
+        assertThat(uncompressed.exists()).isTrue();
+        assertThat(cache.isManaged(uncompressed)).isTrue();
+
+        // over budget, but the open file is pinned
+        cache.setMaxBytes(0);
+        assertThat(cache.evict()).isEqualTo(0);
+        assertThat(uncompressed.exists()).isTrue();
+        assertThat(ncfile.findVariable("temperature").readArray().length()).isGreaterThan(0L);
+      }
+
+      // closing releases the pin
+      assertThat(cache.evict()).isEqualTo(1);
+      assertThat(uncompressed.exists()).isFalse();
+    } finally {
+      DiskCache.setCachePolicy(false);
+      DiskCache.setRootDirectory(saveRoot);
+    }
+  }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.api;
+
+import dev.ucdm.array.Array;
+import dev.ucdm.array.CompareArrayToArray;
+import dev.ucdm.array.Section;
+import dev.ucdm.core.io.ConcurrentRandomAccessFile;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/** Test reading one CdmFile from many threads, opened with IOSP_MESSAGE_CONCURRENT_READS. */
+public class TestConcurrentReads {
+  private static final int NTHREADS = 8;
+  private static final int NREADS = 200;
+
+  @ParameterizedTest
+  @ValueSource(strings = {"netcdf3/uw_kingair-2005-01-19-113957.nc", "netcdf3/testWrite.nc", "hdf5/zip.h5",
+      "hdf5/chunked.h5", "hdf5/vlslab.h5", "netcdf4/IntTimSciSamp.nc", "hdf4/17766010.hdf",
+      "hdf4/MAC07S0.A2008230.1250.002.2008233222357.hdf"})
+  public void testConcurrentReads(String filename) throws Exception {
+    String location = TestCdmFiles.coreLocalDir + filename;
+
+    // the expected values, from a file read by one thread
+    Map<String, Array<?>> expected = new HashMap<>();
+    Map<String, Array<?>> expectedFirst = new HashMap<>();
+    List<String> varNames = new ArrayList<>();
+    try (CdmFile ncfile = CdmFiles.open(location)) {
+      for (Variable v : ncfile.getVariables()) {
+        if (v instanceof Structure || v.isVariableLength()) {
+          continue;
+        }
+        varNames.add(v.getFullName());
+        expected.put(v.getFullName(), v.readArray());
+        if (v.getRank() > 0 && v.getShape(0) > 0) {
+          expectedFirst.put(v.getFullName(), v.readArray(firstSection(v)));
+        }
+      }
+    }
+    assertThat(varNames).isNotEmpty();
+
+    ExecutorService executor = Executors.newFixedThreadPool(NTHREADS);
+    try (CdmFile ncfile = CdmFiles.open(location, -1, null, CdmFile.IOSP_MESSAGE_CONCURRENT_READS)) {
+      Object raf = ncfile.sendIospMessage(CdmFile.IOSP_MESSAGE_RANDOM_ACCESS_FILE);
+      assertThat(raf).isInstanceOf(ConcurrentRandomAccessFile.class);
+
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int t = 0; t < NTHREADS; t++) {
+        Random random = new Random(t);
+        futures.add(executor.submit(() -> {
+          int count = 0;
+          for (int i = 0; i < NREADS; i++) {
+            String varName = varNames.get(random.nextInt(varNames.size()));
+            Variable v = ncfile.findVariable(varName);
+            assertThat(v).isNotNull();
+            Array<?> want = expectedFirst.get(varName);
+            Array<?> got;
+            if (want != null && random.nextBoolean()) {
+              got = v.readArray(firstSection(v));
+            } else {
+              want = expected.get(varName);
+              got = v.readArray();
+            }
+            Formatter f = new Formatter();
+            boolean ok = CompareArrayToArray.compareData(f, varName, want, got, true);
+            assertWithMessage("%s %s", varName, f).that(ok).isTrue();
+            count++;
+          }
+          return count;
+        }));
+      }
+      for (Future<Integer> future : futures) {
+        assertThat(future.get()).isEqualTo(NREADS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Section firstSection(Variable v) throws Exception {
+    Section.Builder sb = Section.builder().appendRange(0, 0);
+    for (int i = 1; i < v.getRank(); i++) {
+      sb.appendRange(v.getShape(i));
+    }
+    return sb.build();
+  }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.api;
+
+import dev.ucdm.core.hdf5.H5iosp;
+import dev.ucdm.core.io.RandomAccessFile;
+import dev.ucdm.core.iosp.IOServiceProvider;
+import dev.ucdm.core.netcdf3.N3iosp;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/** Compare finding the IOSP by magic number in CdmFiles to trying every IOSP, over a mixed-format corpus. */
+public class TestOpenThroughput {
+  private static final String[] topdirs = {"src/test/data/netcdf3/", "src/test/data/netcdf4/", "src/test/data/hdf5/",
+      "src/test/data/hdf4/", "src/test/data/cdl/"};
+
+  private static List<String> corpus() {
+    List<String> result = new ArrayList<>();
+    for (String topdir : topdirs) {
+      File[] files = new File(topdir).listFiles();
+      assertThat(files).isNotNull();
+      for (File file : files) {
+        if (file.isFile() && file.length() > 0) {
+          result.add(file.getPath());
+        }
+      }
+    }
+    return result;
+  }
+
+  // the order that CdmFiles used before magic numbers: registered, then ServiceLoader
+  private static List<IOServiceProvider> allProviders() {
+    List<IOServiceProvider> result = new ArrayList<>();
+    result.add(new H5iosp());
+    result.add(new N3iosp());
+    ServiceLoader.load(IOServiceProvider.class).forEach(result::add);
+    return result;
+  }
+
+  @Nullable
+  private static Class<?> fullProbe(List<IOServiceProvider> providers, String filename) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+      for (IOServiceProvider spi : providers) {
+        if (spi.isValidFile(raf)) {
+          return spi.getClass();
+        }
+      }
+    }
+    return null;
+  }
+
+  @Test
+  public void testSameIospAsFullProbing() throws IOException {
+    List<IOServiceProvider> providers = allProviders();
+    int count = 0;
+    for (String filename : corpus()) {
+      Class<?> expected = fullProbe(providers, filename);
+      if (expected == null) {
+        assertWithMessage(filename).that(CdmFiles.canOpen(filename)).isFalse();
+        continue;
+      }
+      try (CdmFile ncfile = CdmFiles.open(filename)) {
+        Object iosp = ncfile.sendIospMessage(CdmFile.IOSP_MESSAGE_GET_IOSP);
+        assertWithMessage(filename).that(iosp).isInstanceOf(expected);
+        count++;
+      } catch (Throwable e) {
+        // not all test files can be read
+      }
+    }
+    assertThat(count).isGreaterThan(0);
+  }
+
+  @Test
+  public void testOpenThroughput() throws Exception {
+    List<String> filenames = corpus();
+    List<IOServiceProvider> providers = allProviders();
+    int ntimes = 10;
+    openAll(filenames, providers, 1); // warm up
+    openAll(filenames, null, 1);
+
+    long start = System.nanoTime();
+    int nopens = openAll(filenames, providers, ntimes);
+    long fullProbing = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    int nopens2 = openAll(filenames, null, ntimes);
+    long magicNumbers = System.nanoTime() - start;
+    assertThat(nopens2).isEqualTo(nopens);
+
+    System.out.printf("open %d of %d files: full probing %d msecs = %.1f files/sec,"
+        + " magic numbers %d msecs = %.1f files/sec%n", nopens, filenames.size() * ntimes, fullProbing / 1000 / 1000, nopens * 1.0e9 / fullProbing,
+        magicNumbers / 1000 / 1000, nopens * 1.0e9 / magicNumbers);
+  }
+
+  // if providers is null, use CdmFiles.open(), else find the IOSP by trying all the providers in order
+  private static int openAll(List<String> filenames, @Nullable List<IOServiceProvider> providers, int ntimes)
+      throws Exception {
+    int nopens = 0;
+    for (int i = 0; i < ntimes; i++) {
+      for (String filename : filenames) {
+        try (CdmFile ncfile = (providers == null) ? CdmFiles.open(filename) : openWithFullProbe(providers, filename)) {
+          if (ncfile != null) {
+            nopens++;
+          }
+        } catch (Throwable e) {
+          // not all test files can be read
+        }
+      }
+    }
+    return nopens;
+  }
+
+  @Nullable
+  private static CdmFile openWithFullProbe(List<IOServiceProvider> providers, String filename) throws Exception {
+    RandomAccessFile raf = new RandomAccessFile(filename, "r");
+    for (IOServiceProvider spi : providers) {
+      if (spi.isValidFile(raf)) {
+        IOServiceProvider iosp = spi.getClass().getDeclaredConstructor().newInstance();
+        return CdmFiles.build(iosp, raf, filename, null);
+      }
+    }
+    raf.close();
+    return null;
+  }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.hdf5;
+
+import dev.ucdm.array.Array;
+import dev.ucdm.array.ArrayType;
+import dev.ucdm.core.api.CdmFile;
+import dev.ucdm.core.api.CdmFiles;
+import dev.ucdm.core.api.Variable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/** Test reading variable length Strings from the global heap. */
+public class TestHeapStrings {
+  private static final String[] filenames = {"src/test/data/hdf5/strings.h5", "src/test/data/hdf5/vlslab.h5",
+      "src/test/data/hdf5/uvlstr.h5", "src/test/data/netcdf4/tst_strings.nc4",
+      "src/test/data/netcdf4/tst_string_data.nc", "src/test/data/netcdf4/in_grp.nc"};
+
+  @AfterEach
+  public void cleanup() {
+    H5iosp.setGlobalHeapCacheBytes(16L * 1000 * 1000);
+  }
+
+  @Test
+  public void testValues() throws IOException {
+    try (CdmFile ncfile = CdmFiles.open("src/test/data/netcdf4/tst_string_data.nc")) {
+      Variable v = ncfile.findVariable("description");
+      assertThat(v).isNotNull();
+      assertThat(readStrings(v)).containsExactly("first string", "second string", "third string", "", "last string")
+          .inOrder();
+    }
+    try (CdmFile ncfile = CdmFiles.open("src/test/data/hdf5/strings.h5")) {
+      Variable v = ncfile.findVariable("StringsEx");
+      assertThat(v).isNotNull();
+      List<String> values = readStrings(v);
+      assertThat(values).hasSize(4);
+      assertThat(values.get(0)).isEqualTo("A fight is a contract that takes two people to honor.");
+      assertThat(values.get(3)).isEqualTo("  --  Professor Cheng Man-ch'ing");
+    }
+  }
+
+  /** The global heap collections are not kept in memory, so are read for each variable. */
+  @Test
+  public void testSameWithoutKeepingCollections() throws IOException {
+    List<List<String>> kept = readAll(1);
+    H5iosp.setGlobalHeapCacheBytes(0);
+    List<List<String>> notKept = readAll(1);
+    assertThat(notKept).isEqualTo(kept);
+    assertThat(kept).isNotEmpty();
+  }
+
+  private static List<List<String>> readAll(int ntimes) throws IOException {
+    List<List<String>> result = new ArrayList<>();
+    for (String filename : filenames) {
+      try (CdmFile ncfile = CdmFiles.open(filename)) {
+        for (Variable v : ncfile.getVariables()) {
+          if (v.getArrayType() == ArrayType.STRING) {
+            for (int i = 0; i < ntimes; i++) {
+              result.add(readStrings(v));
+            }
+          }
+        }
+      }
+    }
+    assertWithMessage("no String variables").that(result).isNotEmpty();
+    return result;
+  }
+
+  private static List<String> readStrings(Variable v) throws IOException {
+    Array<String> data = (Array<String>) v.readArray();
+    List<String> result = new ArrayList<>();
+    for (String s : data) {
+      result.add(s);
+    }
+    return result;
+  }
+
+}
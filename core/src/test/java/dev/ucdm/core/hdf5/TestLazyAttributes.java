@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.hdf5;
+
+import dev.ucdm.array.Array;
+import dev.ucdm.array.Arrays;
+import dev.ucdm.core.api.Attribute;
+import dev.ucdm.core.api.CdmFile;
+import dev.ucdm.core.api.CdmFiles;
+import dev.ucdm.core.api.Group;
+import dev.ucdm.core.api.Variable;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static org.junit.Assert.fail;
+
+/** Compare opening with H5iosp.IOSP_MESSAGE_LAZY_ATTRIBUTES to reading the whole header. */
+public class TestLazyAttributes {
+  private static final String[] topdirs = {"src/test/data/hdf5/", "src/test/data/netcdf4/"};
+
+  @BeforeAll
+  public static void setup() {
+    // so that the small test files have some lazy attributes
+    H5iosp.setLazyAttributeMinElements(2);
+  }
+
+  @AfterAll
+  public static void cleanup() {
+    H5iosp.setLazyAttributeMinElements(1000);
+  }
+
+  private static List<String> readableFiles() {
+    List<String> result = new ArrayList<>();
+    for (String topdir : topdirs) {
+      File[] files = new File(topdir).listFiles();
+      assertThat(files).isNotNull();
+      for (File file : files) {
+        if (!file.isFile()) {
+          continue;
+        }
+        try (CdmFile ncfile = CdmFiles.open(file.getPath())) {
+          if (ncfile.sendIospMessage(CdmFile.IOSP_MESSAGE_GET_IOSP) instanceof H5iosp) {
+            result.add(file.getPath());
+          }
+        } catch (Throwable e) {
+          // not all test files can be read
+        }
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testSameAsEager() throws IOException {
+    List<String> filenames = readableFiles();
+    assertThat(filenames).isNotEmpty();
+
+    int countLazy = 0;
+    long eagerNanos = 0;
+    long lazyNanos = 0;
+    for (String filename : filenames) {
+      long start = System.nanoTime();
+      try (CdmFile eager = CdmFiles.open(filename)) {
+        eagerNanos += System.nanoTime() - start;
+        start = System.nanoTime();
+        try (CdmFile lazy = CdmFiles.open(filename, -1, null, H5iosp.IOSP_MESSAGE_LAZY_ATTRIBUTES)) {
+          lazyNanos += System.nanoTime() - start;
+          countLazy += compareGroup(eager.getRootGroup(), lazy.getRootGroup());
+        }
+      }
+    }
+    assertThat(countLazy).isGreaterThan(0);
+    System.out.printf("%d files, %d lazy attributes: open eager %d msecs, lazy %d msecs%n", filenames.size(),
+        countLazy, eagerNanos / 1000 / 1000, lazyNanos / 1000 / 1000);
+  }
+
+  @Test
+  public void testReadAfterClose() throws IOException {
+    Attribute unread = null;
+    for (String filename : readableFiles()) {
+      try (CdmFile lazy = CdmFiles.open(filename, -1, null, H5iosp.IOSP_MESSAGE_LAZY_ATTRIBUTES)) {
+        unread = findUnread(lazy.getRootGroup());
+      }
+      if (unread != null) {
+        break;
+      }
+    }
+    assertThat(unread).isNotNull();
+
+    // the values were not read before the file was closed, so they can't be read now
+    Array<?> values = unread.getArrayValues();
+    try {
+      values.iterator().next();
+      fail();
+    } catch (UncheckedIOException e) {
+      assertThat(e.getCause()).isInstanceOf(IOException.class);
+    }
+  }
+
+  @Nullable
+  private static Attribute findUnread(Group group) {
+    List<Iterable<Attribute>> atts = new ArrayList<>();
+    atts.add(group.attributes());
+    group.getVariables().forEach(v -> atts.add(v.attributes()));
+    for (Iterable<Attribute> list : atts) {
+      for (Attribute att : list) {
+        if (att.getArrayValues() != null && Arrays.isLazyUnread(att.getArrayValues())) {
+          return att;
+        }
+      }
+    }
+    for (Group g : group.getGroups()) {
+      Attribute att = findUnread(g);
+      if (att != null) {
+        return att;
+      }
+    }
+    return null;
+  }
+
+  // return the number of lazy attributes
+  private int compareGroup(Group eager, Group lazy) {
+    int count = compareAttributes(eager.getFullName(), eager.attributes(), lazy.attributes());
+    for (Variable v : eager.getVariables()) {
+      Variable lv = lazy.findVariableLocal(v.getShortName());
+      assertWithMessage(v.getFullName()).that(lv).isNotNull();
+      count += compareAttributes(v.getFullName(), v.attributes(), lv.attributes());
+    }
+    for (Group g : eager.getGroups()) {
+      Group lg = lazy.findGroupLocal(g.getShortName());
+      assertWithMessage(g.getFullName()).that(lg).isNotNull();
+      count += compareGroup(g, lg);
+    }
+    return count;
+  }
+
+  private int compareAttributes(String name, Iterable<Attribute> eager, Iterable<Attribute> lazy) {
+    int count = 0;
+    List<Attribute> lazyList = new ArrayList<>();
+    for (Attribute att : lazy) {
+      if (att.getArrayValues() != null && Arrays.isLazyUnread(att.getArrayValues())) {
+        count++;
+      }
+      lazyList.add(att);
+    }
+    List<Attribute> eagerList = new ArrayList<>();
+    eager.forEach(eagerList::add);
+    assertWithMessage(name).that(lazyList).containsExactlyElementsIn(eagerList);
+    return count;
+  }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+/** Test {@link ConcurrentRandomAccessFile} */
+public class TestConcurrentRandomAccessFile {
+  private static final String TEST_FILE_PATH = "src/test/data/netcdf3/uw_kingair-2005-01-19-113957.nc";
+  private static final int NTHREADS = 8;
+
+  @Test
+  public void testConcurrentReads() throws Exception {
+    byte[] expected = Files.readAllBytes(Paths.get(TEST_FILE_PATH));
+    ByteBuffer expectedBB = ByteBuffer.wrap(expected);
+
+    ExecutorService executor = Executors.newFixedThreadPool(NTHREADS);
+    try (RandomAccessFile raf = new ConcurrentRandomAccessFile(new RandomAccessFile(TEST_FILE_PATH, "r", 100))) {
+      assertThat(raf.length()).isEqualTo(expected.length);
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int t = 0; t < NTHREADS; t++) {
+        int seed = t;
+        futures.add(executor.submit(() -> {
+          Random random = new Random(seed);
+          ByteOrder order = (seed % 2 == 0) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+          raf.order(order);
+          int count = 0;
+          for (int i = 0; i < 2000; i++) {
+            int pos = random.nextInt(expected.length - 1000);
+            raf.seek(pos);
+            if (i % 2 == 0) {
+              byte[] b = new byte[1 + random.nextInt(999)];
+              raf.readFully(b);
+              for (int k = 0; k < b.length; k++) {
+                assertThat(b[k]).isEqualTo(expected[pos + k]);
+              }
+            } else {
+              int val = raf.readInt();
+              assertThat(val).isEqualTo(expectedBB.duplicate().order(order).getInt(pos));
+            }
+            assertThat(raf.getFilePointer()).isGreaterThan((long) pos);
+            count++;
+          }
+          return count;
+        }));
+      }
+      for (Future<Integer> f : futures) {
+        assertThat(f.get()).isEqualTo(2000);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testPerThreadState() throws Exception {
+    try (RandomAccessFile raf = new ConcurrentRandomAccessFile(new RandomAccessFile(TEST_FILE_PATH, "r"))) {
+      raf.order(RandomAccessFile.LITTLE_ENDIAN);
+      raf.seek(100);
+
+      Thread other = new Thread(() -> {
+        try {
+          // a new thread starts at 0, with the last byte order that was set
+          assertThat(raf.getFilePointer()).isEqualTo(0);
+          raf.seek(200);
+          raf.order(RandomAccessFile.BIG_ENDIAN);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      });
+      other.start();
+      other.join();
+
+      assertThat(raf.getFilePointer()).isEqualTo(100);
+      byte[] b = new byte[4];
+      raf.readFully(b);
+      raf.seek(100);
+      assertThat(raf.readInt()).isEqualTo(ByteBuffer.wrap(b).order(ByteOrder.LITTLE_ENDIAN).getInt());
+    }
+  }
+
+  @Test
+  public void testInterruptedThread() throws Exception {
+    try (RandomAccessFile raf = new ConcurrentRandomAccessFile(new RandomAccessFile(TEST_FILE_PATH, "r", 100))) {
+      Thread.currentThread().interrupt();
+      try {
+        raf.seek(1000);
+        fail();
+      } catch (IOException e) {
+        // expected
+      } finally {
+        assertThat(Thread.interrupted()).isTrue();
+      }
+
+      // still readable by other threads
+      raf.seek(0);
+      assertThat(raf.readString(3)).isEqualTo("CDF");
+    }
+  }
+
+  @Test
+  public void testInMemory() throws Exception {
+    byte[] expected = Files.readAllBytes(Paths.get(TEST_FILE_PATH));
+    try (RandomAccessFile raf = new ConcurrentRandomAccessFile(new InMemoryRandomAccessFile("test", expected))) {
+      raf.seek(1234);
+      byte[] b = new byte[100];
+      raf.readFully(b);
+      for (int k = 0; k < b.length; k++) {
+        assertThat(b[k]).isEqualTo(expected[1234 + k]);
+      }
+    }
+  }
+
+  @Test
+  public void testReadOnly() throws Exception {
+    try (RandomAccessFile raf = new ConcurrentRandomAccessFile(new RandomAccessFile(TEST_FILE_PATH, "r"))) {
+      try {
+        raf.writeInt(1);
+        fail();
+      } catch (UnsupportedOperationException e) {
+        // expected
+      }
+    }
+  }
+
+}
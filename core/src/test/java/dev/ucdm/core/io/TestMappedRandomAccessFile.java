@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+/** Test {@link MappedRandomAccessFile} */
+public class TestMappedRandomAccessFile {
+  private static final String TEST_FILE_PATH = "src/test/data/netcdf3/uw_kingair-2005-01-19-113957.nc";
+
+  @Test
+  public void testRead() throws IOException {
+    byte[] expected = Files.readAllBytes(Paths.get(TEST_FILE_PATH));
+    try (RandomAccessFile raf = new MappedRandomAccessFile(TEST_FILE_PATH)) {
+      assertThat(raf.length()).isEqualTo(expected.length);
+      assertThat(raf.readString(3)).isEqualTo("CDF");
+
+      raf.seek(1000);
+      int val = raf.readInt();
+      assertThat(val).isEqualTo(ByteBuffer.wrap(expected).getInt(1000));
+
+      byte[] b = new byte[expected.length];
+      raf.readFullyUnbuffered(0, b, 0, b.length);
+      assertThat(b).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void testSegments() throws IOException {
+    byte[] expected = Files.readAllBytes(Paths.get(TEST_FILE_PATH));
+    // small segments, so most reads cross a segment boundary
+    try (MappedRandomAccessFile raf = new MappedRandomAccessFile(TEST_FILE_PATH, 100, 4000, 1000)) {
+      assertThat(raf.getNumberOfSegments()).isEqualTo(1 + (expected.length - 4000 + 2999) / 3000);
+      Random random = new Random(3535);
+      for (int i = 0; i < 1000; i++) {
+        int pos = random.nextInt(expected.length);
+        int len = random.nextInt(Math.min(10000, expected.length - pos + 1));
+        byte[] b = new byte[len];
+        raf.readFullyUnbuffered(pos, b, 0, len);
+        for (int k = 0; k < len; k++) {
+          assertThat(b[k]).isEqualTo(expected[pos + k]);
+        }
+
+        ByteBuffer bb = raf.getByteBuffer(pos, len);
+        if (len <= 1000) {
+          assertThat(bb).isNotNull();
+        }
+        if (bb != null) {
+          assertThat(bb.remaining()).isEqualTo(len);
+          for (int k = 0; k < len; k++) {
+            assertThat(bb.get(k)).isEqualTo(expected[pos + k]);
+          }
+        }
+      }
+
+      byte[] last = new byte[10];
+      raf.seek(expected.length - 5);
+      assertThat(raf.read(last, 0, 10)).isEqualTo(5);
+      assertThat(raf.read(last, 0, 10)).isEqualTo(-1);
+      assertThat(raf.getByteBuffer(expected.length - 5, 10)).isNull();
+    }
+  }
+
+  @Test
+  public void testReadToByteChannel() throws IOException {
+    byte[] expected = Files.readAllBytes(Paths.get(TEST_FILE_PATH));
+    try (MappedRandomAccessFile raf = new MappedRandomAccessFile(TEST_FILE_PATH, 100, 4000, 1000)) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      long n = raf.readToByteChannel(Channels.newChannel(bos), 1234, expected.length);
+      assertThat(n).isEqualTo(expected.length - 1234);
+      byte[] b = bos.toByteArray();
+      for (int k = 0; k < b.length; k++) {
+        assertThat(b[k]).isEqualTo(expected[1234 + k]);
+      }
+    }
+  }
+
+  @Test
+  public void testConcurrent() throws IOException {
+    byte[] expected = Files.readAllBytes(Paths.get(TEST_FILE_PATH));
+    try (RandomAccessFile raf = new ConcurrentRandomAccessFile(new MappedRandomAccessFile(TEST_FILE_PATH))) {
+      raf.seek(4321);
+      byte[] b = new byte[100];
+      raf.readFully(b);
+      for (int k = 0; k < b.length; k++) {
+        assertThat(b[k]).isEqualTo(expected[4321 + k]);
+      }
+      assertThat(raf.getByteBuffer(4321, 100).get(0)).isEqualTo(expected[4321]);
+    }
+  }
+
+  @Test
+  public void testClosed() throws IOException {
+    RandomAccessFile raf = new MappedRandomAccessFile(TEST_FILE_PATH);
+    raf.close();
+    try {
+      raf.getByteBuffer(0, 10);
+      fail();
+    } catch (IOException e) {
+      // expected
+    }
+    try {
+      raf.writeInt(1);
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.iosp;
+
+import dev.ucdm.array.CompareArrayToArray;
+import dev.ucdm.core.api.CdmFile;
+import dev.ucdm.core.api.CdmFiles;
+import dev.ucdm.core.api.Variable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/** Test {@link HeaderSnapshotCache} */
+public class TestHeaderSnapshotCache {
+  private static final String topdir = "src/test/data/netcdf3/";
+
+  @TempDir
+  public File tempFolder;
+
+  @AfterEach
+  public void cleanup() {
+    HeaderSnapshotCache.setRootDirectory(null);
+  }
+
+  private static List<String> netcdf3Files() {
+    File[] files = new File(topdir).listFiles((dir, name) -> name.endsWith(".nc"));
+    assertThat(files).isNotNull();
+    List<String> result = new ArrayList<>();
+    for (File file : files) {
+      result.add(file.getPath());
+    }
+    return result;
+  }
+
+  @Test
+  public void testSameAsHeader() throws IOException {
+    HeaderSnapshotCache.setRootDirectory(tempFolder.getPath());
+    long hits = HeaderSnapshotCache.getHits();
+    List<String> filenames = netcdf3Files();
+    for (String filename : filenames) {
+      // first open writes the snapshot
+      try (CdmFile org = CdmFiles.open(filename)) {
+        // second open reads it
+        try (CdmFile restored = CdmFiles.open(filename)) {
+          assertWithMessage(filename).that(restored.toString()).isEqualTo(org.toString());
+          for (Variable v : org.getVariables()) {
+            Variable rv = restored.findVariable(v.getFullName());
+            assertWithMessage(v.getFullName()).that(rv).isNotNull();
+            assertWithMessage(v.getFullName()).that(rv.attributes()).isEqualTo(v.attributes());
+            Formatter f = new Formatter();
+            boolean ok = CompareArrayToArray.compareData(f, v.getFullName(), v.readArray(), rv.readArray(), true);
+            assertWithMessage("%s %s", v.getFullName(), f).that(ok).isTrue();
+          }
+        }
+      }
+    }
+    assertThat(HeaderSnapshotCache.getHits() - hits).isEqualTo(filenames.size());
+  }
+
+  @Test
+  public void testChangedFileIsNotRestored() throws Exception {
+    HeaderSnapshotCache.setRootDirectory(tempFolder.getPath());
+    File copy = new File(tempFolder, "copy.nc");
+    Files.copy(new File(topdir, "example1.nc").toPath(), copy.toPath());
+    try (CdmFile org = CdmFiles.open(copy.getPath())) {
+      assertThat(org.findVariable("rh")).isNotNull();
+    }
+
+    long hits = HeaderSnapshotCache.getHits();
+    assertThat(copy.setLastModified(copy.lastModified() + 10000)).isTrue();
+    try (CdmFile changed = CdmFiles.open(copy.getPath())) {
+      assertThat(changed.findVariable("rh")).isNotNull();
+    }
+    assertThat(HeaderSnapshotCache.getHits()).isEqualTo(hits);
+  }
+
+  @Test
+  public void testOpenLatency() throws IOException {
+    List<String> filenames = netcdf3Files();
+    int ntimes = 20;
+    long without = timeOpens(filenames, ntimes);
+
+    HeaderSnapshotCache.setRootDirectory(tempFolder.getPath());
+    timeOpens(filenames, 1); // write the snapshots
+    long with = timeOpens(filenames, ntimes);
+
+    Formatter f = new Formatter();
+    HeaderSnapshotCache.showStats(f);
+    System.out.printf("%d opens: without snapshots %d msecs, with snapshots %d msecs%n%s", filenames.size() * ntimes,
+        without / 1000 / 1000, with / 1000 / 1000, f);
+  }
+
+  private static long timeOpens(List<String> filenames, int ntimes) throws IOException {
+    long start = System.nanoTime();
+    for (int i = 0; i < ntimes; i++) {
+      for (String filename : filenames) {
+        try (CdmFile ncfile = CdmFiles.open(filename)) {
+          assertThat(ncfile.getRootGroup()).isNotNull();
+        }
+      }
+    }
+    return System.nanoTime() - start;
+  }
+
+}
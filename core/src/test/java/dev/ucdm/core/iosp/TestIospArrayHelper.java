@@ -4,9 +4,15 @@
  */
 package dev.ucdm.core.iosp;
 
+import dev.ucdm.array.Section;
+import dev.ucdm.core.io.InMemoryRandomAccessFile;
+import dev.ucdm.core.io.RandomAccessFile;
 import org.junit.jupiter.api.Test;
 import dev.ucdm.array.ArrayType;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import static com.google.common.truth.Truth.assertThat;
 
 /** Test {@link IospArrayHelper} */
@@ -38,4 +44,93 @@ public class TestIospArrayHelper {
     }
   }
 
+  // nrecs records of recSize bytes, each with a short, int, float, double, long starting at 8
+  private static final int nrecs = 1000;
+  private static final int recSize = 200;
+
+  private static RandomAccessFile makeRecordFile(ByteOrder order) {
+    ByteBuffer bb = ByteBuffer.allocate(nrecs * recSize + 8).order(order);
+    for (int rec = 0; rec < nrecs; rec++) {
+      int pos = 8 + rec * recSize;
+      for (int j = 0; j < 5; j++) {
+        bb.putShort(pos + 2 * j, (short) (rec * 10 + j));
+        bb.putInt(pos + 10 + 4 * j, rec * 10 + j);
+        bb.putFloat(pos + 30 + 4 * j, rec + j / 10.0f);
+        bb.putDouble(pos + 50 + 8 * j, rec + j / 100.0);
+        bb.putLong(pos + 90 + 8 * j, rec * 1000L + j);
+        bb.put(pos + 130 + j, (byte) (rec + j));
+      }
+    }
+    return new InMemoryRandomAccessFile("records", bb.array());
+  }
+
+  @Test
+  public void testReadDataRecords() throws Exception {
+    int[][] coalescing = {{64 * 1024, 4 * 1024 * 1024}, {0, 4 * 1024 * 1024}, {1000, 333}, {0, 1}};
+    for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+      try (RandomAccessFile raf = makeRecordFile(order)) {
+        for (int[] params : coalescing) {
+          IospArrayHelper.setReadCoalescing(params[0], params[1]);
+          try {
+            checkRecords(raf, order);
+          } finally {
+            IospArrayHelper.setReadCoalescing(64 * 1024, 4 * 1024 * 1024);
+          }
+        }
+      }
+    }
+  }
+
+  private void checkRecords(RandomAccessFile raf, ByteOrder order) throws Exception {
+    // time series at one point, and a strided section
+    Section point = new Section("0:999,3");
+    Section strided = new Section("10:900:7,1:4");
+    int[] shape = {nrecs, 5};
+
+    short[] sdata = (short[]) IospArrayHelper.readDataFill(raf,
+        new LayoutRegularSegmented(8, 2, recSize, shape, point), ArrayType.SHORT, null, order);
+    int[] idata = (int[]) IospArrayHelper.readDataFill(raf,
+        new LayoutRegularSegmented(18, 4, recSize, shape, point), ArrayType.INT, null, order);
+    float[] fdata = (float[]) IospArrayHelper.readDataFill(raf,
+        new LayoutRegularSegmented(38, 4, recSize, shape, point), ArrayType.FLOAT, null, order);
+    double[] ddata = (double[]) IospArrayHelper.readDataFill(raf,
+        new LayoutRegularSegmented(58, 8, recSize, shape, point), ArrayType.DOUBLE, null, order);
+    long[] ldata = (long[]) IospArrayHelper.readDataFill(raf,
+        new LayoutRegularSegmented(98, 8, recSize, shape, point), ArrayType.LONG, null, order);
+    byte[] bdata = (byte[]) IospArrayHelper.readDataFill(raf,
+        new LayoutRegularSegmented(138, 1, recSize, shape, point), ArrayType.BYTE, null, order);
+    assertThat(sdata.length).isEqualTo(nrecs);
+    for (int rec = 0; rec < nrecs; rec++) {
+      assertThat(sdata[rec]).isEqualTo((short) (rec * 10 + 3));
+      assertThat(idata[rec]).isEqualTo(rec * 10 + 3);
+      assertThat(fdata[rec]).isEqualTo(rec + 3 / 10.0f);
+      assertThat(ddata[rec]).isEqualTo(rec + 3 / 100.0);
+      assertThat(ldata[rec]).isEqualTo(rec * 1000L + 3);
+      assertThat(bdata[rec]).isEqualTo((byte) (rec + 3));
+    }
+
+    // byte order is taken from the raf when not given
+    raf.order(order);
+    double[] sect = (double[]) IospArrayHelper.readDataFill(raf,
+        new LayoutRegularSegmented(58, 8, recSize, shape, strided), ArrayType.DOUBLE, null, null);
+    int count = 0;
+    for (int rec = 10; rec <= 900; rec += 7) {
+      for (int j = 1; j <= 4; j++) {
+        assertThat(sect[count++]).isEqualTo(rec + j / 100.0);
+      }
+    }
+    assertThat(count).isEqualTo(sect.length);
+
+    // contiguous
+    Section all = new Section(new int[] {nrecs * recSize / 4});
+    int[] contig = (int[]) IospArrayHelper.readDataFill(raf, new LayoutRegular(8, 4, all.getShape(), null),
+        ArrayType.INT, null, order);
+    ByteBuffer expected = ByteBuffer.allocate(nrecs * recSize + 8).order(order);
+    raf.seek(0);
+    raf.readFully(expected.array());
+    for (int i = 0; i < contig.length; i++) {
+      assertThat(contig[i]).isEqualTo(expected.getInt(8 + 4 * i));
+    }
+  }
+
 }
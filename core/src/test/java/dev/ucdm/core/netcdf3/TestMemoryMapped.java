@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.netcdf3;
+
+import dev.ucdm.array.Array;
+import dev.ucdm.array.CompareArrayToArray;
+import dev.ucdm.array.Section;
+import dev.ucdm.core.api.CdmFile;
+import dev.ucdm.core.api.CdmFiles;
+import dev.ucdm.core.api.Structure;
+import dev.ucdm.core.api.Variable;
+import dev.ucdm.core.io.MappedRandomAccessFile;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/** Compare reading with CdmFile.IOSP_MESSAGE_MEMORY_MAPPED to the buffered RandomAccessFile. */
+public class TestMemoryMapped {
+  private static final String topdir = "src/test/data/netcdf3/";
+
+  public static Stream<Arguments> params() {
+    File[] allFiles = new File(topdir).listFiles();
+    assertThat(allFiles).isNotNull();
+    return Arrays.stream(allFiles).map(f -> Arguments.of(f.getPath()));
+  }
+
+  @ParameterizedTest
+  @MethodSource("params")
+  public void testSameAsBuffered(String filename) throws Exception {
+    try (CdmFile buffered = CdmFiles.open(filename);
+        CdmFile mapped = CdmFiles.open(filename, -1, null, CdmFile.IOSP_MESSAGE_MEMORY_MAPPED)) {
+      Object raf = mapped.sendIospMessage(CdmFile.IOSP_MESSAGE_RANDOM_ACCESS_FILE);
+      assertThat(raf).isInstanceOf(MappedRandomAccessFile.class);
+
+      for (Variable v : buffered.getVariables()) {
+        Variable mv = mapped.findVariable(v.getFullName());
+        assertThat(mv).isNotNull();
+        compare(v.getFullName(), v.readArray(), mv.readArray());
+
+        if (!(v instanceof Structure) && v.getRank() > 0 && v.getShape(0) > 1) {
+          Section.Builder sb = Section.builder().appendRange(1, v.getShape(0) - 1, 2);
+          for (int i = 1; i < v.getRank(); i++) {
+            sb.appendRange(v.getShape(i));
+          }
+          Section section = sb.build();
+          compare(v.getFullName() + section, v.readArray(section), mv.readArray(section));
+        }
+      }
+    }
+  }
+
+  private static void compare(String name, Array<?> want, Array<?> got) {
+    Formatter f = new Formatter();
+    boolean ok = CompareArrayToArray.compareData(f, name, want, got, true);
+    assertWithMessage("%s %s", name, f).that(ok).isTrue();
+  }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+/** Test {@link KeyedWork} */
+public class TestKeyedWork {
+
+  @Test
+  public void testSameKeySharesResult() throws Exception {
+    KeyedWork<String> keyedWork = new KeyedWork<>();
+    AtomicInteger count = new AtomicInteger();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch finish = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      Future<String> first = executor.submit(() -> keyedWork.run("key", () -> {
+        started.countDown();
+        finish.await();
+        return "result" + count.incrementAndGet();
+      }));
+      started.await();
+
+      List<Future<String>> waiters = new ArrayList<>();
+      for (int i = 0; i < 7; i++) {
+        waiters.add(executor.submit(() -> keyedWork.run("key", () -> "result" + count.incrementAndGet())));
+      }
+      // give the waiters time to arrive
+      Thread.sleep(100);
+      finish.countDown();
+
+      assertThat(first.get()).isEqualTo("result1");
+      for (Future<String> waiter : waiters) {
+        String result = waiter.get();
+        // a waiter that arrived after the first finished does the work again
+        assertThat(result).startsWith("result");
+      }
+      assertThat(keyedWork.size()).isEqualTo(0);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testOtherKeysDoNotBlock() throws Exception {
+    KeyedWork<String> keyedWork = new KeyedWork<>();
+    CountDownLatch finish = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> blocked = executor.submit(() -> keyedWork.run("slow", () -> {
+        finish.await();
+        return "slow";
+      }));
+      Future<String> other = executor.submit(() -> keyedWork.run("fast", () -> "fast"));
+      assertThat(other.get(10, TimeUnit.SECONDS)).isEqualTo("fast");
+      assertThat(blocked.isDone()).isFalse();
+      finish.countDown();
+      assertThat(blocked.get()).isEqualTo("slow");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testException() throws Exception {
+    KeyedWork<String> keyedWork = new KeyedWork<>();
+    try {
+      keyedWork.run("key", () -> {
+        throw new IOException("failed");
+      });
+      fail();
+    } catch (IOException e) {
+      assertThat(e.getMessage()).isEqualTo("failed");
+    }
+    // the key is forgotten
+    assertThat(keyedWork.size()).isEqualTo(0);
+    assertThat(keyedWork.run("key", () -> "ok")).isEqualTo("ok");
+  }
+
+  /** Compare with a single global lock, like the StringLocker that KeyedWork replaced. */
+  @Test
+  public void testContention() throws Exception {
+    int nthreads = 32;
+    int nkeys = 64;
+    int ncalls = 50;
+    Callable<String> work = () -> {
+      Thread.sleep(1);
+      return "done";
+    };
+
+    KeyedWork<String> keyedWork = new KeyedWork<>();
+    long keyed = time(nthreads, nkeys, ncalls, key -> keyedWork.run(key, work));
+
+    Object globalLock = new Object();
+    long global = time(nthreads, nkeys, ncalls, key -> {
+      synchronized (globalLock) {
+        return work.call();
+      }
+    });
+
+    System.out.printf("%d threads, %d keys, %d calls: KeyedWork %d ms, global lock %d ms%n", nthreads, nkeys,
+        nthreads * ncalls, keyed, global);
+    assertThat(keyed).isLessThan(global);
+  }
+
+  private interface Caller {
+    String call(String key) throws Exception;
+  }
+
+  private static long time(int nthreads, int nkeys, int ncalls, Caller caller) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(nthreads);
+    try {
+      long start = System.nanoTime();
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < nthreads; t++) {
+        int seed = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < ncalls; i++) {
+            assertThat(caller.call("key" + ((seed + i) % nkeys))).isEqualTo("done");
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
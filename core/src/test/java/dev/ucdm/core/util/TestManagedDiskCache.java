@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+/** Test {@link ManagedDiskCache} */
+public class TestManagedDiskCache {
+
+  @TempDir
+  public File tempFolder;
+
+  private static ManagedDiskCache.Producer writeBytes(int n) {
+    return file -> {
+      Files.write(file.toPath(), new byte[n]);
+      return true;
+    };
+  }
+
+  @Test
+  public void testHitsAndMisses() throws IOException {
+    ManagedDiskCache cache = ManagedDiskCache.forRoot(tempFolder.getPath());
+    assertThat(ManagedDiskCache.forRoot(tempFolder.getPath() + "/")).isSameInstanceAs(cache);
+
+    File target = new File(tempFolder, "sub/file1");
+    assertThat(cache.getOrPublish(target, writeBytes(100))).isEqualTo(target);
+    assertThat(cache.getOrPublish(target, writeBytes(100))).isEqualTo(target);
+    assertThat(target.length()).isEqualTo(100);
+    assertThat(cache.getMisses()).isEqualTo(1);
+    assertThat(cache.getHits()).isEqualTo(1);
+    assertThat(cache.getTotalBytes()).isEqualTo(100);
+
+    // replace
+    assertThat(cache.publish(target, writeBytes(50))).isEqualTo(target);
+    assertThat(target.length()).isEqualTo(50);
+    assertThat(cache.getTotalBytes()).isEqualTo(50);
+
+    Formatter f = new Formatter();
+    cache.showStats(f);
+    System.out.printf("%s", f);
+  }
+
+  @Test
+  public void testFailedProducer() throws IOException {
+    ManagedDiskCache cache = ManagedDiskCache.forRoot(tempFolder.getPath());
+    File target = new File(tempFolder, "failed");
+    assertThat(cache.publish(target, file -> false)).isNull();
+    assertThat(target.exists()).isFalse();
+
+    try {
+      cache.publish(target, file -> {
+        Files.write(file.toPath(), new byte[10]);
+        throw new IOException("failed");
+      });
+      fail();
+    } catch (IOException e) {
+      assertThat(e.getMessage()).isEqualTo("failed");
+    }
+    assertThat(target.exists()).isFalse();
+    // no temporary files are left behind
+    assertThat(tempFolder.list()).isEmpty();
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    ManagedDiskCache cache = ManagedDiskCache.forRoot(tempFolder.getPath());
+    cache.setMaxBytes(250);
+    File file1 = new File(tempFolder, "file1");
+    File file2 = new File(tempFolder, "file2");
+    File file3 = new File(tempFolder, "file3");
+    cache.publish(file1, writeBytes(100));
+    cache.publish(file2, writeBytes(100));
+
+    try (ManagedDiskCache.Pin pin = cache.pin(file1)) {
+      // file1 is older, but pinned
+      Thread.sleep(10);
+      cache.publish(file3, writeBytes(100));
+      assertThat(file1.exists()).isTrue();
+      assertThat(file2.exists()).isFalse();
+      assertThat(file3.exists()).isTrue();
+    }
+    assertThat(cache.getEvictions()).isEqualTo(1);
+    assertThat(cache.getTotalBytes()).isEqualTo(200);
+
+    cache.setMaxBytes(150);
+    assertThat(cache.evict()).isEqualTo(1);
+    assertThat(file1.exists()).isFalse();
+    assertThat(file3.exists()).isTrue();
+  }
+
+  @Test
+  public void testOnlyPublishedFilesAreManaged() throws IOException {
+    File dir = new File(tempFolder, "scan");
+    assertThat(dir.mkdirs()).isTrue();
+    File other = new File(dir, "other");
+    Files.write(other.toPath(), new byte[100]);
+    ManagedDiskCache cache = new ManagedDiskCache(dir.toPath(), 150);
+    assertThat(cache.getTotalBytes()).isEqualTo(0);
+
+    // files that the cache did not write are not counted, and not evicted
+    File published = new File(dir, "sub/published");
+    cache.publish(published, writeBytes(100));
+    cache.hit(other);
+    try (ManagedDiskCache.Pin pin = cache.pin(other)) {
+      assertThat(cache.getTotalBytes()).isEqualTo(100);
+    }
+    cache.setMaxBytes(50);
+    assertThat(cache.evict()).isEqualTo(1);
+    assertThat(published.exists()).isFalse();
+    assertThat(other.exists()).isTrue();
+
+    // a new instance, as after a restart, finds the published files from the manifest
+    cache.setMaxBytes(150);
+    cache.publish(published, writeBytes(100));
+    ManagedDiskCache restarted = new ManagedDiskCache(dir.toPath(), 50);
+    assertThat(restarted.getTotalBytes()).isEqualTo(100);
+    assertThat(restarted.evict()).isEqualTo(1);
+    assertThat(published.exists()).isFalse();
+    assertThat(other.exists()).isTrue();
+
+    // files outside the root are published but not managed
+    File outside = new File(tempFolder, "outside");
+    assertThat(restarted.isManaged(outside)).isFalse();
+    restarted.publish(outside, writeBytes(100));
+    assertThat(restarted.getTotalBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void testOneWriterPerFile() throws Exception {
+    ManagedDiskCache cache = ManagedDiskCache.forRoot(tempFolder.getPath());
+    File target = new File(tempFolder, "shared");
+    AtomicInteger count = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<File>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executor.submit(() -> cache.getOrPublish(target, file -> {
+          count.incrementAndGet();
+          try {
+            Thread.sleep(100);
+          } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+          }
+          Files.write(file.toPath(), new byte[1000]);
+          return true;
+        })));
+      }
+      for (Future<File> future : futures) {
+        assertThat(future.get()).isEqualTo(target);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertThat(count.get()).isEqualTo(1);
+    assertThat(target.length()).isEqualTo(1000);
+  }
+
+}
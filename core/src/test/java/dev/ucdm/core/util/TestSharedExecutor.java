@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Test {@link SharedExecutor} */
+public class TestSharedExecutor {
+
+  @Test
+  public void testRunsInParallelOnSharedDaemonThreads() throws IOException {
+    SharedExecutor executor = new SharedExecutor("test", 4);
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    for (int run = 0; run < 3; run++) {
+      CountDownLatch latch = new CountDownLatch(4);
+      List<Callable<Boolean>> tasks = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        tasks.add(() -> {
+          threads.add(Thread.currentThread());
+          latch.countDown();
+          return latch.await(10, TimeUnit.SECONDS); // only finishes if all 4 run at once
+        });
+      }
+      executor.run(tasks, "test");
+      assertThat(latch.getCount()).isEqualTo(0);
+    }
+    assertThat(threads).hasSize(4);
+    for (Thread thread : threads) {
+      assertThat(thread.isDaemon()).isTrue();
+      assertThat(thread.getName()).startsWith("test-");
+    }
+  }
+
+  @Test
+  public void testSingleThread() throws IOException {
+    SharedExecutor executor = new SharedExecutor("test", 4);
+    executor.setThreads(1);
+    Thread caller = Thread.currentThread();
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      tasks.add(() -> {
+        assertThat(Thread.currentThread()).isSameInstanceAs(caller);
+        return null;
+      });
+    }
+    executor.run(tasks, "test");
+  }
+
+  @Test
+  public void testNestedRunsInTaskThread() throws IOException {
+    SharedExecutor executor = new SharedExecutor("test", 2);
+    Set<Thread> inner = ConcurrentHashMap.newKeySet();
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      tasks.add(() -> {
+        Thread outer = Thread.currentThread();
+        List<Callable<Void>> nested = new ArrayList<>();
+        for (int j = 0; j < 4; j++) {
+          nested.add(() -> {
+            assertThat(Thread.currentThread()).isSameInstanceAs(outer);
+            inner.add(Thread.currentThread());
+            return null;
+          });
+        }
+        executor.run(nested, "nested"); // would deadlock if it waited for the 2 pool threads
+        return null;
+      });
+    }
+    executor.run(tasks, "test");
+    assertThat(inner).isNotEmpty();
+  }
+
+  @Test
+  public void testFailure() {
+    SharedExecutor executor = new SharedExecutor("test", 2);
+    List<Callable<Void>> tasks = new ArrayList<>();
+    tasks.add(() -> {
+      throw new FileNotFoundException("missing");
+    });
+    tasks.add(() -> {
+      Thread.sleep(60_000); // cancelled
+      return null;
+    });
+    long start = System.nanoTime();
+    IOException e = assertThrows(IOException.class, () -> executor.run(tasks, "test"));
+    assertThat(e).isInstanceOf(FileNotFoundException.class);
+    assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(30));
+
+    List<Callable<Void>> failing = List.of(() -> {
+      throw new IllegalStateException("bad");
+    }, () -> null);
+    e = assertThrows(IOException.class, () -> executor.run(failing, "test"));
+    assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.core.write;
+
+import dev.ucdm.array.CompareArrayToArray;
+import dev.ucdm.core.api.CdmFile;
+import dev.ucdm.core.api.CdmFiles;
+import dev.ucdm.core.api.Variable;
+import dev.ucdm.core.util.CancelTask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/** Test {@link NetcdfCopier} */
+public class TestNetcdfCopier {
+  private static final String testdir = "src/test/data/";
+
+  @TempDir
+  public static File tempFolder;
+
+  @AfterEach
+  public void reset() {
+    NetcdfCopier.setMaxChunkSize(16 * 1000 * 1000);
+    NetcdfCopier.setReadThreads(4);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"netcdf3/uw_kingair-2005-01-19-113957.nc", "netcdf3/testWrite.nc", "netcdf3/longOffset.nc",
+      "netcdf3/pres_temp_4D.nc", "netcdf3/rankTest.nc"})
+  public void testCopy(String filename) throws Exception {
+    // small chunks, so that most variables are copied in many pieces
+    NetcdfCopier.setMaxChunkSize(1000);
+    for (Object iospMessage : new Object[] {null, CdmFile.IOSP_MESSAGE_CONCURRENT_READS}) {
+      String fileout = File.createTempFile("TestNetcdfCopier", ".nc", tempFolder).getAbsolutePath();
+      Progress progress = new Progress();
+      try (CdmFile ncfile = CdmFiles.open(testdir + filename, -1, null, iospMessage)) {
+        try (NetcdfCopier copier = NetcdfCopier.create(ncfile, Netcdf3FormatWriter.createNewNetcdf3(fileout))) {
+          copier.write(progress);
+        }
+        try (CdmFile copy = CdmFiles.open(fileout)) {
+          compareData(ncfile, copy);
+        }
+      }
+      assertThat(progress.percents).isNotEmpty();
+      assertThat(progress.percents.get(progress.percents.size() - 1)).isEqualTo(100);
+      for (int i = 1; i < progress.percents.size(); i++) {
+        assertThat(progress.percents.get(i)).isAtLeast(progress.percents.get(i - 1));
+      }
+    }
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    NetcdfCopier.setMaxChunkSize(1000);
+    String fileout = File.createTempFile("TestNetcdfCopier", ".nc", tempFolder).getAbsolutePath();
+    Progress progress = new Progress() {
+      @Override
+      public void setProgress(String msg, int percent) {
+        super.setProgress(msg, percent);
+        cancel();
+      }
+    };
+    try (CdmFile ncfile = CdmFiles.open(testdir + "netcdf3/uw_kingair-2005-01-19-113957.nc")) {
+      try (NetcdfCopier copier = NetcdfCopier.create(ncfile, Netcdf3FormatWriter.createNewNetcdf3(fileout))) {
+        copier.write(progress);
+      }
+    }
+    assertThat(progress.percents).hasSize(1);
+  }
+
+  private static void compareData(CdmFile org, CdmFile copy) throws Exception {
+    for (Variable v : org.getVariables()) {
+      Variable cv = copy.findVariable(v.getFullName());
+      assertWithMessage(v.getFullName()).that(cv).isNotNull();
+      Formatter f = new Formatter();
+      boolean ok = CompareArrayToArray.compareData(f, v.getFullName(), v.readArray(), cv.readArray(), true);
+      assertWithMessage("%s %s", v.getFullName(), f).that(ok).isTrue();
+    }
+  }
+
+  private static class Progress extends CancelTask.CancelTaskImpl {
+    final List<Integer> percents = new ArrayList<>();
+
+    @Override
+    public void setProgress(String msg, int percent) {
+      percents.add(percent);
+    }
+  }
+
+}
@@ -7,6 +7,7 @@ package dev.ucdm.dataset.api;
 import com.google.common.collect.ImmutableSet;
 import dev.ucdm.core.api.*;
 import dev.ucdm.dataset.internal.EnhanceScaleMissingUnsigned;
+import dev.ucdm.dataset.ncml.Aggregation;
 
 import org.jetbrains.annotations.Nullable;
 import dev.ucdm.array.Immutable;
@@ -151,9 +152,18 @@ public class CdmDataset extends CdmFile {
     if (!wasClosed && orgFile != null) {
       orgFile.close();
     }
+    if (!wasClosed && agg != null) {
+      agg.close();
+    }
     wasClosed = true;
   }
 
+  /** The NcML Aggregation, if any. */
+  @Nullable
+  public Aggregation getAggregation() {
+    return agg;
+  }
+
   private boolean wasClosed = false;
 
   @Override
@@ -208,6 +218,7 @@ public class CdmDataset extends CdmFile {
 
   ////////////////////////////////////////////////////////////////////////////////////////////
   private final @Nullable CdmFile orgFile; // can be null in NcML
+  private final @Nullable Aggregation agg; // NcML aggregation, may be null
   private final @Nullable String convUsed;
   private final ImmutableSet<Enhance> enhanceMode; // enhancement mode for this specific dataset
   private final @Nullable String fileTypeId;
@@ -215,6 +226,7 @@ public class CdmDataset extends CdmFile {
   protected CdmDataset(Builder<?> builder) {
     super(builder);
     this.orgFile = builder.orgFile;
+    this.agg = builder.agg;
     this.fileTypeId = builder.fileTypeId;
     this.convUsed = builder.convUsed;
     this.enhanceMode = ImmutableSet.copyOf(builder.getEnhanceMode());
@@ -225,8 +237,8 @@ public class CdmDataset extends CdmFile {
   }
 
   private Builder<?> addLocalFieldsToBuilder(Builder<? extends Builder<?>> b) {
-    b.setOrgFile(this.orgFile).setConventionUsed(this.convUsed).setEnhanceMode(this.enhanceMode)
-        .setFileTypeId(this.fileTypeId);
+    b.setOrgFile(this.orgFile).setAggregation(this.agg).setConventionUsed(this.convUsed)
+        .setEnhanceMode(this.enhanceMode).setFileTypeId(this.fileTypeId);
 
     return (Builder<?>) super.addLocalFieldsToBuilder(b);
   }
@@ -246,6 +258,8 @@ public class CdmDataset extends CdmFile {
   public static abstract class Builder<T extends Builder<T>> extends CdmFile.Builder<T> {
     @Nullable
     public CdmFile orgFile;
+    @Nullable
+    public Aggregation agg;
     private String convUsed;
     private Set<Enhance> enhanceMode = EnumSet.noneOf(Enhance.class);
     private String fileTypeId;
@@ -258,6 +272,11 @@ public class CdmDataset extends CdmFile {
       return self();
     }
 
+    public T setAggregation(Aggregation agg) {
+      this.agg = agg;
+      return self();
+    }
+
     public T setFileTypeId(String fileTypeId) {
       this.fileTypeId = fileTypeId;
       return self();
@@ -243,6 +243,25 @@ public class VariableDS extends Variable implements VariableEnhanced {
     return convertArray(result);
   }
 
+  /**
+   * Read the data like readArray(section), but when scale/offset/missing enhancement makes FLOAT or DOUBLE data,
+   * return a lazy view that converts each element of the packed data when it is accessed.
+   * This avoids converting all of the data when only some of it is used.
+   *
+   * @param section the section to read, or null for all the data
+   */
+  public Array<?> readArrayLazy(@Nullable dev.ucdm.array.Section section)
+      throws IOException, dev.ucdm.array.InvalidRangeException {
+    Array<?> result;
+    if ((null == section) || section.computeSize() == getSize()) {
+      result = hasCachedData() ? super.readArray() : proxyReader.proxyReadArray(this, null);
+    } else {
+      section = dev.ucdm.array.Section.fill(section, getShape());
+      result = hasCachedData() ? super.readArray(section) : proxyReader.proxyReadArray(this, section, null);
+    }
+    return dataEnhancer.convertArrayLazy(result, enhanceMode);
+  }
+
   @Override
   public Array<?> proxyReadArray(Variable client, dev.ucdm.array.Section section, CancelTask cancelTask)
       throws IOException, dev.ucdm.array.InvalidRangeException {
@@ -4,6 +4,7 @@
  */
 package dev.ucdm.dataset.geoloc;
 
+import com.google.common.base.Preconditions;
 import dev.ucdm.core.api.AttributeContainer;
 
 /** Projective geometry transformations from (lat,lon) to (x,y) on a projective cartesian surface. */
@@ -39,6 +40,48 @@ public interface Projection {
   /** Convert projection coordinates to a LatLonPoint. */
   LatLonPoint projToLatLon(ProjectionPoint ppt);
 
+  /**
+   * Convert arrays of lat, lon to projection coordinates, without allocating a point for each value.
+   * The output arrays may be the same as the input arrays.
+   *
+   * @param lat latitudes in degrees
+   * @param lon longitudes in degrees, same length as lat
+   * @param xOut on return, the projection x values, at least as long as lat
+   * @param yOut on return, the projection y values, at least as long as lat
+   */
+  default void latLonToProj(double[] lat, double[] lon, double[] xOut, double[] yOut) {
+    checkBulkArgs(lat, lon, xOut, yOut);
+    for (int i = 0; i < lat.length; i++) {
+      ProjectionPoint ppt = latLonToProj(lat[i], lon[i]);
+      xOut[i] = ppt.x();
+      yOut[i] = ppt.y();
+    }
+  }
+
+  /**
+   * Convert arrays of projection x, y to lat, lon, without allocating a point for each value.
+   * The output arrays may be the same as the input arrays.
+   *
+   * @param x projection x values
+   * @param y projection y values, same length as x
+   * @param latOut on return, the latitudes in degrees, at least as long as x
+   * @param lonOut on return, the longitudes in degrees, at least as long as x. Normalized as in LatLonPoint.
+   */
+  default void projToLatLon(double[] x, double[] y, double[] latOut, double[] lonOut) {
+    checkBulkArgs(x, y, latOut, lonOut);
+    for (int i = 0; i < x.length; i++) {
+      LatLonPoint llpt = projToLatLon(x[i], y[i]);
+      latOut[i] = llpt.latitude();
+      lonOut[i] = llpt.longitude();
+    }
+  }
+
+  private static void checkBulkArgs(double[] in1, double[] in2, double[] out1, double[] out2) {
+    Preconditions.checkArgument(in1.length == in2.length, "input arrays must have the same length");
+    Preconditions.checkArgument(out1.length >= in1.length && out2.length >= in1.length,
+        "output arrays must be at least as long as the input arrays");
+  }
+
   /**
    * Does the line between these two points cross the projection "seam", which
    * is a discontinuity in the function latlon to/from projection plane
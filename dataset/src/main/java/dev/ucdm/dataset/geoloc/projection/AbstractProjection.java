@@ -4,6 +4,7 @@
  */
 package dev.ucdm.dataset.geoloc.projection;
 
+import com.google.common.base.Preconditions;
 import dev.ucdm.core.api.Attribute;
 import dev.ucdm.core.api.AttributeContainer;
 import dev.ucdm.core.api.AttributeContainerMutable;
@@ -18,6 +19,9 @@ import dev.ucdm.core.util.StringUtil2;
 
 import dev.ucdm.array.Immutable;
 
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
 /**
  * Superclass for our implementations of geoloc.Projection.
  * <p/>
@@ -51,6 +55,29 @@ public abstract class AbstractProjection implements Projection {
   protected static final double PI_OVER_2 = Math.PI / 2.0;
   protected static final double PI_OVER_4 = Math.PI / 4.0;
 
+  private static int parallelThreshold = 100_000;
+
+  /** Bulk conversions with at least this many points are split across cores. */
+  public static void setParallelThreshold(int npts) {
+    parallelThreshold = npts;
+  }
+
+  /** Call fn for each index in [0, npts), in parallel when npts is large. Projections are immutable, so thread-safe. */
+  protected static void forEachPoint(int npts, IntConsumer fn) {
+    IntStream points = IntStream.range(0, npts);
+    if (npts >= parallelThreshold) {
+      points = points.parallel();
+    }
+    points.forEach(fn);
+  }
+
+  /** Check the arguments of the bulk conversions. */
+  protected static void checkBulkArgs(double[] in1, double[] in2, double[] out1, double[] out2) {
+    Preconditions.checkArgument(in1.length == in2.length, "input arrays must have the same length");
+    Preconditions.checkArgument(out1.length >= in1.length && out2.length >= in1.length,
+        "output arrays must be at least as long as the input arrays");
+  }
+
   ///////////////////////////////////////////////////////////////////////
 
   protected final String name;
@@ -123,6 +150,26 @@ public abstract class AbstractProjection implements Projection {
   //////////////////////////////////////////////////////////////////////
   // Allow subclasses to override.
 
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] xOut, double[] yOut) {
+    checkBulkArgs(lat, lon, xOut, yOut);
+    forEachPoint(lat.length, i -> {
+      ProjectionPoint ppt = latLonToProj(lat[i], lon[i]);
+      xOut[i] = ppt.x();
+      yOut[i] = ppt.y();
+    });
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] latOut, double[] lonOut) {
+    checkBulkArgs(x, y, latOut, lonOut);
+    forEachPoint(x.length, i -> {
+      LatLonPoint llpt = projToLatLon(x[i], y[i]);
+      latOut[i] = llpt.latitude();
+      lonOut[i] = llpt.longitude();
+    });
+  }
+
   @Override
   public ProjectionRect latLonToProjBB(LatLonRect latlonRect) {
     LatLonPoint ll = latlonRect.getLowerLeftPoint();
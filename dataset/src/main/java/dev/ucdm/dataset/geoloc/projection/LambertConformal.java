@@ -391,6 +391,43 @@ public class LambertConformal extends AbstractProjection {
     return new LatLonPoint(toLat, toLon);
   }
 
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] xOut, double[] yOut) {
+    checkBulkArgs(lat, lon, xOut, yOut);
+    forEachPoint(lat.length, i -> {
+      double fromLat = Math.toRadians(lat[i]);
+      double dlon = LatLonPoints.lonNormal(lon[i] - lon0Degrees);
+      double theta = n * Math.toRadians(dlon);
+      double tn = Math.pow(Math.tan(PI_OVER_4 + fromLat / 2), n);
+      double r = earthRadiusTimesF / tn;
+      xOut[i] = r * Math.sin(theta) + falseEasting;
+      yOut[i] = rho - r * Math.cos(theta) + falseNorthing;
+    });
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] latOut, double[] lonOut) {
+    checkBulkArgs(x, y, latOut, lonOut);
+    double sign = (n < 0) ? -1.0 : 1.0;
+    double rhop = sign * rho;
+    double poleLat = (n < 0.0) ? -90.0 : 90.0;
+    forEachPoint(x.length, i -> {
+      double fromX = sign * (x[i] - falseEasting);
+      double fromY = sign * (y[i] - falseNorthing);
+      double yd = (rhop - fromY);
+      double theta = Math.atan2(fromX, yd);
+      double r = sign * Math.sqrt(fromX * fromX + yd * yd);
+
+      lonOut[i] = LatLonPoints.lonNormal(Math.toDegrees(theta / n + lon0));
+      if (Math.abs(r) < TOLERANCE) {
+        latOut[i] = poleLat;
+      } else {
+        double rn = Math.pow(earthRadiusTimesF / r, 1 / n);
+        latOut[i] = LatLonPoints.latNormal(Math.toDegrees(2.0 * Math.atan(rn) - Math.PI / 2));
+      }
+    });
+  }
+
 }
 
 
@@ -233,5 +233,34 @@ public class Mercator extends AbstractProjection {
     return new LatLonPoint(toLat, toLon);
   }
 
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] xOut, double[] yOut) {
+    checkBulkArgs(lat, lon, xOut, yOut);
+    forEachPoint(lat.length, i -> {
+      double fromLat = lat[i];
+      double fromLon = lon[i];
+      // infinite projection
+      if ((Math.abs(90.0 - Math.abs(fromLat))) < TOLERANCE) {
+        xOut[i] = Double.POSITIVE_INFINITY;
+        yOut[i] = Double.POSITIVE_INFINITY;
+      } else {
+        xOut[i] = A * Math.toRadians(LatLonPoints.range180(fromLon - this.lon0)) + falseEasting;
+        yOut[i] = A * SpecialMathFunction.atanh(Math.sin(Math.toRadians(fromLat))) + falseNorthing;
+      }
+    });
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] latOut, double[] lonOut) {
+    checkBulkArgs(x, y, latOut, lonOut);
+    forEachPoint(x.length, i -> {
+      double fromX = x[i] - falseEasting;
+      double fromY = y[i] - falseNorthing;
+      lonOut[i] = LatLonPoints.lonNormal(Math.toDegrees(fromX / A) + lon0);
+      double e = Math.exp(-fromY / A);
+      latOut[i] = LatLonPoints.latNormal(Math.toDegrees(Math.PI / 2 - 2 * Math.atan(e))); // Snyder p 44
+    });
+  }
+
 }
 
@@ -186,6 +186,62 @@ public class RotatedPole extends AbstractProjection {
     return new LatLonPoint(lat, lon);
   }
 
+  // The bulk conversions use the same rotations as the point conversions, without the intermediate arrays.
+
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] xOut, double[] yOut) {
+    checkBulkArgs(lat, lon, xOut, yOut);
+    double z00 = rotZ[0][0], z01 = rotZ[0][1], z10 = rotZ[1][0], z11 = rotZ[1][1];
+    double y00 = rotY[0][0], y02 = rotY[0][2], y20 = rotY[2][0], y22 = rotY[2][2];
+    forEachPoint(lat.length, i -> {
+      double lonRad = Math.toRadians(lon[i]);
+      double latRad = Math.toRadians(lat[i]);
+      double coslat = Math.cos(latRad);
+      double p0x = coslat * Math.cos(lonRad);
+      double p0y = coslat * Math.sin(lonRad);
+      double p0z = Math.sin(latRad);
+
+      double p1x = z00 * p0x + z01 * p0y;
+      double p1y = z10 * p0x + z11 * p0y;
+
+      double p2x = y00 * p1x + y02 * p0z;
+      double p2z = y20 * p1x + y22 * p0z;
+
+      xOut[i] = LatLonPoints.range180(Math.atan2(p1y, p2x) * DEG_PER_RAD);
+      yOut[i] = Math.asin(p2z) * DEG_PER_RAD;
+    });
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] latOut, double[] lonOut) {
+    checkBulkArgs(x, y, latOut, lonOut);
+    double z00 = rotZ[0][0], z01 = rotZ[0][1], z10 = rotZ[1][0], z11 = rotZ[1][1];
+    double y00 = rotY[0][0], y02 = rotY[0][2], y20 = rotY[2][0], y22 = rotY[2][2];
+    forEachPoint(x.length, i -> {
+      double lonR = LatLonPoints.range180(x[i]);
+      double latR = y[i];
+      if (Math.abs(latR) > 90.) {
+        throw new IllegalArgumentException("ProjectionPoint y must be in range [-90,90].");
+      }
+
+      double lonRRad = Math.toRadians(lonR);
+      double latRRad = Math.toRadians(latR);
+      double coslat = Math.cos(latRRad);
+      double p0x = coslat * Math.cos(lonRRad);
+      double p0y = coslat * Math.sin(lonRRad);
+      double p0z = Math.sin(latRRad);
+
+      double p1x = y00 * p0x + y20 * p0z;
+      double p1z = y02 * p0x + y22 * p0z;
+
+      double p2x = z00 * p1x + z10 * p0y;
+      double p2y = z01 * p1x + z11 * p0y;
+
+      lonOut[i] = LatLonPoints.lonNormal(Math.atan2(p2y, p2x) * DEG_PER_RAD);
+      latOut[i] = LatLonPoints.latNormal(Math.asin(p1z) * DEG_PER_RAD);
+    });
+  }
+
   public boolean crossSeam(ProjectionPoint pt1, ProjectionPoint pt2) {
     return Math.abs(pt1.x() - pt2.x()) > 270.0;
   }
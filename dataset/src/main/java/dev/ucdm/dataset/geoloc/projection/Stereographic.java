@@ -383,4 +383,59 @@ public class Stereographic extends AbstractProjection {
     return new LatLonPoint(toLat, toLon);
   }
 
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] xOut, double[] yOut) {
+    checkBulkArgs(lat, lon, xOut, yOut);
+    forEachPoint(lat.length, i -> {
+      double latr = Math.toRadians(lat[i]);
+      double lonr = Math.toRadians(lon[i]);
+      // keep away from the singular point
+      if ((Math.abs(latr + latt) <= TOLERANCE)) {
+        latr = -latt * (1.0 - TOLERANCE);
+      }
+
+      double sdlon = Math.sin(lonr - lont);
+      double cdlon = Math.cos(lonr - lont);
+      double sinlat = Math.sin(latr);
+      double coslat = Math.cos(latr);
+
+      double k = 2.0 * scale / (1.0 + sinlatt * sinlat + coslatt * coslat * cdlon);
+      xOut[i] = k * coslat * sdlon + falseEasting;
+      yOut[i] = k * (coslatt * sinlat - sinlatt * coslat * cdlon) + falseNorthing;
+    });
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] latOut, double[] lonOut) {
+    checkBulkArgs(x, y, latOut, lonOut);
+    forEachPoint(x.length, i -> {
+      double fromX = x[i] - falseEasting;
+      double fromY = y[i] - falseNorthing;
+
+      double rho = Math.sqrt(fromX * fromX + fromY * fromY);
+      double c = 2.0 * Math.atan2(rho, 2.0 * scale);
+      double sinc = Math.sin(c);
+      double cosc = Math.cos(c);
+
+      double phi;
+      if (Math.abs(rho) < TOLERANCE) {
+        phi = latt;
+      } else {
+        phi = Math.asin(cosc * sinlatt + fromY * sinc * coslatt / rho);
+      }
+
+      double lam;
+      if ((Math.abs(fromX) < TOLERANCE) && (Math.abs(fromY) < TOLERANCE)) {
+        lam = lont;
+      } else if (Math.abs(coslatt) < TOLERANCE) {
+        lam = lont + Math.atan2(fromX, ((latt > 0) ? -fromY : fromY));
+      } else {
+        lam = lont + Math.atan2(fromX * sinc, rho * coslatt * cosc - fromY * sinc * sinlatt);
+      }
+
+      latOut[i] = LatLonPoints.latNormal(Math.toDegrees(phi));
+      lonOut[i] = LatLonPoints.lonNormal(Math.toDegrees(lam));
+    });
+  }
+
 }
@@ -264,6 +264,34 @@ public class TransverseMercatorProjection extends AbstractProjection {
     return new LatLonPoint(Math.toDegrees(toLat), Math.toDegrees(toLon));
   }
 
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] xOut, double[] yOut) {
+    checkBulkArgs(lat, lon, xOut, yOut);
+    forEachPoint(lat.length, i -> {
+      double fromLat = Math.toRadians(lat[i]);
+      double theta = Math.toRadians(lon[i]);
+      if (projectionLongitude != 0) {
+        theta = MapMath.normalizeLongitude(theta - projectionLongitude);
+      }
+      ProjectionPoint res = project(theta, fromLat);
+      xOut[i] = totalScale * res.x() + falseEasting;
+      yOut[i] = totalScale * res.y() + falseNorthing;
+    });
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] latOut, double[] lonOut) {
+    checkBulkArgs(x, y, latOut, lonOut);
+    forEachPoint(x.length, i -> {
+      ProjectionPoint dst = projectInverse((x[i] - falseEasting) / totalScale, (y[i] - falseNorthing) / totalScale);
+      double toLon = Math.max(-Math.PI, Math.min(Math.PI, dst.x()));
+      if (projectionLongitude != 0)
+        toLon = MapMath.normalizeLongitude(toLon) + projectionLongitude;
+      latOut[i] = LatLonPoints.latNormal(Math.toDegrees(dst.y()));
+      lonOut[i] = LatLonPoints.lonNormal(Math.toDegrees(toLon));
+    });
+  }
+
   @Override
   public boolean crossSeam(ProjectionPoint pt1, ProjectionPoint pt2) {
     if (LatLonPoints.isInfinite(pt1) || LatLonPoints.isInfinite(pt2)) {
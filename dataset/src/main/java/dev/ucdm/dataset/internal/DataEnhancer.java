@@ -29,6 +29,15 @@ public class DataEnhancer {
   }
 
   public Array<?> convertArray(Array<?> data, Set<Enhance> enhancements) {
+    return convertArray(data, enhancements, false);
+  }
+
+  /** Same as convertArray, but scale/offset/missing conversions to FLOAT or DOUBLE return a lazy view. */
+  public Array<?> convertArrayLazy(Array<?> data, Set<Enhance> enhancements) {
+    return convertArray(data, enhancements, true);
+  }
+
+  private Array<?> convertArray(Array<?> data, Set<Enhance> enhancements, boolean lazy) {
     if (enhancements.contains(Enhance.ConvertEnums)
         && (dataType.isEnum() || (orgDataType != null && orgDataType.isEnum()))) {
       // Creates STRING data. As a result, we can return here, because the other conversions don't apply to STRING.
@@ -38,8 +47,11 @@ public class DataEnhancer {
       if (variableDS.isVariableLength()) {
         return data;
       }
-      return scaleMissingUnsignedProxy.convert(data, enhancements.contains(Enhance.ConvertUnsigned),
-          enhancements.contains(Enhance.ApplyScaleOffset), enhancements.contains(Enhance.ConvertMissing));
+      boolean convertUnsigned = enhancements.contains(Enhance.ConvertUnsigned);
+      boolean applyScaleOffset = enhancements.contains(Enhance.ApplyScaleOffset);
+      boolean convertMissing = enhancements.contains(Enhance.ConvertMissing);
+      return lazy ? scaleMissingUnsignedProxy.convertLazy(data, convertUnsigned, applyScaleOffset, convertMissing)
+          : scaleMissingUnsignedProxy.convert(data, convertUnsigned, applyScaleOffset, convertMissing);
     }
   }
 
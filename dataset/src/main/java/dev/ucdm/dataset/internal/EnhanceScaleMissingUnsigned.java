@@ -10,7 +10,9 @@ import org.slf4j.LoggerFactory;
 import dev.ucdm.array.Array;
 import dev.ucdm.array.ArrayType;
 import dev.ucdm.array.Arrays;
+import dev.ucdm.array.IsMissingEvaluator;
 import dev.ucdm.array.NumericCompare;
+import dev.ucdm.array.PackedConverter;
 import dev.ucdm.core.api.Attribute;
 import dev.ucdm.core.api.Variable;
 import dev.ucdm.core.constants.CDM;
@@ -138,7 +140,7 @@ import static dev.ucdm.array.ArrayType.USHORT;
  * </ol>
  */
 // TODO @Immutable
-public class EnhanceScaleMissingUnsigned {
+public class EnhanceScaleMissingUnsigned implements IsMissingEvaluator {
   private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   private final ArrayType origArrayType;
@@ -607,11 +609,13 @@ public class EnhanceScaleMissingUnsigned {
     this.missingDataIsMissing = b;
   }
 
+  @Override
   public boolean hasMissing() {
     return (invalidDataIsMissing && hasValidData()) || (fillValueIsMissing && hasFillValue())
         || (missingDataIsMissing && hasMissingValue());
   }
 
+  @Override
   public boolean isMissing(double val) {
     if (Double.isNaN(val)) {
       return true;
@@ -656,6 +660,20 @@ public class EnhanceScaleMissingUnsigned {
   }
 
   public Array<?> convert(Array<?> in, boolean convertUnsigned, boolean applyScaleOffset, boolean convertMissing) {
+    return convert(in, convertUnsigned, applyScaleOffset, convertMissing, false);
+  }
+
+  /**
+   * Same as convert(), but when the converted type is FLOAT or DOUBLE, return a lazy view that converts each element
+   * when it is accessed, instead of converting all of the data.
+   */
+  public Array<?> convertLazy(Array<?> in, boolean convertUnsigned, boolean applyScaleOffset,
+      boolean convertMissing) {
+    return convert(in, convertUnsigned, applyScaleOffset, convertMissing, true);
+  }
+
+  private Array<?> convert(Array<?> in, boolean convertUnsigned, boolean applyScaleOffset, boolean convertMissing,
+      boolean lazy) {
     if (!in.getArrayType().isNumeric() || (!convertUnsigned && !applyScaleOffset && !convertMissing)) {
       return in; // Nothing to do!
     }
@@ -679,6 +697,21 @@ public class EnhanceScaleMissingUnsigned {
       convertMissing = false;
     }
 
+    if (outType == ArrayType.FLOAT || outType == ArrayType.DOUBLE) {
+      boolean noMissing = !convertMissing || !hasMissing();
+      if (!convertUnsigned && !applyScaleOffset && noMissing && in.getArrayType() == outType) {
+        return in; // Nothing to do!
+      }
+      PackedConverter.Builder builder = PackedConverter.builder().setResultType(outType).setUnsigned(convertUnsigned)
+          .setMissing(convertMissing ? this : null);
+      if (applyScaleOffset) {
+        builder.setScaleOffset(scale, offset);
+      }
+      PackedConverter converter = builder.build();
+      return lazy ? converter.view(in) : converter.convert(in);
+    }
+
+    // integral result types
     return convertArray(outType, (Array<Number>) in, new ConvertFn(convertUnsigned, applyScaleOffset, convertMissing));
   }
 
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.dataset.ncml;
+
+import dev.ucdm.array.Array;
+import dev.ucdm.array.ArrayType;
+import dev.ucdm.array.Arrays;
+import dev.ucdm.core.util.DiskCache;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent cache of the join coordinate for each aggregation member, so that reopening an aggregation
+ * does not have to open every member. An entry is valid only if the member's lastModified and size are unchanged.
+ * <p>
+ * The cache is a text file in the {@link DiskCache}, one line per member:
+ *
+ * <pre>
+ *   location TAB lastModified TAB size TAB ncoord TAB coordType TAB coordValues (space separated)
+ * </pre>
+ *
+ * coordType and coordValues are empty if the coordinate values are not numeric.
+ */
+class AggCoordCache {
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(AggCoordCache.class);
+  private static final String SUFFIX = ".aggCoords";
+
+  private final File cacheFile;
+  private final Map<String, Entry> entries = new HashMap<>();
+  private boolean changed;
+
+  AggCoordCache(String aggLocation, String dimName) {
+    this.cacheFile = DiskCache.getCacheFile(aggLocation + "#" + dimName + SUFFIX);
+    read();
+  }
+
+  private record Entry(long lastModified, long size, int ncoord, @Nullable ArrayType coordType,
+      @Nullable List<String> coordValues) {
+  }
+
+  /** Set ncoord and coordValues on the member if there is a valid entry. Return true if found. */
+  synchronized boolean fill(AggDataset member) {
+    long lastModified = member.getLastModified();
+    if (lastModified == 0) {
+      return false; // not a local file, cant validate
+    }
+    Entry entry = entries.get(member.location);
+    if (entry == null || entry.lastModified != lastModified || entry.size != member.getSize()) {
+      return false;
+    }
+    member.ncoord = entry.ncoord;
+    if (entry.coordType != null && entry.coordValues != null) {
+      member.coordValues = Arrays.makeArray(entry.coordType, entry.coordValues);
+    }
+    return true;
+  }
+
+  /** Add or replace the entry for this member, whose ncoord must be known. */
+  synchronized void put(AggDataset member) {
+    long lastModified = member.getLastModified();
+    if (lastModified == 0 || member.ncoord < 0) {
+      return;
+    }
+    ArrayType coordType = null;
+    List<String> values = null;
+    if (member.coordValues != null && member.coordValues.getArrayType().isNumeric()) {
+      coordType = member.coordValues.getArrayType();
+      values = new ArrayList<>();
+      for (Object val : member.coordValues) {
+        values.add(val.toString());
+      }
+    }
+    entries.put(member.location, new Entry(lastModified, member.getSize(), member.ncoord, coordType, values));
+    changed = true;
+  }
+
+  private void read() {
+    if (!cacheFile.exists()) {
+      return;
+    }
+    try (BufferedReader reader = Files.newBufferedReader(cacheFile.toPath(), StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] toke = line.split("\t", -1);
+        if (toke.length != 6) {
+          continue;
+        }
+        ArrayType coordType = toke[4].isEmpty() ? null : ArrayType.getTypeByName(toke[4]);
+        List<String> values = toke[5].isEmpty() ? null : List.of(toke[5].split(" "));
+        entries.put(toke[0], new Entry(Long.parseLong(toke[1]), Long.parseLong(toke[2]), Integer.parseInt(toke[3]),
+            coordType, values));
+      }
+    } catch (IOException | RuntimeException e) {
+      log.warn("Failed to read aggregation coordinate cache {}", cacheFile, e);
+      entries.clear();
+    }
+  }
+
+  /** Write the cache if it has changed. Written to a temporary file then renamed, so readers never see a partial file. */
+  synchronized void write() {
+    if (!changed) {
+      return;
+    }
+    File tmp = new File(cacheFile.getPath() + ".tmp");
+    try {
+      try (BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+          Entry entry = e.getValue();
+          writer.write(String.format("%s\t%d\t%d\t%d\t%s\t%s%n", e.getKey(), entry.lastModified, entry.size,
+              entry.ncoord, entry.coordType == null ? "" : entry.coordType.toString(),
+              entry.coordValues == null ? "" : String.join(" ", entry.coordValues)));
+        }
+      }
+      Files.move(tmp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      changed = false;
+    } catch (IOException e) {
+      log.warn("Failed to write aggregation coordinate cache {}", cacheFile, e);
+    }
+  }
+}
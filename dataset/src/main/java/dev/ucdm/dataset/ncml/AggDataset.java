@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.dataset.ncml;
+
+import dev.ucdm.array.Array;
+import dev.ucdm.array.InvalidRangeException;
+import dev.ucdm.array.Range;
+import dev.ucdm.array.Section;
+import dev.ucdm.core.api.CdmFile;
+import dev.ucdm.core.api.Variable;
+import dev.ucdm.core.util.CancelTask;
+import dev.ucdm.dataset.api.CdmDatasets;
+import org.jdom2.Element;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * One member dataset of an Aggregation. The member is opened lazily, and only held open while in the
+ * {@link AggMemberPool}.
+ * <p>
+ * For outer dimension aggregations, each member covers the half-open interval [aggStart, aggEnd) of the
+ * aggregated dimension.
+ */
+class AggDataset {
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(AggDataset.class);
+
+  final String location;
+  final @Nullable String coordValue; // from the NcML coordValue attribute
+  private final @Nullable Element ncmlElem; // nested NcML modifications, may be null
+  private final String ncmlLocation; // the NcML document containing the aggregation
+  private final AggMemberPool pool;
+
+  // the number of coordinates in the aggregated dimension; -1 if not yet known
+  int ncoord = -1;
+  int aggStart, aggEnd;
+  // cached values of the join coordinate, may be null
+  @Nullable
+  Array<?> coordValues;
+
+  // guarded by this
+  private CdmFile ncfile;
+  private int inUse;
+
+  AggDataset(String location, @Nullable String coordValue, @Nullable Element ncmlElem, String ncmlLocation,
+      AggMemberPool pool) {
+    this.location = location;
+    this.coordValue = coordValue;
+    this.ncmlElem = ncmlElem;
+    this.ncmlLocation = ncmlLocation;
+    this.pool = pool;
+  }
+
+  /** The last modified time of the member, or 0 if unknown (eg remote). */
+  long getLastModified() {
+    File file = getLocalFile();
+    return (file == null) ? 0 : file.lastModified();
+  }
+
+  /** The size in bytes of the member, or 0 if unknown (eg remote). */
+  long getSize() {
+    File file = getLocalFile();
+    return (file == null) ? 0 : file.length();
+  }
+
+  @Nullable
+  private File getLocalFile() {
+    String path = location.startsWith("file:") ? location.substring(5) : location;
+    File file = new File(path);
+    return file.exists() ? file : null;
+  }
+
+  /** Set the position of this member in the aggregated dimension. Return the next start. */
+  int setAggStart(int aggStart) {
+    this.aggStart = aggStart;
+    this.aggEnd = aggStart + ncoord;
+    return this.aggEnd;
+  }
+
+  /** Does this member contribute to the given range of the aggregated dimension? */
+  boolean intersects(Range outer) {
+    int first = outer.getFirstInInterval(aggStart);
+    return first >= 0 && first <= outer.last() && first < aggEnd;
+  }
+
+  /** Convert the requested range of the aggregated dimension to the range local to this member. */
+  Range makeLocalRange(Range outer) throws InvalidRangeException {
+    int first = outer.getFirstInInterval(aggStart);
+    int last = Math.min(outer.last(), aggEnd - 1);
+    return new Range(first - aggStart, last - aggStart, outer.stride());
+  }
+
+  /**
+   * Acquire the open member file. Must be matched with a call to {@link #release()}.
+   * Members are opened outside of any pool lock, so different members may be opened in parallel.
+   */
+  CdmFile acquire(@Nullable CancelTask cancelTask) throws IOException {
+    boolean opened = false;
+    CdmFile result;
+    synchronized (this) {
+      if (ncfile == null) {
+        ncfile = open(cancelTask);
+        opened = true;
+      }
+      inUse++;
+      result = ncfile;
+    }
+    pool.touch(this, opened);
+    return result;
+  }
+
+  synchronized void release() {
+    inUse--;
+  }
+
+  /** Called by the pool to close this member if no one is using it. Return true if closed or not open. */
+  synchronized boolean closeIfIdle() {
+    if (inUse > 0) {
+      return false;
+    }
+    if (ncfile != null) {
+      try {
+        ncfile.close();
+      } catch (IOException e) {
+        log.warn("Failed to close aggregation member {}", location, e);
+      }
+      ncfile = null;
+    }
+    return true;
+  }
+
+  private CdmFile open(@Nullable CancelTask cancelTask) throws IOException {
+    if (ncmlElem != null && !ncmlElem.getChildren().isEmpty()) {
+      // the member has its own NcML modifications
+      return new NcmlReader().readNcml(ncmlLocation, location, ncmlElem, cancelTask).build();
+    }
+    return CdmDatasets.openFile(location, cancelTask);
+  }
+
+  /** Read a section of the named variable from this member. */
+  Array<?> readArray(String varName, @Nullable Section section, @Nullable CancelTask cancelTask)
+      throws IOException, InvalidRangeException {
+    CdmFile member = acquire(cancelTask);
+    try {
+      Variable v = member.findVariable(varName);
+      if (v == null) {
+        throw new IOException(String.format("Aggregation member %s does not have variable %s", location, varName));
+      }
+      return section == null ? v.readArray() : v.readArray(section);
+    } finally {
+      release();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("AggDataset{%s [%d,%d)}", location, aggStart, aggEnd);
+  }
+}
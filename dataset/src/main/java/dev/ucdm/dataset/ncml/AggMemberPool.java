@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.dataset.ncml;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * A bounded pool of open aggregation members, evicted in least recently used order.
+ * Members that are in use are never closed; the pool may temporarily exceed its bound in that case.
+ */
+class AggMemberPool {
+  private final int maxOpen;
+  // access ordered, guarded by this
+  private final LinkedHashMap<AggDataset, Boolean> open = new LinkedHashMap<>(16, 0.75f, true);
+
+  AggMemberPool(int maxOpen) {
+    this.maxOpen = Math.max(1, maxOpen);
+  }
+
+  /** Record that the member was accessed; if it was just opened, evict idle members beyond the bound. */
+  void touch(AggDataset member, boolean opened) {
+    List<AggDataset> evict = new ArrayList<>();
+    synchronized (this) {
+      open.put(member, Boolean.TRUE);
+      if (!opened || open.size() <= maxOpen) {
+        return;
+      }
+      int excess = open.size() - maxOpen;
+      Iterator<AggDataset> iter = open.keySet().iterator();
+      while (iter.hasNext() && excess > 0) {
+        AggDataset oldest = iter.next();
+        if (oldest != member) {
+          evict.add(oldest);
+          iter.remove();
+          excess--;
+        }
+      }
+    }
+    // close outside the pool lock; a member still in use stays open and is re-registered on its next access
+    for (AggDataset oldest : evict) {
+      if (!oldest.closeIfIdle()) {
+        synchronized (this) {
+          open.putIfAbsent(oldest, Boolean.TRUE);
+        }
+      }
+    }
+  }
+
+  synchronized int getOpenCount() {
+    return open.size();
+  }
+
+  /** Close all members. */
+  void close() {
+    List<AggDataset> all;
+    synchronized (this) {
+      all = new ArrayList<>(open.keySet());
+      open.clear();
+    }
+    for (AggDataset member : all) {
+      member.closeIfIdle();
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.dataset.ncml;
+
+import dev.ucdm.array.Array;
+import dev.ucdm.array.ArrayType;
+import dev.ucdm.array.Arrays;
+import dev.ucdm.array.InvalidRangeException;
+import dev.ucdm.array.Range;
+import dev.ucdm.array.Section;
+import dev.ucdm.core.api.ProxyReader;
+import dev.ucdm.core.api.Variable;
+import dev.ucdm.core.util.CancelTask;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A ProxyReader for a Variable joined along the outer dimension of an Aggregation.
+ * Only the members that intersect the requested section are opened.
+ */
+class AggProxyReader implements ProxyReader {
+  private final AggregationOuter agg;
+  private final String varName; // name of the variable in the members
+  private final boolean isNewDimension; // joinNew: members do not have the outer dimension
+  private final boolean isJoinCoordinate; // the coordinate variable of the joined dimension
+
+  AggProxyReader(AggregationOuter agg, String varName, boolean isNewDimension) {
+    this.agg = agg;
+    this.varName = varName;
+    this.isNewDimension = isNewDimension;
+    this.isJoinCoordinate = !isNewDimension && varName.equals(agg.getDimensionName());
+  }
+
+  @Override
+  public Array<?> proxyReadArray(Variable client, @Nullable CancelTask cancelTask) throws IOException {
+    try {
+      return proxyReadArray(client, client.getSection(), cancelTask);
+    } catch (InvalidRangeException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public Array<?> proxyReadArray(Variable client, Section section, @Nullable CancelTask cancelTask)
+      throws IOException, InvalidRangeException {
+    Range outer = section.getRange(0);
+    List<Array<?>> parts = new ArrayList<>();
+    for (AggDataset member : agg.getDatasets()) {
+      if (cancelTask != null && cancelTask.isCancel()) {
+        throw new InterruptedIOException("Cancelled reading " + varName + " from aggregation " + agg.location);
+      }
+      if (!member.intersects(outer)) {
+        continue;
+      }
+      Section.Builder local = section.toBuilder();
+      if (isNewDimension) {
+        local.removeRange(0);
+      } else {
+        local.replaceRange(0, member.makeLocalRange(outer));
+      }
+      if (isJoinCoordinate && member.coordValues != null) {
+        // cached coordinate values, no need to open the member
+        parts.add(Arrays.section(member.coordValues, local.build()));
+      } else {
+        parts.add(member.readArray(varName, local.build(), cancelTask));
+      }
+    }
+    // the parts have the original (unenhanced) data type, which may differ from the client's
+    ArrayType dataType = parts.isEmpty() ? client.getArrayType() : parts.get(0).getArrayType();
+    return Arrays.combine(dataType, section.getShape(), parts);
+  }
+}
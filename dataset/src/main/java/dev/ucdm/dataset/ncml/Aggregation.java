@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.dataset.ncml;
+
+import com.google.common.base.Preconditions;
+import dev.ucdm.array.Array;
+import dev.ucdm.array.InvalidRangeException;
+import dev.ucdm.array.Section;
+import dev.ucdm.core.api.CdmFile;
+import dev.ucdm.core.api.Group;
+import dev.ucdm.core.api.ProxyReader;
+import dev.ucdm.core.api.Structure;
+import dev.ucdm.core.api.Variable;
+import dev.ucdm.core.util.CancelTask;
+import dev.ucdm.core.util.SharedExecutor;
+import dev.ucdm.core.util.URLnaming;
+import dev.ucdm.dataset.api.CdmDataset;
+import dev.ucdm.dataset.api.VariableDS;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * NcML Aggregation of member datasets: joinExisting, joinNew, or union.
+ * <p>
+ * Members are opened lazily and in parallel, and are held in a bounded pool of open files, so that
+ * reading a section only opens the members that intersect it. The join coordinate of joinExisting is
+ * cached persistently, so reopening the aggregation does not need to open every member.
+ */
+public abstract class Aggregation implements Closeable {
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(Aggregation.class);
+
+  public enum Type {
+    joinExisting, joinNew, union
+  }
+
+  private static int maxOpenMembers = 64;
+  private static final SharedExecutor openExecutor = new SharedExecutor("ncml-agg-open", 8);
+
+  /** Set the maximum number of members of one aggregation that are held open at the same time. */
+  public static void setMaxOpenMembers(int max) {
+    maxOpenMembers = max;
+  }
+
+  /** Set the maximum number of threads, shared by all aggregations, used to open members in parallel, default 8. */
+  public static void setOpenThreads(int nthreads) {
+    openExecutor.setThreads(nthreads);
+  }
+
+  /**
+   * Read an NcML aggregation element.
+   *
+   * @param aggElem the aggregation element
+   * @param ncmlLocation the NcML location, used to resolve relative member locations
+   * @param ncNS the NcML namespace
+   */
+  static Aggregation factory(Element aggElem, String ncmlLocation, Namespace ncNS) {
+    String typeS = aggElem.getAttributeValue("type");
+    Type type;
+    try {
+      type = Type.valueOf(typeS);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Unknown NcML aggregation type " + typeS);
+    }
+    String dimName = aggElem.getAttributeValue("dimName");
+
+    Aggregation agg = switch (type) {
+      case joinExisting, joinNew -> new AggregationOuter(type, ncmlLocation, dimName);
+      case union -> new AggregationUnion(ncmlLocation);
+    };
+
+    for (Element netcdfElem : aggElem.getChildren("netcdf", ncNS)) {
+      String location = netcdfElem.getAttributeValue("location");
+      if (location == null) {
+        location = netcdfElem.getAttributeValue("url");
+      }
+      if (location == null) {
+        throw new IllegalArgumentException("NcML aggregation member must have a location");
+      }
+      AggDataset member = new AggDataset(URLnaming.resolve(ncmlLocation, location),
+          netcdfElem.getAttributeValue("coordValue"), netcdfElem, ncmlLocation, agg.pool);
+      String ncoordS = netcdfElem.getAttributeValue("ncoords");
+      if (ncoordS != null) {
+        member.ncoord = Integer.parseInt(ncoordS);
+      }
+      agg.datasets.add(member);
+    }
+
+    for (Element scanElem : aggElem.getChildren("scan", ncNS)) {
+      agg.scan(scanElem, ncmlLocation);
+    }
+
+    for (Element varAggElem : aggElem.getChildren("variableAgg", ncNS)) {
+      agg.varNames.add(varAggElem.getAttributeValue("name"));
+    }
+
+    if (agg.datasets.isEmpty()) {
+      throw new IllegalArgumentException("NcML aggregation has no members: " + ncmlLocation);
+    }
+    return agg;
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////////
+  protected final Type type;
+  protected final String location; // the NcML location
+  protected final List<AggDataset> datasets = new ArrayList<>();
+  protected final List<String> varNames = new ArrayList<>(); // explicitly named aggregation variables
+  protected final AggMemberPool pool = new AggMemberPool(maxOpenMembers);
+
+  protected Aggregation(Type type, String location) {
+    this.type = type;
+    this.location = location;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  /** The number of member datasets. */
+  public int getNumberOfDatasets() {
+    return datasets.size();
+  }
+
+  /** The number of member datasets that are currently open. */
+  public int getNumberOfOpenDatasets() {
+    return pool.getOpenCount();
+  }
+
+  List<AggDataset> getDatasets() {
+    return datasets;
+  }
+
+  /** Add the aggregated dimensions, attributes and variables to the root group of the builder. */
+  abstract void build(CdmDataset.Builder<?> builder, @Nullable CancelTask cancelTask) throws IOException;
+
+  /** Close all open members. */
+  @Override
+  public void close() {
+    pool.close();
+  }
+
+  /** A scan element adds all files in a directory, sorted by name. */
+  private void scan(Element scanElem, String ncmlLocation) {
+    String dirLocation = scanElem.getAttributeValue("location");
+    Preconditions.checkNotNull(dirLocation, "NcML scan element must have a location");
+    String dir = URLnaming.resolve(ncmlLocation, dirLocation);
+    if (dir.startsWith("file:")) {
+      dir = dir.substring(5);
+    }
+    String suffix = scanElem.getAttributeValue("suffix");
+    String regExp = scanElem.getAttributeValue("regExp");
+    Pattern pattern = regExp == null ? null : Pattern.compile(regExp);
+    boolean subdirs = !"false".equalsIgnoreCase(scanElem.getAttributeValue("subdirs"));
+
+    try (Stream<Path> paths = subdirs ? Files.walk(Path.of(dir)) : Files.list(Path.of(dir))) {
+      List<Path> files = paths.filter(Files::isRegularFile)
+          .filter(p -> suffix == null || p.getFileName().toString().endsWith(suffix))
+          .filter(p -> pattern == null || pattern.matcher(p.getFileName().toString()).matches()).sorted()
+          .collect(Collectors.toList());
+      for (Path p : files) {
+        datasets.add(new AggDataset(p.toString(), null, null, ncmlLocation, pool));
+      }
+    } catch (IOException e) {
+      throw new IllegalArgumentException("NcML scan failed on directory " + dir, e);
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////////////////
+  // helpers for subclasses
+
+  /** Something to do with an open member. */
+  interface MemberTask {
+    void run(AggDataset member, CdmFile ncfile) throws IOException;
+  }
+
+  /**
+   * Open the members in parallel, and run the task on each.
+   * The members are released back to the pool when done.
+   */
+  void forEachMember(List<AggDataset> members, MemberTask task, @Nullable CancelTask cancelTask) throws IOException {
+    List<Callable<Void>> tasks = new ArrayList<>(members.size());
+    for (AggDataset member : members) {
+      tasks.add(() -> {
+        if (cancelTask == null || !cancelTask.isCancel()) {
+          runTask(member, task, cancelTask);
+        }
+        return null;
+      });
+    }
+    openExecutor.run(tasks, "opening aggregation members of " + location);
+  }
+
+  private void runTask(AggDataset member, MemberTask task, @Nullable CancelTask cancelTask) throws IOException {
+    CdmFile ncfile = member.acquire(cancelTask);
+    try {
+      task.run(member, ncfile);
+    } finally {
+      member.release();
+    }
+  }
+
+  /** Make a VariableDS.Builder that does not wrap orgVar, since the member file may be closed by the pool. */
+  static VariableDS.Builder<?> makeVariable(Group.Builder parent, Variable orgVar, ProxyReader proxy) {
+    VariableDS.Builder<?> vb = VariableDS.builder().copyFrom(orgVar);
+    vb.setOriginalVariable(null).setSPobject(null);
+    vb.setParentGroupBuilder(parent).setProxyReader(proxy);
+    return vb;
+  }
+
+  /** Skip Structures, which are not supported in aggregations. */
+  static boolean isSupported(Variable v) {
+    if (v instanceof Structure) {
+      log.warn("NcML aggregation does not support Structure {}", v.getFullName());
+      return false;
+    }
+    return true;
+  }
+
+  /** A ProxyReader that reads the Variable from a single member. */
+  static class MemberProxyReader implements ProxyReader {
+    private final AggDataset member;
+    private final String varName;
+
+    MemberProxyReader(AggDataset member, String varName) {
+      this.member = member;
+      this.varName = varName;
+    }
+
+    @Override
+    public Array<?> proxyReadArray(Variable client, @Nullable CancelTask cancelTask) throws IOException {
+      try {
+        return member.readArray(varName, null, cancelTask);
+      } catch (InvalidRangeException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+    }
+
+    @Override
+    public Array<?> proxyReadArray(Variable client, Section section, @Nullable CancelTask cancelTask)
+        throws IOException, InvalidRangeException {
+      return member.readArray(varName, section, cancelTask);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Aggregation{%s %s members=%d}", type, location, datasets.size());
+  }
+}
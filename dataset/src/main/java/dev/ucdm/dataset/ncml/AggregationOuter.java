@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.dataset.ncml;
+
+import com.google.common.base.Preconditions;
+import dev.ucdm.array.Array;
+import dev.ucdm.array.ArrayType;
+import dev.ucdm.array.Arrays;
+import dev.ucdm.core.api.CdmFile;
+import dev.ucdm.core.api.Dimension;
+import dev.ucdm.core.api.Group;
+import dev.ucdm.core.api.Variable;
+import dev.ucdm.core.util.CancelTask;
+import dev.ucdm.dataset.api.CdmDataset;
+import dev.ucdm.dataset.api.VariableDS;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregation along the outer dimension: joinExisting concatenates the members along an existing outer dimension,
+ * joinNew makes a new outer dimension with one coordinate per member.
+ * <p>
+ * For joinNew, the aggregated variables are the ones named by variableAgg elements, or if there are none, all
+ * variables that are not coordinate variables.
+ */
+class AggregationOuter extends Aggregation {
+  private final String dimName;
+
+  AggregationOuter(Type type, String location, String dimName) {
+    super(type, location);
+    Preconditions.checkNotNull(dimName, "NcML %s aggregation must have a dimName", type);
+    this.dimName = dimName;
+  }
+
+  String getDimensionName() {
+    return dimName;
+  }
+
+  @Override
+  void build(CdmDataset.Builder<?> builder, @Nullable CancelTask cancelTask) throws IOException {
+    boolean isNew = (type == Type.joinNew);
+    if (isNew) {
+      datasets.forEach(member -> member.ncoord = 1);
+    } else {
+      findCoordinates(cancelTask);
+    }
+
+    int total = 0;
+    for (AggDataset member : datasets) {
+      total = member.setAggStart(total);
+    }
+
+    AggDataset typical = datasets.get(0);
+    CdmFile typicalFile = typical.acquire(cancelTask);
+    try {
+      Group.Builder root = builder.rootGroup;
+      Group typicalRoot = typicalFile.getRootGroup();
+      root.addEnumTypedefs(typicalRoot.getEnumTypedefs());
+      root.addAttributes(typicalRoot.attributes());
+
+      Dimension aggDim;
+      if (isNew) {
+        aggDim = Dimension.builder(dimName, total).build();
+        root.addDimension(aggDim);
+        typicalRoot.getDimensions().forEach(root::addDimensionIfNotExists);
+      } else {
+        Dimension typicalDim = typicalRoot.findDimension(dimName)
+            .orElseThrow(() -> new IllegalStateException("Aggregation dimension not found: " + dimName));
+        aggDim = typicalDim.toBuilder().setLength(total).build();
+        for (Dimension dim : typicalRoot.getDimensions()) {
+          root.addDimensionIfNotExists(dim.getShortName().equals(dimName) ? aggDim : dim);
+        }
+      }
+
+      for (Variable v : typicalRoot.getVariables()) {
+        if (!isSupported(v)) {
+          continue;
+        }
+        VariableDS.Builder<?> vb;
+        if (isAggVariable(v, isNew)) {
+          vb = makeVariable(root, v, new AggProxyReader(this, v.getShortName(), isNew));
+          if (isNew) {
+            List<Dimension> dims = new ArrayList<>();
+            dims.add(aggDim);
+            dims.addAll(v.getDimensions());
+            vb.setDimensions(dims);
+          } else {
+            vb.replaceDimensionByName(aggDim);
+          }
+        } else {
+          vb = makeVariable(root, v, new MemberProxyReader(typical, v.getShortName()));
+        }
+        root.addVariable(vb);
+      }
+
+      if (isNew && root.findVariableLocal(dimName).isEmpty()) {
+        root.addVariable(makeNewCoordinate(root));
+      }
+    } finally {
+      typical.release();
+    }
+  }
+
+  private boolean isAggVariable(Variable v, boolean isNew) {
+    if (!isNew) {
+      return v.getRank() > 0 && v.getDimension(0).getShortName().equals(dimName);
+    }
+    if (!varNames.isEmpty()) {
+      return varNames.contains(v.getShortName());
+    }
+    // default is all non-coordinate variables
+    return !(v.getRank() == 1 && v.getDimension(0).getShortName().equals(v.getShortName()));
+  }
+
+  /**
+   * Find the number of coordinates in each member, and the values of the join coordinate.
+   * Use the NcML ncoords attribute or the persistent cache if possible, otherwise open the members in parallel.
+   */
+  private void findCoordinates(@Nullable CancelTask cancelTask) throws IOException {
+    AggCoordCache cache = new AggCoordCache(location, dimName);
+    List<AggDataset> needOpen = new ArrayList<>();
+    for (AggDataset member : datasets) {
+      if (!cache.fill(member) && member.ncoord < 0) {
+        needOpen.add(member);
+      }
+    }
+
+    forEachMember(needOpen, (member, ncfile) -> {
+      Dimension dim = ncfile.getRootGroup().findDimension(dimName)
+          .orElseThrow(() -> new IOException(String.format("Aggregation member %s has no dimension %s",
+              member.location, dimName)));
+      member.ncoord = dim.getLength();
+      Variable coord = ncfile.findVariable(dimName);
+      if (coord != null && coord.getRank() == 1 && coord.getArrayType().isNumeric()) {
+        member.coordValues = coord.readArray();
+      }
+      cache.put(member);
+    }, cancelTask);
+
+    cache.write();
+  }
+
+  /** The joinNew coordinate, from the coordValue attributes, otherwise the member locations. */
+  private VariableDS.Builder<?> makeNewCoordinate(Group.Builder root) {
+    List<String> values = new ArrayList<>();
+    boolean isNumeric = true;
+    for (AggDataset member : datasets) {
+      String value = member.coordValue != null ? member.coordValue : member.location;
+      values.add(value);
+      isNumeric = isNumeric && isDouble(value);
+    }
+    ArrayType dtype = isNumeric ? ArrayType.DOUBLE : ArrayType.STRING;
+    Array<?> data = Arrays.makeArray(dtype, values);
+
+    return VariableDS.builder().setName(dimName).setArrayType(dtype).setParentGroupBuilder(root)
+        .setDimensionsByName(dimName).setSourceData(data);
+  }
+
+  private static boolean isDouble(String s) {
+    try {
+      Double.parseDouble(s);
+      return true;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.dataset.ncml;
+
+import dev.ucdm.core.api.Attribute;
+import dev.ucdm.core.api.CdmFile;
+import dev.ucdm.core.api.Dimension;
+import dev.ucdm.core.api.EnumTypedef;
+import dev.ucdm.core.api.Group;
+import dev.ucdm.core.api.Variable;
+import dev.ucdm.core.util.CancelTask;
+import dev.ucdm.dataset.api.CdmDataset;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Union of the members: the first member that has a dimension, attribute or variable supplies it.
+ * Each variable reads its data from the member it came from.
+ */
+class AggregationUnion extends Aggregation {
+
+  AggregationUnion(String location) {
+    super(Type.union, location);
+  }
+
+  @Override
+  void build(CdmDataset.Builder<?> builder, @Nullable CancelTask cancelTask) throws IOException {
+    // open the members in parallel; the ones that dont fit in the pool are reopened on demand
+    forEachMember(datasets, (member, ncfile) -> {}, cancelTask);
+
+    Group.Builder root = builder.rootGroup;
+    for (AggDataset member : datasets) {
+      CdmFile ncfile = member.acquire(cancelTask);
+      try {
+        Group memberRoot = ncfile.getRootGroup();
+        for (EnumTypedef typedef : memberRoot.getEnumTypedefs()) {
+          if (root.findEnumeration(typedef.getShortName()).isEmpty()) {
+            root.addEnumTypedef(typedef);
+          }
+        }
+        for (Dimension dim : memberRoot.getDimensions()) {
+          root.addDimensionIfNotExists(dim);
+        }
+        for (Attribute att : memberRoot.attributes()) {
+          if (root.getAttributeContainer().findAttribute(att.getShortName()) == null) {
+            root.addAttribute(att);
+          }
+        }
+        for (Variable v : memberRoot.getVariables()) {
+          if (isSupported(v) && root.findVariableLocal(v.getShortName()).isEmpty()) {
+            root.addVariable(makeVariable(root, v, new MemberProxyReader(member, v.getShortName())));
+          }
+        }
+      } finally {
+        member.release();
+      }
+    }
+  }
+}
@@ -360,6 +360,19 @@ public class NcmlReader {
     builder.setId(netcdfElem.getAttributeValue("id"));
     builder.setTitle(netcdfElem.getAttributeValue("title"));
 
+    // aggregation first, so the NcML can modify the aggregated variables
+    Element aggElem = netcdfElem.getChild("aggregation", ncNS);
+    if (aggElem != null) {
+      Aggregation agg = Aggregation.factory(aggElem, ncmlLocation, ncNS);
+      builder.setAggregation(agg);
+      try {
+        agg.build(builder, cancelTask);
+      } catch (IOException | RuntimeException e) {
+        agg.close();
+        throw e;
+      }
+    }
+
     // read the root group and recurse
     readGroup(builder, null, null, netcdfElem);
     String errors = errlog.toString();
@@ -3,5 +3,5 @@
  * See LICENSE for license information.
  */
 
-/** Implementation of NcML, no aggregation. */
+/** Implementation of NcML, including joinExisting, joinNew and union aggregation. */
 package dev.ucdm.dataset.ncml;
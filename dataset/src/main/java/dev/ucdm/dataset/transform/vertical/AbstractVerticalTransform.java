@@ -8,22 +8,61 @@ import dev.ucdm.array.Array;
 import dev.ucdm.array.ArrayType;
 import dev.ucdm.array.Arrays;
 import dev.ucdm.array.InvalidRangeException;
+import dev.ucdm.array.Range;
 import dev.ucdm.array.Section;
 import dev.ucdm.core.api.AttributeContainer;
 import dev.ucdm.core.api.Variable;
 import dev.ucdm.dataset.api.CdmDataset;
 import dev.ucdm.core.util.StringUtil2;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.jetbrains.annotations.Nullable;
 import dev.ucdm.array.Immutable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Formatter;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
 
-/** Superclass for implementations of a VerticalTransform. */
+/**
+ * Superclass for implementations of a VerticalTransform.
+ * The 3D coordinate arrays are computed once and kept in a cache of bounded size, shared by all transforms.
+ * The key is the dataset location and last modified time, the transform name, and the time index. So a dataset
+ * that is reopened still finds its arrays.
+ */
 @Immutable
-abstract class AbstractVerticalTransform implements VerticalTransform {
+public abstract class AbstractVerticalTransform implements VerticalTransform {
+  private static final long defaultCacheSize = 10_000_000;
+  private static volatile Cache<CacheKey, Array<Number>> cache = makeCache(defaultCacheSize);
+  private static int parallelThreshold = 1_000_000;
+
+  /**
+   * Set the maximum number of values held in the cache of 3D coordinate arrays. Set to 0 to turn off caching.
+   * This discards the current contents of the cache.
+   */
+  public static void setCacheSize(long maxValues) {
+    cache = makeCache(maxValues);
+  }
+
+  /** Discard the contents of the cache of 3D coordinate arrays. */
+  public static void clearCache() {
+    cache.invalidateAll();
+  }
+
+  /** 3D coordinate arrays with at least this many values are computed in parallel across the levels. */
+  public static void setParallelThreshold(int nvalues) {
+    parallelThreshold = nvalues;
+  }
+
+  private static Cache<CacheKey, Array<Number>> makeCache(long maxValues) {
+    return CacheBuilder.newBuilder().maximumWeight(maxValues)
+        .weigher((CacheKey key, Array<Number> value) -> (int) Math.min(value.length(), Integer.MAX_VALUE)).build();
+  }
+
+  private record CacheKey(String location, long lastModified, String name, int timeIndex) {
+  }
 
   static Array<Number> readArray(CdmDataset ncd, String varName) throws IOException {
     Variable v = ncd.findVariable(varName);
@@ -75,6 +114,60 @@ abstract class AbstractVerticalTransform implements VerticalTransform {
     return Arrays.reduce(data, 0);
   }
 
+  /**
+   * Read a horizontal subset of a variable, whose last two dimensions are y, x.
+   *
+   * @param hasTime if the outer dimension is time, which is then set to timeIdx and removed.
+   * @param yRange the y subset, or null for all.
+   * @param xRange the x subset, or null for all.
+   */
+  static Array<Number> readArray(CdmDataset ncd, String varName, boolean hasTime, int timeIdx, @Nullable Range yRange,
+      @Nullable Range xRange) throws IOException, InvalidRangeException {
+    Variable v = ncd.findVariable(varName);
+    if (v == null) {
+      throw new IllegalArgumentException(varName);
+    }
+    int rank = v.getRank();
+    List<Range> ranges = new ArrayList<>();
+    for (int dim = 0; dim < rank; dim++) {
+      if (hasTime && dim == 0) {
+        ranges.add(new Range(timeIdx, timeIdx));
+      } else if (dim == rank - 2) {
+        ranges.add(yRange);
+      } else if (dim == rank - 1) {
+        ranges.add(xRange);
+      } else {
+        ranges.add(null);
+      }
+    }
+
+    Array<Number> data = (Array<Number>) v.readArray(new Section(ranges, v.getShape()));
+    return hasTime ? Arrays.reduce(data, 0) : data;
+  }
+
+  /** Copy the values of a numeric array into a double[], in canonical order. */
+  static double[] toDoubles(Array<Number> data) {
+    return (double[]) Arrays.copyPrimitiveArray(Arrays.toDouble(data));
+  }
+
+  /** Computes the values of one level of a 3D coordinate array. */
+  interface LevelFn {
+    /** Set result[start + y * nx + x] for all y, x of level z. */
+    void compute(int z, double[] result, int start);
+  }
+
+  /** Make a 3D coordinate array one level at a time. Large arrays are split across cores by level. */
+  static Array<Number> makeArray3D(int nz, int ny, int nx, LevelFn levelFn) {
+    int nlevel = ny * nx;
+    double[] result = new double[nz * nlevel];
+    IntStream levels = IntStream.range(0, nz);
+    if (result.length >= parallelThreshold) {
+      levels = levels.parallel();
+    }
+    levels.forEach(z -> levelFn.compute(z, result, z * nlevel));
+    return Arrays.factory(ArrayType.DOUBLE, new int[] {nz, ny, nx}, result);
+  }
+
   //////////////////////////////////////////////////////////
 
   protected final CdmDataset ds;
@@ -98,6 +191,54 @@ abstract class AbstractVerticalTransform implements VerticalTransform {
     return units;
   }
 
+  @Override
+  public Array<Number> getCoordinateArray3D(int timeIndex) throws IOException, InvalidRangeException {
+    CacheKey key = makeKey(timeIndex);
+    if (key == null) {
+      return computeCoordinateArray3D(timeIndex, null, null);
+    }
+    try {
+      return cache.get(key, () -> computeCoordinateArray3D(timeIndex, null, null));
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException ioe) {
+        throw ioe;
+      }
+      if (cause instanceof InvalidRangeException ire) {
+        throw ire;
+      }
+      throw new RuntimeException(cause);
+    }
+  }
+
+  @Override
+  public Array<Number> getCoordinateArray3D(int timeIndex, @Nullable Range yRange, @Nullable Range xRange)
+      throws IOException, InvalidRangeException {
+    CacheKey key = makeKey(timeIndex);
+    Array<Number> cached = (key == null) ? null : cache.getIfPresent(key);
+    if (cached != null) {
+      return Arrays.section(cached, new Section(java.util.Arrays.asList(null, yRange, xRange), cached.getShape()));
+    }
+    return computeCoordinateArray3D(timeIndex, yRange, xRange);
+  }
+
+  @Nullable
+  private CacheKey makeKey(int timeIndex) {
+    String location = ds.getLocation();
+    return (location == null) ? null : new CacheKey(location, ds.getLastModified(), name, timeIndex);
+  }
+
+  /**
+   * Compute the 3D vertical coordinate array for this time step, optionally for a horizontal subset.
+   * Must be in "canonical order" : z, y, x.
+   *
+   * @param timeIndex the time index. Ignored if not time dependent.
+   * @param yRange the y subset, or null for all.
+   * @param xRange the x subset, or null for all.
+   */
+  protected abstract Array<Number> computeCoordinateArray3D(int timeIndex, @Nullable Range yRange,
+      @Nullable Range xRange) throws IOException, InvalidRangeException;
+
   static String getFormula(AttributeContainer ctv, Formatter errlog) {
     String formula = ctv.findAttributeString("formula_terms", null);
     if (null == formula) {
@@ -9,12 +9,14 @@ import dev.ucdm.array.Array;
 import dev.ucdm.array.ArrayType;
 import dev.ucdm.array.Arrays;
 import dev.ucdm.array.InvalidRangeException;
+import dev.ucdm.array.Range;
 import dev.ucdm.core.api.AttributeContainer;
 import dev.ucdm.core.constants.CF;
 import dev.ucdm.dataset.api.CoordinateSystem;
 import dev.ucdm.dataset.api.CdmDataset;
 
 import dev.ucdm.array.Immutable;
+import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.util.Formatter;
 import java.util.List;
@@ -105,28 +107,22 @@ public class AtmosSigma extends AbstractVerticalTransform {
   }
 
   @Override
-  public Array<Number> getCoordinateArray3D(int timeIndex) throws IOException, InvalidRangeException {
-    Array<Number> psData = (psRank == 3) ? readArray(ds, ps, timeIndex) : readArray(ds, ps);
+  protected Array<Number> computeCoordinateArray3D(int timeIndex, @Nullable Range yRange, @Nullable Range xRange)
+      throws IOException, InvalidRangeException {
+    Array<Number> psData = readArray(ds, ps, psRank == 3, timeIndex, yRange, xRange);
     Preconditions.checkArgument(psData.getRank() == 2);
 
     int ny = psData.getShape()[0];
     int nx = psData.getShape()[1];
     int nz = sigmaData.getShape()[0];
+    double[] psVals = toDoubles(psData);
 
-    double[] result = new double[nz * ny * nx];
-
-    int count = 0;
-    for (int z = 0; z < nz; z++) {
+    return makeArray3D(nz, ny, nx, (z, result, start) -> {
       double sigmaVal = sigmaData.get(z).doubleValue();
-      for (int y = 0; y < ny; y++) {
-        for (int x = 0; x < nx; x++) {
-          double psVal = psData.get(y, x).doubleValue();
-          result[count++] = ptop + sigmaVal * (psVal - ptop);
-        }
+      for (int i = 0; i < psVals.length; i++) {
+        result[start + i] = ptop + sigmaVal * (psVals[i] - ptop);
       }
-    }
-
-    return Arrays.factory(ArrayType.DOUBLE, new int[] {nz, ny, nx}, result);
+    });
   }
 
   ///////////////////////////////////////////////////////////////////////////////////////////////
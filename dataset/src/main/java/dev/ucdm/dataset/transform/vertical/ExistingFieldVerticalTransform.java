@@ -7,12 +7,14 @@ package dev.ucdm.dataset.transform.vertical;
 import com.google.common.base.Preconditions;
 import dev.ucdm.array.Array;
 import dev.ucdm.array.InvalidRangeException;
+import dev.ucdm.array.Range;
 import dev.ucdm.core.api.AttributeContainer;
 import dev.ucdm.core.constants.CF;
 import dev.ucdm.dataset.api.CoordinateSystem;
 import dev.ucdm.dataset.api.CdmDataset;
 
 import dev.ucdm.array.Immutable;
+import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.util.Formatter;
 import java.util.Optional;
@@ -57,8 +59,9 @@ public class ExistingFieldVerticalTransform extends AbstractVerticalTransform {
   }
 
   @Override
-  public Array<Number> getCoordinateArray3D(int timeIndex) throws IOException, InvalidRangeException {
-    Array<Number> result = (rank == 4) ? readArray(ds, existingField, timeIndex) : readArray(ds, existingField);
+  protected Array<Number> computeCoordinateArray3D(int timeIndex, @Nullable Range yRange, @Nullable Range xRange)
+      throws IOException, InvalidRangeException {
+    Array<Number> result = readArray(ds, existingField, rank == 4, timeIndex, yRange, xRange);
     Preconditions.checkArgument(result.getRank() == 3);
     return result;
   }
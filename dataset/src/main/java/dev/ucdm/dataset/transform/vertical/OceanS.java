@@ -8,11 +8,14 @@ import dev.ucdm.array.Array;
 import dev.ucdm.array.ArrayType;
 import dev.ucdm.array.Arrays;
 import dev.ucdm.array.InvalidRangeException;
+import dev.ucdm.array.Range;
+import dev.ucdm.array.Section;
 import dev.ucdm.core.api.AttributeContainer;
 import dev.ucdm.core.constants.CF;
 import dev.ucdm.dataset.api.CoordinateSystem;
 import dev.ucdm.dataset.api.CdmDataset;
 
+import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.util.Formatter;
 import java.util.List;
@@ -108,20 +111,14 @@ public class OceanS extends AbstractVerticalTransform {
   }
 
   @Override
-  public Array<Number> getCoordinateArray3D(int timeIndex) throws IOException, InvalidRangeException {
-    Array<Number> etaArray = readArray(ds, etaVar, timeIndex);
-    Array<Number> c = makeC(sArray);
-
-    return makeHeight(etaArray, sArray, depthArray, c, depth_c);
-  }
-
-  @Override
-  public Array<Number> getCoordinateArray1D(int timeIndex, int xIndex, int yIndex)
+  protected Array<Number> computeCoordinateArray3D(int timeIndex, @Nullable Range yRange, @Nullable Range xRange)
       throws IOException, InvalidRangeException {
-    Array<Number> etaArray = readArray(ds, etaVar, timeIndex);
+    Array<Number> etaArray = readArray(ds, etaVar, true, timeIndex, yRange, xRange);
+    Array<Number> depthSubset =
+        Arrays.section(depthArray, new Section(java.util.Arrays.asList(yRange, xRange), depthArray.getShape()));
     Array<Number> c = makeC(sArray);
 
-    return makeHeight1D(etaArray, sArray, depthArray, c, depth_c, xIndex, yIndex);
+    return makeHeight(etaArray, sArray, depthSubset, c, depth_c);
   }
 
   // C(z) = (1-b)*sinh(a*s(z))/sinh(a) + b*(tanh(a*(s(z)+0.5))/(2*tanh(0.5*a))-0.5)
@@ -156,62 +153,31 @@ public class OceanS extends AbstractVerticalTransform {
    * where,
    * S(x,y,z) = depth_c*s(z) + (depth(x,y)-depth_c)*C(z)
    */
-  private Array<Number> makeHeight(Array<Number> eta, Array<Number> s, Array<Number> depth, Array<Number> c,
-      double depth_c) {
+  private Array<Number> makeHeight(Array<Number> etaArray, Array<Number> s, Array<Number> depthArray,
+      Array<Number> c, double depth_c) {
     int nz = (int) s.getSize();
-    int ny = eta.getShape()[0];
-    int nx = eta.getShape()[1];
+    int ny = etaArray.getShape()[0];
+    int nx = etaArray.getShape()[1];
+    double[] eta = toDoubles(etaArray);
+    double[] depth = toDoubles(depthArray);
 
-    double[] height = new double[nz * ny * nx];
-    int count = 0;
-    for (int z = 0; z < nz; z++) {
+    return makeArray3D(nz, ny, nx, (z, height, start) -> {
       double sz = s.get(z).doubleValue();
       double cz = c.get(z).doubleValue();
       double term1 = depth_c * sz;
 
-      for (int y = 0; y < ny; y++) {
-        for (int x = 0; x < nx; x++) {
-          // -sachin 03/23/09 modifications according to corrected equation.
-          double fac1 = depth.get(y, x).doubleValue();
-          double term2 = (fac1 - depth_c) * cz;
+      for (int i = 0; i < eta.length; i++) {
+        // -sachin 03/23/09 modifications according to corrected equation.
+        double fac1 = depth[i];
+        double term2 = (fac1 - depth_c) * cz;
 
-          double Sterm = term1 + term2;
-          double term3 = eta.get(y, x).doubleValue();
-          double term4 = 1 + Sterm / fac1;
+        double Sterm = term1 + term2;
+        double term3 = eta[i];
+        double term4 = 1 + Sterm / fac1;
 
-          height[count++] = Sterm + term3 * term4;
-        }
+        height[start + i] = Sterm + term3 * term4;
       }
-    }
-
-    return Arrays.factory(ArrayType.DOUBLE, new int[] {nz, ny, nx}, height);
-  }
-
-  // Modify method 'makeHeight' as new method for getting vertical coordinate array for single point.
-  // - sachin
-  private Array<Number> makeHeight1D(Array<Number> eta, Array<Number> s, Array<Number> depth, Array<Number> c,
-      double depth_c, int x_index, int y_index) {
-    int nz = (int) s.getSize();
-
-    double[] height = new double[nz];
-    int count = 0;
-    for (int z = 0; z < nz; z++) {
-      double sz = s.get(z).doubleValue();
-      double cz = c.get(z).doubleValue();
-      double term1 = depth_c * sz;
-
-      // -sachin 03/06/09 modifications according to corrected equation.
-      double fac1 = depth.get(y_index, x_index).doubleValue();
-      double term2 = (fac1 - depth_c) * cz;
-
-      double Sterm = term1 + term2;
-      double term3 = eta.get(y_index, x_index).doubleValue();
-      double term4 = 1 + Sterm / fac1;
-
-      height[count++] = Sterm + term3 * term4;
-    }
-
-    return Arrays.factory(ArrayType.DOUBLE, new int[] {nz}, height);
+    });
   }
 
   ///////////////////////////////////////////////////////////////////////////////////////////////
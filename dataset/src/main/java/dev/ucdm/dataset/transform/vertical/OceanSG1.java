@@ -8,12 +8,14 @@ import dev.ucdm.array.Array;
 import dev.ucdm.array.ArrayType;
 import dev.ucdm.array.Arrays;
 import dev.ucdm.array.InvalidRangeException;
+import dev.ucdm.array.Range;
 import dev.ucdm.core.api.AttributeContainer;
 import dev.ucdm.core.constants.CF;
 import dev.ucdm.dataset.api.CoordinateSystem;
 import dev.ucdm.dataset.api.CdmDataset;
 
 import dev.ucdm.array.Immutable;
+import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.util.Formatter;
 import java.util.List;
@@ -127,9 +129,10 @@ public class OceanSG1 extends AbstractVerticalTransform {
   }
 
   @Override
-  public Array<Number> getCoordinateArray3D(int timeIndex) throws IOException, InvalidRangeException {
-    Array<Number> etaArray = (etaRank == 3) ? readArray(ds, etaName, timeIndex) : readArray(ds, etaName);
-    Array<Number> depthArray = readArray(ds, depthName);
+  protected Array<Number> computeCoordinateArray3D(int timeIndex, @Nullable Range yRange, @Nullable Range xRange)
+      throws IOException, InvalidRangeException {
+    Array<Number> etaArray = readArray(ds, etaName, etaRank == 3, timeIndex, yRange, xRange);
+    Array<Number> depthArray = readArray(ds, depthName, false, 0, yRange, xRange);
 
     /*
      * Make height from the given data.
@@ -141,31 +144,25 @@ public class OceanSG1 extends AbstractVerticalTransform {
     int[] shape2D = etaArray.getShape();
     int ny = shape2D[0];
     int nx = shape2D[1];
+    double[] eta = toDoubles(etaArray);
+    double[] depth = toDoubles(depthArray);
 
-    int count = 0;
-    double[] result = new double[nz * ny * nx];
-    for (int z = 0; z < nz; z++) {
+    return makeArray3D(nz, ny, nx, (z, result, start) -> {
       double sz = sArray.get(z).doubleValue();
       double cz = cArray.get(z).doubleValue();
       double term1 = depth_c * sz;
 
-      for (int y = 0; y < ny; y++) {
-        for (int x = 0; x < nx; x++) {
-          double fac1 = depthArray.get(y, x).doubleValue();
-          double term2 = (fac1 - depth_c) * cz;
+      for (int i = 0; i < eta.length; i++) {
+        double fac1 = depth[i];
+        double term2 = (fac1 - depth_c) * cz;
 
-          double Sterm = term1 + term2;
+        double Sterm = term1 + term2;
 
-          double term3 = etaArray.get(y, x).doubleValue();
-          double term4 = 1 + Sterm / fac1;
-          double hterm = Sterm + term3 * term4;
-
-          result[count++] = hterm;
-        }
+        double term3 = eta[i];
+        double term4 = 1 + Sterm / fac1;
+        result[start + i] = Sterm + term3 * term4;
       }
-    }
-
-    return Arrays.factory(ArrayType.DOUBLE, new int[] {nz, ny, nx}, result);
+    });
   }
 
   ///////////////////////////////////////////////////////////////////////////////////////////////
@@ -7,14 +7,15 @@ package dev.ucdm.dataset.transform.vertical;
 import dev.ucdm.array.Array;
 import dev.ucdm.array.ArrayType;
 import dev.ucdm.array.Arrays;
-import dev.ucdm.array.Index;
 import dev.ucdm.array.InvalidRangeException;
+import dev.ucdm.array.Range;
 import dev.ucdm.core.api.AttributeContainer;
 import dev.ucdm.core.constants.CF;
 import dev.ucdm.dataset.api.CoordinateSystem;
 import dev.ucdm.dataset.api.CdmDataset;
 
 import dev.ucdm.array.Immutable;
+import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.util.Formatter;
 import java.util.List;
@@ -129,9 +130,10 @@ public class OceanSG2 extends AbstractVerticalTransform {
   }
 
   @Override
-  public Array<Number> getCoordinateArray3D(int timeIndex) throws IOException, InvalidRangeException {
-    Array<Number> etaArray = (etaRank == 3) ? readArray(ds, etaName, timeIndex) : readArray(ds, etaName);
-    Array<Number> depthArray = readArray(ds, depthName);
+  protected Array<Number> computeCoordinateArray3D(int timeIndex, @Nullable Range yRange, @Nullable Range xRange)
+      throws IOException, InvalidRangeException {
+    Array<Number> etaArray = readArray(ds, etaName, etaRank == 3, timeIndex, yRange, xRange);
+    Array<Number> depthArray = readArray(ds, depthName, false, 0, yRange, xRange);
 
     return makeHeight(etaArray, sArray, depthArray, cArray, depth_c);
   }
@@ -141,44 +143,32 @@ public class OceanSG2 extends AbstractVerticalTransform {
    * where,
    * S(x,y,z) = (depth_c*s(z) + (depth([n],x,y) * C(z)) / (depth_c + depth([n],x,y))
    */
-  private Array<Number> makeHeight(Array<Number> eta, Array<Number> s, Array<Number> depth, Array<Number> c,
+  private Array<Number> makeHeight(Array<Number> etaArray, Array<Number> s, Array<Number> depthArray, Array<Number> c,
       double depth_c) {
     int nz = (int) s.getSize();
-    Index sIndex = s.getIndex();
-    Index cIndex = c.getIndex();
-
-    int[] shape2D = eta.getShape();
+    int[] shape2D = etaArray.getShape();
     int ny = shape2D[0];
     int nx = shape2D[1];
-    Index etaIndex = eta.getIndex();
-    Index depthIndex = depth.getIndex();
+    double[] eta = toDoubles(etaArray);
+    double[] depth = toDoubles(depthArray);
 
-    double[] parray = new double[nz * ny * nx];
-    int count = 0;
-    for (int z = 0; z < nz; z++) {
-      double sz = s.get(sIndex.set(z)).doubleValue();
-      double cz = c.get(cIndex.set(z)).doubleValue();
+    return makeArray3D(nz, ny, nx, (z, result, start) -> {
+      double sz = s.get(z).doubleValue();
+      double cz = c.get(z).doubleValue();
 
       double term1 = depth_c * sz;
 
-      for (int y = 0; y < ny; y++) {
-        for (int x = 0; x < nx; x++) {
-
-          double fac1 = depth.get(depthIndex.set(y, x)).doubleValue();
-          double term2 = fac1 * cz;
-
-          double Sterm = (term1 + term2) / (depth_c + fac1);
+      for (int i = 0; i < eta.length; i++) {
+        double fac1 = depth[i];
+        double term2 = fac1 * cz;
 
-          double term3 = eta.get(etaIndex.set(y, x)).doubleValue();
-          double term4 = (term3 + fac1) * Sterm;
-          double hterm = term3 + term4;
+        double Sterm = (term1 + term2) / (depth_c + fac1);
 
-          parray[count++] = hterm;
-        }
+        double term3 = eta[i];
+        double term4 = (term3 + fac1) * Sterm;
+        result[start + i] = term3 + term4;
       }
-    }
-
-    return Arrays.factory(ArrayType.DOUBLE, new int[] {nz, ny, nx}, parray);
+    });
   }
 
   ///////////////////////////////////////////////////////////////////////////////////////////////
@@ -9,12 +9,14 @@ import dev.ucdm.array.Array;
 import dev.ucdm.array.ArrayType;
 import dev.ucdm.array.Arrays;
 import dev.ucdm.array.InvalidRangeException;
+import dev.ucdm.array.Range;
 import dev.ucdm.core.api.AttributeContainer;
 import dev.ucdm.core.constants.CF;
 import dev.ucdm.dataset.api.CoordinateSystem;
 import dev.ucdm.dataset.api.CdmDataset;
 
 import dev.ucdm.array.Immutable;
+import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.util.Formatter;
 import java.util.List;
@@ -104,9 +106,10 @@ public class OceanSigma extends AbstractVerticalTransform {
   }
 
   @Override
-  public Array<Number> getCoordinateArray3D(int timeIndex) throws IOException, InvalidRangeException {
-    Array<Number> etaData = readArray(ds, etaVar, timeIndex);
-    Array<Number> depthData = readArray(ds, depthVar);
+  protected Array<Number> computeCoordinateArray3D(int timeIndex, @Nullable Range yRange, @Nullable Range xRange)
+      throws IOException, InvalidRangeException {
+    Array<Number> etaData = readArray(ds, etaVar, true, timeIndex, yRange, xRange);
+    Array<Number> depthData = readArray(ds, depthVar, false, 0, yRange, xRange);
 
     Preconditions.checkArgument(depthData.getRank() == 2);
     Preconditions.checkArgument(etaData.getRank() == 2);
@@ -117,22 +120,15 @@ public class OceanSigma extends AbstractVerticalTransform {
 
     Preconditions.checkArgument(etaData.getShape()[0] == ny);
     Preconditions.checkArgument(etaData.getShape()[1] == nx);
+    double[] eta = toDoubles(etaData);
+    double[] depth = toDoubles(depthData);
 
-    double[] result = new double[nz * ny * nx];
-
-    int count = 0;
-    for (int z = 0; z < nz; z++) {
+    return makeArray3D(nz, ny, nx, (z, result, start) -> {
       double sigmaVal = sigmaData.get(z).doubleValue();
-      for (int y = 0; y < ny; y++) {
-        for (int x = 0; x < nx; x++) {
-          double etaVal = etaData.get(y, x).doubleValue();
-          double depthVal = depthData.get(y, x).doubleValue();
-          result[count++] = etaVal + sigmaVal * (depthVal + etaVal);
-        }
+      for (int i = 0; i < eta.length; i++) {
+        result[start + i] = eta[i] + sigmaVal * (depth[i] + eta[i]);
       }
-    }
-
-    return Arrays.factory(ArrayType.DOUBLE, new int[] {nz, ny, nx}, result);
+    });
   }
 
   ///////////////////////////////////////////////////////////////////////////////////////////////
@@ -8,6 +8,8 @@ import dev.ucdm.array.Array;
 import dev.ucdm.array.ArrayType;
 import dev.ucdm.array.Arrays;
 import dev.ucdm.array.InvalidRangeException;
+import dev.ucdm.array.Range;
+import dev.ucdm.array.Section;
 import dev.ucdm.core.api.AttributeContainer;
 import dev.ucdm.dataset.api.CoordinateSystem;
 import dev.ucdm.dataset.api.CdmDataset;
@@ -39,6 +41,21 @@ public interface VerticalTransform {
    */
   Array<Number> getCoordinateArray3D(int timeIndex) throws IOException, InvalidRangeException;
 
+  /**
+   * Get the 3D vertical coordinate array for this time step and a horizontal subset.
+   * Must be in "canonical order" : z, y, x.
+   *
+   * @param timeIndex the time index. Ignored if !isTimeDependent().
+   * @param yRange the y subset, or null for all.
+   * @param xRange the x subset, or null for all.
+   * @return 3D vertical coordinate array, for the given t and horizontal subset.
+   */
+  default Array<Number> getCoordinateArray3D(int timeIndex, @Nullable Range yRange, @Nullable Range xRange)
+      throws IOException, InvalidRangeException {
+    Array<Number> array3D = getCoordinateArray3D(timeIndex);
+    return Arrays.section(array3D, new Section(java.util.Arrays.asList(null, yRange, xRange), array3D.getShape()));
+  }
+
   /**
    * Get the 1D vertical coordinate array for this time step and point
    *
@@ -48,13 +65,13 @@ public interface VerticalTransform {
    * @return vertical coordinate array
    */
   default Array<Number> getCoordinateArray1D(int timeIndex, int xIndex, int yIndex) throws IOException, InvalidRangeException {
-    Array<Number> array3D = getCoordinateArray3D(timeIndex);
-    int nz = array3D.getShape()[0];
+    Array<Number> profile = getCoordinateArray3D(timeIndex, new Range(yIndex, yIndex), new Range(xIndex, xIndex));
+    int nz = profile.getShape()[0];
     double[] result = new double[nz];
 
     int count = 0;
     for (int z = 0; z < nz; z++) {
-      result[count++] = array3D.get(z, yIndex, xIndex).doubleValue();
+      result[count++] = profile.get(z, 0, 0).doubleValue();
     }
 
     return Arrays.factory(ArrayType.DOUBLE, new int[] {nz}, result);
@@ -9,6 +9,8 @@ import dev.ucdm.array.Array;
 import dev.ucdm.array.ArrayType;
 import dev.ucdm.array.Arrays;
 import dev.ucdm.array.InvalidRangeException;
+import dev.ucdm.array.Range;
+import dev.ucdm.array.Section;
 import dev.ucdm.core.api.AttributeContainer;
 import dev.ucdm.core.constants.AxisType;
 import dev.ucdm.dataset.api.CoordinateAxis;
@@ -113,9 +115,16 @@ public class WrfEta extends AbstractVerticalTransform {
   }
 
   @Override
-  public Array<Number> getCoordinateArray3D(int timeIndex) throws IOException, InvalidRangeException {
-    Array<Number> pertData = readArray(ds, pertVar, timeIndex);
-    Array<Number> baseData = readArray(ds, baseVar, timeIndex);
+  protected Array<Number> computeCoordinateArray3D(int timeIndex, @Nullable Range yRange, @Nullable Range xRange)
+      throws IOException, InvalidRangeException {
+    if ((isXStag || isYStag) && (yRange != null || xRange != null)) {
+      // the staggered dimension is interpolated from its neighbors, so compute all of it, then subset.
+      Array<Number> full = computeCoordinateArray3D(timeIndex, null, null);
+      return Arrays.section(full, new Section(java.util.Arrays.asList(null, yRange, xRange), full.getShape()));
+    }
+
+    Array<Number> pertData = readArray(ds, pertVar, true, timeIndex, yRange, xRange);
+    Array<Number> baseData = readArray(ds, baseVar, true, timeIndex, yRange, xRange);
 
     Preconditions.checkArgument(pertData.getRank() == 3);
     Preconditions.checkArgument(baseData.getRank() == 3);
@@ -127,32 +136,27 @@ public class WrfEta extends AbstractVerticalTransform {
     Preconditions.checkArgument(pertData.getShape()[0] == nz);
     Preconditions.checkArgument(pertData.getShape()[1] == ny);
     Preconditions.checkArgument(pertData.getShape()[2] == nx);
-
-    double[] result = new double[nz * ny * nx];
-
-    int count = 0;
-    for (int z = 0; z < nz; z++) {
-      for (int y = 0; y < ny; y++) {
-        for (int x = 0; x < nx; x++) {
-          double pert = pertData.get(z, y, x).doubleValue();
-          double base = baseData.get(z, y, x).doubleValue();
-          double d = pert + base;
-          if (isZStag) {
-            d = d / 9.81; // convert geopotential to height
-          }
-          result[count++] = d;
+    double[] pert = toDoubles(pertData);
+    double[] base = toDoubles(baseData);
+
+    Array<Number> sum = makeArray3D(nz, ny, nx, (z, result, start) -> {
+      for (int i = start; i < start + ny * nx; i++) {
+        double d = pert[i] + base[i];
+        if (isZStag) {
+          d = d / 9.81; // convert geopotential to height
         }
+        result[i] = d;
       }
-    }
+    });
 
     if (isYStag) {
-      result = addStaggerY(result, baseData.getShape());
-      ny++;
+      double[] result = addStaggerY(toDoubles(sum), baseData.getShape());
+      return Arrays.factory(ArrayType.DOUBLE, new int[] {nz, ny + 1, nx}, result);
     } else if (isXStag) {
-      result = addStaggerX(result, baseData.getShape());
-      nx++;
+      double[] result = addStaggerX(toDoubles(sum), baseData.getShape());
+      return Arrays.factory(ArrayType.DOUBLE, new int[] {nz, ny, nx + 1}, result);
     }
-    return Arrays.factory(ArrayType.DOUBLE, new int[] {nz, ny, nx}, result);
+    return sum;
   }
 
   /**
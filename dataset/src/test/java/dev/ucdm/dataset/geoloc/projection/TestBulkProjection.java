@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package dev.ucdm.dataset.geoloc.projection;
+
+import dev.ucdm.dataset.geoloc.Earth;
+import dev.ucdm.dataset.geoloc.LatLonPoint;
+import dev.ucdm.dataset.geoloc.Projection;
+import dev.ucdm.dataset.geoloc.ProjectionPoint;
+import dev.ucdm.dataset.geoloc.projection.proj4.TransverseMercatorProjection;
+import org.junit.jupiter.api.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/** Test that the bulk array conversions of Projections agree with the point conversions. */
+public class TestBulkProjection {
+  private static final int nlat = 71;
+  private static final int nlon = 141;
+
+  @Test
+  public void testLambertConformal() {
+    doProjection(new LambertConformal());
+    doProjection(new LambertConformal(-40.0, 100.0, -20.0, -60.0, 100.0, 200.0, 6371.229));
+  }
+
+  @Test
+  public void testStereographic() {
+    doProjection(new Stereographic());
+    doProjection(new Stereographic(90.0, -105.0, .933));
+  }
+
+  @Test
+  public void testMercator() {
+    doProjection(new Mercator());
+    doProjection(new Mercator(-105.0, 20.0, 100.0, 200.0));
+  }
+
+  @Test
+  public void testRotatedPole() {
+    doProjection(new RotatedPole());
+    doProjection(new RotatedPole(37, 177));
+  }
+
+  @Test
+  public void testTransverseMercator() {
+    Earth e = new Earth(6378.137, 6356.7523142, 0);
+    doProjection(new TransverseMercatorProjection(e, 9., 0., 0.9996, 500.000, 0.));
+    doProjection(new TransverseMercatorProjection(new Earth(6371.229), 9., 0., 0.9996, 500.000, 0.));
+  }
+
+  @Test
+  public void testDefault() {
+    // uses AbstractProjection
+    doProjection(new AlbersEqualArea());
+  }
+
+  @Test
+  public void testParallel() {
+    AbstractProjection.setParallelThreshold(100);
+    try {
+      doProjection(new LambertConformal());
+      doProjection(new AlbersEqualArea());
+    } finally {
+      AbstractProjection.setParallelThreshold(100_000);
+    }
+  }
+
+  @Test
+  public void testInPlace() {
+    Projection proj = new Stereographic(90.0, -105.0, .933);
+    double[] a = new double[] {40.0, 50.0, 60.0};
+    double[] b = new double[] {-100.0, -105.0, -110.0};
+    proj.latLonToProj(a, b, a, b);
+    proj.projToLatLon(a, b, a, b);
+    assertThat(a[0]).isWithin(1.0e-9).of(40.0);
+    assertThat(b[2]).isWithin(1.0e-9).of(-110.0);
+  }
+
+  @Test
+  public void testBadArgs() {
+    Projection proj = new Mercator();
+    double[] two = new double[2];
+    double[] three = new double[3];
+    try {
+      proj.latLonToProj(two, three, three, three);
+      assertWithMessage("should throw").fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      proj.projToLatLon(three, three, three, two);
+      assertWithMessage("should throw").fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private void doProjection(Projection proj) {
+    int npts = nlat * nlon;
+    double[] lat = new double[npts];
+    double[] lon = new double[npts];
+    for (int j = 0; j < nlat; j++) {
+      for (int i = 0; i < nlon; i++) {
+        lat[j * nlon + i] = -70.0 + 2.0 * j;
+        lon[j * nlon + i] = -175.0 + 2.5 * i;
+      }
+    }
+
+    double[] x = new double[npts];
+    double[] y = new double[npts];
+    proj.latLonToProj(lat, lon, x, y);
+    for (int k = 0; k < npts; k++) {
+      ProjectionPoint ppt = proj.latLonToProj(lat[k], lon[k]);
+      assertSame(proj, x[k], ppt.x());
+      assertSame(proj, y[k], ppt.y());
+    }
+
+    double[] latOut = new double[npts];
+    double[] lonOut = new double[npts];
+    proj.projToLatLon(x, y, latOut, lonOut);
+    for (int k = 0; k < npts; k++) {
+      if (Double.isInfinite(x[k]) || Double.isInfinite(y[k]) || Double.isNaN(x[k]) || Double.isNaN(y[k])) {
+        continue;
+      }
+      LatLonPoint llpt = proj.projToLatLon(x[k], y[k]);
+      assertSame(proj, latOut[k], llpt.latitude());
+      assertSame(proj, lonOut[k], llpt.longitude());
+    }
+  }
+
+  private void assertSame(Projection proj, double bulk, double point) {
+    if (Double.isNaN(point)) {
+      assertWithMessage(proj.getName()).that(bulk).isNaN();
+    } else if (Double.isInfinite(point)) {
+      assertWithMessage(proj.getName()).that(bulk).isEqualTo(point);
+    } else {
+      assertWithMessage(proj.getName()).that(bulk).isWithin(1.0e-9 * Math.max(1.0, Math.abs(point))).of(point);
+    }
+  }
+
+}
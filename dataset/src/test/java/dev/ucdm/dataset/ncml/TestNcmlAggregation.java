@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.dataset.ncml;
+
+import dev.ucdm.array.Array;
+import dev.ucdm.array.ArrayType;
+import dev.ucdm.array.Section;
+import dev.ucdm.core.api.CdmFile;
+import dev.ucdm.core.api.CdmFiles;
+import dev.ucdm.core.api.Dimension;
+import dev.ucdm.core.api.Variable;
+import dev.ucdm.core.util.DiskCache;
+import dev.ucdm.dataset.api.CdmDataset;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static dev.ucdm.test.util.TestFilesKt.datasetLocalNcmlDir;
+
+/** Test NcML joinExisting, joinNew and union aggregations. */
+public class TestNcmlAggregation {
+
+  @TempDir
+  public static File tempFolder;
+
+  @BeforeAll
+  public static void setCache() {
+    DiskCache.setRootDirectory(tempFolder.toString());
+  }
+
+  @Test
+  public void testJoinExisting() throws Exception {
+    String location = "file:" + datasetLocalNcmlDir + "aggExisting.xml";
+    try (CdmDataset ncd = NcmlReader.readNcml(location, null, null).build()) {
+      assertThat(ncd.getAggregation()).isNotNull();
+      assertThat(ncd.getAggregation().getNumberOfDatasets()).isEqualTo(2);
+
+      Dimension time = ncd.findDimension("time");
+      assertThat(time).isNotNull();
+      assertThat(time.getLength()).isEqualTo(6);
+
+      Variable T = ncd.findVariable("T");
+      assertThat(T).isNotNull();
+      assertThat(T.getShape()).isEqualTo(new int[] {6, 3, 4});
+
+      // spans both members: example.nc has times 0-3, example1.nc has times 4-5
+      Array<Double> data = (Array<Double>) T.readArray(new Section("3:4,0,0:3"));
+      assertThat(data.getShape()).isEqualTo(new int[] {2, 1, 4});
+      assertThat(values(data)).isEqualTo(concat(readMember("nc/example.nc", "T", "3,0,0:3"),
+          readMember("nc/example1.nc", "T", "0,0,0:3")));
+
+      // strided, so the local start in the second member is not 0
+      Array<Double> strided = (Array<Double>) T.readArray(new Section("1:5:2,1,:"));
+      assertThat(values(strided)).isEqualTo(concat(readMember("nc/example.nc", "T", "1:3:2,1,:"),
+          readMember("nc/example1.nc", "T", "1,1,:")));
+
+      // only in the second member
+      Array<?> rh = ncd.findVariable("rh").readArray(new Section("5,2,3"));
+      assertThat(rh.getArrayType()).isEqualTo(ArrayType.INT);
+      assertThat(rh.length()).isEqualTo(1);
+
+      Array<Integer> times = (Array<Integer>) ncd.findVariable("time").readArray();
+      assertThat(times.length()).isEqualTo(6);
+      assertThat(times.get(4)).isEqualTo(6);
+      assertThat(times.get(5)).isEqualTo(18);
+    }
+
+    // reopen uses the cached join coordinate, so only the typical member is opened
+    try (CdmDataset ncd = NcmlReader.readNcml(location, null, null).build()) {
+      assertThat(ncd.getAggregation().getNumberOfOpenDatasets()).isEqualTo(1);
+      assertThat(ncd.findVariable("time").readArray().length()).isEqualTo(6);
+      assertThat(ncd.getAggregation().getNumberOfOpenDatasets()).isEqualTo(1);
+    }
+  }
+
+  /** Members with their own nested NcML modifications. */
+  @Test
+  public void testJoinExistingNestedNcml() throws Exception {
+    String location = "file:" + datasetLocalNcmlDir + "aggExistingNested.xml";
+    try (CdmDataset ncd = NcmlReader.readNcml(location, null, null).build()) {
+      // the typical (first) member supplies the global attributes
+      assertThat(ncd.getRootGroup().findAttributeString("member", null)).isEqualTo("first");
+
+      Variable T = ncd.findVariable("T");
+      assertThat(T).isNotNull();
+      assertThat(T.getShape()).isEqualTo(new int[] {6, 3, 4});
+      Array<Double> data = (Array<Double>) T.readArray(new Section("3:4,0,0:3"));
+      assertThat(values(data)).isEqualTo(concat(readMember("nc/example.nc", "T", "3,0,0:3"),
+          readMember("nc/example1.nc", "T", "0,0,0:3")));
+    }
+  }
+
+  @Test
+  public void testJoinNew() throws Exception {
+    String location = "file:" + datasetLocalNcmlDir + "aggJoinNew.xml";
+    try (CdmDataset ncd = NcmlReader.readNcml(location, null, null).build()) {
+      Dimension time = ncd.findDimension("time");
+      assertThat(time).isNotNull();
+      assertThat(time.getLength()).isEqualTo(3);
+
+      Variable T = ncd.findVariable("T");
+      assertThat(T).isNotNull();
+      assertThat(T.getShape()).isEqualTo(new int[] {3, 3, 4});
+      Array<?> data = T.readArray(new Section("1:2,0,:"));
+      assertThat(data.getShape()).isEqualTo(new int[] {2, 1, 4});
+
+      Variable lat = ncd.findVariable("lat");
+      assertThat(lat.getShape()).isEqualTo(new int[] {3});
+
+      Variable timeCoord = ncd.findVariable("time");
+      assertThat(timeCoord).isNotNull();
+      assertThat(timeCoord.findAttributeString("units", null)).isEqualTo("months since 2000-6-16 6:00");
+      Array<Double> times = (Array<Double>) timeCoord.readArray();
+      assertThat(times.get(0)).isEqualTo(0.0);
+      assertThat(times.get(1)).isEqualTo(10.0);
+      assertThat(times.get(2)).isEqualTo(99.0);
+    }
+  }
+
+  @Test
+  public void testUnion() throws Exception {
+    String location = "file:" + datasetLocalNcmlDir + "aggUnion.xml";
+    try (CdmDataset ncd = NcmlReader.readNcml(location, null, null).build()) {
+      assertThat(ncd.getRootGroup().findAttributeString("title", null)).isEqualTo("Union of example and time0");
+
+      // T comes from time0.nc, renamed in the NcML
+      Variable T0 = ncd.findVariable("T0");
+      assertThat(T0).isNotNull();
+      assertThat(T0.getShape()).isEqualTo(new int[] {3, 4});
+      assertThat(T0.readArray().length()).isEqualTo(12);
+
+      // rh and time come from example.nc
+      Variable rh = ncd.findVariable("rh");
+      assertThat(rh).isNotNull();
+      assertThat(rh.getShape()).isEqualTo(new int[] {4, 3, 4});
+      assertThat(rh.readArray(new Section("0,0,:")).length()).isEqualTo(4);
+      assertThat(ncd.findVariable("time")).isNotNull();
+    }
+  }
+  private static List<Double> readMember(String filename, String varName, String section) throws Exception {
+    try (CdmFile ncfile = CdmFiles.open(datasetLocalNcmlDir + filename)) {
+      return values((Array<Double>) ncfile.findVariable(varName).readArray(new Section(section)));
+    }
+  }
+
+  private static List<Double> values(Array<Double> data) {
+    List<Double> result = new ArrayList<>();
+    data.forEach(result::add);
+    return result;
+  }
+
+  private static List<Double> concat(List<Double> first, List<Double> second) {
+    List<Double> result = new ArrayList<>(first);
+    result.addAll(second);
+    return result;
+  }
+}
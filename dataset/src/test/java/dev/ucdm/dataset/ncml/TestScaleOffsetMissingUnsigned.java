@@ -101,6 +101,11 @@ public class TestScaleOffsetMissingUnsigned {
       readEnhanced = (Array<Number>) vs.readArray();
 
       nearlyEquals(packed, unpacked, readEnhanced, 1.0 / so.scale);
+
+      // the lazy view has the same values
+      Array<Number> readLazy = (Array<Number>) vs.readArrayLazy(null);
+      assertThat(readLazy.getArrayType()).isEqualTo(readEnhanced.getArrayType());
+      assertThat(CompareArrayToArray.compareData("lazy", readEnhanced, readLazy)).isTrue();
     }
 
     Array<Number> convertPacked = convert2Unpacked(readPacked, so);
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.dataset.transform.vertical;
+
+import dev.ucdm.array.Array;
+import dev.ucdm.array.Arrays;
+import dev.ucdm.array.InvalidRangeException;
+import dev.ucdm.array.Range;
+import dev.ucdm.array.Section;
+import dev.ucdm.core.api.AttributeContainerMutable;
+import dev.ucdm.dataset.api.CdmDataset;
+import dev.ucdm.dataset.api.CdmDatasets;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Formatter;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Test the cache, parallel computation and horizontal subsets of {@link AbstractVerticalTransform}. */
+public class TestVerticalTransformCache {
+  private static final int nz = 5;
+  private static final int ny = 3;
+  private static final int nx = 4;
+  private static final double ptop = 10.0;
+
+  private static final String ncml = "<?xml version='1.0' encoding='UTF-8'?>\n"
+      + "<netcdf xmlns='http://www.unidata.ucar.edu/namespaces/netcdf/ncml-2.2'>\n"
+      + "  <dimension name='time' length='2'/>\n" // leaavit
+      + "  <dimension name='lev' length='5'/>\n" // leaavit
+      + "  <dimension name='y' length='3'/>\n" // leaavit
+      + "  <dimension name='x' length='4'/>\n" // leaavit
+      + "  <variable name='sigma' shape='lev' type='double'>\n" // leaavit
+      + "    <values>0.1 0.3 0.5 0.7 0.9</values>\n" // leaavit
+      + "  </variable>\n" // leaavit
+      + "  <variable name='ps' shape='time y x' type='double'>\n" // leaavit
+      + "    <attribute name='units' value='hPa'/>\n" // leaavit
+      + "    <values start='1000' increment='1'/>\n" // leaavit
+      + "  </variable>\n" // leaavit
+      + "  <variable name='ptop' type='double'>\n" // leaavit
+      + "    <values>10.0</values>\n" // leaavit
+      + "  </variable>\n" // leaavit
+      + "</netcdf>";
+
+  @AfterEach
+  public void reset() {
+    AbstractVerticalTransform.setCacheSize(10_000_000);
+    AbstractVerticalTransform.setParallelThreshold(1_000_000);
+  }
+
+  private static CdmDataset open(String location) throws IOException {
+    return CdmDatasets.openNcmlDataset(new StringReader(ncml), location, null);
+  }
+
+  private static VerticalTransform makeTransform(CdmDataset ds) {
+    AttributeContainerMutable params = new AttributeContainerMutable("atmos_sigma");
+    params.addAttribute("formula_terms", "sigma: sigma ps: ps ptop: ptop");
+    Formatter errlog = new Formatter();
+    VerticalTransform vt = AtmosSigma.create(ds, params, errlog).orElse(null);
+    assertThat(vt).isNotNull();
+    return vt;
+  }
+
+  private static double expected(int t, int z, int y, int x) {
+    double sigma = 0.1 + 0.2 * z;
+    double ps = 1000 + t * ny * nx + y * nx + x;
+    return ptop + sigma * (ps - ptop);
+  }
+
+  private static void check(Array<Number> data, int t, int y0, int x0) {
+    int[] shape = data.getShape();
+    for (int z = 0; z < shape[0]; z++) {
+      for (int y = 0; y < shape[1]; y++) {
+        for (int x = 0; x < shape[2]; x++) {
+          assertThat(data.get(z, y, x).doubleValue()).isWithin(1.0e-9).of(expected(t, z, y0 + y, x0 + x));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCache() throws IOException, InvalidRangeException {
+    try (CdmDataset ds = open("file:testCache.ncml")) {
+      VerticalTransform vt = makeTransform(ds);
+      Array<Number> data = vt.getCoordinateArray3D(1);
+      assertThat(data.getShape()).isEqualTo(new int[] {nz, ny, nx});
+      check(data, 1, 0, 0);
+
+      // computed once
+      assertThat(vt.getCoordinateArray3D(1)).isSameInstanceAs(data);
+
+      // a new transform on the same dataset finds it
+      assertThat(makeTransform(ds).getCoordinateArray3D(1)).isSameInstanceAs(data);
+
+      AbstractVerticalTransform.clearCache();
+      Array<Number> again = vt.getCoordinateArray3D(1);
+      assertThat(again == data).isFalse();
+      check(again, 1, 0, 0);
+    }
+  }
+
+  @Test
+  public void testNoCache() throws IOException, InvalidRangeException {
+    AbstractVerticalTransform.setCacheSize(0);
+    try (CdmDataset ds = open("file:testNoCache.ncml")) {
+      VerticalTransform vt = makeTransform(ds);
+      Array<Number> data = vt.getCoordinateArray3D(0);
+      check(data, 0, 0, 0);
+      assertThat(vt.getCoordinateArray3D(0) == data).isFalse();
+    }
+  }
+
+  @Test
+  public void testParallel() throws IOException, InvalidRangeException {
+    AbstractVerticalTransform.setCacheSize(0);
+    AbstractVerticalTransform.setParallelThreshold(10);
+    try (CdmDataset ds = open("file:testParallel.ncml")) {
+      VerticalTransform vt = makeTransform(ds);
+      check(vt.getCoordinateArray3D(0), 0, 0, 0);
+      check(vt.getCoordinateArray3D(1), 1, 0, 0);
+    }
+  }
+
+  @Test
+  public void testHorizSubset() throws IOException, InvalidRangeException {
+    try (CdmDataset ds = open("file:testHorizSubset.ncml")) {
+      VerticalTransform vt = makeTransform(ds);
+
+      // computed from the subset of ps
+      Array<Number> subset = vt.getCoordinateArray3D(1, new Range(1, 2), new Range(2, 3));
+      assertThat(subset.getShape()).isEqualTo(new int[] {nz, 2, 2});
+      check(subset, 1, 1, 2);
+
+      Array<Number> profile = vt.getCoordinateArray1D(1, 3, 2);
+      assertThat(profile.getShape()).isEqualTo(new int[] {nz});
+      for (int z = 0; z < nz; z++) {
+        assertThat(profile.get(z).doubleValue()).isWithin(1.0e-9).of(expected(1, z, 2, 3));
+      }
+
+      // taken from the cached array
+      Array<Number> full = vt.getCoordinateArray3D(1);
+      Array<Number> cachedSubset = vt.getCoordinateArray3D(1, new Range(1, 2), null);
+      assertThat(Arrays.equalNumbers(cachedSubset, Arrays.section(full, new Section("0:4,1:2,0:3")))).isTrue();
+      check(cachedSubset, 1, 1, 0);
+    }
+  }
+
+}
@@ -43,7 +43,24 @@ dependencies {
     testImplementation(libs.logbackClassic)
 }
 
+// Compile the GRIB tables into one binary resource, see dev.ucdm.grib.common.util.GribTableStore
+val gribTablesDir = layout.buildDirectory.dir("generated/gribTables")
+val compileGribTables by tasks.registering(JavaExec::class) {
+    description = "Compiles the GRIB table resources into a GribTableStore."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("dev.ucdm.grib.common.util.GribTableCompiler")
+    args(gribTablesDir.get().file("resources/grib/gribTables.bin").asFile.path)
+    outputs.dir(gribTablesDir)
+}
+
+sourceSets {
+    test {
+        runtimeClasspath += files(gribTablesDir).builtBy(compileGribTables)
+    }
+}
+
 tasks.jar {
+    from(compileGribTables)
     manifest {
         attributes(mapOf(
             "Main-Class" to "dev.ucdm.grib.main",
@@ -60,8 +60,8 @@ public class Grib1CollectionBuilder extends GribCollectionBuilder {
       Formatter gbxerrors = new Formatter();
 
       try {
-        // here is where gbx9 files get created or updated
-        index = GribIndex.readOrCreateIndex1(mfile, gbxerrors);
+        // here is where gbx9 files get created or updated, unless unchanged since the last build
+        index = readIndex(mfile, GribIndex::readOrCreateIndex1, gbxerrors);
         allFiles.add(mfile); // add on success
 
       } catch (IOException ioe) {
@@ -166,7 +166,9 @@ public class Grib1CollectionBuilder extends GribCollectionBuilder {
     Grib1CollectionIndexWriter writer = new Grib1CollectionIndexWriter(dcm);
     var groups2 = groups.stream().map(it -> (Grib1CollectionIndexWriter.Group) it).toList();
     File indexFileInCache = GribIndexCache.getFileOrCache(indexFilepath);
-    return writer.writeIndex(name, indexFileInCache, masterRuntime, groups2, files, type, dateRange);
+    // write to a temporary file, then publish it atomically
+    return GribIndexCache.publish(indexFileInCache,
+        temp -> writer.writeIndex(name, temp, masterRuntime, groups2, files, type, dateRange)) != null;
   }
 
   public static class VariableBag implements Comparable<VariableBag> {
@@ -66,8 +66,8 @@ public class Grib2CollectionBuilder extends GribCollectionBuilder {
 
       Formatter gbxerrors = new Formatter();
       try {
-        // here is where gbx9 files get created or updated
-        index = GribIndex.readOrCreateIndex2(mfile, gbxerrors);
+        // here is where gbx9 files get created or updated, unless unchanged since the last build
+        index = readIndex(mfile, GribIndex::readOrCreateIndex2, gbxerrors);
         allFiles.add(mfile); // add on success
 
       } catch (IOException ioe) {
@@ -182,7 +182,9 @@ public class Grib2CollectionBuilder extends GribCollectionBuilder {
     Grib2CollectionIndexWriter writer = new Grib2CollectionIndexWriter(dcm);
     var groups2 = groups.stream().map(it -> (Grib2CollectionIndexWriter.Group) it).toList();
     File indexFileInCache = GribIndexCache.getFileOrCache(indexFilepath);
-    return writer.writeIndex(name, indexFileInCache, masterRuntime, groups2, files, type, dateRange);
+    // write to a temporary file, then publish it atomically
+    return GribIndexCache.publish(indexFileInCache,
+        temp -> writer.writeIndex(name, temp, masterRuntime, groups2, files, type, dateRange)) != null;
   }
 
   public static class VariableBag implements Comparable<VariableBag> {
@@ -8,12 +8,17 @@ package dev.ucdm.grib.collection;
 import dev.ucdm.array.Immutable;
 
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import dev.ucdm.core.calendar.CalendarDate;
 import dev.ucdm.core.calendar.CalendarDateRange;
 import dev.ucdm.core.util.StringUtil2;
 import dev.ucdm.grib.coord.*;
 import dev.ucdm.grib.inventory.MCollection;
 import dev.ucdm.grib.inventory.MFile;
+import dev.ucdm.grib.protoconvert.Grib1Index;
+import dev.ucdm.grib.protoconvert.Grib2Index;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
@@ -21,8 +26,49 @@ import java.util.*;
 
 /**
  * Superclass to build ncx indexes for collections of Grib files.
+ * <p>
+ * Optionally, see setMaxCachedRecords(), the gbx9 indexes read while building a collection are kept in memory, keyed
+ * by the collection and the file's path, length and lastModified. When the collection is rebuilt in the same JVM,
+ * eg because a file was added, only the gbx9 indexes of new or changed files are read again.
  */
 public abstract class GribCollectionBuilder {
+  @Nullable
+  private static volatile Cache<String, Object> previousIndexes; // null when disabled, the default
+
+  @Nullable
+  private static Cache<String, Object> makeIndexCache(long maxRecords) {
+    if (maxRecords <= 0) {
+      return null;
+    }
+    return CacheBuilder.newBuilder().maximumWeight(maxRecords).weigher(GribCollectionBuilder::countRecords).build();
+  }
+
+  private static int countRecords(String key, Object index) {
+    if (index instanceof Grib2Index index2) {
+      return index2.getNRecords();
+    }
+    return ((Grib1Index) index).getNRecords();
+  }
+
+  /**
+   * Keep the gbx9 indexes read while building collections in memory, so that rebuilding a collection in this JVM
+   * only reads the gbx9 indexes of new or changed files. Each record costs roughly 500 bytes, so 200,000 records
+   * is about 100 MB of heap. The indexes are not kept across restarts. Discards the ones already kept.
+   *
+   * @param maxRecords maximum number of records in the gbx9 indexes kept in memory; 0 (the default) disables it.
+   */
+  public static void setMaxCachedRecords(long maxRecords) {
+    previousIndexes = makeIndexCache(maxRecords);
+  }
+
+  /** Discard the gbx9 indexes kept in memory. */
+  public static void clearIndexCache() {
+    Cache<String, Object> cache = previousIndexes;
+    if (cache != null) {
+      cache.invalidateAll();
+    }
+  }
+
   protected final MCollection dcm;
   protected final org.slf4j.Logger logger;
   protected final boolean isGrib1;
@@ -30,6 +76,7 @@ public abstract class GribCollectionBuilder {
 
   protected final String name; // collection name
   protected final File directory; // top directory
+  private int filesRead, filesReused; // gbx9 indexes
 
   protected abstract List<? extends Group> makeGroups(List<MFile> allFiles, boolean singleRuntime, Formatter errlog)
       throws IOException;
@@ -46,6 +93,53 @@ public abstract class GribCollectionBuilder {
     this.directory = new File(dcm.getRoot());
   }
 
+  /** Reads the gbx9 index of a file, creating it if needed. */
+  protected interface IndexReader<T> {
+    @Nullable
+    T read(MFile mfile, Formatter errlog) throws IOException;
+  }
+
+  /**
+   * Read the gbx9 index of a file in this collection, or reuse the one read by a previous build of this collection,
+   * if the file has not changed since.
+   */
+  @Nullable
+  protected <T> T readIndex(MFile mfile, IndexReader<T> reader, Formatter errlog) throws IOException {
+    Cache<String, Object> cache = previousIndexes;
+    if (cache == null) {
+      T index = reader.read(mfile, errlog);
+      if (index != null) {
+        filesRead++;
+      }
+      return index;
+    }
+
+    String key =
+        dcm.getIndexFilename() + "|" + mfile.getPath() + "|" + mfile.getLength() + "|" + mfile.getLastModified();
+    @SuppressWarnings("unchecked")
+    T index = (T) cache.getIfPresent(key);
+    if (index != null) {
+      filesReused++;
+      return index;
+    }
+    index = reader.read(mfile, errlog);
+    if (index != null) {
+      cache.put(key, index);
+      filesRead++;
+    }
+    return index;
+  }
+
+  /** Number of gbx9 indexes read by the last createIndex(). */
+  public int getFilesRead() {
+    return filesRead;
+  }
+
+  /** Number of gbx9 indexes reused from a previous build by the last createIndex(). */
+  public int getFilesReused() {
+    return filesReused;
+  }
+
   //////////////////////////////////////////////////////////////////////////////////////////////////////////
 
   // Throw exception if failure
@@ -56,6 +150,8 @@ public abstract class GribCollectionBuilder {
   // Throw exception if failure
   private boolean createMultipleRuntimeCollections(Formatter errlog) throws IOException {
     long start = System.currentTimeMillis();
+    filesRead = 0;
+    filesReused = 0;
 
     List<MFile> files = new ArrayList<>();
     List<? extends Group> groups = makeGroups(files, false, errlog);
@@ -108,7 +204,7 @@ public abstract class GribCollectionBuilder {
         writeIndex(this.name, indexFileForRuntime.getPath(), masterRuntimes, groups, allFiles, calendarDateRangeAll);
 
     long took = System.currentTimeMillis() - start;
-    logger.debug("That took {} msecs", took);
+    logger.debug("That took {} msecs; gbx9 indexes read = {} reused = {}", took, filesRead, filesReused);
     return ok;
   }
 
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grib.collection;
+
+import dev.ucdm.grib.common.GribCollectionIndex;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * The GribCollections of the partitions of all partitioned collections, shared by all readers.
+ * A partition is read from its ncx4 index once, even when several threads want it at the same time.
+ * Each acquire() must be matched by a release(). Partitions that are not in use are closed in least recently used
+ * order when there are more than the maximum; partitions that are in use are never closed, so the cache may
+ * temporarily exceed its bound.
+ */
+public class PartitionCache {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PartitionCache.class);
+
+  private static int maxPartitions = 100;
+  private static final PartitionCache instance = new PartitionCache(PartitionCache::readPartition);
+
+  /** Set the maximum number of partitions that are kept open when not in use, default 100. */
+  public static void setMaxPartitions(int max) {
+    maxPartitions = Math.max(0, max);
+  }
+
+  /** The cache shared by all partitioned collections. */
+  public static PartitionCache getDefault() {
+    return instance;
+  }
+
+  private static GribCollection readPartition(Partitions.Partition partition) throws IOException {
+    Formatter errlog = new Formatter();
+    GribCollection result = GribCollectionIndex.readCollectionFromIndex(partition.getIndexPath(), true, errlog);
+    if (result == null) {
+      throw new IOException("Cant read partition " + partition.getIndexPath() + ": " + errlog);
+    }
+    return result;
+  }
+
+  /** Reads the GribCollection of a partition. */
+  interface Loader {
+    GribCollection load(Partitions.Partition partition) throws IOException;
+  }
+
+  /** Partition load metrics since the cache was created. */
+  public record Stats(long hits, long loads, long failures, long evictions, long loadMillis, int size) {
+    @Override
+    public String toString() {
+      return String.format("PartitionCache{size=%d hits=%d loads=%d failures=%d evictions=%d loadMillis=%d}", size,
+          hits, loads, failures, evictions, loadMillis);
+    }
+  }
+
+  // The index file is rewritten when the partition changes, so include lastModified
+  private record Key(String indexPath, long lastModified) {
+  }
+
+  private static class Entry {
+    final CompletableFuture<GribCollection> future = new CompletableFuture<>();
+    int refCount; // guarded by the cache
+  }
+
+  //////////////////////////////////////////////////////////////////////////////
+
+  private final Loader loader;
+  // access ordered, guarded by this
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long hits, loads, failures, evictions, loadNanos; // guarded by this
+
+  PartitionCache(Loader loader) {
+    this.loader = loader;
+  }
+
+  /**
+   * Get the GribCollection of the partition, reading it if needed. It stays open until release() is called.
+   * If another thread is reading it, wait for that.
+   */
+  public GribCollection acquire(Partitions.Partition partition) throws IOException {
+    Key key = new Key(partition.getIndexPath(), partition.lastModified());
+    Entry entry;
+    boolean mustLoad = false;
+    synchronized (this) {
+      entry = entries.get(key);
+      if (entry == null) {
+        entry = new Entry();
+        entries.put(key, entry);
+        mustLoad = true;
+      } else {
+        hits++;
+      }
+      entry.refCount++;
+    }
+
+    if (mustLoad) {
+      load(key, entry, partition);
+    }
+    try {
+      return entry.future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      release(entry);
+      throw new IOException("Interrupted reading partition " + key.indexPath, e);
+    } catch (ExecutionException e) {
+      release(entry);
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException ioe) {
+        throw ioe;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  private void load(Key key, Entry entry, Partitions.Partition partition) {
+    long start = System.nanoTime();
+    try {
+      GribCollection gc = loader.load(partition);
+      long took = System.nanoTime() - start;
+      synchronized (this) {
+        loads++;
+        loadNanos += took;
+      }
+      logger.debug("read partition {} in {} msecs", key.indexPath, took / 1000 / 1000);
+      entry.future.complete(gc);
+    } catch (Throwable t) {
+      synchronized (this) {
+        failures++;
+        // dont cache the failure, the next acquire tries again
+        entries.remove(key, entry);
+      }
+      entry.future.completeExceptionally(t);
+    }
+  }
+
+  /** Release a partition returned by acquire(). */
+  public void release(Partitions.Partition partition) {
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(new Key(partition.getIndexPath(), partition.lastModified()));
+    }
+    release(entry);
+  }
+
+  private void release(@Nullable Entry entry) {
+    List<GribCollection> evict = new ArrayList<>();
+    synchronized (this) {
+      if (entry != null && entry.refCount > 0) {
+        entry.refCount--;
+      }
+      int excess = entries.size() - maxPartitions;
+      Iterator<Entry> iter = entries.values().iterator();
+      while (iter.hasNext() && excess > 0) {
+        Entry oldest = iter.next();
+        if (oldest.refCount == 0 && oldest.future.isDone() && !oldest.future.isCompletedExceptionally()) {
+          evict.add(oldest.future.join());
+          iter.remove();
+          evictions++;
+          excess--;
+        }
+      }
+    }
+    close(evict); // outside the lock
+  }
+
+  /** Partition load metrics. */
+  public synchronized Stats getStats() {
+    return new Stats(hits, loads, failures, evictions, loadNanos / 1000 / 1000, entries.size());
+  }
+
+  /** Close all partitions that are not in use. */
+  public void clear() {
+    List<GribCollection> evict = new ArrayList<>();
+    synchronized (this) {
+      Iterator<Entry> iter = entries.values().iterator();
+      while (iter.hasNext()) {
+        Entry entry = iter.next();
+        if (entry.refCount == 0 && entry.future.isDone() && !entry.future.isCompletedExceptionally()) {
+          evict.add(entry.future.join());
+          iter.remove();
+        }
+      }
+    }
+    close(evict);
+  }
+
+  private static void close(List<GribCollection> evict) {
+    for (GribCollection gc : evict) {
+      try {
+        gc.close();
+      } catch (IOException e) {
+        logger.warn("Cant close partition {}: {}", gc.getName(), e.getMessage());
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return getStats().toString();
+  }
+}
@@ -8,9 +8,9 @@ package dev.ucdm.grib.collection;
 import com.google.common.collect.ImmutableList;
 import dev.ucdm.core.calendar.CalendarDate;
 import dev.ucdm.core.io.RandomAccessFile;
-import dev.ucdm.grib.common.GribCollectionIndex;
 import dev.ucdm.grib.common.GribConstants;
 import dev.ucdm.grib.common.PartitionedReaderRecord;
+import dev.ucdm.core.util.SharedExecutor;
 import dev.ucdm.grib.common.util.SmartArrayInt;
 import dev.ucdm.grib.coord.Coordinate;
 import dev.ucdm.grib.coord.CoordinateRuntime;
@@ -23,16 +23,31 @@ import org.jetbrains.annotations.Nullable;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Formatter;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
-/** Stored into, and read back from a partition collection index. */
+/**
+ * Stored into, and read back from a partition collection index.
+ * The GribCollections of the partitions are kept in the shared {@link PartitionCache}. A read request holds the
+ * partitions it uses with a {@link Lease}, and reads the ones it will need in parallel with prefetch().
+ */
 public class Partitions implements Closeable {
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(Partitions.class);
 
+  private static final SharedExecutor prefetchExecutor = new SharedExecutor("grib-prefetch", 8);
+
+  /** Set the number of threads, shared by all requests, used to read partitions in parallel, default 8. */
+  public static void setPrefetchThreads(int nthreads) {
+    prefetchExecutor.setThreads(nthreads);
+  }
+
   public record VariablePartition(int nparts, SmartArrayInt partnoSA, SmartArrayInt groupnoSA, SmartArrayInt varnoSA) {
   }
 
@@ -58,7 +73,6 @@ public class Partitions implements Closeable {
   public final boolean isPartitionOfPartitions;
   public final ImmutableList<Partition> partitions;
   public final int[] run2part; // masterRuntime.length; which partition to use for masterRuntime i
-  public final Map<Partition, GribCollection> partitionMap = new HashMap<>();
 
   public Partitions(GribCollection topCollection, boolean isPartitionOfPartitions, List<Partition> partitions, int[] run2part) {
     this.topCollection = topCollection;
@@ -73,31 +87,69 @@ public class Partitions implements Closeable {
 
   @Override
   public void close() throws IOException {
-    // LOOK remove these? call from GC.close ?
-    partitionMap.values().forEach( gc -> {
-      try {
-        gc.close();
-      } catch (IOException e) {
-        throw new RuntimeException(e);
-      }
-    });
+    // the partitions belong to the PartitionCache
   }
 
-  // reader must close
-  public GribCollection getGribCollectionForPartition(Partition partition) {
-    return partitionMap.computeIfAbsent(partition, (p) -> {
-      Formatter errlog = new Formatter();
-      try {
-        return GribCollectionIndex.readCollectionFromIndex(p.getIndexPath(), true, errlog);
-      } catch (IOException e) {
-        throw new RuntimeException(errlog.toString(), e);
+  /**
+   * Get the GribCollection of a partition from the PartitionCache, and hold it in the lease.
+   * It stays open until the lease is closed.
+   */
+  public GribCollection getGribCollectionForPartition(Partition partition, Lease lease) throws IOException {
+    return lease.get(partition);
+  }
+
+  /** Make a Lease on the partitions used by a read request. */
+  public static Lease lease() {
+    return new Lease(PartitionCache.getDefault());
+  }
+
+  /** The partitions used by one read request, which stay open until the lease is closed. Thread safe. */
+  public static class Lease implements Closeable {
+    private final PartitionCache cache;
+    private final Map<Partition, GribCollection> held = new HashMap<>(); // guarded by this
+
+    Lease(PartitionCache cache) {
+      this.cache = cache;
+    }
+
+    /** Get the GribCollection of the partition, and hold it until close(). */
+    public GribCollection get(Partition partition) throws IOException {
+      synchronized (this) {
+        GribCollection gc = held.get(partition);
+        if (gc != null) {
+          return gc;
+        }
+      }
+      GribCollection gc = cache.acquire(partition);
+      synchronized (this) {
+        GribCollection already = held.putIfAbsent(partition, gc);
+        if (already == null) {
+          return gc;
+        }
+      }
+      cache.release(partition); // another thread got it first
+      return gc;
+    }
+
+    synchronized int size() {
+      return held.size();
+    }
+
+    @Override
+    public void close() {
+      List<Partition> release;
+      synchronized (this) {
+        release = new ArrayList<>(held.keySet());
+        held.clear();
       }
-    }); // not closing (!)
+      release.forEach(cache::release);
+    }
   }
 
-  public RandomAccessFile getDataRaf(int partno, int fileno) throws IOException {
+  /** Open a data file of a partition. The partition is held in the lease, which must stay open while its used. */
+  public RandomAccessFile getDataRaf(int partno, int fileno, Lease lease) throws IOException {
     Partition partition = partitions.get(partno);
-    GribCollection gc = getGribCollectionForPartition(partition);
+    GribCollection gc = lease.get(partition);
     return new RandomAccessFile(gc.getFilename(fileno), "r");
   }
 
@@ -129,6 +181,37 @@ public class Partitions implements Closeable {
     }
   }
 
+  /**
+   * Read the partitions that the requests will need, in parallel, and hold them in the lease.
+   * For a partition of partitions, only the top level partitions are prefetched.
+   *
+   * @param indexesWanted the source index requests, excluding x and y, as passed to getPartitionedReaderRecord()
+   */
+  public static void prefetch(VariableIndex vi, List<int[]> indexesWanted, Lease lease) throws IOException {
+    Partitions partitions = vi.gribCollection.partitions;
+    Set<Partition> wanted = new LinkedHashSet<>();
+    for (int[] indexWanted : indexesWanted) {
+      int partno = findPartno(vi, indexWanted);
+      if (partno >= 0) {
+        wanted.add(partitions.partitions.get(partno));
+      }
+    }
+    if (wanted.isEmpty()) {
+      return;
+    }
+
+    long start = System.nanoTime();
+    List<Callable<GribCollection>> tasks = new ArrayList<>(wanted.size());
+    for (Partition partition : wanted) {
+      tasks.add(() -> lease.get(partition));
+    }
+    prefetchExecutor.run(tasks, "reading partitions of " + partitions.name());
+    if (logger.isDebugEnabled()) {
+      logger.debug("prefetch {} partitions of {} in {} msecs; {}", wanted.size(), partitions.name(),
+          (System.nanoTime() - start) / 1000 / 1000, PartitionCache.getDefault().getStats());
+    }
+  }
+
   /**
    * find the data record for a request. TODO review, too complicated
    *
@@ -137,7 +220,55 @@ public class Partitions implements Closeable {
    */
   @Nullable
   public static PartitionedReaderRecord getPartitionedReaderRecord(VariableIndex vi, int[] indexWanted) throws IOException {
+    try (Lease lease = lease()) {
+      return getPartitionedReaderRecord(vi, indexWanted, lease);
+    }
+  }
+
+  /**
+   * find the data record for a request, holding the partitions it uses in the lease.
+   *
+   * @param indexWanted the source index request, excluding x and y
+   * @return DataRecord pointing to where the data is, or null if missing
+   */
+  @Nullable
+  public static PartitionedReaderRecord getPartitionedReaderRecord(VariableIndex vi, int[] indexWanted, Lease lease)
+      throws IOException {
+    int partno = findPartno(vi, indexWanted);
+    if (partno < 0) {
+      return null; // may be impossible?
+    }
+
+    // the 2D component variable in the partno partition
+    VariableIndex vindex2Dpart = getVindex2D(vi, partno, lease);
+    if (vindex2Dpart == null) {
+      return null; // missing
+    }
 
+    if (vi.gribCollection.isPartitionOfPartitions()) {
+      return getDataRecordPofP(vi, indexWanted, vindex2Dpart, lease);
+    }
+
+    // translate to coordinates in vindex
+    int[] sourceIndex = translateIndex2D(vi, indexWanted, vindex2Dpart);
+
+    if (sourceIndex == null) {
+      return null; // missing
+    }
+    
+    GribCollection.ReadRecord record = vindex2Dpart.getRecordAt(sourceIndex);
+    if (record == null) {
+      return null;
+    }
+
+    if (GribConstants.debugRead) {
+      logger.debug("  result success: partno={} fileno={}", partno, record.fileno());
+    }
+    return new PartitionedReaderRecord(vi.gribCollection.partitions, partno, vindex2Dpart.group.getGdsHorizCoordSys(), record);
+  }
+
+  /** The partition that has the record for the request, or -1 if none. */
+  private static int findPartno(VariableIndex vi, int[] indexWanted) {
     if (GribConstants.debugRead) {
       logger.debug("PartitionCollection.getDataRecord index wanted = ({}) on {} type={}",
               Arrays.toString(indexWanted), vi.gribCollection.indexFilename, vi.group.ds.gctype);
@@ -183,37 +314,7 @@ public class Partitions implements Closeable {
     }
 
     // TODO may be the topCollection ??
-    int partno = vi.gribCollection.partitions.run2part[masterIdx];
-    if (partno < 0) {
-      return null; // may be impossible?
-    }
-
-    // the 2D component variable in the partno partition
-    VariableIndex vindex2Dpart = getVindex2D(vi, partno);
-    if (vindex2Dpart == null) {
-      return null; // missing
-    }
-
-    if (vi.gribCollection.isPartitionOfPartitions()) {
-      return getDataRecordPofP(vi, indexWanted, vindex2Dpart);
-    }
-
-    // translate to coordinates in vindex
-    int[] sourceIndex = translateIndex2D(vi, indexWanted, vindex2Dpart);
-
-    if (sourceIndex == null) {
-      return null; // missing
-    }
-    
-    GribCollection.ReadRecord record = vindex2Dpart.getRecordAt(sourceIndex);
-    if (record == null) {
-      return null;
-    }
-
-    if (GribConstants.debugRead) {
-      logger.debug("  result success: partno={} fileno={}", partno, record.fileno());
-    }
-    return new PartitionedReaderRecord(vi.gribCollection.partitions, partno, vindex2Dpart.group.getGdsHorizCoordSys(), record);
+    return (masterIdx < 0) ? -1 : vi.gribCollection.partitions.run2part[masterIdx];
   }
 
   /**
@@ -223,7 +324,7 @@ public class Partitions implements Closeable {
    * @return VariableIndex or null if not exists
    */
   @Nullable
-  private static VariableIndex getVindex2D(VariableIndex vi, int partno) throws IOException {
+  private static VariableIndex getVindex2D(VariableIndex vi, int partno, Lease lease) throws IOException {
     // at this point, we need to instantiate the Partition and the vindex.records
 
     // the 2D vip for this variable
@@ -241,7 +342,7 @@ public class Partitions implements Closeable {
 
     // ensure that the vpart.readRecords() sparseArray feilds was read in
     Partition p = vi.gribCollection.partitions.partitions.get(partno);
-    GribCollection gc = vi.gribCollection.partitions.getGribCollectionForPartition(p);
+    GribCollection gc = lease.get(p);
     GribCollection.Dataset ds = gc.getDatasetCanonical(); // always references the twoD or GC dataset
     // the group and variable index may vary across partitions
     int groupno = vip.groupnoSA.get(partWant); // TODO partWant vs partno ??
@@ -332,7 +433,8 @@ public class Partitions implements Closeable {
    * @return desired record to be read, from the GC, or null if missing
    */
   @Nullable
-  private static PartitionedReaderRecord getDataRecordPofP(VariableIndex vi, int[] indexWanted, VariableIndex compVindex2Dp) throws IOException {
+  private static PartitionedReaderRecord getDataRecordPofP(VariableIndex vi, int[] indexWanted, VariableIndex compVindex2Dp,
+      Lease lease) throws IOException {
       // corresponding index into compVindex2Dp
       int[] indexWantedP = translateIndex2D(vi, indexWanted, compVindex2Dp);
       if (GribConstants.debugRead)
@@ -340,6 +442,6 @@ public class Partitions implements Closeable {
       if (indexWantedP == null) {
         return null;
       }
-      return getPartitionedReaderRecord(compVindex2Dp, indexWantedP);
+      return getPartitionedReaderRecord(compVindex2Dp, indexWantedP, lease);
   }
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grib.collection;
+
+import com.google.common.base.Preconditions;
+import dev.ucdm.array.Immutable;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * The records of a variable, stored as one primitive array per field instead of one object per record.
+ * A ReadRecord is made when it is asked for, and not kept.
+ */
+@Immutable
+class ReadRecordList extends AbstractList<GribCollection.ReadRecord> implements RandomAccess {
+  private final int[] fileno;
+  private final long[] pos;
+  private final int[] bmsOffset;
+  private final int[] drsOffset;
+
+  /** The arrays are not copied, and must not be modified. */
+  ReadRecordList(int[] fileno, long[] pos, int[] bmsOffset, int[] drsOffset) {
+    Preconditions.checkArgument(pos.length == fileno.length);
+    Preconditions.checkArgument(bmsOffset.length == fileno.length);
+    Preconditions.checkArgument(drsOffset.length == fileno.length);
+    this.fileno = fileno;
+    this.pos = pos;
+    this.bmsOffset = bmsOffset;
+    this.drsOffset = drsOffset;
+  }
+
+  @Override
+  public GribCollection.ReadRecord get(int index) {
+    return new GribCollection.ReadRecord(fileno[index], pos[index], bmsOffset[index], drsOffset[index]);
+  }
+
+  @Override
+  public int size() {
+    return fileno.length;
+  }
+}
@@ -313,11 +313,18 @@ public class VariableIndex implements Comparable<VariableIndex> {
         track[i] = proto.getTrack(i);
 
       int n = proto.getRecordsCount();
-      List<GribCollection.ReadRecord> records = new ArrayList<>(n);
+      int[] fileno = new int[n];
+      long[] pos = new long[n];
+      int[] bmsOffset = new int[n];
+      int[] drsOffset = new int[n];
       for (int i = 0; i < n; i++) {
         GribCollectionProto.Record pr = proto.getRecords(i);
-        records.add(new GribCollection.ReadRecord(pr.getFileno(), pr.getStartPos(), pr.getBmsOffset(), pr.getDrsOffset()));
+        fileno[i] = pr.getFileno();
+        pos[i] = pr.getStartPos();
+        bmsOffset[i] = pr.getBmsOffset();
+        drsOffset[i] = pr.getDrsOffset();
       }
+      List<GribCollection.ReadRecord> records = new ReadRecordList(fileno, pos, bmsOffset, drsOffset);
       int ndups = proto.getNdups();
       this.sparseArray = new SparseArray<>(size, track, records, ndups);
 
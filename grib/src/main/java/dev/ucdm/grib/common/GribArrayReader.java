@@ -12,12 +12,15 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Formatter;
 import java.util.List;
+import java.util.concurrent.Callable;
 import dev.ucdm.array.Immutable;
 
 import dev.ucdm.grib.collection.CollectionType;
 import dev.ucdm.grib.collection.GribCollection;
+import dev.ucdm.grib.collection.Partitions;
 import dev.ucdm.grib.collection.VariableIndex;
 import dev.ucdm.grib.common.util.SectionIterable;
+import dev.ucdm.core.util.SharedExecutor;
 import dev.ucdm.grib.coord.CoordinateTime2D;
 import dev.ucdm.grib.coord.TimeCoordIntvDateValue;
 import dev.ucdm.grib.grib1.iosp.Grib1Parameter;
@@ -28,6 +31,7 @@ import dev.ucdm.grib.grib1.table.Grib1Customizer;
 import dev.ucdm.grib.grib2.record.Grib2Record;
 import dev.ucdm.grib.grib2.record.Grib2RecordScanner;
 import dev.ucdm.grib.grib2.table.Grib2Tables;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import dev.ucdm.array.Array;
@@ -54,6 +58,13 @@ public abstract class GribArrayReader {
 
   protected abstract void show(RandomAccessFile rafData, long dataPos) throws IOException;
 
+  private static final SharedExecutor pointReadExecutor = new SharedExecutor("grib-points", 4);
+
+  /** Set the number of threads, shared by all requests, used by readPoints() to read data files, default 4. */
+  public static void setPointReadThreads(int nthreads) {
+    pointReadExecutor.setThreads(nthreads);
+  }
+
   /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   public static GribCollection.ReadRecord currentDataRecord;
   public static GribDataValidator validator;
@@ -82,6 +93,37 @@ public abstract class GribArrayReader {
       return readDataFromPartition(vindex, want);
   }
 
+  /**
+   * Read the values at a set of (x, y) points, for all of the other indices that are wanted, for example a time
+   * series at each point. The records are grouped by data file, and the files are read in parallel.
+   * Where the packing allows, only the values at the points are decoded.
+   *
+   * @param want which data do you want? The x and y ranges are ignored.
+   * @param xindex the x index of each point, or -1 if the point is not in the grid
+   * @param yindex the y index of each point, or -1 if the point is not in the grid
+   * @return the values of the first point, then of the second point, etc; n = the size of want without x and y, so
+   *         values[point * n + i]. NaN where missing.
+   */
+  public float[] readPoints(SectionIterable want, int[] xindex, int[] yindex) throws IOException {
+    Preconditions.checkArgument(xindex.length == yindex.length);
+    int rank = want.getRank();
+    SectionIterable sectionWanted = want.subSection(0, rank - 2); // all but x, y
+    int n = (int) Arrays.computeSize(sectionWanted.getShape());
+    float[] result = new float[xindex.length * n];
+    java.util.Arrays.fill(result, Float.NaN);
+
+    if (vindex.vpartition == null) {
+      collectRecords(vindex, sectionWanted);
+      readPointRecords(result, n, xindex, yindex, null);
+    } else {
+      try (Partitions.Lease lease = Partitions.lease()) {
+        collectPartitionedRecords(vindex, wantedIndices(vindex, sectionWanted), lease);
+        readPointRecords(result, n, xindex, yindex, lease);
+      }
+    }
+    return result;
+  }
+
   /*
    * SectionIterable iterates over the source indexes, corresponding to vindex's SparseArray.
    * IOSP: works because variable coordinate corresponds 1-1 to Grib Coordinate.
@@ -90,15 +132,21 @@ public abstract class GribArrayReader {
    */
   private Array<?> readDataFromCollection(VariableIndex vindex, SectionIterable want)
       throws IOException {
+    int rank = want.getRank();
+    collectRecords(vindex, want.subSection(0, rank - 2)); // all but x, y
+
+    // sort by file and position, then read
+    DataReceiverIF dataReceiver = new DataReceiver(want.getShape(), want.getRange(rank - 2), want.getRange(rank - 1));
+    read(dataReceiver);
+    return dataReceiver.getArray();
+  }
+
+  // collect all the records that need to be read
+  private void collectRecords(VariableIndex vindex, SectionIterable sectionWanted) throws IOException {
     // first time, read records and keep in memory
     vindex.readRecords(gribCollection);
-
-    int rank = want.getRank();
-    int sectionLen = rank - 2; // all but x, y
-    SectionIterable sectionWanted = want.subSection(0, sectionLen);
     // assert sectionLen == vindex.getRank(); TODO true or false ??
 
-    // collect all the records that need to be read
     int resultIndex = 0;
     for (int sourceIndex : sectionWanted) {
       // addRecord(sourceIndex, count++);
@@ -107,32 +155,40 @@ public abstract class GribArrayReader {
         records.add(new GribReaderRecord(resultIndex, record, vindex.group.getGdsHorizCoordSys()));
       resultIndex++;
     }
-
-    // sort by file and position, then read
-    DataReceiverIF dataReceiver = new DataReceiver(want.getShape(), want.getRange(rank - 2), want.getRange(rank - 1));
-    read(dataReceiver);
-    return dataReceiver.getArray();
   }
 
   /*
    * Iterates using SectionIterable.next(int[] index).
    * The work of translating that down into partition heirarchy and finally to a GC is all in
-   * VariableIndexPartitioned.getDataRecord(int[] index)
+   * Partitions.getPartitionedReaderRecord(VariableIndex vi, int[] index)
    * want.getShape() indicates the result Array shape.
+   * The partitions that are needed are read in parallel first, and held until the data is read.
    */
   private Array<?> readDataFromPartition(VariableIndex vi, SectionIterable want) throws IOException {
-
     int rank = want.getRank();
-    SectionIterable sectionWanted = want.subSection(0, rank - 2); // all but x, y
+    List<int[]> useIndices = wantedIndices(vi, want.subSection(0, rank - 2)); // all but x, y
+
+    try (Partitions.Lease lease = Partitions.lease()) {
+      collectPartitionedRecords(vi, useIndices, lease);
+
+      // sort by file and position, then read
+      DataReceiverIF dataReceiver =
+          new DataReceiver(want.getShape(), want.getRange(rank - 2), want.getRange(rank - 1));
+      readPartitioned(dataReceiver, lease);
+      return dataReceiver.getArray();
+    }
+  }
+
+  // collect all the indices that are wanted
+  private static List<int[]> wantedIndices(VariableIndex vi, SectionIterable sectionWanted) {
     SectionIterable.SectionIterator iterWanted = sectionWanted.getIterator(); // iterator over wanted indices
                                                                               // in vindexP
-    int[] indexWanted = new int[rank - 2]; // place to put the iterator result
-    int[] useIndex = indexWanted;
+    int[] indexWanted = new int[sectionWanted.getRank()]; // place to put the iterator result
 
-    // collect all the records that need to be read
-    int resultPos = 0;
+    List<int[]> useIndices = new ArrayList<>();
     while (iterWanted.hasNext()) {
       iterWanted.next(indexWanted); // returns the vindexP index in indexWanted array
+      int[] useIndex = indexWanted.clone();
 
       // TODO for MRUTP, must munge the index here (not in vindexP.getDataRecord, because its recursive
       if (vi.group.ds.gctype == CollectionType.MRUTP) {
@@ -147,8 +203,19 @@ public abstract class GribArrayReader {
         System.arraycopy(indexWanted, 1, indexReallyWanted, 2, indexWanted.length - 1);
         useIndex = indexReallyWanted;
       }
+      useIndices.add(useIndex);
+    }
+    return useIndices;
+  }
+
+  // the partitions that are needed are read in parallel, then the records are collected
+  private void collectPartitionedRecords(VariableIndex vi, List<int[]> useIndices, Partitions.Lease lease)
+      throws IOException {
+    Partitions.prefetch(vi, useIndices, lease);
 
-      PartitionedReaderRecord record = gribCollection.partitions.getPartitionedReaderRecord(vi, useIndex);
+    int resultPos = 0;
+    for (int[] useIndex : useIndices) {
+      PartitionedReaderRecord record = Partitions.getPartitionedReaderRecord(vi, useIndex, lease);
       if (record == null) {
         resultPos++; // can just skip, since result is prefilled with NaNs
         continue;
@@ -157,12 +224,6 @@ public abstract class GribArrayReader {
       records.add(record);
       resultPos++;
     }
-
-    // sort by file and position, then read
-    DataReceiverIF dataReceiver =
-        new DataReceiver(want.getShape(), want.getRange(rank - 2), want.getRange(rank - 1));
-    readPartitioned(dataReceiver);
-    return dataReceiver.getArray();
   }
 
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -217,7 +278,7 @@ public abstract class GribArrayReader {
     System.out.printf("Coords wanted%n %s", validation);
   }
 
-  private void readPartitioned(DataReceiverIF dataReceiver) throws IOException {
+  private void readPartitioned(DataReceiverIF dataReceiver, Partitions.Lease lease) throws IOException {
     Collections.sort(records);
 
     PartitionedReaderRecord lastRecord = null;
@@ -231,7 +292,7 @@ public abstract class GribArrayReader {
           if (rafData != null) {
             rafData.close();
           }
-          rafData = drp.usePartition.getDataRaf(drp.partno, dr.record.fileno());
+          rafData = drp.usePartition.getDataRaf(drp.partno, dr.record.fileno(), lease);
         }
         lastRecord = drp;
 
@@ -257,6 +318,89 @@ public abstract class GribArrayReader {
     }
   }
 
+  private static boolean sameFile(GribReaderRecord r1, GribReaderRecord r2) {
+    if (r1 instanceof PartitionedReaderRecord p1) {
+      return p1.usesSameFile((PartitionedReaderRecord) r2);
+    }
+    return r1.record.fileno() == r2.record.fileno();
+  }
+
+  // lease is not null if the records are partitioned
+  private RandomAccessFile getDataRaf(GribReaderRecord dr, @Nullable Partitions.Lease lease) throws IOException {
+    if (dr instanceof PartitionedReaderRecord drp) {
+      Preconditions.checkNotNull(lease);
+      return drp.usePartition.getDataRaf(drp.partno, dr.record.fileno(), lease);
+    }
+    return gribCollection.getDataRaf(dr.record.fileno());
+  }
+
+  // read the records of each data file in its own thread
+  private void readPointRecords(float[] result, int n, int[] xindex, int[] yindex, @Nullable Partitions.Lease lease)
+      throws IOException {
+    Collections.sort(records);
+    List<List<GribReaderRecord>> byFile = new ArrayList<>();
+    GribReaderRecord last = null;
+    for (GribReaderRecord dr : records) {
+      if (dr.record.pos() == GribCollection.MISSING_RECORD) {
+        continue;
+      }
+      if (last == null || !sameFile(last, dr)) {
+        byFile.add(new ArrayList<>());
+      }
+      byFile.get(byFile.size() - 1).add(dr);
+      last = dr;
+    }
+
+    List<Callable<Void>> tasks = new ArrayList<>(byFile.size());
+    for (List<GribReaderRecord> fileRecords : byFile) {
+      tasks.add(() -> {
+        readPointRecords(fileRecords, result, n, xindex, yindex, lease);
+        return null;
+      });
+    }
+    pointReadExecutor.run(tasks, "reading points of " + vindex);
+  }
+
+  // the records all use the same data file; each record writes its own elements of the result
+  private void readPointRecords(List<GribReaderRecord> fileRecords, float[] result, int n, int[] xindex, int[] yindex,
+      @Nullable Partitions.Lease lease) throws IOException {
+    // the points in the grid
+    int[] found = new int[xindex.length];
+    int nfound = 0;
+    for (int p = 0; p < xindex.length; p++) {
+      if (xindex[p] >= 0 && yindex[p] >= 0) {
+        found[nfound++] = p;
+      }
+    }
+    found = java.util.Arrays.copyOf(found, nfound);
+    if (nfound == 0) {
+      return;
+    }
+
+    try (RandomAccessFile rafData = getDataRaf(fileRecords.get(0), lease)) {
+      int[] index = new int[nfound];
+      for (GribReaderRecord dr : fileRecords) {
+        for (int k = 0; k < nfound; k++) {
+          index[k] = yindex[found[k]] * dr.hcs.nx + xindex[found[k]];
+        }
+        float[] values = readPoints(rafData, dr, index);
+        for (int k = 0; k < nfound; k++) {
+          result[found[k] * n + dr.resultIndex] = values[k];
+        }
+      }
+    }
+  }
+
+  /** Read the values at the indices (y * nx + x) of the record. By default the whole field is read. */
+  protected float[] readPoints(RandomAccessFile rafData, GribReaderRecord dr, int[] index) throws IOException {
+    float[] data = readData(rafData, dr);
+    float[] result = new float[index.length];
+    for (int k = 0; k < index.length; k++) {
+      result[k] = data[index[k]];
+    }
+    return result;
+  }
+
   public interface DataReceiverIF {
     void addData(float[] data, int resultIndex, int nx);
 
@@ -333,6 +477,16 @@ public abstract class GribArrayReader {
           hcs.nyRaw, hcs.nptsInLine);
     }
 
+    @Override
+    protected float[] readPoints(RandomAccessFile rafData, GribReaderRecord dr, int[] index) throws IOException {
+      GdsHorizCoordSys hcs = dr.hcs;
+      long dataPos = dr.record.pos() + dr.record.drsOffset();
+      long bmsPos = (dr.record.bmsOffset() > 0) ? dr.record.pos() + dr.record.bmsOffset() : 0;
+      float[] result = Grib2Record.readPoints(rafData, dataPos, bmsPos, hcs.gdsNumberPoints, hcs.getScanMode(),
+          hcs.nxRaw, hcs.nptsInLine, index);
+      return (result != null) ? result : super.readPoints(rafData, dr, index);
+    }
+
     @Override
     protected void show(RandomAccessFile rafData, long pos) throws IOException {
       Grib2Record gr = Grib2RecordScanner.findRecordByDrspos(rafData, pos);
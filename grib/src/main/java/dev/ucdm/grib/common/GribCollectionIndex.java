@@ -5,13 +5,13 @@
 
 package dev.ucdm.grib.common;
 
-import dev.ucdm.core.calendar.CalendarDate;
 import dev.ucdm.grib.inventory.SingleFileMCollection;
 import org.jetbrains.annotations.Nullable;
 
 import com.google.common.base.Preconditions;
 
 import dev.ucdm.grib.inventory.CollectionUpdate;
+import dev.ucdm.grib.inventory.InventoryDiff;
 import dev.ucdm.grib.collection.Grib1Collection;
 import dev.ucdm.grib.collection.Grib1CollectionBuilder;
 import dev.ucdm.grib.collection.Grib2Collection;
@@ -30,9 +30,12 @@ import dev.ucdm.grib.protoconvert.Grib2CollectionIndexWriter;
 import dev.ucdm.grib.protoconvert.GribCollectionIndexWriter;
 
 import dev.ucdm.core.io.RandomAccessFile;
+import dev.ucdm.core.util.KeyedWork;
+import dev.ucdm.core.util.ManagedDiskCache;
 import dev.ucdm.core.util.StringUtil2;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Formatter;
@@ -48,6 +51,8 @@ public class GribCollectionIndex {
 
   public static final String NCX_SUFFIX = ".ncx4";
 
+  private static final KeyedWork<Boolean> building = new KeyedWork<>();
+
   // raf is a single data file or an ncx4 file
   @Nullable
   public static GribCollection openGribCollectionFromRaf(
@@ -91,6 +96,9 @@ public class GribCollectionIndex {
   /**
    * The general case of creating a collection from Grib data or gbx files.
    * If the corresponding ncx4 file exists, use it, update it, or create it.
+   * With CollectionUpdate.test, the files stored in the existing ncx4 are compared with the files in the collection
+   * (path, length and lastModified), and the index is rebuilt only if they differ. The rebuild only reads the gbx9
+   * indexes of new or changed files, if this collection was built before in this process.
    */
   @Nullable
   public static GribCollection updateCollectionIndex(
@@ -103,11 +111,18 @@ public class GribCollectionIndex {
 
     GribCollection gribCollection = null;
     if (idxFileExists && update != CollectionUpdate.always) { // always create a new index
-      // look to see if the index file is older than the collection
-      boolean indexIsOlder = CalendarDate.of(idxFile.lastModified()).isBefore(dcm.getLastModified());
-      // dont read it if index is older
-      if (update == CollectionUpdate.nocheck || update == CollectionUpdate.never || !indexIsOlder) {
-        gribCollection = readCollectionFromIndex(dcm.getIndexFilename(), false, errlog);
+      gribCollection = readCollectionFromIndex(idxPath, true, errlog);
+      if (gribCollection != null && update == CollectionUpdate.test) {
+        // dont use it if the files have changed
+        InventoryDiff diff = InventoryDiff.compare(gribCollection.getFiles(), dcm);
+        if (!diff.isEmpty()) {
+          logger.debug("  Index {} is out of date: {}", idxPath, diff);
+          gribCollection.close();
+          gribCollection = null;
+        }
+      }
+      if (gribCollection != null) {
+        GribIndexCache.hit(idxFile);
       }
     }
 
@@ -127,8 +142,8 @@ public class GribCollectionIndex {
         logger.warn("  Index writing failed on {} errlog = '{}'", idxFile2, errlog);
 
       } else {
-        // read it back in
-        gribCollection = readCollectionFromIndex(dcm.getIndexFilename(), false, errlog);
+        // read it back in, from wherever it was written
+        gribCollection = readCollectionFromIndex(idxPath, true, errlog);
         logger.debug("  Index written: {}", idxPath);
       }
     } else {
@@ -138,8 +153,22 @@ public class GribCollectionIndex {
     return gribCollection;
   }
 
-  /** create ncx4 file. The GribConfig is attached to the MCollection */
+  /** create ncx4 file. The GribConfig is attached to the MCollection. Only one thread at a time builds any index. */
   public static boolean createCollectionIndex(boolean isGrib1, MCollection dcm, GribConfig config, Formatter errlog) throws IOException {
+    try {
+      return building.run(dcm.getIndexFilename(), () -> buildCollectionIndex(isGrib1, dcm, config, errlog));
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting to build " + dcm.getIndexFilename());
+    } catch (Exception e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static boolean buildCollectionIndex(boolean isGrib1, MCollection dcm, GribConfig config, Formatter errlog)
+      throws IOException {
     if (isGrib1) {
       Grib1CollectionBuilder builder = new Grib1CollectionBuilder(dcm.getCollectionName(), dcm, config, logger);
       if (!builder.createIndex(errlog)) {
@@ -154,8 +183,10 @@ public class GribCollectionIndex {
     return true;
   }
 
-  /** read existing ncx4 file */
-  // LOOK what is useCache??
+  /**
+   * read existing ncx4 file. The file is pinned in the GribIndexCache while it is read.
+   * If useCache, look for it with GribIndexCache.getExistingFileOrCache(), else use indexFilename as is.
+   */
   @Nullable
   public static GribCollection readCollectionFromIndex(String indexFilename, boolean useCache, Formatter errlog) throws IOException {
     File indexFileInCache = useCache ? GribIndexCache.getExistingFileOrCache(indexFilename) : new File(indexFilename);
@@ -164,12 +195,12 @@ public class GribCollectionIndex {
       return null;
     }
 
-    // LOOK shouldnt we be using this?
     String indexFilenameInCache = indexFileInCache.getPath();
     String dataName = makeNameFromIndexFilename(indexFilename);
 
     GribCollection result;
-    try (RandomAccessFile raf = new RandomAccessFile(indexFilename, "r")) {
+    try (ManagedDiskCache.Pin pin = GribIndexCache.pin(indexFileInCache);
+        RandomAccessFile raf = new RandomAccessFile(indexFilenameInCache, "r")) {
       GribCollectionIndex.Type collectionType = getType(raf);
       if (collectionType == Type.none) {
         errlog.format("indexFilename %s not a GribCollectionIndex%n", indexFilename);
@@ -51,6 +51,9 @@ public abstract class GribIndex {
       // read existing if its not older than the data file
       if (idxFile.lastModified() <= mfile.getLastModified()) {
         index = Grib2IndexProto.readGrib2Index(idxFile.getAbsolutePath());
+        if (index != null) {
+          GribIndexCache.hit(idxFile);
+        }
       }
     }
 
@@ -63,7 +66,10 @@ public abstract class GribIndex {
         return null;
       }
 
-      if (!Grib2IndexProto.writeGrib2Index(mfile.getPath(), idxFile2, errlog)) {
+      // write to a temporary file, then publish it atomically
+      File written = GribIndexCache.publish(idxFile2,
+          temp -> Grib2IndexProto.writeGrib2Index(mfile.getPath(), temp, errlog));
+      if (written == null) {
         logger.warn("  Index writing failed on {} errlog = '{}'", mfile.getPath(), errlog);
       } else {
         // read it back in
@@ -102,6 +108,9 @@ public abstract class GribIndex {
     if (idxFileExists) {
       if (idxFile.lastModified() <= mfile.getLastModified()) {
         index = Grib1IndexProto.readGrib1Index(idxFile.getAbsolutePath());
+        if (index != null) {
+          GribIndexCache.hit(idxFile);
+        }
       }
     }
 
@@ -114,7 +123,10 @@ public abstract class GribIndex {
         return null;
       }
 
-      if (!Grib1IndexProto.writeGrib1Index(mfile.getPath(), idxFile2, errlog)) {
+      // write to a temporary file, then publish it atomically
+      File written = GribIndexCache.publish(idxFile2,
+          temp -> Grib1IndexProto.writeGrib1Index(mfile.getPath(), temp, errlog));
+      if (written == null) {
         logger.warn("  Index writing failed on {} errlog = '{}'", mfile.getPath(), errlog);
       } else {
         // read it back in
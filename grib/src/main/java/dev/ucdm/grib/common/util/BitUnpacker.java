@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grib.common.util;
+
+import com.google.common.base.Preconditions;
+import dev.ucdm.core.io.RandomAccessFile;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Unpacks bit packed data from an in-memory copy of the data section. Same results as {@link BitReader}, but
+ * the whole section is read with one call, and values are extracted from 64-bit big-endian words instead of one byte
+ * at a time. Use {@link #unpack} to decode a run of values with the same bit width in one call.
+ * Not thread-safe.
+ */
+public final class BitUnpacker {
+  private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+  private static final int PAD = Long.BYTES;
+
+  private final byte[] buf;
+  private final int nbytes; // valid bytes in buf
+  private final int wordLimit; // last byte index where a full word can be read from buf
+  private long bitPos; // bit position in buf of the next value
+
+  /**
+   * Read nbytes of bit packed data from the file into memory. Bytes past the end of the file are read as zero.
+   *
+   * @param raf the RandomAccessFile
+   * @param startPos points to start of data in data section, in bytes
+   * @param nbytes number of bytes of packed data
+   */
+  public static BitUnpacker read(RandomAccessFile raf, long startPos, int nbytes) throws IOException {
+    int have = (int) Math.max(0, Math.min(nbytes, raf.length() - startPos));
+    byte[] buf = new byte[have + PAD];
+    raf.seek(startPos);
+    raf.readFully(buf, 0, have);
+    return new BitUnpacker(buf, have);
+  }
+
+  /** Unpack from the bytes in data. */
+  public BitUnpacker(byte[] data) {
+    this(Arrays.copyOf(data, data.length + PAD), data.length);
+  }
+
+  private BitUnpacker(byte[] buf, int nbytes) {
+    this.buf = buf;
+    this.nbytes = nbytes;
+    this.wordLimit = buf.length - PAD;
+  }
+
+  /** The number of bytes of packed data. */
+  public int getLength() {
+    return nbytes;
+  }
+
+  /** The bit offset of the next value from the start of the data. */
+  public long getBitPos() {
+    return bitPos;
+  }
+
+  /** Set the bit offset of the next value from the start of the data. */
+  public void setBitPos(long bitPos) {
+    Preconditions.checkArgument(bitPos >= 0);
+    this.bitPos = bitPos;
+  }
+
+  /** Skip to the start of the next byte, unless already on a byte boundary. Same as BitReader.incrByte(). */
+  public void alignToByte() {
+    bitPos = (bitPos + 7) & ~7L;
+  }
+
+  /**
+   * Read the next nb bits and return the value as an unsigned long.
+   *
+   * @param nb the number of bits, must be 0 &le; nb &le; 64.
+   */
+  public long bits2UInt(int nb) {
+    Preconditions.checkArgument(nb >= 0 && nb <= 64);
+    if (nb == 0) {
+      return 0;
+    }
+    long result;
+    int shift = (int) (bitPos & 7);
+    if (nb <= 64 - shift) {
+      result = (word((int) (bitPos >>> 3)) << shift) >>> (64 - nb);
+    } else {
+      // value spans 9 bytes
+      int hi = nb - 8;
+      long high = (word((int) (bitPos >>> 3)) << shift) >>> (64 - hi);
+      long low = (word((int) ((bitPos + hi) >>> 3)) << ((bitPos + hi) & 7)) >>> 56;
+      result = (high << 8) | low;
+    }
+    bitPos += nb;
+    return result;
+  }
+
+  /**
+   * Read the next n values of nb bits each into dest[destPos .. destPos + n).
+   * For nb = 32, the values are the unsigned bit patterns; use Integer.toUnsignedLong() to get the value.
+   *
+   * @param nb the number of bits in each value, must be 0 &le; nb &le; 32.
+   */
+  public void unpack(int nb, int[] dest, int destPos, int n) {
+    Preconditions.checkArgument(nb >= 0 && nb <= 32);
+    Preconditions.checkPositionIndexes(destPos, destPos + n, dest.length);
+    if (nb == 0) {
+      Arrays.fill(dest, destPos, destPos + n, 0);
+      return;
+    }
+
+    long pos = bitPos;
+    int i = 0;
+    if ((pos & 7) == 0 && nb == 8) {
+      int bytePos = (int) (pos >>> 3);
+      for (; i < n; i++) {
+        dest[destPos + i] = byteAt(bytePos + i);
+      }
+    } else if ((pos & 7) == 0 && nb == 16) {
+      int bytePos = (int) (pos >>> 3);
+      for (; i < n; i++) {
+        int b = bytePos + 2 * i;
+        dest[destPos + i] = (byteAt(b) << 8) | byteAt(b + 1);
+      }
+    } else {
+      // nb <= 32 so the value always fits in the word starting at its first byte
+      int shiftOut = 64 - nb;
+      for (; i < n; i++) {
+        int bytePos = (int) (pos >>> 3);
+        if (bytePos > wordLimit) {
+          break;
+        }
+        long w = (long) LONG_BE.get(buf, bytePos);
+        dest[destPos + i] = (int) ((w << (pos & 7)) >>> shiftOut);
+        pos += nb;
+      }
+      for (; i < n; i++) {
+        dest[destPos + i] = (int) ((word((int) (pos >>> 3)) << (pos & 7)) >>> shiftOut);
+        pos += nb;
+      }
+    }
+    bitPos += (long) n * nb;
+  }
+
+  private int byteAt(int bytePos) {
+    return bytePos < buf.length ? buf[bytePos] & 0xff : 0;
+  }
+
+  // the 8 bytes starting at bytePos, zero past the end of the data
+  private long word(int bytePos) {
+    if (bytePos <= wordLimit) {
+      return (long) LONG_BE.get(buf, bytePos);
+    }
+    long result = 0;
+    for (int k = 0; k < 8; k++) {
+      result = (result << 8) | byteAt(bytePos + k);
+    }
+    return result;
+  }
+
+}
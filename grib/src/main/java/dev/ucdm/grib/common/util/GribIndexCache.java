@@ -5,11 +5,17 @@
 
 package dev.ucdm.grib.common.util;
 
+import dev.ucdm.core.util.ManagedDiskCache;
+import org.jetbrains.annotations.Nullable;
+
 import java.io.File;
+import java.io.IOException;
 
 /**
  *  TODO review this
- * manages where the grib index files live
+ * manages where the grib index files live.
+ * Index files are written through the ManagedDiskCache for the DiskCache2 root directory, so they appear atomically,
+ * and the ones in the cache directory count against its budget.
  */
 public class GribIndexCache {
 
@@ -54,4 +60,32 @@ public class GribIndexCache {
     }
     return result;
   }
+
+  /** The ManagedDiskCache for the DiskCache2 root directory. */
+  public static ManagedDiskCache getManagedCache() {
+    String root = getDiskCache2().getRootDirectory();
+    return (root == null) ? ManagedDiskCache.getDefault() : ManagedDiskCache.forRoot(root);
+  }
+
+  /**
+   * Write an index file and publish it atomically, replacing it if it exists.
+   *
+   * @param idxFile the index file, eg from getFileOrCache()
+   * @param producer writes the index to the File it is given
+   * @return idxFile, or null if the producer failed
+   */
+  @Nullable
+  public static File publish(File idxFile, ManagedDiskCache.Producer producer) throws IOException {
+    return getManagedCache().publish(idxFile, producer);
+  }
+
+  /** Record that an existing index file was used. */
+  public static void hit(File idxFile) {
+    getManagedCache().hit(idxFile);
+  }
+
+  /** Pin the index file while it is being read, so it is not evicted. */
+  public static ManagedDiskCache.Pin pin(File idxFile) {
+    return getManagedCache().pin(idxFile);
+  }
 }
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grib.common.util;
+
+import com.google.common.base.Preconditions;
+import dev.ucdm.core.io.MappedRandomAccessFile;
+import dev.ucdm.core.io.RandomAccessFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Finds GRIB messages in a file by reading it in large blocks, instead of through the RandomAccessFile buffer.
+ * A block is searched for "GRIB" 8 bytes at a time, and the edition and the "7777" ending of a message are read
+ * from the block in place. The sections of a message are parsed from the block through getReader(), so scanning a
+ * file of many small messages needs one system call per block rather than several per message.
+ * If the RandomAccessFile is a MappedRandomAccessFile, the blocks are views of the mapped file, and nothing is copied.
+ * <p/>
+ * Does not use or change the file position or buffer of the RandomAccessFile. Not thread safe.
+ *
+ * @see dev.ucdm.grib.grib1.record.Grib1RecordScanner
+ * @see dev.ucdm.grib.grib2.record.Grib2RecordScanner
+ */
+public class GribMessageFinder {
+  public static final int DEFAULT_BLOCK_SIZE = 4 * 1024 * 1024;
+
+  private static final int GRIB = 0x47524942; // "GRIB"
+  private static final int ENDING = 0x37373737; // "7777"
+  private static final long ONES = 0x0101010101010101L;
+  private static final long HIGHS = 0x8080808080808080L;
+  private static final long G8 = 0x4747474747474747L; // "GGGGGGGG"
+  // a block starts this far before the requested position, so the bytes before a message are usually in it
+  private static final int LOOKBACK = 128;
+
+  private static boolean streamingScan = true;
+  private static boolean memoryMap = true;
+  private static int blockSize = DEFAULT_BLOCK_SIZE;
+
+  /** Set whether the gbx9 index writers scan in streaming mode, default true, else they search through the raf. */
+  public static void setStreamingScan(boolean streamingScan) {
+    GribMessageFinder.streamingScan = streamingScan;
+  }
+
+  public static boolean isStreamingScan() {
+    return streamingScan;
+  }
+
+  /**
+   * Set whether openForScan() memory maps the file, default true. Otherwise the blocks are copied from the file,
+   * which avoids system calls, but copies all of the data that the scan skips over.
+   */
+  public static void setMemoryMap(boolean memoryMap) {
+    GribMessageFinder.memoryMap = memoryMap;
+  }
+
+  /** Set the size of the blocks that are read when the file is not memory mapped, default 4 Mb. */
+  public static void setBlockSize(int blockSize) {
+    Preconditions.checkArgument(blockSize > LOOKBACK + 16);
+    GribMessageFinder.blockSize = blockSize;
+  }
+
+  /** Open a GRIB data file to be scanned for its records. */
+  public static RandomAccessFile openForScan(String location) throws IOException {
+    return memoryMap ? new MappedRandomAccessFile(location) : new RandomAccessFile(location, "r");
+  }
+
+  //////////////////////////////////////////////////////////////////////////////
+
+  private final RandomAccessFile raf;
+  private final long length;
+  private final int size;
+  private byte[] bytes; // used when the blocks are read, not mapped
+  private ByteBuffer block = ByteBuffer.allocate(0);
+  private long blockStart; // file position of block.get(0)
+  private RandomAccessFile reader;
+
+  public GribMessageFinder(RandomAccessFile raf) throws IOException {
+    this(raf, blockSize);
+  }
+
+  public GribMessageFinder(RandomAccessFile raf, int blockSize) throws IOException {
+    Preconditions.checkArgument(blockSize > LOOKBACK + 16);
+    this.raf = raf;
+    this.length = raf.length();
+    this.size = blockSize;
+  }
+
+  /**
+   * A RandomAccessFile over the same file, that reads from the blocks of this finder. Use it to parse the sections of
+   * the messages that are found. If the file is memory mapped, this is the original RandomAccessFile.
+   * Closing it does nothing.
+   */
+  public RandomAccessFile getReader() throws IOException {
+    if (reader == null) {
+      reader = (raf.getByteBuffer(0, 0) != null) ? raf : new BlockReader();
+    }
+    return reader;
+  }
+
+  /**
+   * Find the next "GRIB" at or after the given position.
+   *
+   * @return its file position, or -1 if there are no more.
+   */
+  public long findNext(long from) throws IOException {
+    long pos = Math.max(0, from);
+    while (pos + 4 <= length) {
+      load(pos, 4);
+      int start = (int) (pos - blockStart);
+      int end = block.limit();
+      int found = indexOfGrib(block, start, end);
+      if (found >= 0) {
+        return blockStart + found;
+      }
+      // the last 3 bytes may be the start of a "GRIB" that continues in the next block
+      pos = blockStart + end - 3;
+    }
+    return -1;
+  }
+
+  /** The GRIB edition of the message starting at start, or -1 if the file ends before it. */
+  public int getEdition(long start) throws IOException {
+    if (start + 8 > length) {
+      return -1;
+    }
+    load(start, 8);
+    return block.get((int) (start - blockStart + 7)) & 0xff;
+  }
+
+  /** Whether the 4 bytes before ending are the "7777" that ends a GRIB message. */
+  public boolean hasEnding(long ending) throws IOException {
+    if (ending < 4 || ending > length) {
+      return false;
+    }
+    long pos = ending - 4;
+    if (!inBlock(pos, 4)) {
+      // a message larger than a block; read just the ending, the next block is read from there by findNext()
+      byte[] b = new byte[4];
+      raf.readFullyUnbuffered(pos, b, 0, 4);
+      return ByteBuffer.wrap(b).getInt() == ENDING;
+    }
+    return block.getInt((int) (pos - blockStart)) == ENDING;
+  }
+
+  /** Read nbytes starting at pos, usually from the current block. */
+  public byte[] readBytes(long pos, int nbytes) throws IOException {
+    byte[] result = new byte[nbytes];
+    if (inBlock(pos, nbytes)) {
+      block.get((int) (pos - blockStart), result);
+    } else if (nbytes > 0) {
+      raf.readFullyUnbuffered(pos, result, 0, nbytes);
+    }
+    return result;
+  }
+
+  private boolean inBlock(long pos, int nbytes) {
+    return pos >= blockStart && pos + nbytes <= blockStart + block.limit();
+  }
+
+  // make the block contain [pos, pos + nbytes), which must be within the file
+  private void load(long pos, int nbytes) throws IOException {
+    if (inBlock(pos, nbytes)) {
+      return;
+    }
+    long start = Math.max(0, pos - LOOKBACK);
+    int n = (int) Math.min(size, length - start);
+    ByteBuffer mapped = raf.getByteBuffer(start, n);
+    if (mapped != null) {
+      block = mapped;
+    } else {
+      if (bytes == null) {
+        bytes = new byte[size];
+      }
+      raf.readFullyUnbuffered(start, bytes, 0, n);
+      block = ByteBuffer.wrap(bytes, 0, n).slice();
+    }
+    blockStart = start;
+  }
+
+  /**
+   * Find the first "GRIB" in bb that starts in [start, end - 4]. Each 8 bytes is tested for a 'G' at once: the high bit
+   * of a byte of hit is set if that byte of the word is 'G', or, only above a 'G', if borrowed into. So the first
+   * 'G' is never before the first high bit, counting from the most significant byte, which is the first in the buffer.
+   */
+  static int indexOfGrib(ByteBuffer bb, int start, int end) {
+    int last = end - 4; // last possible start of a "GRIB"
+    int i = start;
+    while (i + 8 <= end) {
+      long x = bb.getLong(i) ^ G8;
+      long hit = (x - ONES) & ~x & HIGHS;
+      if (hit != 0) {
+        for (int k = i + (Long.numberOfLeadingZeros(hit) >>> 3); k < i + 8 && k <= last; k++) {
+          if (bb.getInt(k) == GRIB) {
+            return k;
+          }
+        }
+      }
+      i += 8;
+    }
+    for (; i <= last; i++) {
+      if (bb.getInt(i) == GRIB) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private class BlockReader extends RandomAccessFile {
+    BlockReader() {
+      super(defaultBufferSize);
+      this.location = raf.getLocation();
+    }
+
+    @Override
+    public long length() {
+      return length;
+    }
+
+    @Override
+    protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
+      if (pos >= length) {
+        return -1;
+      }
+      int n = (int) Math.min(len, length - pos);
+      if (n > size - LOOKBACK) {
+        raf.readFullyUnbuffered(pos, b, offset, n);
+      } else {
+        load(pos, n);
+        block.get((int) (pos - blockStart), b, offset, n);
+      }
+      return n;
+    }
+  }
+
+}
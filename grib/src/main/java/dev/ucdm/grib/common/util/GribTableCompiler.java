@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grib.common.util;
+
+import dev.ucdm.grib.grib1.table.Grib1ParamLookup;
+import dev.ucdm.grib.grib2.table.WmoCodeFlagTables;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compile the WMO GRIB2 code and flag tables, and the standard GRIB1 parameter tables, into a {@link GribTableStore}.
+ * This is run by the build, which puts the store on the classpath as GribTableStore.RESOURCE.
+ *
+ * <pre>usage: GribTableCompiler outputFile</pre>
+ */
+public class GribTableCompiler {
+
+  /** Read all the tables from their source files, and return the map of store key to encoded table. */
+  public static Map<String, byte[]> compile() throws IOException {
+    Map<String, byte[]> tables = new HashMap<>();
+    WmoCodeFlagTables.compileTables(WmoCodeFlagTables.standard, tables);
+    Grib1ParamLookup.compileTables(tables);
+    return tables;
+  }
+
+  /** Compile the tables and write the store to the file. */
+  public static void writeStore(File file) throws IOException {
+    Map<String, byte[]> tables = compile();
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (!parent.exists() && !parent.mkdirs()) {
+      throw new IOException("Cant make directory " + parent);
+    }
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+      GribTableStore.write(tables, out);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.out.printf("usage: GribTableCompiler outputFile%n");
+      System.exit(1);
+    }
+    File file = new File(args[0]);
+    writeStore(file);
+    System.out.printf("GribTableCompiler wrote %s (%d bytes)%n", file.getPath(), file.length());
+  }
+}
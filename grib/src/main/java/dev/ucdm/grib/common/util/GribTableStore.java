@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grib.common.util;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The GRIB tables, compiled by {@link GribTableCompiler} at build time into one indexed binary resource.
+ * Each table is stored under a key as a block of bytes, which the owner of the table encodes and decodes.
+ * A store in a file is memory-mapped, and only the index is read when it is opened; a table is decoded the first
+ * time it is used. If there is no store, or a table is not in it, the table is read from its original resource.
+ *
+ * <pre>
+ * store  = MAGIC VERSION ntables index* table*
+ * index  = key offset length
+ * </pre>
+ *
+ * Offsets are from the start of the store. Tables are encoded with an {@link Encoder}.
+ */
+public class GribTableStore {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(GribTableStore.class);
+
+  /** The name of the store resource on the classpath. */
+  public static final String RESOURCE = "resources/grib/gribTables.bin";
+  private static final byte[] MAGIC = "GribTableStore".getBytes(StandardCharsets.UTF_8);
+  private static final int VERSION = 1;
+
+  private static boolean useStore = true;
+  @Nullable
+  private static String storeFile;
+  private static volatile GribTableStore instance;
+
+  /** Set whether to use the store, default true. If false, all tables are read from their original resources. */
+  public static synchronized void setUseStore(boolean use) {
+    useStore = use;
+    instance = null;
+  }
+
+  /** Read the store from this file instead of the classpath resource, or null to use the resource. */
+  public static synchronized void setStoreFile(@Nullable String filename) {
+    storeFile = filename;
+    instance = null;
+  }
+
+  /** Get the store, which is empty if there is none, or if it is not used. */
+  public static GribTableStore getInstance() {
+    GribTableStore result = instance;
+    if (result == null) {
+      synchronized (GribTableStore.class) {
+        result = instance;
+        if (result == null) {
+          result = useStore ? open(storeFile) : empty();
+          instance = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  private static GribTableStore open(@Nullable String filename) {
+    try {
+      ByteBuffer bb = (filename != null) ? map(new File(filename)) : readResource();
+      if (bb != null) {
+        return read(bb);
+      }
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Cant read GribTableStore {}: {}", filename == null ? RESOURCE : filename, e.getMessage());
+    }
+    return empty();
+  }
+
+  /** A store with no tables, so all tables are read from their original resources. */
+  public static GribTableStore empty() {
+    return new GribTableStore(ImmutableMap.of(), ByteBuffer.allocate(0));
+  }
+
+  @Nullable
+  private static ByteBuffer readResource() throws IOException {
+    URL url = GribTableStore.class.getClassLoader().getResource(RESOURCE);
+    if (url == null) {
+      return null;
+    }
+    if ("file".equals(url.getProtocol())) {
+      try {
+        return map(new File(url.toURI()));
+      } catch (URISyntaxException e) {
+        // fall through and read it
+      }
+    }
+    // eg inside a jar, which cant be memory-mapped
+    try (InputStream is = url.openStream()) {
+      return ByteBuffer.wrap(is.readAllBytes());
+    }
+  }
+
+  private static ByteBuffer map(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  private static GribTableStore read(ByteBuffer bb) throws IOException {
+    byte[] magic = new byte[MAGIC.length];
+    bb.get(magic);
+    if (!Arrays.equals(magic, MAGIC)) {
+      throw new IOException("not a GribTableStore");
+    }
+    int version = bb.getInt();
+    if (version != VERSION) {
+      throw new IOException("GribTableStore version " + version + " != " + VERSION);
+    }
+    int ntables = bb.getInt();
+    ImmutableMap.Builder<String, Block> index = ImmutableMap.builder();
+    for (int i = 0; i < ntables; i++) {
+      String key = readString(bb);
+      index.put(key, new Block(bb.getInt(), bb.getInt()));
+    }
+    return new GribTableStore(index.build(), bb);
+  }
+
+  /**
+   * Write the tables to the OutputStream, in key order.
+   *
+   * @param tables map of key to the encoded table.
+   * @param out write to here, not closed.
+   */
+  public static void write(Map<String, byte[]> tables, OutputStream out) throws IOException {
+    Map<String, byte[]> sorted = new TreeMap<>(tables);
+    int headerSize = MAGIC.length + 8;
+    for (String key : sorted.keySet()) {
+      headerSize += 4 + key.getBytes(StandardCharsets.UTF_8).length + 8;
+    }
+
+    DataOutputStream dout = new DataOutputStream(out);
+    dout.write(MAGIC);
+    dout.writeInt(VERSION);
+    dout.writeInt(sorted.size());
+    int offset = headerSize;
+    for (Map.Entry<String, byte[]> entry : sorted.entrySet()) {
+      writeString(dout, entry.getKey());
+      dout.writeInt(offset);
+      dout.writeInt(entry.getValue().length);
+      offset += entry.getValue().length;
+    }
+    for (byte[] table : sorted.values()) {
+      dout.write(table);
+    }
+    dout.flush();
+  }
+
+  private static void writeString(DataOutputStream out, @Nullable String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] b = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(b.length);
+    out.write(b);
+  }
+
+  /** Read a String written by Encoder.writeNullableString(). */
+  @Nullable
+  public static String readString(ByteBuffer bb) {
+    int len = bb.getInt();
+    if (len < 0) {
+      return null;
+    }
+    byte[] b = new byte[len];
+    bb.get(b);
+    return new String(b, StandardCharsets.UTF_8);
+  }
+
+  /** Collects the bytes of one encoded table. */
+  public static class Encoder extends DataOutputStream {
+    public Encoder() {
+      super(new ByteArrayOutputStream());
+    }
+
+    public void writeNullableString(@Nullable String s) throws IOException {
+      writeString(this, s);
+    }
+
+    public byte[] toByteArray() throws IOException {
+      flush();
+      return ((ByteArrayOutputStream) out).toByteArray();
+    }
+  }
+
+  //////////////////////////////////////////////////////////////////////////////
+
+  private record Block(int offset, int length) {
+  }
+
+  private final ImmutableMap<String, Block> index;
+  private final ByteBuffer data;
+
+  private GribTableStore(ImmutableMap<String, Block> index, ByteBuffer data) {
+    this.index = index;
+    this.data = data;
+  }
+
+  public boolean isEmpty() {
+    return index.isEmpty();
+  }
+
+  public ImmutableList<String> getKeys() {
+    return index.keySet().asList();
+  }
+
+  /** Get the encoded table, positioned at its start, or null if its not in the store. Thread safe. */
+  @Nullable
+  public ByteBuffer getTable(String key) {
+    Block block = index.get(key);
+    if (block == null) {
+      return null;
+    }
+    // each caller gets its own position and limit
+    return data.duplicate().position(block.offset).limit(block.offset + block.length).slice();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("GribTableStore{%d tables, %d bytes}", index.size(), data.capacity());
+  }
+}
@@ -14,9 +14,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Formatter;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Read and process WMO common code and flag tables.
@@ -40,7 +40,7 @@ import java.util.Map;
  */
 public class CommonCodeTable implements Comparable<CommonCodeTable> {
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CommonCodeTable.class);
-  private static final Map<Integer, CommonCodeTable> tableMap = new HashMap<>();
+  private static final Map<Integer, CommonCodeTable> tableMap = new ConcurrentHashMap<>();
   private static final String version = "_20181107_en";
 
   //////////////////////////////////////////////////////////////////////////
@@ -5,6 +5,7 @@
 
 package dev.ucdm.grib.coord;
 
+import com.google.common.base.Preconditions;
 import dev.ucdm.array.Indent;
 import dev.ucdm.array.NumericCompare;
 import dev.ucdm.core.util.Counters;
@@ -15,22 +16,59 @@ import dev.ucdm.grib.grib2.record.Grib2Pds;
 import dev.ucdm.grib.grib2.record.Grib2Record;
 
 import dev.ucdm.array.Immutable;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Formatter;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.stream.Collectors;
 
 /** Ensemble coordinates */
 @Immutable
 public class CoordinateEns implements Coordinate {
-  private final List<EnsCoordValue> ensSorted;
+  private final int[] types;
+  private final int[] members;
+  private final List<EnsCoordValue> ensSorted; // a view over types, members
   private final int code;
   private String name = "ens";
 
   public CoordinateEns(int code, List<EnsCoordValue> ensSorted) {
-    this.ensSorted = Collections.unmodifiableList(ensSorted);
     this.code = code;
+    int n = ensSorted.size();
+    this.types = new int[n];
+    this.members = new int[n];
+    for (int i = 0; i < n; i++) {
+      types[i] = ensSorted.get(i).code();
+      members[i] = ensSorted.get(i).ensMember();
+    }
+    this.ensSorted = new Members();
+  }
+
+  /**
+   * The arrays are not copied, so must not be modified.
+   *
+   * @param types the perturbation types, sorted together with members.
+   * @param members the perturbation numbers.
+   */
+  public CoordinateEns(int code, int[] types, int[] members) {
+    Preconditions.checkArgument(types.length == members.length);
+    this.code = code;
+    this.types = types;
+    this.members = members;
+    this.ensSorted = new Members();
+  }
+
+  private class Members extends AbstractList<EnsCoordValue> implements RandomAccess {
+    @Override
+    public EnsCoordValue get(int index) {
+      return new EnsCoordValue(types[index], members[index]);
+    }
+
+    @Override
+    public int size() {
+      return members.length;
+    }
   }
 
   public List<EnsCoordValue> getEnsSorted() {
@@ -53,9 +91,8 @@ public class CoordinateEns implements Coordinate {
   }
 
   public int getIndexByMember(double need) {
-    for (int i = 0; i < ensSorted.size(); i++) {
-      EnsCoordValue coord = ensSorted.get(i);
-      if (NumericCompare.nearlyEquals(need, coord.ensMember()))
+    for (int i = 0; i < members.length; i++) {
+      if (NumericCompare.nearlyEquals(need, members[i]))
         return i;
     }
     return -1;
@@ -63,7 +100,7 @@ public class CoordinateEns implements Coordinate {
 
   @Override
   public int getSize() {
-    return ensSorted.size();
+    return members.length;
   }
 
   @Override
@@ -73,7 +110,7 @@ public class CoordinateEns implements Coordinate {
 
   @Override
   public int estMemorySize() {
-    return 160 + getSize() * (8 + NumericCompare.referenceSize);
+    return 160 + getSize() * 8;
   }
 
   @Override
@@ -121,8 +158,8 @@ public class CoordinateEns implements Coordinate {
     Counters counters = new Counters();
     counters.add("resol");
 
-    for (int i = 0; i < ensSorted.size() - 1; i++) {
-      int diff = ensSorted.get(i + 1).ensMember() - ensSorted.get(i).ensMember();
+    for (int i = 0; i < members.length - 1; i++) {
+      int diff = members[i + 1] - members[i];
       counters.count("resol", diff);
     }
 
@@ -4,6 +4,7 @@
  */
 package dev.ucdm.grib.coord;
 
+import com.google.common.primitives.Longs;
 import java.util.Arrays;
 
 import dev.ucdm.array.Indent;
@@ -33,16 +34,25 @@ import java.util.List;
 public class CoordinateTime extends CoordinateTimeAbstract implements Coordinate {
   private static final Logger logger = LoggerFactory.getLogger(CoordinateTime.class);
 
-  private final List<Long> offsetSorted;
+  private final long[] offsets;
+  private final List<Long> offsetSorted; // a view over offsets
 
   public CoordinateTime(int code, CalendarPeriod timeUnit, CalendarDate refDate, List<Long> offsetSorted,
       int[] time2runtime) {
+    this(code, timeUnit, refDate, Longs.toArray(offsetSorted), time2runtime);
+  }
+
+  /** The offsets are not copied, and may be shared with other coordinates, so must not be modified. */
+  public CoordinateTime(int code, CalendarPeriod timeUnit, CalendarDate refDate, long[] offsets,
+      int[] time2runtime) {
     super(code, timeUnit, refDate, time2runtime);
-    this.offsetSorted = Collections.unmodifiableList(offsetSorted);
+    this.offsets = offsets;
+    this.offsetSorted = Collections.unmodifiableList(Longs.asList(offsets));
   }
 
   CoordinateTime(CoordinateTime org, CalendarDate refDate) {
     super(org.code, org.timeUnit, refDate, null);
+    this.offsets = org.offsets;
     this.offsetSorted = org.getOffsetSorted();
   }
 
@@ -67,7 +77,7 @@ public class CoordinateTime extends CoordinateTimeAbstract implements Coordinate
 
   @Override
   public int getSize() {
-    return offsetSorted.size();
+    return offsets.length;
   }
 
   @Override
@@ -77,14 +87,14 @@ public class CoordinateTime extends CoordinateTimeAbstract implements Coordinate
 
   @Override
   public int estMemorySize() {
-    return 320 + getSize() * (16);
+    return 320 + getSize() * 8;
   }
 
   @Override
   public CalendarDateRange makeCalendarDateRange() {
     CalendarDateUnit cdu = CalendarDateUnit.fromUdunitString(null, periodName + " since " + refDate).orElseThrow();
-    CalendarDate start = cdu.makeCalendarDate(timeUnit.getValue() * offsetSorted.get(0));
-    CalendarDate end = cdu.makeCalendarDate(timeUnit.getValue() * offsetSorted.get(getSize() - 1));
+    CalendarDate start = cdu.makeCalendarDate(timeUnit.getValue() * offsets[0]);
+    CalendarDate end = cdu.makeCalendarDate(timeUnit.getValue() * offsets[getSize() - 1]);
     return CalendarDateRange.of(start, end);
   }
 
@@ -113,9 +123,8 @@ public class CoordinateTime extends CoordinateTimeAbstract implements Coordinate
     Counters counters = new Counters();
     counters.add("resol");
 
-    List<Long> offsets = getOffsetSorted();
-    for (int i = 0; i < offsets.size() - 1; i++) {
-      long diff = offsets.get(i + 1) - offsets.get(i);
+    for (int i = 0; i < offsets.length - 1; i++) {
+      long diff = offsets[i + 1] - offsets[i];
       counters.count("resol", diff);
     }
 
@@ -135,12 +144,12 @@ public class CoordinateTime extends CoordinateTimeAbstract implements Coordinate
     if (code != that.code) {
       return false;
     }
-    return offsetSorted.equals(that.offsetSorted);
+    return Arrays.equals(offsets, that.offsets);
   }
 
   @Override
   public int hashCode() {
-    int result = offsetSorted.hashCode();
+    int result = Arrays.hashCode(offsets);
     result = 31 * result + code;
     return result;
   }
@@ -18,7 +18,6 @@ import dev.ucdm.core.calendar.CalendarDateRange;
 import dev.ucdm.core.calendar.CalendarPeriod;
 import dev.ucdm.array.Indent;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Formatter;
@@ -30,7 +29,6 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
-import java.util.stream.Collectors;
 
 /**
  * Both runtime and time coordinates are tracked here. The time coordinate is dependent on the runtime, at least on the
@@ -514,8 +512,7 @@ public class CoordinateTime2D extends CoordinateTimeAbstract implements Coordina
   // For MRUTC, MRUTP
   public CoordinateTimeAbstract getOffsetTimes() {
     // TODO assumes Point, needs to be seconds, probably cant use this.offset ??
-    List<Long> offsets = Arrays.stream(this.offset).boxed().collect(Collectors.toList());
-    return new CoordinateTime(this.code, otime.timeUnit, otime.refDate, offsets, otime.time2runtime)
+    return new CoordinateTime(this.code, otime.timeUnit, otime.refDate, this.offset, otime.time2runtime)
         .setName(this.getName());
   }
 
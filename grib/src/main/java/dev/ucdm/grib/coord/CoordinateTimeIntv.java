@@ -21,26 +21,66 @@ import dev.ucdm.grib.grib2.record.Grib2Pds;
 import dev.ucdm.grib.grib2.record.Grib2Record;
 import dev.ucdm.grib.grib2.table.Grib2Tables;
 
+import com.google.common.base.Preconditions;
 import dev.ucdm.array.Immutable;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Formatter;
 import java.util.List;
+import java.util.RandomAccess;
 
 /** Time coordinates that are intervals. */
 @Immutable
 public class CoordinateTimeIntv extends CoordinateTimeAbstract implements Coordinate {
-  private final List<TimeCoordIntvValue> timeIntervals;
+  private final int[] bounds; // pairs of (bounds1, bounds2)
+  private final List<TimeCoordIntvValue> timeIntervals; // a view over bounds
 
   public CoordinateTimeIntv(int code, CalendarPeriod timeUnit, CalendarDate refDate,
       List<TimeCoordIntvValue> timeIntervals, int[] time2runtime) {
+    this(code, timeUnit, refDate, toBounds(timeIntervals), time2runtime);
+  }
+
+  /**
+   * The bounds are not copied, and may be shared with other coordinates, so must not be modified.
+   *
+   * @param bounds the sorted intervals as pairs: bounds1, bounds2 of the first interval, then the second, etc.
+   */
+  public CoordinateTimeIntv(int code, CalendarPeriod timeUnit, CalendarDate refDate, int[] bounds,
+      int[] time2runtime) {
     super(code, timeUnit, refDate, time2runtime);
-    this.timeIntervals = Collections.unmodifiableList(timeIntervals);
+    Preconditions.checkArgument(bounds.length % 2 == 0);
+    this.bounds = bounds;
+    this.timeIntervals = new Intervals();
   }
 
   CoordinateTimeIntv(CoordinateTimeIntv org, CalendarDate refDate) {
     super(org.code, org.timeUnit, refDate, null);
-    this.timeIntervals = org.getTimeIntervals();
+    this.bounds = org.bounds;
+    this.timeIntervals = new Intervals();
+  }
+
+  private static int[] toBounds(List<TimeCoordIntvValue> timeIntervals) {
+    int[] result = new int[2 * timeIntervals.size()];
+    int count = 0;
+    for (TimeCoordIntvValue tinv : timeIntervals) {
+      result[count++] = tinv.bounds1();
+      result[count++] = tinv.bounds2();
+    }
+    return result;
+  }
+
+  private class Intervals extends AbstractList<TimeCoordIntvValue> implements RandomAccess {
+    @Override
+    public TimeCoordIntvValue get(int index) {
+      Preconditions.checkElementIndex(index, size());
+      return new TimeCoordIntvValue(bounds[2 * index], bounds[2 * index + 1]);
+    }
+
+    @Override
+    public int size() {
+      return bounds.length / 2;
+    }
   }
 
   public List<TimeCoordIntvValue> getTimeIntervals() {
@@ -64,12 +104,12 @@ public class CoordinateTimeIntv extends CoordinateTimeAbstract implements Coordi
 
   @Override
   public int getSize() {
-    return timeIntervals.size();
+    return bounds.length / 2;
   }
 
   @Override
   public int estMemorySize() {
-    return 616 + getSize() * (24); // LOOK probably wrong
+    return 616 + getSize() * 8;
   }
 
   @Override
@@ -85,8 +125,8 @@ public class CoordinateTimeIntv extends CoordinateTimeAbstract implements Coordi
   public String getTimeIntervalName() {
     // are they the same length ?
     int firstValue = -1;
-    for (TimeCoordIntvValue tinv : timeIntervals) {
-      int value = (tinv.bounds2() - tinv.bounds1());
+    for (int i = 0; i < bounds.length; i += 2) {
+      int value = (bounds[i + 1] - bounds[i]);
       if (firstValue < 0)
         firstValue = value;
       else if (value != firstValue)
@@ -105,8 +145,8 @@ public class CoordinateTimeIntv extends CoordinateTimeAbstract implements Coordi
   @Override
   public CalendarDateRange makeCalendarDateRange() {
     CalendarDateUnit cdu = CalendarDateUnit.of(timeUnit, false, refDate);
-    CalendarDate start = cdu.makeCalendarDate(timeUnit.getValue() * timeIntervals.get(0).bounds2());
-    CalendarDate end = cdu.makeCalendarDate(timeUnit.getValue() * timeIntervals.get(getSize() - 1).bounds2());
+    CalendarDate start = cdu.makeCalendarDate(timeUnit.getValue() * bounds[1]);
+    CalendarDate end = cdu.makeCalendarDate(timeUnit.getValue() * bounds[bounds.length - 1]);
     return CalendarDateRange.of(start, end);
   }
 
@@ -157,14 +197,14 @@ public class CoordinateTimeIntv extends CoordinateTimeAbstract implements Coordi
 
     if (code != that.code)
       return false;
-    return timeIntervals.equals(that.timeIntervals);
+    return Arrays.equals(bounds, that.bounds);
 
   }
 
   @Override
   public int hashCode() {
     int result = code;
-    result = 31 * result + timeIntervals.hashCode();
+    result = 31 * result + Arrays.hashCode(bounds);
     return result;
   }
 
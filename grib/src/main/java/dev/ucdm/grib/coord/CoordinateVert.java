@@ -4,10 +4,10 @@
  */
 package dev.ucdm.grib.coord;
 
+import com.google.common.base.Preconditions;
 import dev.ucdm.array.Immutable;
 import org.jetbrains.annotations.Nullable;
 
-import dev.ucdm.array.NumericCompare;
 import dev.ucdm.array.Indent;
 import dev.ucdm.core.util.Counters;
 import dev.ucdm.grib.grib1.record.Grib1ParamLevel;
@@ -18,10 +18,12 @@ import dev.ucdm.grib.grib2.iosp.Grib2Utils;
 import dev.ucdm.grib.grib2.record.Grib2Pds;
 import dev.ucdm.grib.grib2.record.Grib2Record;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Formatter;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * Vertical GRIB coordinates
@@ -29,17 +31,62 @@ import java.util.List;
  */
 @Immutable
 public class CoordinateVert implements Coordinate {
-  private final List<VertCoordValue> levelSorted;
+  private final double[] values1;
+  @Nullable
+  private final double[] values2; // only for layers; NaN for a level that is not a layer
+  private final List<VertCoordValue> levelSorted; // a view over values1, values2
   private final int code; // Grib1 - code table 3; Grib2 - Code table 4.5
   private String name;
   private final VertCoordUnit vunit;
   private final boolean isLayer;
 
   public CoordinateVert(int code, VertCoordUnit vunit, List<VertCoordValue> levelSorted) {
-    this.levelSorted = Collections.unmodifiableList(levelSorted);
     this.code = code;
     this.vunit = vunit;
     this.isLayer = levelSorted.get(0).isLayer();
+    int n = levelSorted.size();
+    this.values1 = new double[n];
+    this.values2 = isLayer ? new double[n] : null;
+    for (int i = 0; i < n; i++) {
+      VertCoordValue level = levelSorted.get(i);
+      values1[i] = level.getValue1();
+      if (values2 != null) {
+        values2[i] = level.isLayer() ? level.getValue2() : Double.NaN;
+      }
+    }
+    this.levelSorted = new Levels();
+  }
+
+  /**
+   * The arrays are not copied, so must not be modified.
+   *
+   * @param values1 the sorted level values, or the lower values of the layers.
+   * @param values2 the upper values of the layers, or null if not a layer.
+   */
+  public CoordinateVert(int code, VertCoordUnit vunit, double[] values1, @Nullable double[] values2) {
+    Preconditions.checkArgument(values1.length > 0);
+    Preconditions.checkArgument(values2 == null || values2.length == values1.length);
+    this.code = code;
+    this.vunit = vunit;
+    this.isLayer = values2 != null;
+    this.values1 = values1;
+    this.values2 = values2;
+    this.levelSorted = new Levels();
+  }
+
+  private class Levels extends AbstractList<VertCoordValue> implements RandomAccess {
+    @Override
+    public VertCoordValue get(int index) {
+      if (values2 == null || Double.isNaN(values2[index])) {
+        return new VertCoordValue(values1[index]);
+      }
+      return new VertCoordValue(values1[index], values2[index]);
+    }
+
+    @Override
+    public int size() {
+      return values1.length;
+    }
   }
 
   public List<VertCoordValue> getLevelSorted() {
@@ -63,7 +110,7 @@ public class CoordinateVert implements Coordinate {
 
   @Override
   public int getSize() {
-    return levelSorted.size();
+    return values1.length;
   }
 
   @Override
@@ -78,7 +125,7 @@ public class CoordinateVert implements Coordinate {
 
   @Override
   public int estMemorySize() {
-    return 160 + getSize() * (40 + NumericCompare.referenceSize);
+    return 160 + getSize() * (isLayer ? 16 : 8);
   }
 
   @Override
@@ -136,19 +183,19 @@ public class CoordinateVert implements Coordinate {
 
     if (isLayer) {
       counters.add("intv");
-      for (int i = 0; i < levelSorted.size(); i++) {
-        double intv = (levelSorted.get(i)).getValue2() - (levelSorted.get(i)).getValue1();
+      for (int i = 0; i < values1.length; i++) {
+        double intv = levelSorted.get(i).getValue2() - values1[i];
         counters.count("intv", intv);
-        if (i < levelSorted.size() - 1) {
-          double resol = (levelSorted.get(i + 1)).getValue1() - (levelSorted.get(i)).getValue1();
+        if (i < values1.length - 1) {
+          double resol = values1[i + 1] - values1[i];
           counters.count("resol", resol);
         }
       }
 
     } else {
 
-      for (int i = 0; i < levelSorted.size() - 1; i++) {
-        double diff = levelSorted.get(i + 1).getValue1() - levelSorted.get(i).getValue1();
+      for (int i = 0; i < values1.length - 1; i++) {
+        double diff = values1[i + 1] - values1[i];
         counters.count("resol", diff);
       }
     }
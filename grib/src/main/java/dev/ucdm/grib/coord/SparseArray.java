@@ -21,6 +21,8 @@ import java.util.List;
  * Conceptually a multidim array with shape[n] and totalsize.
  * Stored as track[totalsize] = {0 = missing, else = index+1 into List<T> content}
  * So we dont have to store missing Ts.
+ * The track is kept in the smallest unsigned type that can hold the content indices. The content may be a view over
+ * primitive arrays, as for the records read from an index.
  */
 @Immutable
 public class SparseArray<T> {
@@ -30,7 +32,13 @@ public class SparseArray<T> {
   private final int[] stride; // for index calculation
   private final int totalSize; // product of sizes
 
-  private final int[] track; // index into content, size totalSize. TODO could use byte, short to save memory ??
+  // index into content, size totalSize. Only one is not null, depending on the largest index.
+  @Nullable
+  private final byte[] track8;
+  @Nullable
+  private final char[] track16;
+  @Nullable
+  private final int[] track32;
   private final List<T> content; // keep the things in a List.
   private final int ndups;
 
@@ -39,12 +47,32 @@ public class SparseArray<T> {
     this.totalSize = calcTotalSize(shape);
     this.stride = calcStrides(shape);
 
-    this.track = track;
     this.content = Collections.unmodifiableList(content);
     this.ndups = ndups;
 
     if (track.length != totalSize)
       throw new IllegalStateException("track len " + track.length + " != totalSize " + totalSize);
+
+    int max = 0;
+    for (int idx : track)
+      max = Math.max(max, idx);
+    if (max <= 0xff) {
+      this.track8 = new byte[totalSize];
+      for (int i = 0; i < totalSize; i++)
+        track8[i] = (byte) track[i];
+      this.track16 = null;
+      this.track32 = null;
+    } else if (max <= 0xffff) {
+      this.track8 = null;
+      this.track16 = new char[totalSize];
+      for (int i = 0; i < totalSize; i++)
+        track16[i] = (char) track[i];
+      this.track32 = null;
+    } else {
+      this.track8 = null;
+      this.track16 = null;
+      this.track32 = track;
+    }
   }
 
   static int calcTotalSize(int[] shape) {
@@ -75,9 +103,9 @@ public class SparseArray<T> {
 
   @Nullable
   public T getContent(int idx) {
-    if (idx >= track.length || idx < 0)
-      logger.error("BAD index get=" + idx + " max= " + track.length, new Throwable());
-    int contentIdx = track[idx] - 1;
+    if (idx >= totalSize || idx < 0)
+      logger.error("BAD index get=" + idx + " max= " + totalSize, new Throwable());
+    int contentIdx = getTrack(idx) - 1;
     if (contentIdx < 0)
       return null; // missing
     return content.get(contentIdx);
@@ -100,12 +128,22 @@ public class SparseArray<T> {
     return totalSize;
   }
 
+  /** The track as an int array, a copy unless it needs 32 bits. */
   public int[] getTrack() {
-    return track;
+    if (track32 != null)
+      return track32;
+    int[] result = new int[totalSize];
+    for (int i = 0; i < totalSize; i++)
+      result[i] = getTrack(i);
+    return result;
   }
 
   public int getTrack(int idx) {
-    return track[idx];
+    if (track8 != null)
+      return track8[idx] & 0xff;
+    if (track16 != null)
+      return track16[idx];
+    return track32[idx];
   }
 
   public List<T> getContent() {
@@ -114,18 +152,14 @@ public class SparseArray<T> {
 
   public int countNotMissing() { // TODO could use content.size()
     int result = 0;
-    for (int idx : track)
-      if (idx > 0)
+    for (int i = 0; i < totalSize; i++)
+      if (getTrack(i) > 0)
         result++;
     return result;
   }
 
   public int countMissing() {
-    int result = 0;
-    for (int idx : track)
-      if (idx == 0)
-        result++;
-    return result;
+    return totalSize - countNotMissing();
   }
 
   public float getDensity() {
@@ -167,7 +201,7 @@ public class SparseArray<T> {
     if (sizes.size() == 1) {
       int len = sizes.get(0);
       for (int i = 0; i < len; i++) {
-        boolean hasRecord = track[offset + i] > 0;
+        boolean hasRecord = getTrack(offset + i) > 0;
         if (hasRecord)
           f.format("X");
         else
@@ -199,8 +233,8 @@ public class SparseArray<T> {
   public void showTracks(Formatter f) {
     int count = 0;
     f.format("Track%n");
-    for (int t : track)
-      f.format(" %4d %5d %n", count++, t);
+    for (int i = 0; i < totalSize; i++)
+      f.format(" %4d %5d %n", count++, getTrack(i));
   }
 
   ////////////////////////////////////////////////////////////////////////////////////
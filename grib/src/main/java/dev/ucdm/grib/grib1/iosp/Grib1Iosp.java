@@ -24,8 +24,13 @@ import dev.ucdm.grib.common.GribCollectionIndex;
 import dev.ucdm.grib.common.GribConfig;
 import dev.ucdm.grib.common.GribIosp;
 
+import dev.ucdm.grib.protoconvert.Grib1CollectionIndexWriter;
+import dev.ucdm.grib.protoconvert.GribCollectionIndexWriter;
+
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Formatter;
+import java.util.List;
 
 /**
  * Grib-1 Collection IOSP.
@@ -36,6 +41,10 @@ import java.util.Formatter;
  */
 public class Grib1Iosp extends GribIosp {
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(Grib1Iosp.class);
+  // a GRIB file may also have a WMO header before the first record
+  private static final List<byte[]> magicNumbers = List.of("GRIB".getBytes(StandardCharsets.US_ASCII),
+      Grib1CollectionIndexWriter.MAGIC_START.getBytes(StandardCharsets.UTF_8),
+      GribCollectionIndexWriter.PARTITION1_START.getBytes(StandardCharsets.UTF_8));
 
   @Override
   public String makeVariableName(VariableIndex v) {
@@ -190,6 +199,11 @@ public class Grib1Iosp extends GribIosp {
     return Grib1RecordScanner.isValidFile(raf);
   }
 
+  @Override
+  public List<byte[]> getMagicNumbers() {
+    return magicNumbers.stream().map(byte[]::clone).toList(); // copies, so callers cant change them
+  }
+
   @Override
   public String getCdmFileTypeId() {
     return DataFormatType.GRIB1.getDescription();
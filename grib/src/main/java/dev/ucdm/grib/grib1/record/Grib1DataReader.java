@@ -7,6 +7,7 @@ package dev.ucdm.grib.grib1.record;
 
 import dev.ucdm.core.io.RandomAccessFile;
 import dev.ucdm.grib.common.util.BitReader;
+import dev.ucdm.grib.common.util.BitUnpacker;
 import dev.ucdm.grib.common.util.GribDataUtils;
 import dev.ucdm.grib.common.util.GribNumbers;
 
@@ -19,6 +20,7 @@ import java.util.Formatter;
 public class Grib1DataReader {
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(Grib1DataReader.class);
   private static final float staticMissingValue = Float.NaN;
+  private static final int CHUNK = 4096; // values are unpacked in chunks of this size
 
   ///////////////////////////////// Grib1Data
 
@@ -119,12 +121,18 @@ public class Grib1DataReader {
             raf.getLocation());
         throw new IllegalStateException("Bitmap section length!= grid length");
       }
-      BitReader reader = new BitReader(raf, startPos + 11);
+      BitUnpacker reader = readDataSection(raf, info.dataMsgLength, nPts, info.numberOfBits);
+      int[] packed = new int[Math.min(nPts, CHUNK)];
+      int k = packed.length; // next unused value in packed
       values = new float[nPts];
       for (int i = 0; i < nPts; i++) {
         if (GribNumbers.testBitIsSet(bitmap[i / 8], i % 8)) {
           if (!isConstant) {
-            values[i] = ref + scale * reader.bits2UInt(info.numberOfBits);
+            if (k == packed.length) {
+              reader.unpack(info.numberOfBits, packed, 0, packed.length);
+              k = 0;
+            }
+            values[i] = ref + scale * Integer.toUnsignedLong(packed[k++]);
           } else { // rdg - added this to handle a constant valued parameter
             values[i] = ref;
           }
@@ -144,9 +152,14 @@ public class Grib1DataReader {
             logger.warn("nptsExpected {} != npts {}", nptsExpected, nPts);
           values = new float[nPts];
         }
-        BitReader reader = new BitReader(raf, startPos + 11);
-        for (int i = 0; i < values.length; i++) {
-          values[i] = ref + scale * reader.bits2UInt(info.numberOfBits);
+        BitUnpacker reader = readDataSection(raf, info.dataMsgLength, values.length, info.numberOfBits);
+        int[] packed = new int[Math.min(values.length, CHUNK)];
+        for (int start = 0; start < values.length; start += packed.length) {
+          int n = Math.min(packed.length, values.length - start);
+          reader.unpack(info.numberOfBits, packed, 0, n);
+          for (int k = 0; k < n; k++) {
+            values[start + k] = ref + scale * Integer.toUnsignedLong(packed[k]);
+          }
         }
         scanningModeCheck(values, scanMode, nxRaw);
 
@@ -159,6 +172,14 @@ public class Grib1DataReader {
     return values;
   }
 
+  // the packed data, following the first 11 bytes of the data section.
+  // read enough for npts values even if the section length is wrong
+  private BitUnpacker readDataSection(RandomAccessFile raf, long dataMsgLength, int npts, int nbits)
+      throws IOException {
+    long nbytes = Math.max(dataMsgLength - 11, ((long) npts * nbits + 7) / 8);
+    return BitUnpacker.read(raf, startPos + 11, (int) nbytes);
+  }
+
   /*
    * From WMO Manual on Codes I-2 bi - 5
    * (3) When second-order grid-point packing is indicated, the actual value Y (in the units of Code table 2)
@@ -798,11 +819,9 @@ public class Grib1DataReader {
     int numbits = raf.read();
 
     // *** read int values *******************************************************
-    BitReader reader = new BitReader(raf, startPos + 11);
+    BitUnpacker reader = readDataSection(raf, msgLength, nPts, numbits);
     int[] ivals = new int[nPts];
-    for (int i = 0; i < nPts; i++) {
-      ivals[i] = (int) reader.bits2UInt(numbits);
-    }
+    reader.unpack(numbits, ivals, 0, nPts);
 
     return ivals;
   }
@@ -6,6 +6,7 @@
 package dev.ucdm.grib.grib1.record;
 
 import org.jetbrains.annotations.Nullable;
+import dev.ucdm.grib.common.util.GribMessageFinder;
 import dev.ucdm.grib.common.util.GribNumbers;
 import dev.ucdm.core.util.KMPMatch;
 import dev.ucdm.core.io.RandomAccessFile;
@@ -14,7 +15,10 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
-/** Scan files and extract Grib1Records. */
+/**
+ * Scan files and extract Grib1Records. In streaming mode the messages are found with a GribMessageFinder, which
+ * reads the file in large blocks or memory maps it, and the sections are parsed from the same blocks.
+ */
 public class Grib1RecordScanner {
 
   private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(Grib1RecordScanner.class);
@@ -110,14 +114,28 @@ public class Grib1RecordScanner {
 
   private final Map<Long, Grib1SectionGridDefinition> gdsMap = new HashMap<>();
   private final RandomAccessFile raf;
+  @Nullable
+  private final GribMessageFinder finder; // null if searching through the raf
 
   private byte[] header;
   private long lastPos;
 
+  /** Scan the file from the start, searching through the raf. */
   public Grib1RecordScanner(RandomAccessFile raf) throws IOException {
-    this.raf = raf;
-    raf.seek(0);
-    raf.order(RandomAccessFile.BIG_ENDIAN);
+    this(raf, false);
+  }
+
+  /**
+   * Scan the file from the start.
+   *
+   * @param raf scan this file.
+   * @param streaming if true, find the messages with a GribMessageFinder, else search through the raf.
+   */
+  public Grib1RecordScanner(RandomAccessFile raf, boolean streaming) throws IOException {
+    finder = streaming ? new GribMessageFinder(raf) : null;
+    this.raf = streaming ? finder.getReader() : raf; // the sections are parsed from the finder's blocks
+    this.raf.seek(0);
+    this.raf.order(RandomAccessFile.BIG_ENDIAN);
     lastPos = 0;
   }
 
@@ -129,20 +147,31 @@ public class Grib1RecordScanner {
     long foundAt = 0;
 
     while (true) { // scan until we get a GRIB-1 or more is false
-      raf.seek(lastPos);
-      more = raf.searchForward(matcher, -1); // will scan to end for a 'GRIB' string
-      if (!more) {
-        break;
-      }
+      int edition;
+      if (finder != null) {
+        foundAt = finder.findNext(lastPos);
+        more = foundAt >= 0;
+        if (!more) {
+          break;
+        }
+        edition = finder.getEdition(foundAt);
+
+      } else {
+        raf.seek(lastPos);
+        more = raf.searchForward(matcher, -1); // will scan to end for a 'GRIB' string
+        if (!more) {
+          break;
+        }
 
-      foundAt = raf.getFilePointer();
-      // see if its GRIB-1
-      raf.skipBytes(7);
-      int edition = raf.read();
+        foundAt = raf.getFilePointer();
+        // see if its GRIB-1
+        raf.skipBytes(7);
+        edition = raf.read();
+      }
       if (edition == 1) {
         break;
       }
-      lastPos = raf.getFilePointer(); // not edition 1 ! could terminate ??
+      lastPos = foundAt + 8; // not edition 1 ! could terminate ??
     }
 
     if (more) {
@@ -152,9 +181,13 @@ public class Grib1RecordScanner {
         sizeHeader = 100; // maximum 100 bytes, more likely to be garbage
       }
       long startPos = foundAt - sizeHeader;
-      header = new byte[sizeHeader];
-      raf.seek(startPos);
-      raf.readFully(header);
+      if (finder != null) {
+        header = finder.readBytes(startPos, sizeHeader);
+      } else {
+        header = new byte[sizeHeader];
+        raf.seek(startPos);
+        raf.readFully(header);
+      }
       raf.seek(foundAt);
       this.lastPos = foundAt; // ok start from here next time
     }
@@ -215,12 +248,14 @@ public class Grib1RecordScanner {
       }
 
       // check that end section is correct
-      boolean foundEnding = checkEnding(ending);
+      long checked = ending;
+      boolean foundEnding = checkEnding(checked);
       log.debug(" read until {} grib ending at {} header ='{}' foundEnding={}", raf.getFilePointer(), ending,
           StringUtil2.cleanup(header), foundEnding);
 
       if (!foundEnding && (allowBadIsLength || is.isMessageLengthFixed)) {
-        foundEnding = checkEnding(dataSection.getStartingPosition() + dataSection.getLength());
+        checked = dataSection.getStartingPosition() + dataSection.getLength();
+        foundEnding = checkEnding(checked);
       }
 
       if (!foundEnding && (allowBadDsLength || is.isMessageLengthFixed)) {
@@ -228,7 +263,8 @@ public class Grib1RecordScanner {
       }
 
       if (foundEnding) {
-        lastPos = raf.getFilePointer();
+        // the finder checks the ending without moving the raf
+        lastPos = (finder != null) ? checked : raf.getFilePointer();
         return new Grib1Record(header, is, gds, pds, bitmap, dataSection);
       }
 
@@ -255,14 +291,21 @@ public class Grib1RecordScanner {
 
   private boolean checkEnding(long ending) throws IOException {
     // check that end section = "7777" is correct
+    boolean found = (finder != null) ? finder.hasEnding(ending) : readEnding(ending);
+    if (!found) {
+      String clean = StringUtil2.cleanup(header);
+      if (clean.length() > 40) {
+        clean = clean.substring(0, 40) + "...";
+      }
+      log.debug("Missing End of GRIB message at pos=" + ending + " header= " + clean + " for=" + raf.getLocation());
+    }
+    return found;
+  }
+
+  private boolean readEnding(long ending) throws IOException {
     raf.seek(ending - 4);
     for (int i = 0; i < 4; i++) {
       if (raf.read() != 55) {
-        String clean = StringUtil2.cleanup(header);
-        if (clean.length() > 40) {
-          clean = clean.substring(0, 40) + "...";
-        }
-        log.debug("Missing End of GRIB message at pos=" + ending + " header= " + clean + " for=" + raf.getLocation());
         return false;
       }
     }
@@ -40,21 +40,22 @@ public class Grib1ParamLookup {
   private static int standardTablesStart; // heres where the standard tables start - keep track so user additions
                                           // can go first
 
+  private static final List<String> standardLookupTables = List.of("resources/grib1/lookupTables.txt",
+      "resources/grib1/ecmwfEcCodes/lookupTables.txt", "resources/grib1/ecmwf/lookupTables.txt",
+      "resources/grib1/ncl/lookupTables.txt", "resources/grib1/dss/lookupTables.txt",
+      // "resources/grib1/ncep/lookupTables.txt",
+      "resources/grib1/wrf/lookupTables.txt");
+  // "resources/grib1/tablesOld/lookupTables.txt" too many problems - must check every one !
+
   private static Lookup standardLookup;
   private static Grib1ParamTableReader defaultWmoTable;
 
   static {
     try {
       standardLookup = new Lookup();
-      standardLookup.readLookupTable("resources/grib1/lookupTables.txt");
-      standardLookup.readLookupTable("resources/grib1/ecmwfEcCodes/lookupTables.txt");
-      standardLookup.readLookupTable("resources/grib1/ecmwf/lookupTables.txt");
-      standardLookup.readLookupTable("resources/grib1/ncl/lookupTables.txt");
-      standardLookup.readLookupTable("resources/grib1/dss/lookupTables.txt");
-      // standardLookup.readLookupTable("resources/grib1/ncep/lookupTables.txt");
-      standardLookup.readLookupTable("resources/grib1/wrf/lookupTables.txt"); // */
-      // lookup.readLookupTable("resources/grib1/tablesOld/lookupTables.txt");
-      // too many problems - must check every one !
+      for (String lookupTable : standardLookupTables) {
+        standardLookup.readLookupTable(lookupTable);
+      }
       standardLookup.tables = new CopyOnWriteArrayList<>(standardLookup.tables); // in case user adds tables
       defaultWmoTable = standardLookup.getParameterTable(0, -1, -1); // user cannot override default
 
@@ -63,6 +64,29 @@ public class Grib1ParamLookup {
     }
   }
 
+  /**
+   * Read all the standard parameter tables from their source files, and add the encoded tables to the store.
+   * Tables that cant be read are skipped.
+   */
+  public static void compileTables(Map<String, byte[]> store) throws IOException {
+    // use a new Lookup, since reading a table may change its center, subcenter or version
+    Lookup lookup = new Lookup();
+    for (String lookupTable : standardLookupTables) {
+      lookup.readLookupTable(lookupTable);
+    }
+    for (Grib1ParamTableReader table : lookup.tables) {
+      String key = table.storeKey();
+      if (store.containsKey(key)) {
+        continue;
+      }
+      try {
+        store.put(key, table.encodeStoredParameterTable());
+      } catch (RuntimeException e) {
+        logger.warn("Cant compile Grib1 parameter table {}: {}", table.getPath(), e.getMessage());
+      }
+    }
+  }
+
   private static boolean strict;
 
   public static boolean isStrict() {
@@ -11,16 +11,20 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 import dev.ucdm.dataset.ncml.NcmlReader;
 import dev.ucdm.grib.common.util.GribResourceReader;
+import dev.ucdm.grib.common.util.GribTableStore;
 import dev.ucdm.grib.grib1.iosp.Grib1Parameter;
 import org.jdom2.Element;
 import org.jdom2.JDOMException;
 import org.jdom2.Namespace;
 import org.jdom2.input.SAXBuilder;
 import dev.ucdm.core.util.StringUtil2;
+import org.jetbrains.annotations.Nullable;
+
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -168,7 +172,57 @@ public class Grib1ParamTableReader {
     if (path == null) {
       throw new IllegalStateException(name);
     }
+    Map<Integer, Grib1Parameter> stored = readStoredParameterTable();
+    return (stored != null) ? stored : readSourceParameterTable();
+  }
+
+  // The key includes the center, subcenter and version from the lookup table, since reading the table may change them.
+  String storeKey() {
+    return String.format("grib1/%d/%d/%d/%s", center_id, subcenter_id, version, path);
+  }
+
+  @Nullable
+  private Map<Integer, Grib1Parameter> readStoredParameterTable() {
+    ByteBuffer bb = GribTableStore.getInstance().getTable(storeKey());
+    if (bb == null) {
+      return null;
+    }
+    center_id = bb.getInt();
+    subcenter_id = bb.getInt();
+    version = bb.getInt();
+    desc = GribTableStore.readString(bb);
+    useName = bb.get() != 0;
+    int n = bb.getInt();
+    Map<Integer, Grib1Parameter> result = new HashMap<>();
+    for (int i = 0; i < n; i++) {
+      int number = bb.getInt();
+      result.put(number, new Grib1Parameter(this, number, GribTableStore.readString(bb),
+          GribTableStore.readString(bb), GribTableStore.readString(bb), GribTableStore.readString(bb)));
+    }
+    return result;
+  }
+
+  /** Read the table from its source file, and encode it for the GribTableStore. Call storeKey() before this. */
+  synchronized byte[] encodeStoredParameterTable() throws IOException {
+    Map<Integer, Grib1Parameter> params = readSourceParameterTable();
+    GribTableStore.Encoder out = new GribTableStore.Encoder();
+    out.writeInt(center_id);
+    out.writeInt(subcenter_id);
+    out.writeInt(version);
+    out.writeNullableString(desc);
+    out.writeByte(useName ? 1 : 0);
+    out.writeInt(params.size());
+    for (Grib1Parameter param : params.values()) {
+      out.writeInt(param.number());
+      out.writeNullableString(param.name());
+      out.writeNullableString(param.description());
+      out.writeNullableString(param.unit());
+      out.writeNullableString(param.cfName());
+    }
+    return out.toByteArray();
+  }
 
+  private Map<Integer, Grib1Parameter> readSourceParameterTable() {
     try {
       if (name.startsWith("table_2_") || name.startsWith("local_table_2_")) {
         return readParameterTableEcmwf(); // ecmwf
@@ -20,8 +20,13 @@ import dev.ucdm.grib.grib2.record.Grib2RecordScanner;
 import dev.ucdm.grib.grib2.table.Grib2Tables;
 import dev.ucdm.grib.common.GribCollectionIndex;
 
+import dev.ucdm.grib.protoconvert.Grib2CollectionIndexWriter;
+import dev.ucdm.grib.protoconvert.GribCollectionIndexWriter;
+
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Formatter;
+import java.util.List;
 
 /**
  * Grib-2 Collection IOSP.
@@ -32,6 +37,10 @@ import java.util.Formatter;
  */
 public class Grib2Iosp extends GribIosp {
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(Grib2Iosp.class);
+  // a GRIB file may also have a WMO header before the first record
+  private static final List<byte[]> magicNumbers = List.of("GRIB".getBytes(StandardCharsets.US_ASCII),
+      Grib2CollectionIndexWriter.MAGIC_START.getBytes(StandardCharsets.UTF_8),
+      GribCollectionIndexWriter.PARTITION2_START.getBytes(StandardCharsets.UTF_8));
 
   static String makeVariableNameFromTable(Grib2Tables cust, GribCollection gribCollection,
                                           VariableIndex vindex, boolean useGenType) {
@@ -214,6 +223,11 @@ public class Grib2Iosp extends GribIosp {
     return Grib2RecordScanner.isValidFile(raf);
   }
 
+  @Override
+  public List<byte[]> getMagicNumbers() {
+    return magicNumbers.stream().map(byte[]::clone).toList(); // copies, so callers cant change them
+  }
+
   @Override
   public String getCdmFileTypeId() {
     return DataFormatType.GRIB2.getDescription();
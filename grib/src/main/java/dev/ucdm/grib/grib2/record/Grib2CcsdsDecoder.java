@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grib.grib2.record;
+
+import java.io.IOException;
+
+/**
+ * Decodes data compressed with the CCSDS 121.0-B lossless (Adaptive Entropy Coding) algorithm, as used by
+ * GRIB2 data representation template 5.42. Same bitstream as libaec, which is what the encoders use.
+ *
+ * @see "https://public.ccsds.org/Pubs/121x0b3.pdf"
+ * @see "https://gitlab.dkrz.de/k202009/libaec"
+ */
+public class Grib2CcsdsDecoder {
+  // libaec flags, as used in octet 22 of template 5.42
+  public static final int AEC_DATA_SIGNED = 1;
+  public static final int AEC_DATA_3BYTE = 2; // only affects the libaec output buffer
+  public static final int AEC_DATA_MSB = 4; // only affects the libaec output buffer
+  public static final int AEC_DATA_PREPROCESS = 8;
+  public static final int AEC_RESTRICTED = 16;
+  public static final int AEC_PAD_RSI = 32;
+
+  private static final int ROS = 5; // zero block code for "remainder of segment"
+  private static final int SE_MAX = 90; // largest second extension code
+
+  private final byte[] buf;
+  private final int nbits;
+  private final boolean signed;
+  private final boolean preprocess;
+  private final boolean padRsi;
+  private final int blockSize;
+  private final int rsi;
+  private final int idLen;
+
+  // bit reader: acc holds accBits bits, left aligned
+  private int bytePos;
+  private long acc;
+  private int accBits;
+
+  /**
+   * Decode CCSDS compressed data.
+   *
+   * @param buf the compressed data.
+   * @param nbits bits per sample, 1..32.
+   * @param flags the CCSDS compression options mask.
+   * @param blockSize samples in a block, 8, 16, 32 or 64.
+   * @param rsi reference sample interval, in blocks.
+   * @param nsamples number of samples to decode.
+   * @return the samples. Unsigned 32 bit samples are returned as the bit pattern, use Integer.toUnsignedLong().
+   * @throws IOException if the data is truncated or not valid.
+   */
+  public static int[] decode(byte[] buf, int nbits, int flags, int blockSize, int rsi, int nsamples)
+      throws IOException {
+    if (nbits < 1 || nbits > 32) {
+      throw new IllegalArgumentException("CCSDS bits per sample must be 1..32, was " + nbits);
+    }
+    if (blockSize != 8 && blockSize != 16 && blockSize != 32 && blockSize != 64) {
+      throw new IllegalArgumentException("CCSDS block size must be 8, 16, 32 or 64, was " + blockSize);
+    }
+    if (rsi < 1) {
+      throw new IllegalArgumentException("CCSDS reference sample interval must be > 0, was " + rsi);
+    }
+    return new Grib2CcsdsDecoder(buf, nbits, flags, blockSize, rsi).decode(nsamples);
+  }
+
+  private Grib2CcsdsDecoder(byte[] buf, int nbits, int flags, int blockSize, int rsi) {
+    this.buf = buf;
+    this.nbits = nbits;
+    this.signed = (flags & AEC_DATA_SIGNED) != 0;
+    this.preprocess = (flags & AEC_DATA_PREPROCESS) != 0;
+    this.padRsi = (flags & AEC_PAD_RSI) != 0;
+    this.blockSize = blockSize;
+    this.rsi = rsi;
+
+    if (nbits > 16) {
+      this.idLen = 5;
+    } else if (nbits > 8) {
+      this.idLen = 4;
+    } else if ((flags & AEC_RESTRICTED) != 0 && nbits <= 4) {
+      this.idLen = (nbits <= 2) ? 1 : 2;
+    } else {
+      this.idLen = 3;
+    }
+  }
+
+  private int[] decode(int nsamples) throws IOException {
+    // room for a zero block run past the end
+    int[] out = new int[nsamples + 64 * blockSize];
+    int maxId = (1 << idLen) - 1;
+    int rsiSamples = rsi * blockSize;
+
+    int n = 0;
+    while (n < nsamples) {
+      // start of a reference sample interval
+      if (n > 0 && padRsi) {
+        alignToByte();
+      }
+      int rsiStart = n;
+      boolean ref = preprocess;
+      while (n - rsiStart < rsiSamples && n < nsamples) {
+        int id = get(idLen);
+        int nref = ref ? 1 : 0;
+
+        if (id == 0) { // low entropy
+          boolean secondExtension = get(1) == 1;
+          if (ref) {
+            out[n++] = get(nbits);
+          }
+          if (secondExtension) {
+            n = secondExtension(out, n, nref);
+          } else {
+            int zeroBlocks = fs() + 1;
+            if (zeroBlocks == ROS) {
+              int b = (n - rsiStart) / blockSize;
+              zeroBlocks = Math.min(rsi - b, 64 - (b % 64));
+            } else if (zeroBlocks > ROS) {
+              zeroBlocks--;
+            }
+            n += zeroBlocks * blockSize - nref; // out is already zero
+          }
+
+        } else if (id == maxId) { // no compression
+          for (int i = 0; i < blockSize; i++) {
+            out[n++] = get(nbits);
+          }
+
+        } else { // split sample
+          int k = id - 1;
+          if (ref) {
+            out[n++] = get(nbits);
+          }
+          int count = blockSize - nref;
+          for (int i = 0; i < count; i++) {
+            out[n + i] = fs() << k;
+          }
+          if (k > 0) {
+            for (int i = 0; i < count; i++) {
+              out[n + i] += get(k);
+            }
+          }
+          n += count;
+        }
+        ref = false;
+      }
+    }
+
+    int[] result = new int[nsamples];
+    if (preprocess) {
+      postprocess(out, result, rsiSamples);
+    } else {
+      System.arraycopy(out, 0, result, 0, nsamples);
+      if (signed) {
+        for (int i = 0; i < nsamples; i++) {
+          result[i] = signExtend(result[i]);
+        }
+      }
+    }
+    return result;
+  }
+
+  // pairs of values, whose sum and second value are coded as one fundamental sequence
+  private int secondExtension(int[] out, int n, int nref) throws IOException {
+    for (int i = nref; i < blockSize;) {
+      int m = fs();
+      if (m > SE_MAX) {
+        throw new IOException("CCSDS second extension code out of range = " + m);
+      }
+      int sum = (int) ((Math.sqrt(8.0 * m + 1) - 1) / 2); // largest sum with sum * (sum + 1) / 2 <= m
+      int second = m - sum * (sum + 1) / 2;
+      if ((i & 1) == 0) {
+        out[n++] = sum - second;
+        i++;
+      }
+      out[n++] = second;
+      i++;
+    }
+    return n;
+  }
+
+  // undo the unit delay predictor and the mapping of the prediction errors
+  private void postprocess(int[] out, int[] result, int rsiSamples) {
+    long xmin = signed ? -(1L << (nbits - 1)) : 0;
+    long xmax = signed ? (1L << (nbits - 1)) - 1 : (1L << nbits) - 1;
+
+    long last = 0;
+    for (int i = 0; i < result.length; i++) {
+      long x;
+      if (i % rsiSamples == 0) { // reference sample
+        x = signed ? signExtend(out[i]) : Integer.toUnsignedLong(out[i]);
+      } else {
+        long d = Integer.toUnsignedLong(out[i]);
+        long theta = Math.min(last - xmin, xmax - last);
+        if (d <= 2 * theta) {
+          x = ((d & 1) == 0) ? last + (d >> 1) : last - ((d + 1) >> 1);
+        } else if (theta == last - xmin) {
+          x = xmin + d;
+        } else {
+          x = xmax - d;
+        }
+      }
+      result[i] = (int) x;
+      last = x;
+    }
+  }
+
+  private int signExtend(int value) {
+    int shift = 32 - nbits;
+    return (value << shift) >> shift;
+  }
+
+  //////////////////////////////////////////////////////////////
+  // bit reader
+
+  private void fill() throws IOException {
+    while (accBits <= 56) {
+      int b = 0;
+      if (bytePos < buf.length) {
+        b = buf[bytePos] & 0xff;
+      } else if (bytePos > buf.length + 8) {
+        throw new IOException("CCSDS data is truncated");
+      }
+      bytePos++;
+      acc |= ((long) b) << (56 - accBits);
+      accBits += 8;
+    }
+  }
+
+  // next nb bits, nb <= 32
+  private int get(int nb) throws IOException {
+    if (nb == 0) {
+      return 0;
+    }
+    if (accBits < nb) {
+      fill();
+    }
+    int result = (int) (acc >>> (64 - nb));
+    acc <<= nb;
+    accBits -= nb;
+    return result;
+  }
+
+  // fundamental sequence: the number of 0 bits before the next 1 bit
+  private int fs() throws IOException {
+    int count = 0;
+    while (true) {
+      if (acc == 0) {
+        count += accBits;
+        accBits = 0;
+        fill();
+        continue;
+      }
+      int lz = Long.numberOfLeadingZeros(acc);
+      acc <<= lz;
+      acc <<= 1;
+      accBits -= lz + 1;
+      return count + lz;
+    }
+  }
+
+  private void alignToByte() {
+    int drop = accBits & 7;
+    acc <<= drop;
+    accBits -= drop;
+  }
+
+}
@@ -6,7 +6,7 @@
 package dev.ucdm.grib.grib2.record;
 
 import dev.ucdm.core.io.RandomAccessFile;
-import dev.ucdm.grib.common.util.BitReader;
+import dev.ucdm.grib.common.util.BitUnpacker;
 import dev.ucdm.grib.common.util.GribNumbers;
 import dev.ucdm.grib.common.util.GribUtils;
 
@@ -40,6 +40,16 @@ public class Grib2DataReader {
     }
   }
 
+  // values are unpacked in chunks of this size
+  private static final int CHUNK = 4096;
+
+  // use Grib2JpegLosslessDecoder when it handles the codestream, else jj2000
+  private static boolean useLosslessJpegDecoder = true;
+
+  public static void setUseLosslessJpegDecoder(boolean useLosslessJpegDecoder) {
+    Grib2DataReader.useLosslessJpegDecoder = useLosslessJpegDecoder;
+  }
+
   ///////////////////////////////////////////////
 
   private final int dataTemplate;
@@ -101,6 +111,7 @@ public class Grib2DataReader {
       case 3 -> getData3(raf, (Grib2Drs.SpatialDifferencing) gdrs);
       case 40 -> getData40(raf, (Grib2Drs.Jpeg2000) gdrs);
       case 41 -> getData41(raf, (Grib2Drs.SimplePacking) gdrs);
+      case 42 -> getData42(raf, (Grib2Drs.Ccsds) gdrs);
       case 50002 -> getData50002(raf, (Grib2Drs.Ecmwf50002) gdrs);
       default -> throw new UnsupportedOperationException("Unsupported DRS type = " + dataTemplate);
     };
@@ -112,6 +123,74 @@ public class Grib2DataReader {
     return data;
   }
 
+  /**
+   * Decode only the values at the given indices of the field, without decoding the whole field.
+   * Only simple packing whose scanning mode needs no flips can be decoded this way.
+   *
+   * @param index indices into the field returned by getData()
+   * @return the values at the indices, or null if the whole field must be decoded with getData().
+   */
+  @Nullable
+  public float[] getPoints(RandomAccessFile raf, Grib2SectionBitMap bitmapSection, Grib2Drs gdrs, int[] index)
+      throws IOException {
+    if (dataTemplate != 0 || !((scanMode == 0) || (scanMode == 64))) {
+      return null;
+    }
+    this.bitmap = bitmapSection.getBitmap(raf);
+    if (bitmap != null && bitmap.length * 8 < totalNPoints) {
+      throw new IllegalStateException("Bitmap section length!= grid length");
+    }
+
+    Grib2Drs.SimplePacking sp = (Grib2Drs.SimplePacking) gdrs;
+    int nb = sp.numberOfBits;
+    float DD = (float) Math.pow(10, sp.decimalScaleFactor);
+    float R = sp.referenceValue;
+    float EE = (float) Math.pow(2.0, sp.binaryScaleFactor);
+
+    // the number of values before each byte of the bitmap
+    int[] before = null;
+    if (bitmap != null) {
+      before = new int[bitmap.length];
+      int count = 0;
+      for (int i = 0; i < bitmap.length; i++) {
+        before[i] = count;
+        count += Integer.bitCount(bitmap[i] & 0xff);
+      }
+    }
+
+    float[] result = new float[index.length];
+    byte[] b = new byte[5]; // an nb <= 32 bit value spans at most 5 bytes
+    for (int p = 0; p < index.length; p++) {
+      int i = index[p];
+      long rank = i;
+      if (bitmap != null) {
+        int bit = i % 8;
+        if (!GribNumbers.testBitIsSet(bitmap[i / 8], bit)) {
+          result[p] = staticMissingValue;
+          continue;
+        }
+        // the bitmap is most significant bit first
+        rank = before[i / 8] + Integer.bitCount(bitmap[i / 8] & (0xff00 >> bit) & 0xff);
+      }
+      long X2 = 0;
+      if (nb > 0) {
+        long bitPos = rank * nb;
+        int nbytes = (int) ((bitPos + nb - 1) / 8 - bitPos / 8) + 1;
+        raf.seek(startPos + 5 + bitPos / 8);
+        raf.readFully(b, 0, nbytes);
+        long word = 0;
+        for (int k = 0; k < nbytes; k++) {
+          word = (word << 8) | (b[k] & 0xff);
+        }
+        int shift = (int) (nbytes * 8 - (bitPos % 8) - nb);
+        X2 = (word >>> shift) & ((1L << nb) - 1);
+      }
+      // same as getData0()
+      result[p] = (R + X2 * EE) / DD;
+    }
+    return result;
+  }
+
   private static final boolean staticMissingValueInUse = true;
   private static final float staticMissingValue = Float.NaN;
 
@@ -129,6 +208,19 @@ public class Grib2DataReader {
     return mv;
   }
 
+  // the packed data, following the first 5 bytes of the data section
+  private BitUnpacker readDataSection(RandomAccessFile raf) throws IOException {
+    return BitUnpacker.read(raf, startPos + 5, dataLength - 5);
+  }
+
+  private static int maxLength(int[] L) {
+    int max = 0;
+    for (int len : L) {
+      max = Math.max(max, len);
+    }
+    return max;
+  }
+
   /*
    * 92.9.4 Data shall be coded in the form of non-negative scaled differences from a reference value
    * of the whole field plus, if applicable, a local reference value.
@@ -192,16 +284,26 @@ public class Grib2DataReader {
     // X2 = scaled encoded value
     // data[ i ] = (R + ( X1 + X2) * EE)/DD ;
 
-    BitReader reader = new BitReader(raf, startPos + 5);
+    BitUnpacker reader = readDataSection(raf);
+    int[] X2 = new int[Math.min(totalNPoints, CHUNK)];
     if (bitmap == null) {
-      for (int i = 0; i < totalNPoints; i++) {
-        // data[ i ] = (R + ( X1 + X2) * EE)/DD ;
-        data[i] = (R + reader.bits2UInt(nb) * EE) / DD;
+      for (int start = 0; start < totalNPoints; start += X2.length) {
+        int n = Math.min(X2.length, totalNPoints - start);
+        reader.unpack(nb, X2, 0, n);
+        for (int k = 0; k < n; k++) {
+          // data[ i ] = (R + ( X1 + X2) * EE)/DD ;
+          data[start + k] = (R + Integer.toUnsignedLong(X2[k]) * EE) / DD;
+        }
       }
     } else {
+      int k = X2.length; // next unused value in X2
       for (int i = 0; i < totalNPoints; i++) {
         if (GribNumbers.testBitIsSet(bitmap[i / 8], i % 8)) {
-          data[i] = (R + reader.bits2UInt(nb) * EE) / DD;
+          if (k == X2.length) {
+            reader.unpack(nb, X2, 0, X2.length);
+            k = 0;
+          }
+          data[i] = (R + Integer.toUnsignedLong(X2[k++]) * EE) / DD;
         } else {
           data[i] = staticMissingValue;
           // data[i] = R / DD;
@@ -253,25 +355,21 @@ public class Grib2DataReader {
       return nGroups0(bitmapIndicator, ref_val, mv);
     }
 
-    BitReader reader = new BitReader(raf, startPos + 5);
+    BitUnpacker reader = readDataSection(raf);
 
     // 6-xx Get reference values for groups (X1's)
     int[] X1 = new int[NG];
     int nb = gdrs.numberOfBits;
     if (nb != 0) {
-      for (int i = 0; i < NG; i++) {
-        X1[i] = (int) reader.bits2UInt(nb);
-      }
+      reader.unpack(nb, X1, 0, NG);
     }
 
     // [xx +1 ]-yy Get number of bits used to encode each group
     int[] NB = new int[NG];
     nb = gdrs.bitsGroupWidths;
     if (nb != 0) {
-      reader.incrByte();
-      for (int i = 0; i < NG; i++) {
-        NB[i] = (int) reader.bits2UInt(nb);
-      }
+      reader.alignToByte();
+      reader.unpack(nb, NB, 0, NG);
     }
 
     // [yy +1 ]-zz Get the scaled group lengths using formula
@@ -283,9 +381,10 @@ public class Grib2DataReader {
     int len_inc = gdrs.lengthIncrement;
     nb = gdrs.bitsScaledGroupLength;
 
-    reader.incrByte();
+    reader.alignToByte();
+    reader.unpack(nb, L, 0, NG);
     for (int i = 0; i < NG; i++) {
-      L[i] = ref + (int) reader.bits2UInt(nb) * len_inc;
+      L[i] = ref + L[i] * len_inc;
     }
     L[NG - 1] = gdrs.lengthLastGroup; // enter Length of Last Group
 
@@ -302,29 +401,32 @@ public class Grib2DataReader {
     // E = THE BINARY SCALE FACTOR
     // D = THE DECIMAL SCALE FACTOR
     int count = 0;
-    reader.incrByte();
+    reader.alignToByte();
+    int[] X2 = new int[maxLength(L)];
     for (int i = 0; i < NG; i++) {
-      for (int j = 0; j < L[i]; j++) {
-        if (NB[i] == 0) {
+      if (NB[i] == 0) {
+        for (int j = 0; j < L[i]; j++) {
           if (mvm == 0) { // X2 = 0
             data[count++] = (R + X1[i] * EE) / DD;
           } else { // if (mvm == 1) || (mvm == 2 )
             data[count++] = mv;
           }
-        } else {
-          int X2 = (int) reader.bits2UInt(NB[i]);
+        }
+      } else {
+        reader.unpack(NB[i], X2, 0, L[i]);
+        for (int j = 0; j < L[i]; j++) {
           if (mvm == 0) {
-            data[count++] = (R + (X1[i] + X2) * EE) / DD;
+            data[count++] = (R + (X1[i] + X2[j]) * EE) / DD;
           } else { // if (mvm == 1) || (mvm == 2 )
             // X2 is also set to missing value if all bits set to 1's
-            if (X2 == bitsmv1[NB[i]]) {
+            if (X2[j] == bitsmv1[NB[i]]) {
               data[count++] = mv;
             } else {
-              data[count++] = (R + (X1[i] + X2) * EE) / DD;
+              data[count++] = (R + (X1[i] + X2[j]) * EE) / DD;
             }
           }
         }
-      } // end for j
+      }
     } // end for i
 
     if (bitmap != null) {
@@ -439,7 +541,7 @@ public class Grib2DataReader {
       return nGroups0(bitmapIndicator, ref_val, mv);
     }
 
-    BitReader reader = new BitReader(raf, startPos + 5);
+    BitUnpacker reader = readDataSection(raf);
 
     int ival1;
     int ival2 = 0;
@@ -483,10 +585,8 @@ public class Grib2DataReader {
     int[] X1 = new int[NG]; // initialized to zero
     int nb = gdrs.numberOfBits;
     if (nb != 0) {
-      reader.incrByte();
-      for (int i = 0; i < NG; i++) {
-        X1[i] = (int) reader.bits2UInt(nb);
-      }
+      reader.alignToByte();
+      reader.unpack(nb, X1, 0, NG);
     }
 
     // [xx +1 ]-yy Get number of bits used to encode each group
@@ -494,10 +594,8 @@ public class Grib2DataReader {
     int[] NB = new int[NG]; // initialized to zero
     nb = gdrs.bitsGroupWidths;
     if (nb != 0) {
-      reader.incrByte();
-      for (int i = 0; i < NG; i++) {
-        NB[i] = (int) reader.bits2UInt(nb);
-      }
+      reader.alignToByte();
+      reader.unpack(nb, NB, 0, NG);
     }
 
     int referenceGroupWidths = gdrs.referenceGroupWidths;
@@ -515,10 +613,8 @@ public class Grib2DataReader {
     int len_inc = gdrs.lengthIncrement;
 
     if (nb != 0) {
-      reader.incrByte();
-      for (int i = 0; i < NG; i++) {
-        L[i] = (int) reader.bits2UInt(nb);
-      }
+      reader.alignToByte();
+      reader.unpack(nb, L, 0, NG);
     }
 
     int totalL = 0;
@@ -567,14 +663,16 @@ public class Grib2DataReader {
     // E = THE BINARY SCALE FACTOR
     // D = THE DECIMAL SCALE FACTOR
     int count = 0;
-    reader.incrByte();
+    reader.alignToByte();
     int dataSize = 0;
     boolean[] dataBitMap = null;
+    int[] X2 = new int[maxLength(L)];
     if (mvm == 0) {
       for (int i = 0; i < NG; i++) {
         if (NB[i] != 0) {
+          reader.unpack(NB[i], X2, 0, L[i]);
           for (int j = 0; j < L[i]; j++) {
-            data[count++] = (int) reader.bits2UInt(NB[i]) + X1[i];
+            data[count++] = X2[j] + X1[i];
           }
         } else {
           for (int j = 0; j < L[i]; j++) {
@@ -591,8 +689,9 @@ public class Grib2DataReader {
         if (NB[i] != 0) {
           int msng1 = bitsmv1[NB[i]];
           int msng2 = msng1 - 1;
+          reader.unpack(NB[i], X2, 0, L[i]);
           for (int j = 0; j < L[i]; j++) {
-            data[count] = (int) reader.bits2UInt(NB[i]);
+            data[count] = X2[j];
             if (data[count] == msng1 || mvm == 2 && data[count] == msng2) {
               dataBitMap[count] = false;
             } else {
@@ -716,16 +815,6 @@ public class Grib2DataReader {
     float EE = (float) Math.pow(2.0, (double) E);
     float ref_val = R / DD;
 
-    Grib2JpegDecoder g2j = null;
-    // try {
-    if (nb != 0) { // there's data to decode
-      g2j = new Grib2JpegDecoder(nb, false);
-      byte[] buf = new byte[dataLength - 5];
-      raf.readFully(buf);
-      g2j.decode(buf);
-      gdrs.hasSignedProblem = g2j.hasSignedProblem();
-    }
-
     float[] result = new float[totalNPoints];
 
     // no data to decode, set to reference value
@@ -736,7 +825,7 @@ public class Grib2DataReader {
       return result;
     }
 
-    int[] idata = g2j.getGdata();
+    int[] idata = decodeJpeg2000(raf, gdrs);
     if (bitmap == null) { // must be one decoded value in idata for every expected data point
       if (idata.length != dataNPoints) {
         logger.debug("Number of points in the data record {} != {} expected from GDS", idata.length, dataNPoints);
@@ -769,6 +858,63 @@ public class Grib2DataReader {
     return result;
   }
 
+  // decode the JPEG 2000 codestream, with the lossless decoder if it can, else with jj2000
+  private int[] decodeJpeg2000(RandomAccessFile raf, Grib2Drs.Jpeg2000 gdrs) throws IOException {
+    byte[] buf = new byte[dataLength - 5];
+    raf.readFully(buf);
+
+    if (useLosslessJpegDecoder) {
+      Grib2JpegLosslessDecoder decoder = new Grib2JpegLosslessDecoder(gdrs.numberOfBits);
+      if (decoder.decode(buf)) {
+        gdrs.hasSignedProblem = decoder.hasSignedProblem();
+        return decoder.getGdata();
+      }
+    }
+
+    Grib2JpegDecoder g2j = new Grib2JpegDecoder(gdrs.numberOfBits, false);
+    g2j.decode(buf);
+    gdrs.hasSignedProblem = g2j.hasSignedProblem();
+    return g2j.getGdata();
+  }
+
+  // Grid point data - CCSDS recommended lossless compression
+  private float[] getData42(RandomAccessFile raf, Grib2Drs.Ccsds gdrs) throws IOException {
+    int nb = gdrs.numberOfBits;
+    float DD = (float) Math.pow(10, gdrs.decimalScaleFactor);
+    float R = gdrs.referenceValue;
+    float EE = (float) Math.pow(2.0, gdrs.binaryScaleFactor);
+
+    int[] idata;
+    if (nb == 0) { // no data to decode, set to reference value
+      idata = new int[dataNPoints];
+    } else {
+      byte[] buf = new byte[dataLength - 5];
+      raf.readFully(buf);
+      idata = Grib2CcsdsDecoder.decode(buf, nb, gdrs.ccsdsFlags, gdrs.blockSize, gdrs.referenceSampleInterval,
+          dataNPoints);
+    }
+    boolean signed = (gdrs.ccsdsFlags & Grib2CcsdsDecoder.AEC_DATA_SIGNED) != 0;
+
+    float[] result = new float[totalNPoints];
+    if (bitmap == null) {
+      for (int i = 0; i < Math.min(dataNPoints, totalNPoints); i++) {
+        long X2 = signed ? idata[i] : Integer.toUnsignedLong(idata[i]);
+        result[i] = (R + X2 * EE) / DD;
+      }
+    } else {
+      for (int i = 0, j = 0; i < totalNPoints; i++) {
+        if (GribNumbers.testBitIsSet(bitmap[i / 8], i % 8) && j < dataNPoints) {
+          long X2 = signed ? idata[j] : Integer.toUnsignedLong(idata[j]);
+          result[i] = (R + X2 * EE) / DD;
+          j++;
+        } else {
+          result[i] = staticMissingValue;
+        }
+      }
+    }
+    return result;
+  }
+
   // Grid point data - JPEG 2000 code stream format
   @Nullable
   private int[] getData40raw(RandomAccessFile raf, Grib2Drs.Jpeg2000 gdrs) throws IOException {
@@ -778,14 +924,7 @@ public class Grib2DataReader {
     }
     int missing_value = (2 << nb - 1) - 1; // all ones - reserved for missing value
 
-    Grib2JpegDecoder g2j;
-    g2j = new Grib2JpegDecoder(nb, false);
-    byte[] buf = new byte[dataLength - 5];
-    raf.readFully(buf);
-    g2j.decode(buf);
-    gdrs.hasSignedProblem = g2j.hasSignedProblem();
-
-    int[] idata = g2j.getGdata();
+    int[] idata = decodeJpeg2000(raf, gdrs);
 
     if (bitmap == null) { // must be one decoded value in idata for every expected data point
       if (idata.length != totalNPoints) {
@@ -921,39 +1060,30 @@ public class Grib2DataReader {
   // https://github.com/erdc-cm/grib_api/blob/master/src/grib_accessor_class_data_g1second_order_general_extended_packing.c
   private float[] getData50002(RandomAccessFile raf, Grib2Drs.Ecmwf50002 gdrs) throws IOException {
 
-    BitReader reader;
-
-    reader = new BitReader(raf, startPos + 5);
+    BitUnpacker reader = readDataSection(raf);
     int[] groupWidth = new int[gdrs.p1];
-    for (int i = 0; i < gdrs.p1; i++) {
-      groupWidth[i] = (int) reader.bits2UInt(gdrs.widthOfWidth);
-    }
+    reader.unpack(gdrs.widthOfWidth, groupWidth, 0, gdrs.p1);
 
-    reader = new BitReader(raf, raf.getFilePointer());
+    reader.alignToByte();
     int[] groupLength = new int[gdrs.p1];
-    for (int i = 0; i < gdrs.p1; i++) {
-      groupLength[i] = (int) reader.bits2UInt(gdrs.widthOfLength);
-    }
+    reader.unpack(gdrs.widthOfLength, groupLength, 0, gdrs.p1);
 
-    reader = new BitReader(raf, raf.getFilePointer());
+    reader.alignToByte();
     int[] firstOrderValues = new int[gdrs.p1];
-    for (int i = 0; i < gdrs.p1; i++) {
-      firstOrderValues[i] = (int) reader.bits2UInt(gdrs.widthOfFirstOrderValues);
-    }
+    reader.unpack(gdrs.widthOfFirstOrderValues, firstOrderValues, 0, gdrs.p1);
 
     int bias = 0;
     if (gdrs.orderOfSPD > 0) {
       bias = gdrs.spd[gdrs.orderOfSPD];
     }
 
-    reader = new BitReader(raf, raf.getFilePointer());
+    reader.alignToByte();
     int cnt = gdrs.orderOfSPD;
     int[] data = new int[totalNPoints];
     for (int i = 0; i < gdrs.p1; i++) {
       if (groupWidth[i] > 0) {
-
+        reader.unpack(groupWidth[i], data, cnt, groupLength[i]);
         for (int j = 0; j < groupLength[i]; j++) {
-          data[cnt] = (int) reader.bits2UInt(groupWidth[i]);
           data[cnt] += firstOrderValues[i];
           cnt++;
         }
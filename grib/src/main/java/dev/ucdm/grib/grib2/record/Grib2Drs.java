@@ -34,6 +34,7 @@ public abstract class Grib2Drs {
       case 2 -> new ComplexPacking(raf);
       case 3 -> new SpatialDifferencing(raf);
       case 40 -> new Jpeg2000(raf);
+      case 42 -> new Ccsds(raf);
       // ECMWF's second order packing
       case 50002 -> new Ecmwf50002(raf);
       default -> throw new UnsupportedOperationException("Unsupported DRS type = " + template);
@@ -253,6 +254,34 @@ public abstract class Grib2Drs {
 
   }
 
+  /*
+   * Data representation template 5.42 – Grid point and spectral data – CCSDS recommended lossless compression
+   * 12–21 Same as data representation template 5.0
+   * 22 CCSDS compression options mask (see Note 3)
+   * 23 Block size
+   * 24–25 Reference sample interval
+   * Note: (3) The compression options mask is as defined for the libaec flags: bit 1 signed data, bit 4 preprocessing,
+   * bit 5 restricted id codes, bit 6 pad each RSI to a byte boundary.
+   */
+  public static class Ccsds extends SimplePacking {
+    int ccsdsFlags, blockSize, referenceSampleInterval;
+
+    Ccsds(RandomAccessFile raf) throws IOException {
+      super(raf);
+      this.ccsdsFlags = raf.read();
+      this.blockSize = raf.read();
+      this.referenceSampleInterval = GribNumbers.uint2(raf);
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this).add("referenceValue", referenceValue)
+          .add("binaryScaleFactor", binaryScaleFactor).add("decimalScaleFactor", decimalScaleFactor)
+          .add("numberOfBits", numberOfBits).add("originalType", originalType).add("ccsdsFlags", ccsdsFlags)
+          .add("blockSize", blockSize).add("referenceSampleInterval", referenceSampleInterval).toString();
+    }
+  }
+
   // Special ECMWF packing format
   // pull request #52 "lost-carrier" jkaehler@meteomatics.com
   // see https://github.com/erdc-cm/grib_api/blob/master/definitions/grib2/template.5.50002.def
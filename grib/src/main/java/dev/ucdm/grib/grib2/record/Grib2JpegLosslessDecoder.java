@@ -0,0 +1,1278 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grib.grib2.record;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A JPEG 2000 decoder for the codestreams that GRIB2 producers write for template 5.40: a single tile and component,
+ * reversible 5/3 wavelet, no quantization. Decodes straight into an int[], and is much faster than the general jj2000
+ * pipeline in {@link Grib2JpegDecoder}.
+ * {@link #decode} returns false for codestreams that use other features, so the caller can fall back to
+ * Grib2JpegDecoder. Each instance decodes one codestream at a time; use separate instances on separate threads.
+ *
+ * @see "ITU-T T.800 | ISO/IEC 15444-1"
+ */
+public class Grib2JpegLosslessDecoder {
+  private static final Logger logger = LoggerFactory.getLogger(Grib2JpegLosslessDecoder.class);
+
+  // markers
+  private static final int SOC = 0xFF4F;
+  private static final int SOT = 0xFF90;
+  private static final int SOD = 0xFF93;
+  private static final int SIZ = 0xFF51;
+  private static final int COD = 0xFF52;
+  private static final int COC = 0xFF53;
+  private static final int QCD = 0xFF5C;
+  private static final int QCC = 0xFF5D;
+  private static final int RGN = 0xFF5E;
+  private static final int POC = 0xFF5F;
+  private static final int PPM = 0xFF60;
+  private static final int PPT = 0xFF61;
+  private static final int SOP = 0xFF91;
+  private static final int EPH = 0xFF92;
+
+  // code-block styles
+  private static final int CBLK_BYPASS = 1;
+  private static final int CBLK_RESET = 2;
+  private static final int CBLK_TERMALL = 4;
+  private static final int CBLK_VCAUSAL = 8;
+  private static final int CBLK_SEGSYM = 32;
+  private static final int CBLK_UNSUPPORTED = CBLK_BYPASS | CBLK_TERMALL | CBLK_VCAUSAL | ~0x3f;
+
+  // subband orientations
+  private static final int LL = 0;
+  private static final int HL = 1;
+  private static final int LH = 2;
+  private static final int HH = 3;
+
+  private final int nbits;
+  private int[] data;
+  private boolean hasSignedProblem;
+
+  // scratch, reused for each code-block
+  private final T1 t1 = new T1();
+  private final MQDecoder mq = new MQDecoder();
+
+  /** @param nbits number of bits for each packed value, from the data representation section */
+  Grib2JpegLosslessDecoder(int nbits) {
+    this.nbits = nbits;
+  }
+
+  /** Return the decoded data as an int array, after decode() returns true. */
+  public int[] getGdata() {
+    return data;
+  }
+
+  /** True if the component is unsigned, and its bit depth is not the same as the number of bits in the DRS. */
+  public boolean hasSignedProblem() {
+    return hasSignedProblem;
+  }
+
+  /**
+   * Decode the codestream.
+   *
+   * @return false if the codestream uses features this decoder does not handle.
+   * @throws IOException if the codestream is not valid.
+   */
+  public boolean decode(byte[] buf) throws IOException {
+    Codestream cs = new Codestream(buf);
+    try {
+      if (!cs.readHeaders()) {
+        return false;
+      }
+      Tile tile = new Tile(cs);
+      tile.readPackets();
+      int[] samples = tile.decode();
+
+      if (!cs.signed) {
+        int levShift = 1 << (cs.bitDepth - 1);
+        for (int i = 0; i < samples.length; i++) {
+          samples[i] += levShift;
+        }
+      }
+      // as in jj2000, only unsigned components are corrected
+      this.hasSignedProblem = !cs.signed && (cs.bitDepth != nbits);
+      this.data = samples;
+      return true;
+
+    } catch (ArrayIndexOutOfBoundsException | IllegalStateException e) {
+      throw new IOException("Bad JPEG 2000 codestream: " + e.getMessage(), e);
+    }
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////
+  // codestream headers
+
+  private static class CodingStyle {
+    int levels, xcb, ycb, cbStyle, transform;
+    int[] ppx, ppy; // precinct exponents for each resolution
+
+    static CodingStyle read(byte[] buf, int pos, boolean hasPrecincts) {
+      CodingStyle cs = new CodingStyle();
+      cs.levels = buf[pos] & 0xff;
+      cs.xcb = (buf[pos + 1] & 0xff) + 2;
+      cs.ycb = (buf[pos + 2] & 0xff) + 2;
+      cs.cbStyle = buf[pos + 3] & 0xff;
+      cs.transform = buf[pos + 4] & 0xff;
+      cs.ppx = new int[cs.levels + 1];
+      cs.ppy = new int[cs.levels + 1];
+      for (int r = 0; r <= cs.levels; r++) {
+        int pp = hasPrecincts ? buf[pos + 5 + r] & 0xff : 0xff;
+        cs.ppx[r] = pp & 0xf;
+        cs.ppy[r] = pp >> 4;
+      }
+      return cs;
+    }
+  }
+
+  private static class Quantization {
+    int guardBits, style;
+    int[] exponents; // by subband: LL, then HL, LH, HH for each resolution
+
+    static Quantization read(byte[] buf, int pos, int end) {
+      Quantization q = new Quantization();
+      int sq = buf[pos] & 0xff;
+      q.guardBits = sq >> 5;
+      q.style = sq & 0x1f;
+      if (q.style == 0) {
+        q.exponents = new int[end - pos - 1];
+        for (int i = 0; i < q.exponents.length; i++) {
+          q.exponents[i] = (buf[pos + 1 + i] & 0xff) >> 3;
+        }
+      }
+      return q;
+    }
+  }
+
+  private static class Codestream {
+    final byte[] buf;
+
+    int x0, y0, x1, y1; // image area on the reference grid
+    int tileX0, tileY0, tileW, tileH; // tile grid
+    int ncomps, bitDepth;
+    boolean signed;
+
+    int scod, progression, layers;
+    CodingStyle cod, coc, tileCod, tileCoc;
+    Quantization qcd, qcc, tileQcd, tileQcc;
+
+    byte[] tileData = new byte[0];
+    int tileDataLen;
+
+    Codestream(byte[] buf) {
+      this.buf = buf;
+    }
+
+    CodingStyle codingStyle() {
+      return tileCoc != null ? tileCoc : tileCod != null ? tileCod : coc != null ? coc : cod;
+    }
+
+    Quantization quantization() {
+      return tileQcc != null ? tileQcc : tileQcd != null ? tileQcd : qcc != null ? qcc : qcd;
+    }
+
+    int u16(int pos) {
+      return ((buf[pos] & 0xff) << 8) | (buf[pos + 1] & 0xff);
+    }
+
+    long u32(int pos) {
+      return ((long) u16(pos) << 16) | u16(pos + 2);
+    }
+
+    int i32(int pos) {
+      return (int) u32(pos);
+    }
+
+    // false if not supported
+    boolean readHeaders() {
+      if (buf.length < 4 || u16(0) != SOC) {
+        logger.debug("not a JPEG 2000 codestream");
+        return false;
+      }
+      int pos = 2;
+      boolean hasSiz = false;
+      while (pos + 4 <= buf.length) {
+        int marker = u16(pos);
+        if (marker == SOT) {
+          break;
+        }
+        int len = u16(pos + 2);
+        int seg = pos + 4;
+        int end = pos + 2 + len;
+        switch (marker) {
+          case SIZ -> {
+            x1 = i32(seg + 2);
+            y1 = i32(seg + 6);
+            x0 = i32(seg + 10);
+            y0 = i32(seg + 14);
+            tileW = i32(seg + 18);
+            tileH = i32(seg + 22);
+            tileX0 = i32(seg + 26);
+            tileY0 = i32(seg + 30);
+            ncomps = u16(seg + 34);
+            int ssiz = buf[seg + 36] & 0xff;
+            bitDepth = (ssiz & 0x7f) + 1;
+            signed = (ssiz & 0x80) != 0;
+            int xr = buf[seg + 37] & 0xff;
+            int yr = buf[seg + 38] & 0xff;
+            if (ncomps != 1 || xr != 1 || yr != 1) {
+              return unsupported("ncomps=" + ncomps + " subsampling=" + xr + "," + yr);
+            }
+            hasSiz = true;
+          }
+          case COD -> {
+            scod = buf[seg] & 0xff;
+            progression = buf[seg + 1] & 0xff;
+            layers = u16(seg + 2);
+            cod = CodingStyle.read(buf, seg + 5, (scod & 1) != 0);
+          }
+          case COC -> coc = CodingStyle.read(buf, seg + 2, (buf[seg + 1] & 1) != 0);
+          case QCD -> qcd = Quantization.read(buf, seg, end);
+          case QCC -> qcc = Quantization.read(buf, seg + 1, end);
+          case RGN, POC, PPM -> {
+            return unsupported("marker " + Integer.toHexString(marker));
+          }
+          default -> {
+            // COM, TLM, PLM, CRG: not needed
+          }
+        }
+        pos = end;
+      }
+      if (!hasSiz || cod == null || qcd == null) {
+        throw new IllegalStateException("missing SIZ, COD or QCD");
+      }
+      int ntilesX = ceilDiv(x1 - tileX0, tileW);
+      int ntilesY = ceilDiv(y1 - tileY0, tileH);
+      if (ntilesX * ntilesY != 1) {
+        return unsupported("ntiles=" + ntilesX * ntilesY);
+      }
+
+      // tile-parts, all for tile 0
+      while (pos + 12 <= buf.length && u16(pos) == SOT) {
+        int lsot = u16(pos + 2);
+        long psot = u32(pos + 6);
+        int p = pos + 2 + lsot;
+        while (u16(p) != SOD) {
+          int marker = u16(p);
+          int len = u16(p + 2);
+          int seg = p + 4;
+          int end = p + 2 + len;
+          switch (marker) {
+            case COD -> {
+              scod = buf[seg] & 0xff;
+              progression = buf[seg + 1] & 0xff;
+              layers = u16(seg + 2);
+              tileCod = CodingStyle.read(buf, seg + 5, (scod & 1) != 0);
+            }
+            case COC -> tileCoc = CodingStyle.read(buf, seg + 2, (buf[seg + 1] & 1) != 0);
+            case QCD -> tileQcd = Quantization.read(buf, seg, end);
+            case QCC -> tileQcc = Quantization.read(buf, seg + 1, end);
+            case RGN, POC, PPT -> {
+              return unsupported("marker " + Integer.toHexString(marker));
+            }
+            default -> {
+              // COM, PLT: not needed
+            }
+          }
+          p = end;
+        }
+        p += 2;
+        int end = (psot == 0) ? buf.length : (int) Math.min(buf.length, pos + psot);
+        appendTileData(p, end);
+        pos = end;
+      }
+
+      CodingStyle style = codingStyle();
+      Quantization quant = quantization();
+      if (style.transform != 1) {
+        return unsupported("irreversible wavelet");
+      }
+      if (quant.style != 0 || quant.exponents.length < 3 * style.levels + 1) {
+        return unsupported("quantization style=" + quant.style);
+      }
+      if ((style.cbStyle & CBLK_UNSUPPORTED) != 0) {
+        return unsupported("code-block style=" + style.cbStyle);
+      }
+      return true;
+    }
+
+    private void appendTileData(int start, int end) {
+      int n = Math.max(0, end - start);
+      if (tileDataLen + n > tileData.length) {
+        tileData = Arrays.copyOf(tileData, tileDataLen + n);
+      }
+      System.arraycopy(buf, start, tileData, tileDataLen, n);
+      tileDataLen += n;
+    }
+
+    private boolean unsupported(String what) {
+      logger.debug("JPEG 2000 codestream not supported: {}", what);
+      return false;
+    }
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////
+  // tile structure and tier-2 decoding
+
+  private static class CodeBlock {
+    final int x0, y0, x1, y1; // in subband coordinates
+    boolean included;
+    int zeroBitplanes;
+    int lblock = 3;
+    int npasses;
+    int[] segments = new int[2]; // offset, length pairs into tileData
+    int nsegments;
+
+    CodeBlock(int x0, int y0, int x1, int y1) {
+      this.x0 = x0;
+      this.y0 = y0;
+      this.x1 = x1;
+      this.y1 = y1;
+    }
+
+    void addSegment(int offset, int len) {
+      if (2 * nsegments + 2 > segments.length) {
+        segments = Arrays.copyOf(segments, 2 * segments.length);
+      }
+      segments[2 * nsegments] = offset;
+      segments[2 * nsegments + 1] = len;
+      nsegments++;
+    }
+  }
+
+  private static class Subband {
+    final int orient;
+    final int x0, y0, x1, y1;
+    final int magBits; // number of magnitude bitplanes
+    final int xoff, yoff; // position in the tile buffer
+
+    Subband(int orient, int x0, int y0, int x1, int y1, int magBits, int xoff, int yoff) {
+      this.orient = orient;
+      this.x0 = x0;
+      this.y0 = y0;
+      this.x1 = x1;
+      this.y1 = y1;
+      this.magBits = magBits;
+      this.xoff = xoff;
+      this.yoff = yoff;
+    }
+  }
+
+  // the code-blocks of one subband in one precinct
+  private static class PrecinctBand {
+    final Subband band;
+    final int ncbx, ncby;
+    final CodeBlock[] cblks;
+    final TagTree inclusion, zeroBitplanes;
+
+    PrecinctBand(Subband band, int px0, int py0, int px1, int py1, int xcb, int ycb) {
+      this.band = band;
+      int x0 = Math.max(px0, band.x0);
+      int y0 = Math.max(py0, band.y0);
+      int x1 = Math.min(px1, band.x1);
+      int y1 = Math.min(py1, band.y1);
+      if (x1 <= x0 || y1 <= y0) {
+        ncbx = 0;
+        ncby = 0;
+      } else {
+        ncbx = ceilDiv(x1, 1 << xcb) - (x0 >> xcb);
+        ncby = ceilDiv(y1, 1 << ycb) - (y0 >> ycb);
+      }
+      cblks = new CodeBlock[ncbx * ncby];
+      for (int j = 0; j < ncby; j++) {
+        for (int i = 0; i < ncbx; i++) {
+          int cx = ((x0 >> xcb) + i) << xcb;
+          int cy = ((y0 >> ycb) + j) << ycb;
+          cblks[j * ncbx + i] = new CodeBlock(Math.max(cx, x0), Math.max(cy, y0), Math.min(cx + (1 << xcb), x1),
+              Math.min(cy + (1 << ycb), y1));
+        }
+      }
+      inclusion = new TagTree(ncbx, ncby);
+      zeroBitplanes = new TagTree(ncbx, ncby);
+    }
+  }
+
+  private static class Resolution {
+    final int x0, y0, x1, y1;
+    final int ppx, ppy; // precinct exponents
+    final int npx, npy;
+    final Subband[] bands;
+    PrecinctBand[][] precincts; // [precinct][band]
+
+    Resolution(int x0, int y0, int x1, int y1, int ppx, int ppy, Subband[] bands) {
+      this.x0 = x0;
+      this.y0 = y0;
+      this.x1 = x1;
+      this.y1 = y1;
+      this.ppx = ppx;
+      this.ppy = ppy;
+      this.npx = (x1 > x0) ? ceilDiv(x1, 1 << ppx) - (x0 >> ppx) : 0;
+      this.npy = (y1 > y0) ? ceilDiv(y1, 1 << ppy) - (y0 >> ppy) : 0;
+      this.bands = bands;
+    }
+
+    int width() {
+      return x1 - x0;
+    }
+
+    int height() {
+      return y1 - y0;
+    }
+  }
+
+  private class Tile {
+    final Codestream cs;
+    final CodingStyle style;
+    final int tx0, ty0, tx1, ty1;
+    final int width, height;
+    final Resolution[] resolutions;
+
+    Tile(Codestream cs) {
+      this.cs = cs;
+      this.style = cs.codingStyle();
+      Quantization quant = cs.quantization();
+      this.tx0 = Math.max(cs.tileX0, cs.x0);
+      this.ty0 = Math.max(cs.tileY0, cs.y0);
+      this.tx1 = Math.min(cs.tileX0 + cs.tileW, cs.x1);
+      this.ty1 = Math.min(cs.tileY0 + cs.tileH, cs.y1);
+      this.width = tx1 - tx0;
+      this.height = ty1 - ty0;
+
+      int nl = style.levels;
+      resolutions = new Resolution[nl + 1];
+      for (int r = 0; r <= nl; r++) {
+        int scale = 1 << (nl - r);
+        int rx0 = ceilDiv(tx0, scale);
+        int ry0 = ceilDiv(ty0, scale);
+        int rx1 = ceilDiv(tx1, scale);
+        int ry1 = ceilDiv(ty1, scale);
+
+        Subband[] bands;
+        if (r == 0) {
+          int magBits = quant.guardBits + quant.exponents[0] - 1;
+          bands = new Subband[] {new Subband(LL, rx0, ry0, rx1, ry1, magBits, 0, 0)};
+        } else {
+          // the lower resolution is the LL band of this one
+          int lowW = ceilDiv(tx1, scale * 2) - ceilDiv(tx0, scale * 2);
+          int lowH = ceilDiv(ty1, scale * 2) - ceilDiv(ty0, scale * 2);
+          bands = new Subband[3];
+          for (int b = 0; b < 3; b++) {
+            int orient = b + 1;
+            int xo = orient & 1;
+            int yo = orient >> 1;
+            int bx0 = ceilDiv(tx0 - xo * scale, 2 * scale);
+            int by0 = ceilDiv(ty0 - yo * scale, 2 * scale);
+            int bx1 = ceilDiv(tx1 - xo * scale, 2 * scale);
+            int by1 = ceilDiv(ty1 - yo * scale, 2 * scale);
+            int magBits = quant.guardBits + quant.exponents[3 * (r - 1) + 1 + b] - 1;
+            bands[b] = new Subband(orient, bx0, by0, bx1, by1, magBits, xo * lowW, yo * lowH);
+          }
+        }
+        Resolution res = new Resolution(rx0, ry0, rx1, ry1, style.ppx[r], style.ppy[r], bands);
+
+        // precincts and their code-blocks
+        int bandPpx = (r == 0) ? res.ppx : res.ppx - 1;
+        int bandPpy = (r == 0) ? res.ppy : res.ppy - 1;
+        int xcb = Math.min(style.xcb, bandPpx);
+        int ycb = Math.min(style.ycb, bandPpy);
+        res.precincts = new PrecinctBand[res.npx * res.npy][];
+        for (int pj = 0; pj < res.npy; pj++) {
+          for (int pi = 0; pi < res.npx; pi++) {
+            int pax = (rx0 >> res.ppx) + pi;
+            int pay = (ry0 >> res.ppy) + pj;
+            PrecinctBand[] pbands = new PrecinctBand[bands.length];
+            for (int b = 0; b < bands.length; b++) {
+              pbands[b] = new PrecinctBand(bands[b], pax << bandPpx, pay << bandPpy, (pax + 1) << bandPpx,
+                  (pay + 1) << bandPpy, xcb, ycb);
+            }
+            res.precincts[pj * res.npx + pi] = pbands;
+          }
+        }
+        resolutions[r] = res;
+      }
+    }
+
+    void readPackets() {
+      PacketReader reader = new PacketReader(cs.tileData, cs.tileDataLen, (cs.scod & 2) != 0, (cs.scod & 4) != 0);
+      int nl = style.levels;
+      int layers = cs.layers;
+
+      switch (cs.progression) {
+        case 0 -> { // LRCP
+          for (int l = 0; l < layers; l++) {
+            for (int r = 0; r <= nl; r++) {
+              Resolution res = resolutions[r];
+              for (int p = 0; p < res.precincts.length; p++) {
+                reader.readPacket(l, res.precincts[p]);
+              }
+            }
+          }
+        }
+        case 1 -> { // RLCP
+          for (int r = 0; r <= nl; r++) {
+            Resolution res = resolutions[r];
+            for (int l = 0; l < layers; l++) {
+              for (int p = 0; p < res.precincts.length; p++) {
+                reader.readPacket(l, res.precincts[p]);
+              }
+            }
+          }
+        }
+        case 2 -> { // RPCL
+          for (int r = 0; r <= nl; r++) {
+            Resolution res = resolutions[r];
+            for (int p = 0; p < res.precincts.length; p++) {
+              for (int l = 0; l < layers; l++) {
+                reader.readPacket(l, res.precincts[p]);
+              }
+            }
+          }
+        }
+        case 3, 4 -> readPacketsByPosition(reader); // PCRL, CPRL are the same with one component
+        default -> throw new IllegalStateException("unknown progression order " + cs.progression);
+      }
+    }
+
+    // B.12.1.4
+    private void readPacketsByPosition(PacketReader reader) {
+      int nl = style.levels;
+      long xstep = Long.MAX_VALUE;
+      long ystep = Long.MAX_VALUE;
+      for (int r = 0; r <= nl; r++) {
+        xstep = Math.min(xstep, 1L << (resolutions[r].ppx + nl - r));
+        ystep = Math.min(ystep, 1L << (resolutions[r].ppy + nl - r));
+      }
+      for (long y = ty0; y < ty1; y += ystep - (y % ystep)) {
+        for (long x = tx0; x < tx1; x += xstep - (x % xstep)) {
+          for (int r = 0; r <= nl; r++) {
+            Resolution res = resolutions[r];
+            if (res.npx == 0 || res.npy == 0) {
+              continue;
+            }
+            int level = nl - r;
+            long rpx = 1L << (res.ppx + level);
+            long rpy = 1L << (res.ppy + level);
+            boolean ystart = (y % rpy == 0) || (y == ty0 && (((long) res.y0 << level) % rpy) != 0);
+            boolean xstart = (x % rpx == 0) || (x == tx0 && (((long) res.x0 << level) % rpx) != 0);
+            if (!ystart || !xstart) {
+              continue;
+            }
+            int pi = (int) (ceilDiv(x, 1L << level) >> res.ppx) - (res.x0 >> res.ppx);
+            int pj = (int) (ceilDiv(y, 1L << level) >> res.ppy) - (res.y0 >> res.ppy);
+            for (int l = 0; l < cs.layers; l++) {
+              reader.readPacket(l, res.precincts[pj * res.npx + pi]);
+            }
+          }
+        }
+      }
+    }
+
+    int[] decode() {
+      int[] buffer = new int[width * height];
+      boolean reset = (style.cbStyle & CBLK_RESET) != 0;
+      boolean segsym = (style.cbStyle & CBLK_SEGSYM) != 0;
+
+      for (Resolution res : resolutions) {
+        for (PrecinctBand[] pbands : res.precincts) {
+          for (PrecinctBand pband : pbands) {
+            Subband band = pband.band;
+            for (CodeBlock cblk : pband.cblks) {
+              int numbps = band.magBits - cblk.zeroBitplanes;
+              if (cblk.npasses == 0 || numbps <= 0) {
+                continue; // all zero
+              }
+              int w = cblk.x1 - cblk.x0;
+              int h = cblk.y1 - cblk.y0;
+              setCodeBlockData(cblk);
+              t1.decode(mq, w, h, band.orient, numbps, cblk.npasses, reset, segsym);
+
+              // into the tile buffer
+              int bx = band.xoff + cblk.x0 - band.x0;
+              int by = band.yoff + cblk.y0 - band.y0;
+              for (int j = 0; j < h; j++) {
+                System.arraycopy(t1.coefficients, j * w, buffer, (by + j) * width + bx, w);
+              }
+            }
+          }
+        }
+      }
+
+      inverseWavelet(buffer);
+      return buffer;
+    }
+
+    private void setCodeBlockData(CodeBlock cblk) {
+      if (cblk.nsegments == 1) {
+        mq.init(cs.tileData, cblk.segments[0], cblk.segments[0] + cblk.segments[1]);
+        return;
+      }
+      int total = 0;
+      for (int s = 0; s < cblk.nsegments; s++) {
+        total += cblk.segments[2 * s + 1];
+      }
+      byte[] joined = new byte[total];
+      int pos = 0;
+      for (int s = 0; s < cblk.nsegments; s++) {
+        System.arraycopy(cs.tileData, cblk.segments[2 * s], joined, pos, cblk.segments[2 * s + 1]);
+        pos += cblk.segments[2 * s + 1];
+      }
+      mq.init(joined, 0, total);
+    }
+
+    // F.3.2 2D_SR, one level at a time
+    private void inverseWavelet(int[] buffer) {
+      int[] line = new int[Math.max(width, height)];
+      for (int r = 1; r < resolutions.length; r++) {
+        Resolution res = resolutions[r];
+        Resolution low = resolutions[r - 1];
+        int rw = res.width();
+        int rh = res.height();
+
+        // rows
+        for (int y = 0; y < rh; y++) {
+          int offset = y * width;
+          interleave(buffer, offset, 1, rw, low.width(), res.x0 & 1, line);
+          synthesize(line, rw, res.x0 & 1);
+          for (int k = 0; k < rw; k++) {
+            buffer[offset + k] = line[k];
+          }
+        }
+        // columns
+        for (int x = 0; x < rw; x++) {
+          interleave(buffer, x, width, rh, low.height(), res.y0 & 1, line);
+          synthesize(line, rh, res.y0 & 1);
+          for (int k = 0; k < rh; k++) {
+            buffer[x + k * width] = line[k];
+          }
+        }
+      }
+    }
+  }
+
+  private static void interleave(int[] buffer, int offset, int stride, int n, int nlow, int cas, int[] line) {
+    int low = 0;
+    int high = nlow;
+    for (int k = 0; k < n; k++) {
+      int src = ((cas + k) & 1) == 0 ? low++ : high++;
+      line[k] = buffer[offset + src * stride];
+    }
+  }
+
+  // 1D reversible 5/3 synthesis with symmetric extension. cas = parity of the first coordinate.
+  static void synthesize(int[] x, int n, int cas) {
+    if (n == 1) {
+      if (cas == 1) {
+        x[0] /= 2;
+      }
+      return;
+    }
+    // even coordinates
+    for (int k = cas; k < n; k += 2) {
+      x[k] -= (x[ext(k - 1, n)] + x[ext(k + 1, n)] + 2) >> 2;
+    }
+    // odd coordinates
+    for (int k = 1 - cas; k < n; k += 2) {
+      x[k] += (x[ext(k - 1, n)] + x[ext(k + 1, n)]) >> 1;
+    }
+  }
+
+  private static int ext(int k, int n) {
+    if (k < 0) {
+      return -k;
+    }
+    if (k >= n) {
+      return 2 * (n - 1) - k;
+    }
+    return k;
+  }
+
+  private static int ceilDiv(int a, int b) {
+    return -Math.floorDiv(-a, b);
+  }
+
+  private static long ceilDiv(long a, long b) {
+    return -Math.floorDiv(-a, b);
+  }
+
+  // reads packet headers and assigns packet bodies to code-blocks
+  private static class PacketReader {
+    final byte[] buf;
+    final int end;
+    final boolean sop, eph;
+    int pos;
+    int cur, ct;
+
+    PacketReader(byte[] buf, int end, boolean sop, boolean eph) {
+      this.buf = buf;
+      this.end = end;
+      this.sop = sop;
+      this.eph = eph;
+    }
+
+    int readBit() {
+      if (ct == 0) {
+        ct = (cur == 0xFF) ? 7 : 8; // bit stuffing
+        cur = (pos < end) ? buf[pos] & 0xff : 0;
+        pos++;
+      }
+      ct--;
+      return (cur >> ct) & 1;
+    }
+
+    int readBits(int n) {
+      int v = 0;
+      for (int i = 0; i < n; i++) {
+        v = (v << 1) | readBit();
+      }
+      return v;
+    }
+
+    void align() {
+      if (cur == 0xFF) {
+        pos++;
+      }
+      ct = 0;
+      cur = 0;
+    }
+
+    boolean atMarker(int marker) {
+      return pos + 1 < end && (((buf[pos] & 0xff) << 8) | (buf[pos + 1] & 0xff)) == marker;
+    }
+
+    void readPacket(int layer, PrecinctBand[] pbands) {
+      if (pos >= end) {
+        return; // truncated codestream
+      }
+      if (sop && atMarker(SOP)) {
+        pos += 6;
+      }
+      List<CodeBlock> included = new ArrayList<>();
+      List<Integer> lengths = new ArrayList<>();
+
+      boolean present = readBit() == 1;
+      if (present) {
+        for (PrecinctBand pband : pbands) {
+          for (int c = 0; c < pband.cblks.length; c++) {
+            CodeBlock cblk = pband.cblks[c];
+            boolean inc;
+            if (!cblk.included) {
+              inc = pband.inclusion.decode(this, c, layer + 1);
+            } else {
+              inc = readBit() == 1;
+            }
+            if (!inc) {
+              continue;
+            }
+            if (!cblk.included) {
+              int i = 1;
+              while (!pband.zeroBitplanes.decode(this, c, i)) {
+                i++;
+              }
+              cblk.zeroBitplanes = i - 1;
+              cblk.included = true;
+            }
+            int npasses = readNumPasses();
+            while (readBit() == 1) {
+              cblk.lblock++;
+            }
+            int len = readBits(cblk.lblock + log2(npasses));
+            cblk.npasses += npasses;
+            included.add(cblk);
+            lengths.add(len);
+          }
+        }
+      }
+      align();
+      if (eph && atMarker(EPH)) {
+        pos += 2;
+      }
+
+      for (int i = 0; i < included.size(); i++) {
+        int len = Math.min(lengths.get(i), Math.max(0, end - pos));
+        if (len > 0) {
+          included.get(i).addSegment(pos, len);
+        }
+        pos += lengths.get(i);
+      }
+    }
+
+    private int readNumPasses() {
+      if (readBit() == 0) {
+        return 1;
+      }
+      if (readBit() == 0) {
+        return 2;
+      }
+      int n = readBits(2);
+      if (n != 3) {
+        return 3 + n;
+      }
+      n = readBits(5);
+      if (n != 31) {
+        return 6 + n;
+      }
+      return 37 + readBits(7);
+    }
+
+    private static int log2(int n) {
+      return 31 - Integer.numberOfLeadingZeros(n);
+    }
+  }
+
+  // B.10.2
+  private static class TagTree {
+    final int[] value;
+    final int[] low;
+    final int[] parent;
+    final int nleaves;
+
+    TagTree(int w, int h) {
+      this.nleaves = w * h;
+      List<int[]> levels = new ArrayList<>(); // w, h of each level
+      int lw = w;
+      int lh = h;
+      int count = 0;
+      do {
+        levels.add(new int[] {lw, lh});
+        count += lw * lh;
+        lw = (lw + 1) / 2;
+        lh = (lh + 1) / 2;
+      } while (levels.get(levels.size() - 1)[0] * levels.get(levels.size() - 1)[1] > 1);
+
+      value = new int[count];
+      low = new int[count];
+      parent = new int[count];
+      Arrays.fill(value, Integer.MAX_VALUE);
+      int start = 0;
+      for (int l = 0; l < levels.size(); l++) {
+        int cw = levels.get(l)[0];
+        int ch = levels.get(l)[1];
+        int next = start + cw * ch;
+        int pw = (cw + 1) / 2;
+        for (int j = 0; j < ch; j++) {
+          for (int i = 0; i < cw; i++) {
+            parent[start + j * cw + i] = (l == levels.size() - 1) ? -1 : next + (j / 2) * pw + (i / 2);
+          }
+        }
+        start = next;
+      }
+    }
+
+    // true if the value of the leaf is less than threshold
+    boolean decode(PacketReader reader, int leaf, int threshold) {
+      int[] path = new int[32];
+      int depth = 0;
+      for (int node = leaf; node >= 0; node = parent[node]) {
+        path[depth++] = node;
+      }
+      int lowest = 0;
+      for (int d = depth - 1; d >= 0; d--) {
+        int node = path[d];
+        if (lowest > low[node]) {
+          low[node] = lowest;
+        } else {
+          lowest = low[node];
+        }
+        while (lowest < threshold && lowest < value[node]) {
+          if (reader.readBit() == 1) {
+            value[node] = lowest;
+          } else {
+            lowest++;
+          }
+        }
+        low[node] = lowest;
+      }
+      return value[leaf] < threshold;
+    }
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////
+  // tier-1 decoding
+
+  // Annex C MQ arithmetic decoder
+  private static class MQDecoder {
+    private static final int[] QE = {0x5601, 0x3401, 0x1801, 0x0AC1, 0x0521, 0x0221, 0x5601, 0x5401, 0x4801, 0x3801,
+        0x3001, 0x2401, 0x1C01, 0x1601, 0x5601, 0x5401, 0x5101, 0x4801, 0x3801, 0x3401, 0x3001, 0x2801, 0x2401,
+        0x2201, 0x1C01, 0x1801, 0x1601, 0x1401, 0x1201, 0x1101, 0x0AC1, 0x09C1, 0x08A1, 0x0521, 0x0441, 0x02A1,
+        0x0221, 0x0141, 0x0111, 0x0085, 0x0049, 0x0025, 0x0015, 0x0009, 0x0005, 0x0001, 0x5601};
+    private static final int[] NMPS = {1, 2, 3, 4, 5, 38, 7, 8, 9, 10, 11, 12, 13, 29, 15, 16, 17, 18, 19, 20, 21, 22,
+        23, 24, 25, 26, 27, 28, 29, 30, 31, 32, 33, 34, 35, 36, 37, 38, 39, 40, 41, 42, 43, 44, 45, 45, 46};
+    private static final int[] NLPS = {1, 6, 9, 12, 29, 33, 6, 14, 14, 14, 17, 18, 20, 21, 14, 14, 15, 16, 17, 18, 19,
+        19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 32, 33, 34, 35, 36, 37, 38, 39, 40, 41, 42, 43, 46};
+    private static final boolean[] SWITCH = {true, false, false, false, false, false, true, false, false, false, false,
+        false, false, false, true, false, false, false, false, false, false, false, false, false, false, false, false,
+        false, false, false, false, false, false, false, false, false, false, false, false, false, false, false, false,
+        false, false, false, false};
+
+    static final int NCONTEXTS = 19;
+    static final int CTX_RL = 17;
+    static final int CTX_UNI = 18;
+
+    final int[] state = new int[NCONTEXTS];
+    final int[] mps = new int[NCONTEXTS];
+
+    byte[] buf;
+    int bp, end;
+    int a, c, ct;
+
+    void init(byte[] buf, int start, int end) {
+      this.buf = buf;
+      this.bp = start;
+      this.end = end;
+      resetContexts();
+      c = byteAt(bp) << 16;
+      byteIn();
+      c <<= 7;
+      ct -= 7;
+      a = 0x8000;
+    }
+
+    void resetContexts() {
+      Arrays.fill(state, 0);
+      Arrays.fill(mps, 0);
+      state[0] = 4;
+      state[CTX_RL] = 3;
+      state[CTX_UNI] = 46;
+    }
+
+    private int byteAt(int p) {
+      return p < end ? buf[p] & 0xff : 0xff;
+    }
+
+    private void byteIn() {
+      if (byteAt(bp) == 0xff) {
+        if (byteAt(bp + 1) > 0x8f) {
+          c += 0xff00;
+          ct = 8;
+        } else {
+          bp++;
+          c += byteAt(bp) << 9;
+          ct = 7;
+        }
+      } else {
+        bp++;
+        c += byteAt(bp) << 8;
+        ct = 8;
+      }
+    }
+
+    // RENORMD, shifting as many bits at a time as possible
+    private void renorm() {
+      int n = Integer.numberOfLeadingZeros(a) - 16;
+      if (n <= ct) {
+        a <<= n;
+        c <<= n;
+        ct -= n;
+        return;
+      }
+      while (n > 0) {
+        if (ct == 0) {
+          byteIn();
+        }
+        int s = Math.min(n, ct);
+        a <<= s;
+        c <<= s;
+        ct -= s;
+        n -= s;
+      }
+    }
+
+    int decode(int cx) {
+      int s = state[cx];
+      int qe = QE[s];
+      int d;
+      a -= qe;
+      if ((c >>> 16) < qe) {
+        // LPS exchange
+        if (a < qe) {
+          d = mps[cx];
+          state[cx] = NMPS[s];
+        } else {
+          d = 1 - mps[cx];
+          if (SWITCH[s]) {
+            mps[cx] = 1 - mps[cx];
+          }
+          state[cx] = NLPS[s];
+        }
+        a = qe;
+        renorm();
+      } else {
+        c -= qe << 16;
+        if ((a & 0x8000) == 0) {
+          // MPS exchange
+          if (a < qe) {
+            d = 1 - mps[cx];
+            if (SWITCH[s]) {
+              mps[cx] = 1 - mps[cx];
+            }
+            state[cx] = NLPS[s];
+          } else {
+            d = mps[cx];
+            state[cx] = NMPS[s];
+          }
+          renorm();
+        } else {
+          d = mps[cx];
+        }
+      }
+      return d;
+    }
+  }
+
+  // Annex D coefficient bit modeling
+  private static class T1 {
+    // significance of the neighbors
+    private static final int SIG_NW = 1, SIG_N = 2, SIG_NE = 4, SIG_W = 8, SIG_E = 16, SIG_SW = 32, SIG_S = 64,
+        SIG_SE = 128;
+    private static final int SIG_NEIGHBORS = 0xff;
+    // sign of the 4-connected neighbors
+    private static final int SGN_N = 1 << 8, SGN_S = 1 << 9, SGN_W = 1 << 10, SGN_E = 1 << 11;
+    // state of the coefficient
+    private static final int SIG = 1 << 12, VISIT = 1 << 13, REFINE = 1 << 14, NEG = 1 << 15;
+
+    private static final int CTX_MAG = 14;
+    private static final int[][] ZC_LUT = new int[4][256];
+
+    static {
+      for (int orient = 0; orient < 4; orient++) {
+        for (int m = 0; m < 256; m++) {
+          int h = bit(m, SIG_W) + bit(m, SIG_E);
+          int v = bit(m, SIG_N) + bit(m, SIG_S);
+          int d = bit(m, SIG_NW) + bit(m, SIG_NE) + bit(m, SIG_SW) + bit(m, SIG_SE);
+          ZC_LUT[orient][m] = zeroContext(orient, h, v, d);
+        }
+      }
+    }
+
+    private static int bit(int m, int flag) {
+      return (m & flag) != 0 ? 1 : 0;
+    }
+
+    // Table D.1
+    private static int zeroContext(int orient, int h, int v, int d) {
+      if (orient == HL) {
+        int t = h;
+        h = v;
+        v = t;
+      }
+      if (orient == HH) {
+        int hv = h + v;
+        if (d >= 3) {
+          return 8;
+        } else if (d == 2) {
+          return hv >= 1 ? 7 : 6;
+        } else if (d == 1) {
+          return hv >= 2 ? 5 : hv == 1 ? 4 : 3;
+        } else {
+          return hv >= 2 ? 2 : hv == 1 ? 1 : 0;
+        }
+      }
+      if (h == 2) {
+        return 8;
+      } else if (h == 1) {
+        return v >= 1 ? 7 : d >= 1 ? 6 : 5;
+      } else if (v == 2) {
+        return 4;
+      } else if (v == 1) {
+        return 3;
+      } else {
+        return d >= 2 ? 2 : d;
+      }
+    }
+
+    int[] flags = new int[0];
+    int[] coefficients = new int[0];
+    private int w, h, fw;
+
+    void decode(MQDecoder mq, int w, int h, int orient, int numbps, int npasses, boolean reset, boolean segsym) {
+      this.w = w;
+      this.h = h;
+      this.fw = w + 2;
+      int fsize = fw * (h + 2);
+      if (flags.length < fsize) {
+        flags = new int[fsize];
+      } else {
+        Arrays.fill(flags, 0, fsize, 0);
+      }
+      if (coefficients.length < w * h) {
+        coefficients = new int[w * h];
+      } else {
+        Arrays.fill(coefficients, 0, w * h, 0);
+      }
+
+      int[] zc = ZC_LUT[orient];
+      int bpno = numbps - 1;
+      int passtype = 2; // starts with cleanup
+      int lastbp = bpno;
+      for (int pass = 0; pass < npasses && bpno >= 0; pass++) {
+        switch (passtype) {
+          case 0 -> significancePass(mq, zc, bpno);
+          case 1 -> refinementPass(mq, bpno);
+          default -> {
+            cleanupPass(mq, zc, bpno);
+            if (segsym) {
+              for (int i = 0; i < 4; i++) {
+                mq.decode(MQDecoder.CTX_UNI);
+              }
+            }
+          }
+        }
+        lastbp = bpno;
+        if (reset) {
+          mq.resetContexts();
+        }
+        if (++passtype == 3) {
+          passtype = 0;
+          bpno--;
+        }
+      }
+
+      // signed coefficients, rounded to the middle of the remaining bitplanes if truncated
+      int half = (lastbp > 0) ? 1 << (lastbp - 1) : 0;
+      for (int y = 0; y < h; y++) {
+        for (int x = 0; x < w; x++) {
+          int f = flags[(y + 1) * fw + x + 1];
+          if ((f & SIG) != 0) {
+            int mag = coefficients[y * w + x] + half;
+            coefficients[y * w + x] = (f & NEG) != 0 ? -mag : mag;
+          }
+        }
+      }
+    }
+
+    private void setSignificant(int idx, boolean negative) {
+      int[] f = flags;
+      f[idx] |= negative ? SIG | NEG : SIG;
+      f[idx - fw - 1] |= SIG_SE;
+      f[idx - fw] |= negative ? SIG_S | SGN_S : SIG_S;
+      f[idx - fw + 1] |= SIG_SW;
+      f[idx - 1] |= negative ? SIG_E | SGN_E : SIG_E;
+      f[idx + 1] |= negative ? SIG_W | SGN_W : SIG_W;
+      f[idx + fw - 1] |= SIG_NE;
+      f[idx + fw] |= negative ? SIG_N | SGN_N : SIG_N;
+      f[idx + fw + 1] |= SIG_NW;
+    }
+
+    // Table D.3, returns true if negative
+    private boolean decodeSign(MQDecoder mq, int f) {
+      int hc = 0;
+      if ((f & SIG_W) != 0) {
+        hc += (f & SGN_W) != 0 ? -1 : 1;
+      }
+      if ((f & SIG_E) != 0) {
+        hc += (f & SGN_E) != 0 ? -1 : 1;
+      }
+      int vc = 0;
+      if ((f & SIG_N) != 0) {
+        vc += (f & SGN_N) != 0 ? -1 : 1;
+      }
+      if ((f & SIG_S) != 0) {
+        vc += (f & SGN_S) != 0 ? -1 : 1;
+      }
+      hc = Integer.signum(hc);
+      vc = Integer.signum(vc);
+      int xor = 0;
+      if (hc < 0 || (hc == 0 && vc < 0)) {
+        hc = -hc;
+        vc = -vc;
+        xor = 1;
+      }
+      int ctx = (hc == 0) ? 9 + Math.abs(vc) : 12 + vc;
+      return (mq.decode(ctx) ^ xor) == 1;
+    }
+
+    private void significancePass(MQDecoder mq, int[] zc, int bpno) {
+      int one = 1 << bpno;
+      for (int k = 0; k < h; k += 4) {
+        int yend = Math.min(k + 4, h);
+        for (int x = 0; x < w; x++) {
+          for (int y = k; y < yend; y++) {
+            int idx = (y + 1) * fw + x + 1;
+            int f = flags[idx];
+            if ((f & (SIG | VISIT)) == 0 && (f & SIG_NEIGHBORS) != 0) {
+              if (mq.decode(zc[f & SIG_NEIGHBORS]) == 1) {
+                boolean negative = decodeSign(mq, f);
+                coefficients[y * w + x] = one;
+                setSignificant(idx, negative);
+              }
+              flags[idx] |= VISIT;
+            }
+          }
+        }
+      }
+    }
+
+    private void refinementPass(MQDecoder mq, int bpno) {
+      int one = 1 << bpno;
+      for (int k = 0; k < h; k += 4) {
+        int yend = Math.min(k + 4, h);
+        for (int x = 0; x < w; x++) {
+          for (int y = k; y < yend; y++) {
+            int idx = (y + 1) * fw + x + 1;
+            int f = flags[idx];
+            if ((f & (SIG | VISIT)) == SIG) {
+              int ctx = (f & REFINE) != 0 ? CTX_MAG + 2 : (f & SIG_NEIGHBORS) != 0 ? CTX_MAG + 1 : CTX_MAG;
+              if (mq.decode(ctx) == 1) {
+                coefficients[y * w + x] |= one;
+              }
+              flags[idx] |= REFINE;
+            }
+          }
+        }
+      }
+    }
+
+    private void cleanupPass(MQDecoder mq, int[] zc, int bpno) {
+      int one = 1 << bpno;
+      for (int k = 0; k < h; k += 4) {
+        int yend = Math.min(k + 4, h);
+        for (int x = 0; x < w; x++) {
+          int y = k;
+          if (yend - k == 4 && runLengthMode(x, k)) {
+            if (mq.decode(MQDecoder.CTX_RL) == 0) {
+              continue; // all four stay insignificant
+            }
+            int run = mq.decode(MQDecoder.CTX_UNI) << 1;
+            run |= mq.decode(MQDecoder.CTX_UNI);
+            y = k + run;
+            int idx = (y + 1) * fw + x + 1;
+            boolean negative = decodeSign(mq, flags[idx]);
+            coefficients[y * w + x] = one;
+            setSignificant(idx, negative);
+            y++;
+          }
+          for (; y < yend; y++) {
+            int idx = (y + 1) * fw + x + 1;
+            int f = flags[idx];
+            if ((f & (SIG | VISIT)) == 0) {
+              if (mq.decode(zc[f & SIG_NEIGHBORS]) == 1) {
+                boolean negative = decodeSign(mq, f);
+                coefficients[y * w + x] = one;
+                setSignificant(idx, negative);
+              }
+            }
+            flags[idx] &= ~VISIT;
+          }
+        }
+      }
+    }
+
+    // four coefficients in a column that are not significant, not visited, and have no significant neighbors
+    private boolean runLengthMode(int x, int k) {
+      int idx = (k + 1) * fw + x + 1;
+      int mask = SIG | VISIT | SIG_NEIGHBORS;
+      return (flags[idx] & mask) == 0 && (flags[idx + fw] & mask) == 0 && (flags[idx + 2 * fw] & mask) == 0
+          && (flags[idx + 3 * fw] & mask) == 0;
+    }
+  }
+
+}
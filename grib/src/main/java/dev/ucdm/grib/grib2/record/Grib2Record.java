@@ -11,6 +11,7 @@ import dev.ucdm.core.io.RandomAccessFile;
 import dev.ucdm.core.util.StringUtil2;
 import dev.ucdm.grib.common.util.GribDataUtils;
 import dev.ucdm.grib.common.util.QuasiRegular;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.Formatter;
@@ -300,6 +301,31 @@ public class Grib2Record {
     return data;
   }
 
+  /**
+   * Read only the values at the given indices of the field (y * nx + x), for data packings that allow it.
+   *
+   * @return the values, or null if the whole field must be read with readData().
+   */
+  @Nullable
+  public static float[] readPoints(RandomAccessFile raf, long drsPos, long bmsPos, int gdsNumberPoints, int scanMode,
+      int nx, int[] nptsInLine, int[] index) throws IOException {
+    if (nptsInLine != null) {
+      return null;
+    }
+    raf.seek(drsPos);
+    Grib2SectionDataRepresentation drs = new Grib2SectionDataRepresentation(raf);
+    Grib2SectionBitMap bms = new Grib2SectionBitMap(raf);
+    Grib2SectionData dataSection = new Grib2SectionData(raf);
+
+    if (bmsPos > 0) {
+      bms = Grib2SectionBitMap.factory(raf, bmsPos);
+    }
+
+    Grib2DataReader reader = new Grib2DataReader(drs.getDataTemplate(), gdsNumberPoints, drs.getDataPoints(), scanMode,
+        nx, dataSection.getStartingPosition(), dataSection.getMsgLength());
+    return reader.getPoints(raf, bms, drs.getDrs(raf), index);
+  }
+
   public Formatter check(RandomAccessFile raf, Formatter f) throws IOException {
     long messLen = is.getMessageLength();
     long startPos = is.getStartPos();
@@ -8,6 +8,7 @@ package dev.ucdm.grib.grib2.record;
 import dev.ucdm.core.io.RandomAccessFile;
 import dev.ucdm.core.util.KMPMatch;
 import dev.ucdm.core.util.StringUtil2;
+import dev.ucdm.grib.common.util.GribMessageFinder;
 import dev.ucdm.grib.common.util.GribNumbers;
 
 import org.jetbrains.annotations.Nullable;
@@ -18,7 +19,8 @@ import java.util.Map;
 import static dev.ucdm.grib.grib2.record.Grib2Record.scanModeMissing;
 
 /**
- * Scan raf for grib-2 messages
+ * Scan raf for grib-2 messages. In streaming mode the messages are found with a GribMessageFinder, which reads the
+ * file in large blocks or memory maps it, and the sections are parsed from the same blocks.
  *
  * @author caron
  * @since 3/28/11
@@ -68,7 +70,7 @@ public class Grib2RecordScanner {
   @Nullable
   public static Grib2Record findRecordByDrspos(RandomAccessFile raf, long drsPos) throws IOException {
     long pos = Math.max(0, drsPos - (20 * 1000)); // go back 20K
-    Grib2RecordScanner scan = new Grib2RecordScanner(raf, pos);
+    Grib2RecordScanner scan = new Grib2RecordScanner(raf, pos, false);
     while (scan.hasNext()) {
       Grib2Record gr = scan.next();
       Grib2SectionDataRepresentation drs = gr.getDataRepresentationSection();
@@ -85,6 +87,8 @@ public class Grib2RecordScanner {
 
   private final Map<Long, Grib2SectionGridDefinition> gdsMap = new HashMap<>();
   private final RandomAccessFile raf;
+  @Nullable
+  private final GribMessageFinder finder; // null if searching through the raf
 
   private byte[] header;
   private int badEndings;
@@ -95,21 +99,30 @@ public class Grib2RecordScanner {
   private Grib2Record repeatRecord; // current repeating record
   private Grib2SectionBitMap repeatBms; // current repeating bms
 
+  /** Scan the file from the start, searching through the raf. */
   public Grib2RecordScanner(RandomAccessFile raf) throws IOException {
-    this.raf = raf;
-    raf.seek(0);
-    raf.order(RandomAccessFile.BIG_ENDIAN);
-    lastPos = 0;
+    this(raf, 0, false);
+  }
 
-    if (debugRepeat)
-      logger.debug(" Grib2RecordScanner {}", raf.getLocation());
+  /**
+   * Scan the file from the start.
+   *
+   * @param raf scan this file.
+   * @param streaming if true, find the messages with a GribMessageFinder, else search through the raf.
+   */
+  public Grib2RecordScanner(RandomAccessFile raf, boolean streaming) throws IOException {
+    this(raf, 0, streaming);
   }
 
-  private Grib2RecordScanner(RandomAccessFile raf, long startFrom) throws IOException {
-    this.raf = raf;
-    raf.seek(startFrom);
-    raf.order(RandomAccessFile.BIG_ENDIAN);
+  private Grib2RecordScanner(RandomAccessFile raf, long startFrom, boolean streaming) throws IOException {
+    finder = streaming ? new GribMessageFinder(raf) : null;
+    this.raf = streaming ? finder.getReader() : raf; // the sections are parsed from the finder's blocks
+    this.raf.seek(startFrom);
+    this.raf.order(RandomAccessFile.BIG_ENDIAN);
     lastPos = startFrom;
+
+    if (debugRepeat)
+      logger.debug(" Grib2RecordScanner {} streaming={}", raf.getLocation(), streaming);
   }
 
   public boolean hasNext() throws IOException {
@@ -128,18 +141,28 @@ public class Grib2RecordScanner {
     long gribStart = 0;
 
     while (true) { // scan until we get a GRIB-2 or more == false
-      raf.seek(lastPos);
-      more = raf.searchForward(matcher, -1); // will scan to end for a 'GRIB' string
-      if (!more)
-        break;
+      int edition;
+      if (finder != null) {
+        gribStart = finder.findNext(lastPos);
+        more = gribStart >= 0;
+        if (!more)
+          break;
+        edition = finder.getEdition(gribStart);
 
-      gribStart = raf.getFilePointer(); // this is where the next 'GRIB' starts
-      // see if its GRIB-2
-      raf.skipBytes(7);
-      int edition = raf.read();
+      } else {
+        raf.seek(lastPos);
+        more = raf.searchForward(matcher, -1); // will scan to end for a 'GRIB' string
+        if (!more)
+          break;
+
+        gribStart = raf.getFilePointer(); // this is where the next 'GRIB' starts
+        // see if its GRIB-2
+        raf.skipBytes(7);
+        edition = raf.read();
+      }
       if (edition == 2)
         break;
-      lastPos = raf.getFilePointer(); // not edition 2 ! just skip it !! start scanning from there
+      lastPos = gribStart + 8; // not edition 2 ! just skip it !! start scanning from there
       logger.warn("GRIB message at pos=" + gribStart + " not GRIB2; skip");
     }
 
@@ -150,9 +173,13 @@ public class Grib2RecordScanner {
       if (sizeHeader > 100)
         sizeHeader = 100; // maximum 100 bytes; more is likely to be garbage
       long goBack = gribStart - sizeHeader;
-      header = new byte[sizeHeader];
-      raf.seek(goBack);
-      raf.readFully(header);
+      if (finder != null) {
+        header = finder.readBytes(goBack, sizeHeader);
+      } else {
+        header = new byte[sizeHeader];
+        raf.seek(goBack);
+        raf.readFully(header);
+      }
       raf.seek(gribStart);
       this.lastPos = gribStart; // ok start from here next time
     }
@@ -211,27 +238,20 @@ public class Grib2RecordScanner {
       }
 
       // check that end section is correct
-      boolean foundEnding = true;
-      raf.seek(ending - 4);
-      for (int i = 0; i < 4; i++) {
-        if (raf.read() != 55) {
-          foundEnding = false;
-          badEndings++;
-          // String clean = StringUtil2.cleanup(header);
-          // if (clean.length() > 40) clean = clean.substring(0,40) + "...";
-          if (debug)
-            logger.debug(" **missing End of GRIB message at pos={} start= {}", ending, is.getStartPos());
-          logger.warn("Missing End of GRIB message {} starting at pos={} is.ending={} data.ending={} file={}",
-              badEndings, is.getStartPos(), ending, dataSection.getEndingPosition(), raf.getLocation());
-          break;
-        }
+      boolean foundEnding = (finder != null) ? finder.hasEnding(ending) : readEnding(ending);
+      if (!foundEnding) {
+        badEndings++;
+        if (debug)
+          logger.debug(" **missing End of GRIB message at pos={} start= {}", ending, is.getStartPos());
+        logger.warn("Missing End of GRIB message {} starting at pos={} is.ending={} data.ending={} file={}",
+            badEndings, is.getStartPos(), ending, dataSection.getEndingPosition(), raf.getLocation());
       }
       if (debug)
         logger.debug(" read until {} grib ending at {} header ='{}' foundEnding={}", raf.getFilePointer(), ending,
             StringUtil2.cleanup(header), foundEnding);
 
       if (foundEnding || debugEnding) {
-        lastPos = raf.getFilePointer();
+        lastPos = ending;
         return new Grib2Record(header, is, ids, lus, gds, pds, drs, bms, dataSection, false, scanModeMissing);
 
       } else { // skip this record
@@ -253,6 +273,16 @@ public class Grib2RecordScanner {
     throw new IOException("last record was incomplete");
   }
 
+  private boolean readEnding(long ending) throws IOException {
+    raf.seek(ending - 4);
+    for (int i = 0; i < 4; i++) {
+      if (raf.read() != 55) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   // return true if got another repeat out of this record
   // side effect is that the new record is in repeatRecord
   private boolean nextRepeating() throws IOException {
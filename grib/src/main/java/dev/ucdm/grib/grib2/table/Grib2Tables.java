@@ -27,9 +27,9 @@ import dev.ucdm.grib.common.wmo.CommonCodeTable;
 import org.jetbrains.annotations.Nullable;
 import dev.ucdm.array.Immutable;
 import java.util.Formatter;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Grib 2 Tables - allows local overrides and augmentation of WMO tables.
@@ -44,8 +44,8 @@ import java.util.Map;
 @Immutable
 public class Grib2Tables implements GribTables, GribConfig.TimeUnitConverter {
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(Grib2Tables.class);
-  private static final Map<Grib2TablesId, Grib2Tables> tables = new HashMap<>();
-  private static Grib2Tables wmoStandardTable;
+  private static final Map<Grib2TablesId, Grib2Tables> tables = new ConcurrentHashMap<>();
+  private static volatile Grib2Tables wmoStandardTable;
 
   public static Grib2Tables factory(Grib2Record gr) {
     Grib2SectionIdentification ids = gr.getId();
@@ -62,11 +62,11 @@ public class Grib2Tables implements GribTables, GribConfig.TimeUnitConverter {
       return cust;
 
     // note that we match on id, so same Grib2Customizer may be mapped to multiple id's (eg match on -1)
+    // build outside of the map, since it may be slow; if another thread got there first, use its tables
     Grib2TableConfig config = Grib2TableConfig.matchTable(id);
     cust = build(config);
-
-    tables.put(id, cust);
-    return cust;
+    Grib2Tables prev = tables.putIfAbsent(id, cust);
+    return (prev != null) ? prev : cust;
   }
 
   private static Grib2Tables build(Grib2TableConfig config) {
@@ -90,10 +90,22 @@ public class Grib2Tables implements GribTables, GribConfig.TimeUnitConverter {
       case nwsDev:
         return new NwsMetDevTables(config);
       default:
-        if (wmoStandardTable == null)
-          wmoStandardTable = new Grib2Tables(config);
-        return wmoStandardTable;
+        return getWmoStandardTable(config);
+    }
+  }
+
+  private static Grib2Tables getWmoStandardTable(Grib2TableConfig config) {
+    Grib2Tables result = wmoStandardTable;
+    if (result == null) {
+      synchronized (Grib2Tables.class) {
+        result = wmoStandardTable;
+        if (result == null) {
+          result = new Grib2Tables(config);
+          wmoStandardTable = result;
+        }
+      }
     }
+    return result;
   }
 
   public static int makeParamId(int discipline, int category, int number) {
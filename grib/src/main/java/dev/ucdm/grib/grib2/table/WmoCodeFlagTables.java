@@ -2,6 +2,7 @@ package dev.ucdm.grib.grib2.table;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import dev.ucdm.grib.common.util.GribTableStore;
 import dev.ucdm.grib.common.wmo.WmoUtils;
 import org.jdom2.Element;
 import org.jdom2.JDOMException;
@@ -11,13 +12,18 @@ import javax.annotation.Nonnull;
 import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Read and manage the WMO GRIB2 Code, Flag, and Parameter tables, in their standard XML format
+ * Read and manage the WMO GRIB2 Code, Flag, and Parameter tables, in their standard XML format.
+ * If the tables have been compiled into the GribTableStore, read them from there instead, and only decode the entries
+ * of a table when its first used.
  */
 public class WmoCodeFlagTables {
 
@@ -46,25 +52,65 @@ public class WmoCodeFlagTables {
     param, code, flag, cat
   }
 
-  private static WmoCodeFlagTables instance;
+  private static volatile WmoCodeFlagTables instance;
 
-  public static synchronized WmoCodeFlagTables getInstance() {
-    if (instance == null) {
-      instance = new WmoCodeFlagTables();
-      try {
-        instance.readGribCodes(standard);
-      } catch (IOException e) {
-        logger.error("Cant read WMO Grib2 tables");
-        throw new RuntimeException(e);
+  public static WmoCodeFlagTables getInstance() {
+    WmoCodeFlagTables result = instance;
+    if (result == null) {
+      synchronized (WmoCodeFlagTables.class) {
+        result = instance;
+        if (result == null) {
+          try {
+            result = readTables(standard, GribTableStore.getInstance());
+          } catch (IOException e) {
+            logger.error("Cant read WMO Grib2 tables");
+            throw new RuntimeException(e);
+          }
+          instance = result;
+        }
       }
     }
-    return instance;
+    return result;
+  }
+
+  /** Read the tables from the store if they are in it, otherwise from the XML resource. */
+  static WmoCodeFlagTables readTables(Version version, GribTableStore store) throws IOException {
+    WmoCodeFlagTables result = new WmoCodeFlagTables();
+    ByteBuffer index = store.getTable(storeKey(version));
+    if (index != null) {
+      result.readStoredTables(version, store, index);
+    } else {
+      result.readGribCodes(version);
+    }
+    return result;
+  }
+
+  /** Read the XML resource and add the encoded tables to the store. */
+  public static void compileTables(Version version, Map<String, byte[]> store) throws IOException {
+    WmoCodeFlagTables tables = new WmoCodeFlagTables();
+    tables.readGribCodes(version);
+
+    GribTableStore.Encoder index = new GribTableStore.Encoder();
+    index.writeInt(tables.wmoTables.size());
+    for (WmoTable wmoTable : tables.wmoTables) {
+      index.writeNullableString(wmoTable.name);
+      index.writeInt(wmoTable.type.ordinal());
+      store.put(storeKey(version) + "/" + wmoTable.id, wmoTable.encodeEntries());
+    }
+    store.put(storeKey(version), index.toByteArray());
+  }
+
+  private static String storeKey(Version version) {
+    return "grib2/wmo/" + version.name();
   }
 
   /////////////////////////////////////////
 
   private ImmutableList<WmoTable> wmoTables;
   private ImmutableMap<String, WmoTable> wmoTableMap;
+  // WmoCodeTable and WmoParamTable are immutable, so make each one only once
+  private final Map<String, Optional<WmoCodeTable>> codeTables = new ConcurrentHashMap<>();
+  private final Map<String, Optional<WmoParamTable>> paramTables = new ConcurrentHashMap<>();
 
   public List<WmoTable> getWmoTables() {
     return wmoTables;
@@ -81,31 +127,19 @@ public class WmoCodeFlagTables {
 
   @Nullable
   public WmoCodeTable getCodeTable(String tableName) {
-    WmoTable wmoTable = wmoTableMap.get(tableName);
-    if (wmoTable == null) {
-      return null;
-    }
-    return new WmoCodeTable(wmoTable);
+    return codeTables.computeIfAbsent(tableName,
+        name -> Optional.ofNullable(wmoTableMap.get(name)).map(WmoCodeTable::new)).orElse(null);
   }
 
   @Nullable
   public WmoCodeTable getCodeTable(int m1, int m2) {
-    String name = String.format("%d.%d", m1, m2);
-    WmoTable wmoTable = wmoTableMap.get(name);
-    if (wmoTable == null) {
-      return null;
-    }
-    return new WmoCodeTable(wmoTable);
+    return getCodeTable(m1 + "." + m2);
   }
 
   @Nullable
   public WmoParamTable getParamTable(int discipline, int category) {
-    String name = String.format("4.2.%d.%d", discipline, category);
-    WmoTable wmoTable = wmoTableMap.get(name);
-    if (wmoTable == null) {
-      return null;
-    }
-    return new WmoParamTable(wmoTable);
+    return paramTables.computeIfAbsent("4.2." + discipline + "." + category,
+        name -> Optional.ofNullable(wmoTableMap.get(name)).map(WmoParamTable::new)).orElse(null);
   }
 
   /*
@@ -223,6 +257,23 @@ public class WmoCodeFlagTables {
     }
   }
 
+  // only the names and types are read here, the entries are decoded when first used
+  private void readStoredTables(Version version, GribTableStore store, ByteBuffer index) {
+    TableType[] types = TableType.values();
+    int ntables = index.getInt();
+    ImmutableList.Builder<WmoTable> tables = ImmutableList.builder();
+    ImmutableMap.Builder<String, WmoTable> builder = ImmutableMap.builder();
+    for (int i = 0; i < ntables; i++) {
+      String name = GribTableStore.readString(index);
+      WmoTable wmoTable = new WmoTable(name, types[index.getInt()]);
+      wmoTable.encoded = store.getTable(storeKey(version) + "/" + wmoTable.id);
+      tables.add(wmoTable);
+      builder.put(wmoTable.getId(), wmoTable);
+    }
+    this.wmoTables = tables.build(); // already sorted
+    this.wmoTableMap = builder.build();
+  }
+
   public static class WmoTable implements Comparable<WmoTable> {
 
     private final String name;
@@ -230,6 +281,8 @@ public class WmoCodeFlagTables {
     private final List<WmoEntry> entries = new ArrayList<>();
     private final String id;
     private int m1 = -1, m2 = -1, discipline = -1, category = -1;
+    @Nullable
+    private ByteBuffer encoded; // entries in the GribTableStore, not yet decoded
 
     private WmoTable(String name, TableType type) {
       this.name = name;
@@ -293,6 +346,41 @@ public class WmoCodeFlagTables {
       return entry;
     }
 
+    private byte[] encodeEntries() throws IOException {
+      GribTableStore.Encoder out = new GribTableStore.Encoder();
+      out.writeInt(entries.size());
+      for (WmoEntry entry : entries) {
+        out.writeInt(entry.line);
+        out.writeInt(entry.start);
+        out.writeInt(entry.stop);
+        out.writeInt(entry.number);
+        out.writeInt(entry.value);
+        out.writeNullableString(entry.code);
+        out.writeNullableString(entry.meaning);
+        out.writeNullableString(entry.unit);
+        out.writeNullableString(entry.status);
+      }
+      return out.toByteArray();
+    }
+
+    private synchronized List<WmoEntry> readEntries() {
+      if (encoded != null) {
+        ByteBuffer bb = encoded;
+        int n = bb.getInt();
+        for (int i = 0; i < n; i++) {
+          int line = bb.getInt();
+          int start = bb.getInt();
+          int stop = bb.getInt();
+          int number = bb.getInt();
+          int value = bb.getInt();
+          entries.add(new WmoEntry(line, start, stop, number, value, GribTableStore.readString(bb),
+              GribTableStore.readString(bb), GribTableStore.readString(bb), GribTableStore.readString(bb)));
+        }
+        encoded = null;
+      }
+      return entries;
+    }
+
     @Override
     public int compareTo(@Nonnull WmoTable o) {
       if (m1 != o.m1) {
@@ -320,7 +408,7 @@ public class WmoCodeFlagTables {
     }
 
     public List<WmoEntry> getEntries() {
-      return ImmutableList.copyOf(entries);
+      return ImmutableList.copyOf(readEntries());
     }
 
     public class WmoEntry {
@@ -378,6 +466,21 @@ public class WmoCodeFlagTables {
         this.unit = unitW;
       }
 
+      // from the GribTableStore
+      WmoEntry(int line, int start, int stop, int number, int value, String code, String meaning, String unit,
+          String status) {
+        this.line = line;
+        this.start = start;
+        this.stop = stop;
+        this.number = number;
+        this.value = value;
+        this.code = code;
+        this.meaning = meaning;
+        this.name = meaning;
+        this.unit = unit;
+        this.status = status;
+      }
+
       public int getLine() {
         return line;
       }
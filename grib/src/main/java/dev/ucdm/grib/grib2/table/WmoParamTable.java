@@ -14,14 +14,12 @@ public class WmoParamTable implements Grib2ParamTableInterface {
 
   @Nullable
   public static GribTables.Parameter getParameter(int discipline, int category, int number) {
-    // Look rather inefficient.
     WmoParamTable paramTable = WmoCodeFlagTables.getInstance().getParamTable(discipline, category);
     return paramTable == null ? null : paramTable.getParameter(number);
   }
 
   @Nullable
   public static String getParameterName(int discipline, int category, int number) {
-    // Look rather inefficient.
     WmoParamTable paramTable = WmoCodeFlagTables.getInstance().getParamTable(discipline, category);
     GribTables.Parameter param = paramTable == null ? null : paramTable.getParameter(number);
     return (param == null) ? null : param.getName();
@@ -13,8 +13,11 @@ import dev.ucdm.core.api.Attribute;
 import dev.ucdm.core.api.AttributeContainer;
 import dev.ucdm.core.api.AttributeContainerMutable;
 import dev.ucdm.core.constants.CDM;
+import dev.ucdm.dataset.geoloc.LatLonPoint;
 import dev.ucdm.grid.api.Grid;
 import dev.ucdm.grid.api.GridCoordinateSystem;
+import dev.ucdm.grid.api.GridHorizCoordinateSystem;
+import dev.ucdm.grid.api.GridPointSeries;
 import dev.ucdm.grid.api.GridReferencedArray;
 import dev.ucdm.grid.api.GridSubset;
 import dev.ucdm.grid.api.MaterializedCoordinateSystem;
@@ -117,6 +120,25 @@ public class GribGrid implements Grid {
     }
   }
 
+  @Override
+  public GridPointSeries readPointSeries(GridSubset subset, List<LatLonPoint> points)
+      throws IOException, InvalidRangeException {
+    Formatter errLog = new Formatter();
+    Optional<MaterializedCoordinateSystem> opt =
+        coordinateSystem.subset(GridPointSeries.withoutHorizontal(subset), errLog);
+    if (opt.isEmpty()) {
+      throw new InvalidRangeException(errLog.toString());
+    }
+    MaterializedCoordinateSystem subsetCoordSys = opt.get();
+    GridHorizCoordinateSystem.CoordIndices indices = GridPointSeries.findPoints(getHorizCoordinateSystem(), points);
+
+    List<RangeIterator> ranges = new ArrayList<>(subsetCoordSys.getSubsetRanges());
+    SectionIterable want = new SectionIterable(ranges, getCoordinateSystem().getNominalShape());
+    GribArrayReader dataReader = GribArrayReader.factory(gribCollection, vi);
+    float[] values = dataReader.readPoints(want, indices.xindex, indices.yindex);
+    return new GridPointSeries(this.name, subsetCoordSys, points, indices, values);
+  }
+
   @Override
   public Array<Number> readDataSection(dev.ucdm.array.Section section) throws InvalidRangeException, IOException {
     GribArrayReader dataReader = GribArrayReader.factory(gribCollection, vi);
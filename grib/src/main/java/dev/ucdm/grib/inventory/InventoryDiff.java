@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grib.inventory;
+
+import dev.ucdm.core.util.StringUtil2;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Formatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The difference between the files stored in a collection index, and the files now in the MCollection.
+ * Files are matched by path, and are changed if their length or lastModified differ.
+ */
+public class InventoryDiff {
+
+  /**
+   * Compare the files in an index with the files in the collection.
+   *
+   * @param indexed the files stored in the collection index, eg from GribCollection.getFiles().
+   * @param dcm the collection as it is now.
+   */
+  public static InventoryDiff compare(Collection<MFile> indexed, MCollection dcm) {
+    Map<String, MFile> old = new HashMap<>();
+    for (MFile mfile : indexed) {
+      old.put(normalize(mfile.getPath()), mfile);
+    }
+
+    InventoryDiff diff = new InventoryDiff();
+    dcm.iterateOverMFiles(mfile -> {
+      MFile prev = old.remove(normalize(mfile.getPath()));
+      if (prev == null) {
+        diff.added.add(mfile);
+      } else if (prev.getLength() != mfile.getLength() || prev.getLastModified() != mfile.getLastModified()) {
+        diff.changed.add(mfile);
+      } else {
+        diff.unchanged++;
+      }
+    });
+    diff.removed.addAll(old.values());
+    return diff;
+  }
+
+  private static String normalize(String path) {
+    return StringUtil2.replace(path, '\\', "/");
+  }
+
+  private final List<MFile> added = new ArrayList<>();
+  private final List<MFile> changed = new ArrayList<>();
+  private final List<MFile> removed = new ArrayList<>();
+  private int unchanged;
+
+  private InventoryDiff() {}
+
+  /** Files in the collection that are not in the index. */
+  public List<MFile> getAdded() {
+    return added;
+  }
+
+  /** Files in both, whose length or lastModified differ. */
+  public List<MFile> getChanged() {
+    return changed;
+  }
+
+  /** Files in the index that are no longer in the collection. */
+  public List<MFile> getRemoved() {
+    return removed;
+  }
+
+  /** Number of files that are the same in both. */
+  public int getUnchanged() {
+    return unchanged;
+  }
+
+  /** True if the index has the same files as the collection. */
+  public boolean isEmpty() {
+    return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    Formatter f = new Formatter();
+    f.format("added = %d changed = %d removed = %d unchanged = %d", added.size(), changed.size(), removed.size(),
+        unchanged);
+    return f.toString();
+  }
+}
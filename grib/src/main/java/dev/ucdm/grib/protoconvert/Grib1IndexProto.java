@@ -7,6 +7,7 @@ package dev.ucdm.grib.protoconvert;
 
 import com.google.protobuf.ByteString;
 
+import dev.ucdm.grib.common.util.GribMessageFinder;
 import dev.ucdm.grib.grib1.record.Grib1Record;
 import dev.ucdm.grib.grib1.record.Grib1RecordScanner;
 import dev.ucdm.grib.grib1.record.Grib1SectionBinaryData;
@@ -128,8 +129,8 @@ public class Grib1IndexProto {
     idxBuilder.setFilename(dataLocation);
 
     // read from the data file
-    try (RandomAccessFile gribDataFile = new RandomAccessFile(dataLocation, "r")) {
-      Grib1RecordScanner scan = new Grib1RecordScanner(gribDataFile);
+    try (RandomAccessFile gribDataFile = GribMessageFinder.openForScan(dataLocation)) {
+      Grib1RecordScanner scan = new Grib1RecordScanner(gribDataFile, GribMessageFinder.isStreamingScan());
       while (scan.hasNext()) {
         Grib1Record r = scan.next();
         if (r == null)
@@ -8,6 +8,7 @@ package dev.ucdm.grib.protoconvert;
 import com.google.protobuf.ByteString;
 
 import dev.ucdm.core.io.RandomAccessFile;
+import dev.ucdm.grib.common.util.GribMessageFinder;
 import dev.ucdm.grib.grib2.record.*;
 import org.jetbrains.annotations.Nullable;
 
@@ -143,8 +144,8 @@ public static boolean writeGrib2Index(String dataLocation, File idxFile, Formatt
     idxBuilder.setFilename(dataLocation);
 
     // read from the data file
-    try (RandomAccessFile gribDataFile = new RandomAccessFile(dataLocation, "r")) {
-      Grib2RecordScanner scan = new Grib2RecordScanner(gribDataFile);
+    try (RandomAccessFile gribDataFile = GribMessageFinder.openForScan(dataLocation)) {
+      Grib2RecordScanner scan = new Grib2RecordScanner(gribDataFile, GribMessageFinder.isStreamingScan());
       while (scan.hasNext()) {
         Grib2Record r = scan.next();
         if (r == null)
@@ -5,6 +5,8 @@
 
 package dev.ucdm.grib.protoconvert;
 
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
 import org.jetbrains.annotations.Nullable;
 
 import dev.ucdm.grib.collection.CollectionType;
@@ -333,10 +335,11 @@ public abstract class GribCollectionIndexReader {
         return new CoordinateRuntime(pc.getMsecsList(), cdUnit.getCalendarPeriod());
 
       case time:
-        List<Long> offs = new ArrayList<>(pc.getValuesCount());
-        for (float val : pc.getValuesList()) {
-          offs.add((long) val);
+        long[] offs = new long[pc.getValuesCount()];
+        for (int i = 0; i < offs.length; i++) {
+          offs[i] = (long) pc.getValues(i);
         }
+        offs = shareOffsets(offs);
         CalendarDate refDate = CalendarDate.of(pc.getMsecs(0));
         if (unit == null) {
           throw new IllegalStateException("Null units");
@@ -345,17 +348,17 @@ public abstract class GribCollectionIndexReader {
         return new CoordinateTime(code, timeUnit, refDate, offs, readTime2Runtime(pc));
 
       case timeIntv:
-        List<TimeCoordIntvValue> tinvs = new ArrayList<>(pc.getValuesCount());
+        int[] bounds = new int[2 * pc.getValuesCount()];
         for (int i = 0; i < pc.getValuesCount(); i++) {
-          int val1 = (int) pc.getValues(i);
-          int val2 = (int) pc.getBound(i);
-          tinvs.add(new TimeCoordIntvValue(val1, val2));
+          bounds[2 * i] = (int) pc.getValues(i);
+          bounds[2 * i + 1] = (int) pc.getBound(i);
         }
+        bounds = shareBounds(bounds);
         refDate = CalendarDate.of(pc.getMsecs(0));
         if (unit == null)
           throw new IllegalStateException("Null units");
         CalendarPeriod timeUnit2 = CalendarPeriod.of(unit);
-        return new CoordinateTimeIntv(code, timeUnit2, refDate, tinvs, readTime2Runtime(pc));
+        return new CoordinateTimeIntv(code, timeUnit2, refDate, bounds, readTime2Runtime(pc));
 
       case time2D:
         if (unit == null)
@@ -378,27 +381,39 @@ public abstract class GribCollectionIndexReader {
 
       case vert:
         boolean isLayer = pc.getValuesCount() == pc.getBoundCount();
-        List<VertCoordValue> levels = new ArrayList<>(pc.getValuesCount());
+        double[] levels1 = new double[pc.getValuesCount()];
+        double[] levels2 = isLayer ? new double[pc.getValuesCount()] : null;
         for (int i = 0; i < pc.getValuesCount(); i++) {
-          if (isLayer)
-            levels.add(new VertCoordValue(pc.getValues(i), pc.getBound(i)));
-          else
-            levels.add(new VertCoordValue(pc.getValues(i)));
+          levels1[i] = pc.getValues(i);
+          if (levels2 != null)
+            levels2[i] = pc.getBound(i);
         }
-        return new CoordinateVert(code, tables.getVertUnit(code), levels);
+        return new CoordinateVert(code, tables.getVertUnit(code), levels1, levels2);
 
       case ens:
-        List<EnsCoordValue> ecoords = new ArrayList<>(pc.getValuesCount());
+        int[] etypes = new int[pc.getValuesCount()];
+        int[] members = new int[pc.getValuesCount()];
         for (int i = 0; i < pc.getValuesCount(); i++) {
-          double val1 = pc.getValues(i);
-          double val2 = pc.getBound(i);
-          ecoords.add(new EnsCoordValue((int) val1, (int) val2));
+          etypes[i] = (int) pc.getValues(i);
+          members[i] = (int) pc.getBound(i);
         }
-        return new CoordinateEns(code, ecoords);
+        return new CoordinateEns(code, etypes, members);
     }
     throw new IllegalStateException("Unknown Coordinate type = " + type);
   }
 
+  // the runs of a time2D usually have the same offsets, so share one array among them
+  private final Map<List<Long>, long[]> sharedOffsets = new HashMap<>();
+  private final Map<List<Integer>, int[]> sharedBounds = new HashMap<>();
+
+  private long[] shareOffsets(long[] offs) {
+    return sharedOffsets.computeIfAbsent(Longs.asList(offs), k -> offs);
+  }
+
+  private int[] shareBounds(int[] bounds) {
+    return sharedBounds.computeIfAbsent(Ints.asList(bounds), k -> bounds);
+  }
+
   @Nullable
   private int[] readTime2Runtime(GribCollectionProto.Coord pc) {
     if (pc.getTime2RuntimeCount() > 0) {
@@ -44,13 +44,11 @@ public class GribPartitionIndexWriter extends GribCollectionIndexWriter {
    */
   public boolean writeIndex(GribPartition pc, boolean isGrib1, Formatter msg) throws IOException {
     File idxFile = GribIndexCache.getFileOrCache(partitionManager.getIndexFilename());
-    if (idxFile.exists()) {
-      // RandomAccessFile.eject(idxFile.getPath());
-      if (!idxFile.delete()) {
-        logger.error("gc2tp cant delete " + idxFile.getPath());
-      }
-    }
+    // write to a temporary file, then publish it atomically
+    return GribIndexCache.publish(idxFile, temp -> writeIndex(pc, isGrib1, temp, msg)) != null;
+  }
 
+  private boolean writeIndex(GribPartition pc, boolean isGrib1, File idxFile, Formatter msg) throws IOException {
     try (RandomAccessFile raf = new RandomAccessFile(idxFile.getPath(), "rw")) {
       raf.order(RandomAccessFile.BIG_ENDIAN);
 
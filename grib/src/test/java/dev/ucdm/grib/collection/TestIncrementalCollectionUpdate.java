@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grib.collection;
+
+import dev.ucdm.grib.common.GribCollectionIndex;
+import dev.ucdm.grib.common.GribConfig;
+import dev.ucdm.grib.inventory.CollectionUpdate;
+import dev.ucdm.grib.inventory.DirectoryMCollection;
+import dev.ucdm.grib.inventory.InventoryDiff;
+import dev.ucdm.grib.inventory.MCollection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Formatter;
+
+import static com.google.common.truth.Truth.assertThat;
+import static dev.ucdm.test.util.TestFilesKt.oldTestDir;
+
+/** Compare updating a collection after a file is added with rebuilding it from scratch. */
+public class TestIncrementalCollectionUpdate {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(TestIncrementalCollectionUpdate.class);
+
+  @TempDir
+  public Path tempDir;
+
+  @BeforeEach
+  public void enableIndexCache() {
+    GribCollectionBuilder.setMaxCachedRecords(200 * 1000);
+  }
+
+  @AfterEach
+  public void cleanup() {
+    GribCollectionBuilder.setMaxCachedRecords(0);
+  }
+
+  @Test
+  public void testUpdateAfterFileAdded() throws IOException {
+    File[] files = new File(oldTestDir + "gribCollections/hrrr/").listFiles((dir, name) -> name.endsWith(".grib2"));
+    assertThat(files).isNotNull();
+    assertThat(files.length).isGreaterThan(1);
+    Arrays.sort(files);
+
+    // all but the last file
+    for (int i = 0; i < files.length - 1; i++) {
+      Files.copy(files[i].toPath(), tempDir.resolve(files[i].getName()));
+    }
+    GribConfig config = new GribConfig();
+    Formatter errlog = new Formatter();
+    Grib2CollectionBuilder first = new Grib2CollectionBuilder("hrrr", makeCollection(), config, logger);
+    assertThat(first.createIndex(errlog)).isTrue();
+    assertThat(first.getFilesRead()).isEqualTo(files.length - 1);
+
+    // nothing changed, so the existing index is used
+    try (GribCollection gc =
+        GribCollectionIndex.updateCollectionIndex(false, makeCollection(), CollectionUpdate.test, config, errlog)) {
+      assertThat(gc).isNotNull();
+      assertThat(InventoryDiff.compare(gc.getFiles(), makeCollection()).isEmpty()).isTrue();
+    }
+
+    // a new file arrives: only its gbx9 is read
+    File last = files[files.length - 1];
+    Files.copy(last.toPath(), tempDir.resolve(last.getName()));
+    Grib2CollectionBuilder update = new Grib2CollectionBuilder("hrrr", makeCollection(), config, logger);
+    assertThat(update.createIndex(errlog)).isTrue();
+    assertThat(update.getFilesRead()).isEqualTo(1);
+    assertThat(update.getFilesReused()).isEqualTo(files.length - 1);
+
+    try (GribCollection gc =
+        GribCollectionIndex.updateCollectionIndex(false, makeCollection(), CollectionUpdate.test, config, errlog)) {
+      assertThat(gc).isNotNull();
+      assertThat(gc.getFiles()).hasSize(files.length);
+    }
+
+    // after clearing, every gbx9 is read
+    GribCollectionBuilder.clearIndexCache();
+    Grib2CollectionBuilder full = new Grib2CollectionBuilder("hrrr", makeCollection(), config, logger);
+    assertThat(full.createIndex(errlog)).isTrue();
+    assertThat(full.getFilesRead()).isEqualTo(files.length);
+    assertThat(full.getFilesReused()).isEqualTo(0);
+
+    // disabled, the default: every gbx9 is read, and none are kept
+    GribCollectionBuilder.setMaxCachedRecords(0);
+    Grib2CollectionBuilder uncached = new Grib2CollectionBuilder("hrrr", makeCollection(), config, logger);
+    assertThat(uncached.createIndex(errlog)).isTrue();
+    assertThat(uncached.getFilesRead()).isEqualTo(files.length);
+    assertThat(uncached.getFilesReused()).isEqualTo(0);
+  }
+
+  private MCollection makeCollection() {
+    return new DirectoryMCollection("hrrr", tempDir, true, "*.grib2", null, null);
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grib.collection;
+
+import dev.ucdm.grib.common.GribConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Test {@link PartitionCache} and {@link Partitions.Lease} */
+public class TestPartitionCache {
+  private final AtomicInteger loads = new AtomicInteger();
+  private final AtomicInteger closes = new AtomicInteger();
+
+  @AfterEach
+  public void cleanup() {
+    PartitionCache.setMaxPartitions(100);
+  }
+
+  private class TestCollection extends Grib2Collection {
+    TestCollection(String name) {
+      super(name, null, new GribConfig());
+    }
+
+    @Override
+    public void close() {
+      closes.incrementAndGet();
+    }
+  }
+
+  private GribCollection load(Partitions.Partition partition) throws IOException {
+    loads.incrementAndGet();
+    try {
+      Thread.sleep(50); // reading an index takes a while
+    } catch (InterruptedException e) {
+      throw new IOException(e);
+    }
+    return new TestCollection(partition.name());
+  }
+
+  private static Partitions.Partition partition(String name) {
+    return new Partitions.Partition(name, name + ".ncx4", 1000, 100, null, new File("/data"));
+  }
+
+  @Test
+  public void testConcurrentAcquireLoadsOnce() throws Exception {
+    PartitionCache cache = new PartitionCache(this::load);
+    Partitions.Partition p = partition("one");
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<GribCollection>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executor.submit(() -> cache.acquire(p)));
+      }
+      GribCollection first = futures.get(0).get();
+      for (Future<GribCollection> future : futures) {
+        assertThat(future.get()).isSameInstanceAs(first);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertThat(loads.get()).isEqualTo(1);
+    assertThat(cache.getStats().hits()).isEqualTo(7);
+    for (int i = 0; i < 8; i++) {
+      cache.release(p);
+    }
+    cache.clear();
+    assertThat(closes.get()).isEqualTo(1);
+    assertThat(cache.getStats().size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testEvictsIdlePartitions() throws IOException {
+    PartitionCache.setMaxPartitions(2);
+    PartitionCache cache = new PartitionCache(this::load);
+    Partitions.Partition inUse = partition("inUse");
+    cache.acquire(inUse);
+    for (int i = 0; i < 4; i++) {
+      Partitions.Partition p = partition("p" + i);
+      cache.acquire(p);
+      cache.release(p);
+    }
+    // the partition in use is the oldest, but is not closed
+    assertThat(cache.getStats().size()).isEqualTo(2);
+    assertThat(cache.getStats().evictions()).isEqualTo(3);
+    assertThat(closes.get()).isEqualTo(3);
+
+    cache.release(inUse);
+    cache.acquire(partition("p3"));
+    assertThat(loads.get()).isEqualTo(5); // p3 was still cached
+    System.out.printf("%s%n", cache);
+  }
+
+  @Test
+  public void testFailureIsNotCached() throws IOException {
+    AtomicInteger tries = new AtomicInteger();
+    PartitionCache cache = new PartitionCache(p -> {
+      if (tries.incrementAndGet() == 1) {
+        throw new IOException("bad index");
+      }
+      return new TestCollection(p.name());
+    });
+    Partitions.Partition p = partition("flaky");
+    assertThrows(IOException.class, () -> cache.acquire(p));
+    assertThat(cache.acquire(p)).isNotNull();
+    assertThat(cache.getStats().failures()).isEqualTo(1);
+    assertThat(cache.getStats().loads()).isEqualTo(1);
+  }
+
+  @Test
+  public void testLease() throws IOException {
+    PartitionCache.setMaxPartitions(0);
+    PartitionCache cache = new PartitionCache(this::load);
+    Partitions.Partition p1 = partition("p1");
+    Partitions.Partition p2 = partition("p2");
+    try (Partitions.Lease lease = new Partitions.Lease(cache)) {
+      GribCollection gc = lease.get(p1);
+      assertThat(lease.get(p1)).isSameInstanceAs(gc);
+      lease.get(p2);
+      assertThat(lease.size()).isEqualTo(2);
+      // held by the lease, so not evicted
+      assertThat(closes.get()).isEqualTo(0);
+    }
+    assertThat(closes.get()).isEqualTo(2);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grib.collection;
+
+import dev.ucdm.grib.coord.SparseArray;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Test {@link ReadRecordList} */
+public class TestReadRecordList {
+
+  @Test
+  public void testSameRecords() {
+    int n = 1000;
+    List<GribCollection.ReadRecord> expected = new ArrayList<>(n);
+    int[] fileno = new int[n];
+    long[] pos = new long[n];
+    int[] bmsOffset = new int[n];
+    int[] drsOffset = new int[n];
+    for (int i = 0; i < n; i++) {
+      fileno[i] = i / 100;
+      pos[i] = 3_000_000_000L + 1000L * i;
+      bmsOffset[i] = i % 7;
+      drsOffset[i] = 100 + i % 11;
+      expected.add(new GribCollection.ReadRecord(fileno[i], pos[i], bmsOffset[i], drsOffset[i]));
+    }
+    ReadRecordList records = new ReadRecordList(fileno, pos, bmsOffset, drsOffset);
+    assertThat(records).isEqualTo(expected);
+    assertThat(records.get(999).pos()).isEqualTo(3_000_000_000L + 999_000L);
+  }
+
+  // A year of 4 runs a day, 93 forecast times each, with 1 in 10 missing. Prints the heap used by the track and
+  // records of one variable, as they are read from the index, before and after compact storage.
+  @Test
+  public void testRetainedHeap() {
+    int[] shape = new int[] {4 * 365, 93};
+    int total = shape[0] * shape[1];
+
+    long before = allocated();
+    SparseArray<GribCollection.ReadRecord> objects = makeSparseArray(shape, total, false);
+    long objectBytes = allocated() - before;
+
+    before = allocated();
+    SparseArray<GribCollection.ReadRecord> compact = makeSparseArray(shape, total, true);
+    long compactBytes = allocated() - before;
+
+    assertThat(compact.getContent()).isEqualTo(objects.getContent());
+    assertThat(compact.getTrack()).isEqualTo(objects.getTrack());
+    assertThat(compactBytes).isLessThan(objectBytes);
+  }
+
+  private static SparseArray<GribCollection.ReadRecord> makeSparseArray(int[] shape, int total, boolean compact) {
+    int[] track = new int[total];
+    int n = 0;
+    for (int i = 0; i < total; i++) {
+      track[i] = (i % 10 == 9) ? 0 : ++n;
+    }
+    List<GribCollection.ReadRecord> records;
+    if (compact) {
+      int[] fileno = new int[n];
+      long[] pos = new long[n];
+      int[] bmsOffset = new int[n];
+      int[] drsOffset = new int[n];
+      for (int i = 0; i < n; i++) {
+        fileno[i] = i / 372;
+        pos[i] = 1000L * i;
+        drsOffset[i] = 120;
+      }
+      records = new ReadRecordList(fileno, pos, bmsOffset, drsOffset);
+    } else {
+      records = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        records.add(new GribCollection.ReadRecord(i / 372, 1000L * i, 0, 120));
+      }
+    }
+    return new SparseArray<>(shape, track, records, 0);
+  }
+
+  // bytes allocated by this thread. The track needs 32 bits here, so it is kept, and nothing allocated is garbage.
+  private static long allocated() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+  }
+}
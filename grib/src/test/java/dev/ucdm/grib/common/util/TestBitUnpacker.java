@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grib.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/** Test {@link BitUnpacker} against {@link BitReader} */
+public class TestBitUnpacker {
+  private static final Random random = new Random(12345);
+
+  private static byte[] makeData(int nbytes) {
+    byte[] data = new byte[nbytes];
+    random.nextBytes(data);
+    return data;
+  }
+
+  // one bit at a time
+  private static long bits(byte[] data, long bitPos, int nb) {
+    long result = 0;
+    for (long pos = bitPos; pos < bitPos + nb; pos++) {
+      int bit = (data[(int) (pos / 8)] >> (7 - pos % 8)) & 1;
+      result = (result << 1) | bit;
+    }
+    return result;
+  }
+
+  @Test
+  public void testUnpack() throws IOException {
+    byte[] data = makeData(1000);
+    for (int nb = 0; nb <= 32; nb++) {
+      int n = (data.length * 8) / Math.max(nb, 1);
+      if (nb == 0) {
+        n = 100;
+      }
+      BitReader expected = new BitReader(data);
+      BitUnpacker unpacker = new BitUnpacker(data);
+      int[] result = new int[n];
+      unpacker.unpack(nb, result, 0, n);
+      for (int i = 0; i < n; i++) {
+        long want = bits(data, (long) i * nb, nb);
+        assertWithMessage("nb=%s i=%s", nb, i).that(Integer.toUnsignedLong(result[i])).isEqualTo(want);
+        if (nb < 32) { // BitReader only handles nb < 32
+          assertThat(expected.bits2UInt(nb)).isEqualTo(want);
+        }
+      }
+      assertThat(unpacker.getBitPos()).isEqualTo((long) n * nb);
+    }
+  }
+
+  @Test
+  public void testUnaligned() throws IOException {
+    byte[] data = makeData(200);
+    for (int nb : new int[] {3, 8, 16, 17, 31}) {
+      BitReader expected = new BitReader(data);
+      BitUnpacker unpacker = new BitUnpacker(data);
+      assertThat(unpacker.bits2UInt(5)).isEqualTo(expected.bits2UInt(5));
+      int[] result = new int[20];
+      unpacker.unpack(nb, result, 10, 10);
+      for (int i = 10; i < 20; i++) {
+        assertThat(Integer.toUnsignedLong(result[i])).isEqualTo(expected.bits2UInt(nb));
+      }
+      expected.incrByte();
+      unpacker.alignToByte();
+      unpacker.unpack(nb, result, 0, 10);
+      for (int i = 0; i < 10; i++) {
+        assertThat(Integer.toUnsignedLong(result[i])).isEqualTo(expected.bits2UInt(nb));
+      }
+    }
+  }
+
+  @Test
+  public void testBits2UInt() {
+    byte[] data = makeData(500);
+    BitUnpacker unpacker = new BitUnpacker(data);
+    long nbits = 0;
+    while (nbits < 3000) {
+      int nb = random.nextInt(65);
+      assertWithMessage("nb=%s", nb).that(unpacker.bits2UInt(nb)).isEqualTo(bits(data, nbits, nb));
+      nbits += nb;
+    }
+  }
+
+  @Test
+  public void testAlignToByte() {
+    BitUnpacker unpacker = new BitUnpacker(new byte[] {(byte) 0xff, 0x0f});
+    unpacker.alignToByte();
+    assertThat(unpacker.getBitPos()).isEqualTo(0);
+    assertThat(unpacker.bits2UInt(3)).isEqualTo(7);
+    unpacker.alignToByte();
+    assertThat(unpacker.getBitPos()).isEqualTo(8);
+    assertThat(unpacker.bits2UInt(8)).isEqualTo(15);
+  }
+
+  @Test
+  public void testPastEnd() {
+    BitUnpacker unpacker = new BitUnpacker(new byte[] {(byte) 0xff, (byte) 0xff, (byte) 0xff});
+    int[] result = new int[4];
+    unpacker.unpack(12, result, 0, 4);
+    assertThat(result).isEqualTo(new int[] {0xfff, 0xfff, 0, 0});
+  }
+
+}
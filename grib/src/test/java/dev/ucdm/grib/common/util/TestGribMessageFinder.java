@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grib.common.util;
+
+import dev.ucdm.core.io.MappedRandomAccessFile;
+import dev.ucdm.core.io.RandomAccessFile;
+import dev.ucdm.grib.grib1.record.Grib1Record;
+import dev.ucdm.grib.grib1.record.Grib1RecordScanner;
+import dev.ucdm.grib.grib2.record.Grib2Record;
+import dev.ucdm.grib.grib2.record.Grib2RecordScanner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/** Test {@link GribMessageFinder} */
+public class TestGribMessageFinder {
+  private static final byte[] GRIB = "GRIB".getBytes(StandardCharsets.US_ASCII);
+
+  @TempDir
+  public File tempFolder;
+
+  @Test
+  public void testIndexOfGrib() {
+    Random random = new Random(17);
+    for (int n = 0; n < 1000; n++) {
+      byte[] b = new byte[4 + random.nextInt(40)];
+      for (int i = 0; i < b.length; i++) {
+        // lots of G's, and the bytes around G
+        b[i] = (byte) ('F' + random.nextInt(3));
+      }
+      int at = random.nextInt(b.length - 3);
+      System.arraycopy(GRIB, 0, b, at, 4);
+      int start = random.nextInt(b.length);
+      int expected = naiveIndexOf(b, start, b.length);
+      assertWithMessage(Arrays.toString(b) + " start " + start)
+          .that(GribMessageFinder.indexOfGrib(ByteBuffer.wrap(b), start, b.length)).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void testFindNextAcrossBlocks() throws IOException {
+    byte[] b = new byte[10000];
+    Arrays.fill(b, (byte) 'G');
+    List<Long> expected = new ArrayList<>();
+    // at the start, straddling block boundaries, and at the end
+    for (int at : new int[] {0, 998, 1790, 1999, 5000, 9996}) {
+      System.arraycopy(GRIB, 0, b, at, 4);
+      expected.add((long) at);
+    }
+    File file = new File(tempFolder, "grib.bin");
+    Files.write(file.toPath(), b);
+
+    for (RandomAccessFile raf : new RandomAccessFile[] {new RandomAccessFile(file.getPath(), "r"),
+        new MappedRandomAccessFile(file.getPath())}) {
+      try (raf) {
+        GribMessageFinder finder = new GribMessageFinder(raf, 1000);
+        List<Long> found = new ArrayList<>();
+        long pos = finder.findNext(0);
+        while (pos >= 0) {
+          found.add(pos);
+          pos = finder.findNext(pos + 1);
+        }
+        assertThat(found).isEqualTo(expected);
+        assertThat(finder.readBytes(998, 4)).isEqualTo(GRIB);
+        assertThat(finder.readBytes(5000, 4)).isEqualTo(GRIB);
+        assertThat(finder.getEdition(9996)).isEqualTo(-1);
+        assertThat(finder.hasEnding(1790)).isFalse();
+      }
+    }
+  }
+
+  @Test
+  public void testSameRecords() throws IOException {
+    for (String filename : testFiles(".grib2")) {
+      assertWithMessage(filename).that(grib2Records(filename, true, false))
+          .isEqualTo(grib2Records(filename, false, false));
+      assertWithMessage(filename).that(grib2Records(filename, true, true))
+          .isEqualTo(grib2Records(filename, false, false));
+    }
+    for (String filename : testFiles(".grib1")) {
+      assertWithMessage(filename).that(grib1Records(filename, true, false))
+          .isEqualTo(grib1Records(filename, false, false));
+      assertWithMessage(filename).that(grib1Records(filename, true, true))
+          .isEqualTo(grib1Records(filename, false, false));
+    }
+  }
+
+  private static int naiveIndexOf(byte[] b, int start, int end) {
+    for (int i = start; i <= end - 4; i++) {
+      if (b[i] == 'G' && b[i + 1] == 'R' && b[i + 2] == 'I' && b[i + 3] == 'B') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static List<String> testFiles(String suffix) {
+    File[] files = new File("src/test/data/").listFiles((dir, name) -> name.endsWith(suffix));
+    assertThat(files).isNotNull();
+    List<String> result = new ArrayList<>();
+    for (File file : files) {
+      result.add(file.getPath());
+    }
+    assertThat(result).isNotEmpty();
+    return result;
+  }
+
+  private static RandomAccessFile open(String filename, boolean mapped) throws IOException {
+    return mapped ? new MappedRandomAccessFile(filename) : new RandomAccessFile(filename, "r");
+  }
+
+  private static List<String> grib2Records(String filename, boolean streaming, boolean mapped) throws IOException {
+    List<String> result = new ArrayList<>();
+    try (RandomAccessFile raf = open(filename, mapped)) {
+      Grib2RecordScanner scan = new Grib2RecordScanner(raf, streaming);
+      while (scan.hasNext()) {
+        Grib2Record gr = scan.next();
+        result.add(String.format("%d %d %d %s", gr.getIs().getStartPos(), gr.getIs().getMessageLength(),
+            gr.getDataRepresentationSection().getStartingPosition(), Arrays.toString(gr.getHeader())));
+      }
+    }
+    return result;
+  }
+
+  private static List<String> grib1Records(String filename, boolean streaming, boolean mapped) throws IOException {
+    List<String> result = new ArrayList<>();
+    try (RandomAccessFile raf = open(filename, mapped)) {
+      Grib1RecordScanner scan = new Grib1RecordScanner(raf, streaming);
+      while (scan.hasNext()) {
+        Grib1Record gr = scan.next();
+        if (gr == null) {
+          break;
+        }
+        result.add(String.format("%d %d %d %s", gr.getIs().getStartPos(), gr.getIs().getMessageLength(),
+            gr.getDataSection().getStartingPosition(), Arrays.toString(gr.getHeader())));
+      }
+    }
+    return result;
+  }
+
+}
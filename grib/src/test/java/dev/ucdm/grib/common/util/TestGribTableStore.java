@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grib.common.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Test {@link GribTableStore} */
+public class TestGribTableStore {
+
+  @TempDir
+  public File tempFolder;
+
+  @AfterEach
+  public void cleanup() {
+    GribTableStore.setStoreFile(null);
+  }
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    Map<String, byte[]> tables = new HashMap<>();
+    GribTableStore.Encoder one = new GribTableStore.Encoder();
+    one.writeInt(42);
+    one.writeNullableString("one");
+    one.writeNullableString(null);
+    tables.put("table/one", one.toByteArray());
+    GribTableStore.Encoder two = new GribTableStore.Encoder();
+    two.writeNullableString("zwei über");
+    tables.put("table/two", two.toByteArray());
+
+    File file = new File(tempFolder, "tables.bin");
+    try (OutputStream out = new FileOutputStream(file)) {
+      GribTableStore.write(tables, out);
+    }
+    GribTableStore.setStoreFile(file.getPath());
+    GribTableStore store = GribTableStore.getInstance();
+    assertThat(store.getKeys()).containsExactly("table/one", "table/two").inOrder();
+
+    // read twice, each caller has its own position
+    for (int i = 0; i < 2; i++) {
+      ByteBuffer bb = store.getTable("table/one");
+      assertThat(bb).isNotNull();
+      assertThat(bb.getInt()).isEqualTo(42);
+      assertThat(GribTableStore.readString(bb)).isEqualTo("one");
+      assertThat(GribTableStore.readString(bb)).isNull();
+      assertThat(bb.hasRemaining()).isFalse();
+    }
+    ByteBuffer bb = store.getTable("table/two");
+    assertThat(GribTableStore.readString(bb)).isEqualTo("zwei über");
+    assertThat(store.getTable("table/three")).isNull();
+  }
+
+  @Test
+  public void testNotAStore() throws IOException {
+    File file = new File(tempFolder, "bad.bin");
+    Files.write(file.toPath(), "not a store at all".getBytes(StandardCharsets.UTF_8));
+    GribTableStore.setStoreFile(file.getPath());
+    assertThat(GribTableStore.getInstance().isEmpty()).isTrue();
+  }
+
+  @Test
+  public void testCompile() throws IOException {
+    File file = new File(tempFolder, "gribTables.bin");
+    GribTableCompiler.writeStore(file);
+    GribTableStore.setStoreFile(file.getPath());
+    GribTableStore store = GribTableStore.getInstance();
+    assertThat(store.isEmpty()).isFalse();
+    assertThat(store.getKeys()).contains("grib2/wmo/GRIB2_22_0_0");
+    System.out.printf("%s from %s%n", store, file.getPath());
+  }
+
+}
@@ -30,4 +30,29 @@ public class TestSparseArray {
 
     assertThat(sa.getDensity()).isWithin(NumericCompare.defaultMaxRelativeDiffFloat).of(0.906667f);
   }
+
+  @Test
+  public void testCompactTrack() {
+    // content sizes that need a byte, a char, and an int track
+    for (int n : new int[] {255, 256, 65535, 65536, 70000}) {
+      int[] sizes = new int[] {2, n};
+      int[] track = new int[2 * n];
+      List<Integer> list = new ArrayList<>();
+      for (int i = 0; i < n; i++) {
+        list.add(i);
+        track[2 * i] = i + 1; // a record
+        track[2 * i + 1] = 0; // missing
+      }
+      int[] expected = track.clone();
+
+      SparseArray<Integer> sa = new SparseArray<>(sizes, track, list, 0);
+      assertThat(sa.getTrack()).isEqualTo(expected);
+      assertThat(sa.countNotMissing()).isEqualTo(n);
+      assertThat(sa.countMissing()).isEqualTo(n);
+      for (int i = 0; i < 2 * n; i++) {
+        assertThat(sa.getTrack(i)).isEqualTo(expected[i]);
+        assertThat(sa.getContent(i)).isEqualTo(expected[i] == 0 ? null : expected[i] - 1);
+      }
+    }
+  }
 }
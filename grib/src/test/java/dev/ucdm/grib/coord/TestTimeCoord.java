@@ -4,6 +4,8 @@ import dev.ucdm.core.calendar.CalendarDate;
 import dev.ucdm.core.calendar.CalendarPeriod;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static com.google.common.truth.Truth.assertThat;
 
 public class TestTimeCoord {
@@ -24,5 +26,47 @@ public class TestTimeCoord {
     assertThat(refDate.toString()).isEqualTo("2010-03-29T00:00Z");
   }
 
+  @Test
+  public void testPrimitiveStorage() {
+    CalendarDate refDate = CalendarDate.of(1269820800000L);
+    CalendarPeriod timeUnit = CalendarPeriod.of("Hour");
+
+    CoordinateTime time = new CoordinateTime(0, timeUnit, refDate, List.of(0L, 3L, 6L), null);
+    CoordinateTime timea = new CoordinateTime(0, timeUnit, refDate, new long[] {0, 3, 6}, null);
+    assertThat(timea).isEqualTo(time);
+    assertThat(timea.hashCode()).isEqualTo(time.hashCode());
+    assertThat(timea.getOffsetSorted()).containsExactly(0L, 3L, 6L).inOrder();
+    assertThat(timea.getIndex(6L)).isEqualTo(2);
+
+    List<TimeCoordIntvValue> tinvs = List.of(new TimeCoordIntvValue(0, 3), new TimeCoordIntvValue(3, 6));
+    CoordinateTimeIntv intv = new CoordinateTimeIntv(0, timeUnit, refDate, tinvs, null);
+    CoordinateTimeIntv intva = new CoordinateTimeIntv(0, timeUnit, refDate, new int[] {0, 3, 3, 6}, null);
+    assertThat(intva).isEqualTo(intv);
+    assertThat(intva.getTimeIntervals()).isEqualTo(tinvs);
+    assertThat(intva.getIndex(new TimeCoordIntvValue(3, 6))).isEqualTo(1);
+
+    VertCoordUnit vunit = new VertCoordUnit(100, "Pa", null, false);
+    List<VertCoordValue> levels = List.of(new VertCoordValue(500.0), new VertCoordValue(850.0));
+    CoordinateVert vert = new CoordinateVert(100, vunit, levels);
+    CoordinateVert verta = new CoordinateVert(100, vunit, new double[] {500, 850}, null);
+    assertThat(verta).isEqualTo(vert);
+    assertThat(verta.getLevelSorted()).isEqualTo(levels);
+    assertThat(verta.isLayer()).isFalse();
+
+    List<VertCoordValue> layers = List.of(new VertCoordValue(0, 10), new VertCoordValue(10, 40));
+    CoordinateVert layer = new CoordinateVert(106, vunit, layers);
+    CoordinateVert layera = new CoordinateVert(106, vunit, new double[] {0, 10}, new double[] {10, 40});
+    assertThat(layera).isEqualTo(layer);
+    assertThat(layera.getLevelSorted()).isEqualTo(layers);
+    assertThat(layera.isLayer()).isTrue();
+
+    List<EnsCoordValue> ens = List.of(new EnsCoordValue(3, 1), new EnsCoordValue(3, 2));
+    CoordinateEns ensc = new CoordinateEns(0, ens);
+    CoordinateEns ensa = new CoordinateEns(0, new int[] {3, 3}, new int[] {1, 2});
+    assertThat(ensa).isEqualTo(ensc);
+    assertThat(ensa.getEnsSorted()).isEqualTo(ens);
+    assertThat(ensa.getIndexByMember(2)).isEqualTo(1);
+  }
+
 }
 
@@ -32,11 +32,19 @@
 
 package dev.ucdm.grib.grib1.table;
 
+import dev.ucdm.grib.common.util.GribTableCompiler;
+import dev.ucdm.grib.common.util.GribTableStore;
+import dev.ucdm.grib.grib1.iosp.Grib1Parameter;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Map;
 
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
 
 public class TestGribTables {
 
@@ -57,4 +65,67 @@ public class TestGribTables {
     }
   }
 
+  @TempDir
+  public File tempFolder;
+
+  @AfterEach
+  public void cleanup() {
+    GribTableStore.setUseStore(true);
+    GribTableStore.setStoreFile(null);
+  }
+
+  @Test
+  public void testSameFromStore() throws IOException {
+    File storeFile = new File(tempFolder, "gribTables.bin");
+    GribTableCompiler.writeStore(storeFile);
+
+    int count = 0;
+    long sourceNanos = 0;
+    long storeNanos = 0;
+    for (Grib1ParamTableReader standard : Grib1ParamLookup.getStandardParameterTables()) {
+      GribTableStore.setUseStore(false);
+      Grib1ParamTableReader want = new Grib1ParamTableReader(standard.getCenter_id(), standard.getSubcenter_id(),
+          standard.getVersion(), standard.getPath());
+      Map<Integer, Grib1Parameter> wantParams;
+      long start = System.nanoTime();
+      try {
+        wantParams = want.getParameters();
+      } catch (RuntimeException e) {
+        continue; // not compiled either
+      }
+      sourceNanos += System.nanoTime() - start;
+
+      GribTableStore.setUseStore(true);
+      GribTableStore.setStoreFile(storeFile.getPath());
+      Grib1ParamTableReader got = new Grib1ParamTableReader(standard.getCenter_id(), standard.getSubcenter_id(),
+          standard.getVersion(), standard.getPath());
+      if (GribTableStore.getInstance().getTable(got.storeKey()) != null) {
+        count++;
+      }
+      start = System.nanoTime();
+      Map<Integer, Grib1Parameter> gotParams = got.getParameters();
+      storeNanos += System.nanoTime() - start;
+
+      String what = want.getPath();
+      assertWithMessage(what).that(got.getCenter_id()).isEqualTo(want.getCenter_id());
+      assertWithMessage(what).that(got.getSubcenter_id()).isEqualTo(want.getSubcenter_id());
+      assertWithMessage(what).that(got.getVersion()).isEqualTo(want.getVersion());
+      assertWithMessage(what).that(got.getDesc()).isEqualTo(want.getDesc());
+      assertWithMessage(what).that(got.useParamName()).isEqualTo(want.useParamName());
+      assertWithMessage(what).that(gotParams.keySet()).isEqualTo(wantParams.keySet());
+      for (Grib1Parameter param : wantParams.values()) {
+        Grib1Parameter gotParam = gotParams.get(param.number());
+        String pwhat = what + " " + param.number();
+        assertWithMessage(pwhat).that(gotParam.name()).isEqualTo(param.name());
+        assertWithMessage(pwhat).that(gotParam.description()).isEqualTo(param.description());
+        assertWithMessage(pwhat).that(gotParam.unit()).isEqualTo(param.unit());
+        assertWithMessage(pwhat).that(gotParam.cfName()).isEqualTo(param.cfName());
+        assertWithMessage(pwhat).that(gotParam.getTable()).isSameInstanceAs(got);
+      }
+    }
+    assertThat(count).isGreaterThan(0);
+    System.out.printf("%d Grib1 parameter tables: from source %d msecs, from GribTableStore %d msecs%n", count,
+        sourceNanos / 1000 / 1000, storeNanos / 1000 / 1000);
+  }
+
 }
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grib.grib2.record;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static dev.ucdm.grib.grib2.record.Grib2CcsdsDecoder.*;
+
+/** Test {@link Grib2CcsdsDecoder} by decoding data made by a simple CCSDS encoder. */
+public class TestGrib2CcsdsDecoder {
+  private static final Random random = new Random(4242);
+
+  @Test
+  public void testPreprocess() throws IOException {
+    roundtrip(makeData(5000, 12, false), 12, AEC_DATA_PREPROCESS | AEC_DATA_MSB, 16, 4);
+    roundtrip(makeData(3333, 24, false), 24, AEC_DATA_PREPROCESS | AEC_DATA_MSB | AEC_DATA_3BYTE, 32, 128);
+  }
+
+  @Test
+  public void testPadRsi() throws IOException {
+    roundtrip(makeData(2000, 17, false), 17, AEC_DATA_PREPROCESS | AEC_PAD_RSI, 32, 3);
+  }
+
+  @Test
+  public void testNoPreprocess() throws IOException {
+    roundtrip(makeData(1000, 8, false), 8, 0, 8, 16);
+  }
+
+  @Test
+  public void testSigned() throws IOException {
+    roundtrip(makeData(4000, 16, true), 16, AEC_DATA_SIGNED | AEC_DATA_PREPROCESS, 64, 8);
+    roundtrip(makeData(500, 11, true), 11, AEC_DATA_SIGNED, 16, 8);
+  }
+
+  @Test
+  public void testRestricted() throws IOException {
+    roundtrip(makeData(1000, 3, false), 3, AEC_DATA_PREPROCESS | AEC_RESTRICTED, 16, 4);
+    roundtrip(makeData(1000, 2, false), 2, AEC_DATA_PREPROCESS | AEC_RESTRICTED, 8, 4);
+  }
+
+  @Test
+  public void test32bits() throws IOException {
+    roundtrip(makeData(1000, 32, false), 32, AEC_DATA_PREPROCESS, 16, 16);
+  }
+
+  @Test
+  public void testConstant() throws IOException {
+    // uses zero blocks to the end of the segment
+    long[] data = new long[10000];
+    Arrays.fill(data, 1234);
+    roundtrip(data, 16, AEC_DATA_PREPROCESS, 32, 100);
+  }
+
+  @Test
+  public void testTruncated() throws IOException {
+    long[] data = makeData(1000, 12, false);
+    byte[] encoded = new Encoder(12, AEC_DATA_PREPROCESS, 16, 4).encode(data);
+    try {
+      Grib2CcsdsDecoder.decode(Arrays.copyOf(encoded, 10), 12, AEC_DATA_PREPROCESS, 16, 4, data.length);
+      assertWithMessage("should throw").fail();
+    } catch (IOException e) {
+      assertThat(e.getMessage()).contains("truncated");
+    }
+  }
+
+  // smooth data with constant runs, small steps and noise, so every coding option is used
+  private static long[] makeData(int n, int nbits, boolean signed) {
+    long xmin = signed ? -(1L << (nbits - 1)) : 0;
+    long xmax = signed ? (1L << (nbits - 1)) - 1 : (1L << nbits) - 1;
+    long[] data = new long[n];
+    long x = (xmin + xmax) / 2;
+    for (int i = 0; i < n; i++) {
+      int section = (i / 200) % 4;
+      if (section == 1) {
+        if (random.nextInt(8) == 0) {
+          x += random.nextBoolean() ? 1 : -1; // rare tiny steps
+        }
+      } else if (section == 2) {
+        x += random.nextInt(41) - 20; // small steps
+      } else if (section == 3) {
+        x = xmin + (long) (random.nextDouble() * (xmax - xmin)); // noise
+      }
+      if (i % 700 == 0) {
+        x = (i % 1400 == 0) ? xmin : xmax; // extremes
+      }
+      x = Math.max(xmin, Math.min(xmax, x));
+      data[i] = x;
+    }
+    return data;
+  }
+
+  private void roundtrip(long[] data, int nbits, int flags, int blockSize, int rsi) throws IOException {
+    Encoder encoder = new Encoder(nbits, flags, blockSize, rsi);
+    byte[] encoded = encoder.encode(data);
+    int[] result = Grib2CcsdsDecoder.decode(encoded, nbits, flags, blockSize, rsi, data.length);
+    assertThat(result.length).isEqualTo(data.length);
+    boolean signed = (flags & AEC_DATA_SIGNED) != 0;
+    for (int i = 0; i < data.length; i++) {
+      long value = signed ? result[i] : Integer.toUnsignedLong(result[i]);
+      assertWithMessage("nbits=%s i=%s", nbits, i).that(value).isEqualTo(data[i]);
+    }
+    // all coding options were used, unless the data is constant
+    if (nbits > 4 && (flags & AEC_DATA_PREPROCESS) != 0 && encoder.nuncomp + encoder.nsplit > 0) {
+      assertThat(encoder.nzero).isGreaterThan(0);
+      assertThat(encoder.nse).isGreaterThan(0);
+      assertThat(encoder.nsplit).isGreaterThan(0);
+      assertThat(encoder.nuncomp).isGreaterThan(0);
+    }
+  }
+
+  /** A simple CCSDS 121.0-B encoder, choosing the cheapest option for each block. */
+  private static class Encoder {
+    final int nbits, blockSize, rsi, idLen;
+    final boolean signed, preprocess, padRsi;
+    final long xmin, xmax, mask;
+    final BitWriter out = new BitWriter();
+    int nzero, nse, nsplit, nuncomp;
+
+    Encoder(int nbits, int flags, int blockSize, int rsi) {
+      this.nbits = nbits;
+      this.blockSize = blockSize;
+      this.rsi = rsi;
+      this.signed = (flags & AEC_DATA_SIGNED) != 0;
+      this.preprocess = (flags & AEC_DATA_PREPROCESS) != 0;
+      this.padRsi = (flags & AEC_PAD_RSI) != 0;
+      this.xmin = signed ? -(1L << (nbits - 1)) : 0;
+      this.xmax = signed ? (1L << (nbits - 1)) - 1 : (1L << nbits) - 1;
+      this.mask = (1L << nbits) - 1;
+      if (nbits > 16) {
+        idLen = 5;
+      } else if (nbits > 8) {
+        idLen = 4;
+      } else if ((flags & AEC_RESTRICTED) != 0 && nbits <= 4) {
+        idLen = (nbits <= 2) ? 1 : 2;
+      } else {
+        idLen = 3;
+      }
+    }
+
+    byte[] encode(long[] data) {
+      int nblocks = (data.length + blockSize - 1) / blockSize;
+      long[] x = Arrays.copyOf(data, nblocks * blockSize);
+      Arrays.fill(x, data.length, x.length, data[data.length - 1]);
+
+      for (int rb = 0; rb < nblocks; rb += rsi) {
+        if (rb > 0 && padRsi) {
+          out.align();
+        }
+        int nb = Math.min(rsi, nblocks - rb);
+        long[] d = new long[nb * blockSize];
+        for (int i = 0; i < d.length; i++) {
+          long xi = x[rb * blockSize + i];
+          d[i] = (!preprocess || i == 0) ? (xi & mask) : map(xi, x[rb * blockSize + i - 1]);
+        }
+
+        for (int b = 0; b < nb;) {
+          boolean ref = preprocess && b == 0;
+          int start = b * blockSize;
+          int first = ref ? 1 : 0;
+
+          if (isZero(d, start + first, start + blockSize)) {
+            int r = 1;
+            while (b + r < nb && isZero(d, start + r * blockSize, start + (r + 1) * blockSize)) {
+              r++;
+            }
+            int remainder = Math.min(rsi - b, 64 - (b % 64)); // blocks to the end of the segment
+            out.put(0, idLen);
+            out.put(0, 1);
+            if (ref) {
+              out.put(d[start], nbits);
+            }
+            int zb;
+            if (r >= remainder && remainder >= 5) {
+              zb = remainder;
+              out.fs(4); // remainder of segment
+            } else {
+              zb = Math.min(r, remainder);
+              out.fs(zb < 5 ? zb - 1 : zb);
+            }
+            nzero++;
+            b += zb;
+            continue;
+          }
+
+          long best = (long) blockSize * nbits;
+          int bestOption = -1; // uncompressed
+          if (seCost(d, start, first) < best) {
+            best = seCost(d, start, first);
+            bestOption = -2;
+          }
+          for (int k = 0; k <= (1 << idLen) - 3 && k < nbits; k++) {
+            long cost = splitCost(d, start + first, start + blockSize, k);
+            if (cost < best) {
+              best = cost;
+              bestOption = k;
+            }
+          }
+
+          if (bestOption == -1) {
+            out.put((1 << idLen) - 1, idLen);
+            for (int i = start; i < start + blockSize; i++) {
+              out.put(d[i], nbits);
+            }
+            nuncomp++;
+
+          } else if (bestOption == -2) {
+            out.put(0, idLen);
+            out.put(1, 1);
+            if (ref) {
+              out.put(d[start], nbits);
+            }
+            for (int i = 0; i < blockSize; i += 2) {
+              long a = (i == 0 && ref) ? 0 : d[start + i]; // the reference takes the place of the first value
+              long c = d[start + i + 1];
+              long sum = a + c;
+              out.fs((int) (sum * (sum + 1) / 2 + c));
+            }
+            nse++;
+
+          } else {
+            int k = bestOption;
+            out.put(k + 1, idLen);
+            if (ref) {
+              out.put(d[start], nbits);
+            }
+            for (int i = start + first; i < start + blockSize; i++) {
+              out.fs((int) (d[i] >>> k));
+            }
+            for (int i = start + first; i < start + blockSize; i++) {
+              out.put(d[i] & ((1L << k) - 1), k);
+            }
+            nsplit++;
+          }
+          b++;
+        }
+      }
+      return out.toByteArray();
+    }
+
+    private long map(long x, long pred) {
+      long delta = x - pred;
+      long theta = Math.min(pred - xmin, xmax - pred);
+      if (delta >= 0 && delta <= theta) {
+        return 2 * delta;
+      } else if (delta < 0 && delta >= -theta) {
+        return -2 * delta - 1;
+      }
+      return theta + Math.abs(delta);
+    }
+
+    private static boolean isZero(long[] d, int start, int end) {
+      for (int i = start; i < end; i++) {
+        if (d[i] != 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private long splitCost(long[] d, int start, int end, int k) {
+      long cost = idLen;
+      for (int i = start; i < end; i++) {
+        cost += (d[i] >>> k) + 1 + k;
+      }
+      return cost;
+    }
+
+    private long seCost(long[] d, int start, int first) {
+      long cost = idLen + 1;
+      for (int i = 0; i < blockSize; i += 2) {
+        long sum = (i == 0 && first == 1) ? d[start + 1] : d[start + i] + d[start + i + 1];
+        if (sum > 12) {
+          return Long.MAX_VALUE;
+        }
+        long second = d[start + i + 1];
+        cost += sum * (sum + 1) / 2 + second + 1;
+      }
+      return cost;
+    }
+  }
+
+  private static class BitWriter {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    int current, nbits;
+
+    void put(long value, int nb) {
+      for (int i = nb - 1; i >= 0; i--) {
+        bit((int) ((value >>> i) & 1));
+      }
+    }
+
+    void fs(int count) {
+      for (int i = 0; i < count; i++) {
+        bit(0);
+      }
+      bit(1);
+    }
+
+    void bit(int b) {
+      current = (current << 1) | b;
+      if (++nbits == 8) {
+        bytes.write(current);
+        current = 0;
+        nbits = 0;
+      }
+    }
+
+    void align() {
+      while (nbits != 0) {
+        bit(0);
+      }
+    }
+
+    byte[] toByteArray() {
+      align();
+      return bytes.toByteArray();
+    }
+  }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grib.grib2.record;
+
+import dev.ucdm.core.io.RandomAccessFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/** Test {@link Grib2JpegLosslessDecoder} against {@link Grib2JpegDecoder} */
+public class TestGrib2JpegLosslessDecoder {
+  private static final String testdir = "src/test/data/";
+
+  private static List<byte[]> readCodestreams(String filename) throws IOException {
+    List<byte[]> result = new ArrayList<>();
+    TestGrib2Records.readFile(testdir + filename, (raf, gr) -> {
+      if (gr.getDataRepresentationSection().getDataTemplate() != 40) {
+        return;
+      }
+      Grib2SectionData dataSection = gr.getDataSection();
+      byte[] buf = new byte[dataSection.getMsgLength() - 5];
+      raf.seek(dataSection.getStartingPosition() + 5);
+      raf.readFully(buf);
+      result.add(buf);
+    });
+    return result;
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"pdsScale.pds1.grib2", "rugley.pds15.grib2", "sref.pds12.grib2", "sref.pds2.grib2",
+      "sref_eta.grib2", "ofs_atl.grib2"})
+  public void testSameAsJj2000(String filename) throws IOException {
+    List<byte[]> codestreams = readCodestreams(filename);
+    assertThat(codestreams).isNotEmpty();
+    for (byte[] buf : codestreams) {
+      Grib2JpegDecoder expected = new Grib2JpegDecoder(0, false);
+      expected.decode(buf);
+
+      Grib2JpegLosslessDecoder decoder = new Grib2JpegLosslessDecoder(0);
+      assertThat(decoder.decode(buf)).isTrue();
+      assertThat(decoder.getGdata()).isEqualTo(expected.getGdata());
+    }
+  }
+
+  @Test
+  public void testKnownValues() throws IOException {
+    byte[] buf = readCodestreams("pdsScale.pds1.grib2").get(0);
+    Grib2JpegLosslessDecoder decoder = new Grib2JpegLosslessDecoder(12);
+    assertThat(decoder.decode(buf)).isTrue();
+    assertThat(decoder.hasSignedProblem()).isFalse();
+
+    int[] data = decoder.getGdata();
+    assertThat(data.length).isEqualTo(65160);
+    // R = 2313.5205, E = -2, D = 1
+    assertThat(data[0]).isEqualTo(1289);
+    assertThat(data[1234]).isEqualTo(1294);
+  }
+
+  @Test
+  public void testNotSupported() throws IOException {
+    byte[] buf = readCodestreams("sref_eta.grib2").get(0);
+    // SIZ follows SOC, Csiz is at bytes 40-41
+    assertThat(buf[41]).isEqualTo((byte) 1);
+    byte[] twoComponents = buf.clone();
+    twoComponents[41] = 2;
+    assertThat(new Grib2JpegLosslessDecoder(8).decode(twoComponents)).isFalse();
+
+    // not a codestream
+    assertThat(new Grib2JpegLosslessDecoder(8).decode(new byte[] {1, 2, 3, 4, 5})).isFalse();
+  }
+
+  @Test
+  public void testSynthesize() {
+    Random random = new Random(5353);
+    for (int n = 1; n < 20; n++) {
+      for (int cas = 0; cas < 2; cas++) {
+        int[] x = new int[n];
+        for (int i = 0; i < n; i++) {
+          x[i] = random.nextInt(2000) - 1000;
+        }
+        int[] y = analyze(x, cas);
+        Grib2JpegLosslessDecoder.synthesize(y, n, cas);
+        assertWithMessage("n=%s cas=%s", n, cas).that(y).isEqualTo(x);
+      }
+    }
+  }
+
+  // forward reversible 5/3 lifting, F.4.8.2, in place with interleaved coefficients
+  private static int[] analyze(int[] x, int cas) {
+    int n = x.length;
+    int[] y = x.clone();
+    if (n == 1) {
+      if (cas == 1) {
+        y[0] *= 2;
+      }
+      return y;
+    }
+    for (int k = 1 - cas; k < n; k += 2) {
+      y[k] -= (y[ext(k - 1, n)] + y[ext(k + 1, n)]) >> 1;
+    }
+    for (int k = cas; k < n; k += 2) {
+      y[k] += (y[ext(k - 1, n)] + y[ext(k + 1, n)] + 2) >> 2;
+    }
+    return y;
+  }
+
+  private static int ext(int k, int n) {
+    return k < 0 ? -k : k >= n ? 2 * (n - 1) - k : k;
+  }
+
+}
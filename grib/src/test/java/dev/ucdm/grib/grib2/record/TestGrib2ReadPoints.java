@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grib.grib2.record;
+
+import dev.ucdm.core.io.RandomAccessFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/** Test {@link Grib2Record#readPoints} decodes the same values as {@link Grib2Record#readData} */
+public class TestGrib2ReadPoints {
+
+  @Test
+  public void testSameAsReadData() throws IOException {
+    File[] files = new File("src/test/data/").listFiles((dir, name) -> name.endsWith(".grib2"));
+    assertThat(files).isNotNull();
+    Random random = new Random(17);
+    int npartial = 0;
+    int nwhole = 0;
+    for (File file : files) {
+      try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r")) {
+        Grib2RecordScanner scan = new Grib2RecordScanner(raf);
+        while (scan.hasNext()) {
+          Grib2Record gr = scan.next();
+          Grib2Gds gds = gr.getGDS();
+          long drsPos = gr.getDataRepresentationSection().getStartingPosition();
+          long bmsPos = gr.isBmsReplaced() ? gr.getBitmapSection().getStartingPosition() : 0;
+          int npts = gr.getGDSsection().getNumberPoints();
+          int[] nptsInLine = gds.isThin() ? gds.getNptsInLine() : null;
+
+          float[] expected;
+          try {
+            expected = Grib2Record.readData(raf, drsPos, bmsPos, npts, gr.getScanMode(), gds.getNxRaw(),
+                gds.getNyRaw(), nptsInLine);
+          } catch (Exception e) {
+            continue; // packings this tree cant read
+          }
+
+          int[] index = new int[20];
+          for (int i = 0; i < index.length; i++) {
+            index[i] = random.nextInt(expected.length);
+          }
+          index[0] = 0;
+          index[1] = expected.length - 1;
+          float[] values =
+              Grib2Record.readPoints(raf, drsPos, bmsPos, npts, gr.getScanMode(), gds.getNxRaw(), nptsInLine, index);
+          if (values == null) {
+            nwhole++;
+            continue;
+          }
+          npartial++;
+          for (int i = 0; i < index.length; i++) {
+            assertWithMessage(file.getName() + " " + index[i]).that(values[i]).isEqualTo(expected[index[i]]);
+          }
+        }
+      }
+    }
+    System.out.printf("partial decode %d records, whole field %d records%n", npartial, nwhole);
+    assertThat(npartial).isGreaterThan(0);
+  }
+}
@@ -1,13 +1,21 @@
 package dev.ucdm.grib.grib2.table;
 
 import dev.ucdm.grib.common.GribTables;
+import dev.ucdm.grib.common.util.GribTableCompiler;
+import dev.ucdm.grib.common.util.GribTableStore;
 import dev.ucdm.grib.grib2.table.WmoCodeFlagTables.TableType;
 import dev.ucdm.grib.grib2.table.WmoCodeFlagTables.WmoTable;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
 
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
 
 public class TestWmoCodeFlagTables {
 
@@ -41,4 +49,71 @@ public class TestWmoCodeFlagTables {
     }
   }
 
+  @TempDir
+  public File tempFolder;
+
+  @AfterEach
+  public void cleanup() {
+    GribTableStore.setStoreFile(null);
+  }
+
+  @Test
+  public void testSameFromStore() throws IOException {
+    File storeFile = new File(tempFolder, "gribTables.bin");
+    GribTableCompiler.writeStore(storeFile);
+    GribTableStore.setStoreFile(storeFile.getPath());
+    GribTableStore store = GribTableStore.getInstance();
+    assertThat(store.isEmpty()).isFalse();
+
+    WmoCodeFlagTables fromXml = WmoCodeFlagTables.readTables(WmoCodeFlagTables.standard, GribTableStore.empty());
+    WmoCodeFlagTables fromStore = WmoCodeFlagTables.readTables(WmoCodeFlagTables.standard, store);
+    List<WmoTable> expected = fromXml.getWmoTables();
+    List<WmoTable> tables = fromStore.getWmoTables();
+    assertThat(tables).hasSize(expected.size());
+    for (int i = 0; i < expected.size(); i++) {
+      WmoTable want = expected.get(i);
+      WmoTable got = tables.get(i);
+      assertThat(got.getId()).isEqualTo(want.getId());
+      assertThat(got.getName()).isEqualTo(want.getName());
+      assertThat(got.getType()).isEqualTo(want.getType());
+      assertThat(got.getEntries()).hasSize(want.getEntries().size());
+      for (int j = 0; j < want.getEntries().size(); j++) {
+        WmoTable.WmoEntry wantEntry = want.getEntries().get(j);
+        WmoTable.WmoEntry gotEntry = got.getEntries().get(j);
+        assertWithMessage(wantEntry.getId()).that(gotEntry.getLine()).isEqualTo(wantEntry.getLine());
+        assertWithMessage(wantEntry.getId()).that(gotEntry.getStart()).isEqualTo(wantEntry.getStart());
+        assertWithMessage(wantEntry.getId()).that(gotEntry.getStop()).isEqualTo(wantEntry.getStop());
+        assertWithMessage(wantEntry.getId()).that(gotEntry.getNumber()).isEqualTo(wantEntry.getNumber());
+        assertWithMessage(wantEntry.getId()).that(gotEntry.getValue()).isEqualTo(wantEntry.getValue());
+        assertWithMessage(wantEntry.getId()).that(gotEntry.getCode()).isEqualTo(wantEntry.getCode());
+        assertWithMessage(wantEntry.getId()).that(gotEntry.getName()).isEqualTo(wantEntry.getName());
+        assertWithMessage(wantEntry.getId()).that(gotEntry.getUnit()).isEqualTo(wantEntry.getUnit());
+        assertWithMessage(wantEntry.getId()).that(gotEntry.getStatus()).isEqualTo(wantEntry.getStatus());
+      }
+    }
+  }
+
+  @Test
+  public void testStartup() throws IOException {
+    File storeFile = new File(tempFolder, "gribTables.bin");
+    GribTableCompiler.writeStore(storeFile);
+
+    long[] fromXml = timeStartup(GribTableStore.empty());
+    GribTableStore.setStoreFile(storeFile.getPath());
+    long[] fromStore = timeStartup(GribTableStore.getInstance());
+    System.out.printf("WMO tables: from XML %.2f msecs %d Kb allocated,"
+        + " from GribTableStore %.2f msecs %d Kb allocated%n", fromXml[0] * 1.0e-6, fromXml[1] / 1000, fromStore[0] * 1.0e-6, fromStore[1] / 1000);
+  }
+
+  // open the tables and look up one parameter: return nanosecs, bytes allocated
+  private long[] timeStartup(GribTableStore store) throws IOException {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long allocated = threads.getCurrentThreadAllocatedBytes();
+    long start = System.nanoTime();
+    WmoCodeFlagTables tables = WmoCodeFlagTables.readTables(WmoCodeFlagTables.standard, store);
+    assertThat(tables.getParamTable(0, 0).getParameter(0).getName()).isEqualTo("Temperature");
+    long took = System.nanoTime() - start;
+    return new long[] {took, threads.getCurrentThreadAllocatedBytes() - allocated};
+  }
+
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package dev.ucdm.grib.grid;
+
+import dev.ucdm.array.InvalidRangeException;
+import dev.ucdm.core.calendar.CalendarDate;
+import dev.ucdm.dataset.geoloc.LatLonPoint;
+import dev.ucdm.grid.api.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Formatter;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static dev.ucdm.test.util.TestFilesKt.oldTestDir;
+
+/** Test {@link GribGrid#readPointSeries} against reading each point with readData(). */
+public class TestGribGridPointSeries {
+
+  @Test
+  public void testPointSeries() throws IOException, InvalidRangeException {
+    String filename = oldTestDir + "gribCollections/gfs_2p5deg/gfs_2p5deg.ncx4";
+
+    Formatter infoLog = new Formatter();
+    try (GridDataset gridDataset = GridDatasetFactory.openGridDataset(filename, infoLog)) {
+      assertThat(gridDataset).isNotNull();
+      Grid grid =
+          gridDataset.findGrid("Sunshine_Duration_surface").orElseThrow(() -> new RuntimeException("Cant find grid"));
+      GridTimeCoordinateSystem tsys = grid.getTimeCoordinateSystem();
+      assertThat(tsys).isNotNull();
+      CalendarDate wantRuntime = tsys.getRuntimeDate(1);
+
+      List<LatLonPoint> points = List.of(new LatLonPoint(40.0, -105.0), new LatLonPoint(-33.9, 151.2),
+          new LatLonPoint(0.0, 0.0), new LatLonPoint(64.1, -21.9));
+      GridSubset subset = GridSubset.create().setRunTime(wantRuntime).setTimeAll();
+
+      GridPointSeries series = grid.readPointSeries(subset, points);
+      GridPointSeries expected = GridPointSeries.readByPoint(grid, subset, points);
+
+      assertThat(series.getNumPoints()).isEqualTo(points.size());
+      assertThat(series.getSeriesLength()).isEqualTo(expected.getSeriesLength());
+      assertThat(series.getSeriesLength()).isGreaterThan(1);
+      for (int p = 0; p < points.size(); p++) {
+        assertThat(series.isFound(p)).isTrue();
+        assertWithMessage(points.get(p).toString()).that(series.getSeries(p))
+            .usingExactEquality().containsExactly(expected.getSeries(p)).inOrder();
+      }
+    }
+  }
+
+}
@@ -55,6 +55,16 @@ public interface Grid extends IsMissingEvaluator {
    */
   GridReferencedArray readData(GridSubset subset) throws IOException, dev.ucdm.array.InvalidRangeException;
 
+  /**
+   * Read the values at each of the points, for all of the other coordinates of the subset, for example a time series
+   * at each point. The horizontal parameters of the subset are ignored. Points not in the grid have all missing
+   * values. Implementations may read the points together, much faster than reading each one with readData().
+   */
+  default GridPointSeries readPointSeries(GridSubset subset, java.util.List<dev.ucdm.dataset.geoloc.LatLonPoint> points)
+      throws IOException, InvalidRangeException {
+    return GridPointSeries.readByPoint(this, subset, points);
+  }
+
   /** A GridReader to read data out of this Grid. */
   default GridReader getReader() {
     return new GridReader(this);
@@ -28,6 +28,7 @@ import java.util.Formatter;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 /**
  * Manages the Projection GeoX/GeoY or Lat/Lon horizontal CoordinateSystem, with orthogonal axes.
@@ -409,6 +410,60 @@ public class GridHorizCoordinateSystem {
     return findXYindexFromCoord(x, y);
   }
 
+  /** Batches with at least this many points are searched in parallel by findXYindexFromCoords(). */
+  private static final int batchParallelThreshold = 10000;
+
+  /**
+   * The cell indices of a batch of points. Return value from findXYindexFromCoords().
+   */
+  @Immutable
+  public static class CoordIndices {
+    /**
+     * The cell index of each point, or -1 if the point is not in the grid.
+     */
+    public final int[] xindex, yindex;
+
+    public CoordIndices(int[] xindex, int[] yindex) {
+      Preconditions.checkArgument(xindex.length == yindex.length);
+      this.xindex = xindex;
+      this.yindex = yindex;
+    }
+
+    /** The number of points. */
+    public int size() {
+      return xindex.length;
+    }
+
+    /** Is the ith point in the grid? */
+    public boolean isFound(int i) {
+      return xindex[i] >= 0 && yindex[i] >= 0;
+    }
+  }
+
+  /**
+   * From a batch of (x,y) projection points, find the indices of the horizontal 2D grid.
+   * Large batches are searched in parallel.
+   *
+   * @param x x of the points
+   * @param y y of the points, same length as x
+   * @return the indices, -1 where the point is not in the grid.
+   */
+  public CoordIndices findXYindexFromCoords(double[] x, double[] y) {
+    Preconditions.checkArgument(x.length == y.length);
+    int[] xindex = new int[x.length];
+    int[] yindex = new int[x.length];
+    IntStream points = IntStream.range(0, x.length);
+    if (x.length >= batchParallelThreshold) {
+      points = points.parallel();
+    }
+    points.forEach(i -> {
+      Optional<CoordReturn> cr = findXYindexFromCoord(x[i], y[i]);
+      xindex[i] = cr.map(c -> c.xindex).orElse(-1);
+      yindex[i] = cr.map(c -> c.yindex).orElse(-1);
+    });
+    return new CoordIndices(xindex, yindex);
+  }
+
   ////////////////////////////////////////////////////////////////////////////////////////
   final GridAxisPoint xaxis;
   final GridAxisPoint yaxis;
@@ -153,6 +153,16 @@ public class GridHorizCurvilinear extends GridHorizCoordinateSystem {
         .map(cr -> new CoordReturn(cr.lon, cr.lat, cr.lonindex, cr.latindex));
   }
 
+  /** Find the grid indexes of a batch of longitude, latitude points, using the spatial index over the cells. */
+  @Override
+  public CoordIndices findXYindexFromCoords(double[] lon, double[] lat) {
+    Preconditions.checkArgument(lon.length == lat.length);
+    int[] xindex = new int[lon.length];
+    int[] yindex = new int[lon.length];
+    helper.findIndexFromLatLon(lat, lon, yindex, xindex);
+    return new CoordIndices(xindex, yindex);
+  }
+
   @Override
   public Iterable<CellBounds> cells() {
     return () -> new BoundsIterator(getXHorizAxis().getNominalSize(), getYHorizAxis().getNominalSize());
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grid.api;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import dev.ucdm.array.Array;
+import dev.ucdm.array.Arrays;
+import dev.ucdm.array.ArrayType;
+import dev.ucdm.array.Immutable;
+import dev.ucdm.array.InvalidRangeException;
+import dev.ucdm.dataset.geoloc.LatLonPoint;
+
+import java.io.IOException;
+import java.util.Formatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The values of a Grid at a set of horizontal points, for all of the other coordinates of a subset,
+ * for example a time series at each of the points. Return value from Grid.readPointSeries().
+ * The values of a point are stored together, in the order of the non-horizontal coordinates of the
+ * MaterializedCoordinateSystem.
+ */
+@Immutable
+public class GridPointSeries {
+  private static final List<String> horizontalKeys = ImmutableList.of(GridSubset.latlonPoint,
+      GridSubset.projectionPoint, GridSubset.latlonBB, GridSubset.projBB, GridSubset.horizStride);
+
+  /** The subset without its horizontal parameters, which do not apply to a point series. */
+  public static GridSubset withoutHorizontal(GridSubset subset) {
+    Map<String, Object> req = new HashMap<>();
+    subset.getEntries().forEach(e -> req.put(e.getKey(), e.getValue()));
+    horizontalKeys.forEach(req::remove);
+    return new GridSubset(req);
+  }
+
+  /** Find the cells of the horizontal coordinate system that contain the points, in one batch. */
+  public static GridHorizCoordinateSystem.CoordIndices findPoints(GridHorizCoordinateSystem hcs,
+      List<LatLonPoint> points) {
+    int n = points.size();
+    double[] x = new double[n];
+    double[] y = new double[n];
+    for (int i = 0; i < n; i++) {
+      y[i] = points.get(i).latitude();
+      x[i] = points.get(i).longitude();
+    }
+    if (!hcs.isCurvilinear()) {
+      hcs.getProjection().latLonToProj(y, x, x, y);
+    }
+    return hcs.findXYindexFromCoords(x, y); // curvilinear takes (lon, lat)
+  }
+
+  /**
+   * Read the point series one point at a time, with Grid.readData(). Used by Grids that have no faster way.
+   */
+  public static GridPointSeries readByPoint(Grid grid, GridSubset subset, List<LatLonPoint> points)
+      throws IOException, InvalidRangeException {
+    GridSubset nonHoriz = withoutHorizontal(subset);
+    Formatter errLog = new Formatter();
+    Optional<MaterializedCoordinateSystem> opt = grid.getCoordinateSystem().subset(nonHoriz, errLog);
+    if (opt.isEmpty()) {
+      throw new InvalidRangeException(errLog.toString());
+    }
+    MaterializedCoordinateSystem subsetCoordSys = opt.get();
+    GridHorizCoordinateSystem.CoordIndices indices = findPoints(grid.getHorizCoordinateSystem(), points);
+
+    int length = seriesLength(subsetCoordSys);
+    float[] values = new float[points.size() * length];
+    java.util.Arrays.fill(values, Float.NaN);
+    for (int p = 0; p < points.size(); p++) {
+      if (!indices.isFound(p)) {
+        continue;
+      }
+      GridSubset pointSubset = withoutHorizontal(subset).setLatLonPoint(points.get(p));
+      Array<Number> data = grid.readData(pointSubset).data();
+      int count = 0;
+      for (Number val : data) {
+        if (count < length) {
+          values[p * length + count] = val.floatValue();
+        }
+        count++;
+      }
+    }
+    return new GridPointSeries(grid.getName(), subsetCoordSys, points, indices, values);
+  }
+
+  // the product of the non-horizontal shape
+  private static int seriesLength(MaterializedCoordinateSystem coordSys) {
+    List<Integer> shape = coordSys.getMaterializedShape();
+    int result = 1;
+    for (int i = 0; i < shape.size() - 2; i++) {
+      result *= shape.get(i);
+    }
+    return result;
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////
+
+  private final String name;
+  private final MaterializedCoordinateSystem coordSys;
+  private final ImmutableList<LatLonPoint> points;
+  private final GridHorizCoordinateSystem.CoordIndices indices;
+  private final int length;
+  private final float[] values; // [point][length]
+
+  /**
+   * Constructor.
+   *
+   * @param name the Grid name
+   * @param coordSys the non-horizontal coordinates of the series; its horizontal coordinates are not used
+   * @param points the points
+   * @param indices the cells of the points
+   * @param values the series of the first point, then of the second point, etc; NaN where missing. Not copied.
+   */
+  public GridPointSeries(String name, MaterializedCoordinateSystem coordSys, List<LatLonPoint> points,
+      GridHorizCoordinateSystem.CoordIndices indices, float[] values) {
+    Preconditions.checkArgument(indices.size() == points.size());
+    this.name = name;
+    this.coordSys = coordSys;
+    this.points = ImmutableList.copyOf(points);
+    this.indices = indices;
+    this.length = seriesLength(coordSys);
+    Preconditions.checkArgument(values.length == points.size() * length);
+    this.values = values;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** The non-horizontal coordinates of each series. */
+  public MaterializedCoordinateSystem getMaterializedCoordinateSystem() {
+    return coordSys;
+  }
+
+  public int getNumPoints() {
+    return points.size();
+  }
+
+  public LatLonPoint getPoint(int point) {
+    return points.get(point);
+  }
+
+  /** Is the point in the grid? If not, its series is all missing. */
+  public boolean isFound(int point) {
+    return indices.isFound(point);
+  }
+
+  /** The x index of the grid cell of the point, or -1 if not found. */
+  public int getXindex(int point) {
+    return indices.xindex[point];
+  }
+
+  /** The y index of the grid cell of the point, or -1 if not found. */
+  public int getYindex(int point) {
+    return indices.yindex[point];
+  }
+
+  /** The number of values in each series. */
+  public int getSeriesLength() {
+    return length;
+  }
+
+  /** The shape of each series: the materialized shape without the horizontal dimensions. */
+  public int[] getSeriesShape() {
+    List<Integer> shape = coordSys.getMaterializedShape();
+    int[] result = new int[shape.size() - 2];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = shape.get(i);
+    }
+    return result;
+  }
+
+  /** The ith value of the series of the point, NaN if missing. */
+  public float getValue(int point, int i) {
+    Preconditions.checkElementIndex(i, length);
+    return values[point * length + i];
+  }
+
+  /** A copy of the series of the point. */
+  public float[] getSeries(int point) {
+    float[] result = new float[length];
+    System.arraycopy(values, point * length, result, 0, length);
+    return result;
+  }
+
+  /** The series of the point as an Array with shape getSeriesShape(). */
+  public Array<Float> getSeriesArray(int point) {
+    return Arrays.factory(ArrayType.FLOAT, getSeriesShape(), getSeries(point));
+  }
+
+  @Override
+  public String toString() {
+    return String.format("GridPointSeries{%s %d points x %d}", name, points.size(), length);
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grid.api;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import dev.ucdm.array.Array;
+import dev.ucdm.array.ArrayType;
+import dev.ucdm.array.Arrays;
+import dev.ucdm.array.Immutable;
+import dev.ucdm.array.InvalidRangeException;
+import dev.ucdm.grid.internal.RegridWeights;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
+
+/**
+ * Regrids data from a source to a target GridHorizCoordinateSystem.
+ * The sparse interpolation weights are computed once for each (source, target, method), and kept in a cache of
+ * bounded size, shared by all regridders. Applying them to many fields, eg all the times of a GridReferencedArray,
+ * is done in parallel, without allocating.
+ */
+@Immutable
+public class GridRegridder {
+  /** The interpolation method. */
+  public enum Method {
+    /** The source cell that contains the target center. */
+    nearest,
+    /** Bilinear interpolation from the 4 source centers around the target center. */
+    bilinear,
+    /** First order conservative: the area weighted mean of the source cells that overlap the target cell. */
+    conservative
+  }
+
+  private static final long defaultCacheSize = 10_000_000;
+  private static volatile Cache<CacheKey, RegridWeights> cache = makeCache(defaultCacheSize);
+
+  /** Target cells * fields at or above which the weights are applied in parallel. */
+  private static final int parallelThreshold = 100_000;
+  /** The target cells of a field are split into tasks of about this size. */
+  private static final int taskSize = 16_384;
+
+  /**
+   * Set the maximum number of weights held in the cache of regridding weights. Set to 0 to turn off caching.
+   * This discards the current contents of the cache.
+   */
+  public static void setCacheSize(long maxWeights) {
+    cache = makeCache(maxWeights);
+  }
+
+  /** Discard the contents of the cache of regridding weights. */
+  public static void clearCache() {
+    cache.invalidateAll();
+  }
+
+  private static Cache<CacheKey, RegridWeights> makeCache(long maxWeights) {
+    return CacheBuilder.newBuilder().maximumWeight(maxWeights)
+        .weigher((CacheKey key, RegridWeights value) -> value.getNumWeights() + value.getNumTargets()).build();
+  }
+
+  // nsamples is used only by conservative weights, and is 0 otherwise
+  private record CacheKey(GridHorizCoordinateSystem source, GridHorizCoordinateSystem target, Method method,
+      int nsamples) {
+  }
+
+  /**
+   * Get a regridder from source to target, using cached weights if possible.
+   *
+   * @param source the horizontal coordinate system of the data
+   * @param target regrid to this horizontal coordinate system
+   * @param method the interpolation method
+   */
+  public static GridRegridder create(GridHorizCoordinateSystem source, GridHorizCoordinateSystem target,
+      Method method) {
+    Preconditions.checkNotNull(source);
+    Preconditions.checkNotNull(target);
+    Preconditions.checkNotNull(method);
+    int nsamples = (method == Method.conservative) ? RegridWeights.getConservativeSamples() : 0;
+    try {
+      CacheKey key = new CacheKey(source, target, method, nsamples);
+      RegridWeights weights = cache.get(key, () -> computeWeights(source, target, method, nsamples));
+      return new GridRegridder(source, target, method, weights);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private static RegridWeights computeWeights(GridHorizCoordinateSystem source, GridHorizCoordinateSystem target,
+      Method method, int nsamples) {
+    return switch (method) {
+      case nearest -> RegridWeights.nearest(source, target);
+      case bilinear -> RegridWeights.bilinear(source, target);
+      case conservative -> RegridWeights.conservative(source, target, nsamples);
+    };
+  }
+
+  /**
+   * Read the subset of the grid, and regrid it to the target.
+   * The weights depend on the horizontal subset, so use the same horizontal subset for all reads.
+   */
+  public static GridReferencedArray readData(Grid grid, GridSubset subset, GridHorizCoordinateSystem target,
+      Method method) throws IOException, InvalidRangeException {
+    GridReferencedArray data = grid.readData(subset);
+    GridHorizCoordinateSystem source = data.materializedCoordinateSystem().getHorizCoordinateSystem();
+    return create(source, target, method).regrid(data);
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////////////////
+
+  private final GridHorizCoordinateSystem source;
+  private final GridHorizCoordinateSystem target;
+  private final Method method;
+  private final RegridWeights weights;
+
+  private GridRegridder(GridHorizCoordinateSystem source, GridHorizCoordinateSystem target, Method method,
+      RegridWeights weights) {
+    this.source = source;
+    this.target = target;
+    this.method = method;
+    this.weights = weights;
+  }
+
+  public GridHorizCoordinateSystem getSource() {
+    return source;
+  }
+
+  public GridHorizCoordinateSystem getTarget() {
+    return target;
+  }
+
+  public Method getMethod() {
+    return method;
+  }
+
+  // for testing
+  RegridWeights getWeights() {
+    return weights;
+  }
+
+  /** The number of non-zero weights. */
+  public int getNumWeights() {
+    return weights.getNumWeights();
+  }
+
+  /**
+   * The fraction of the target cell covered by the source, for conservative regridding.
+   * Otherwise 1 if the target cell is inside the source grid, 0 if not.
+   */
+  public double getCoverage(int xindex, int yindex) {
+    return weights.getCoverage(yindex * target.getXHorizAxis().getNominalSize() + xindex);
+  }
+
+  /**
+   * Regrid one field. Missing (NaN) source values are skipped, and the weights of the remaining ones renormalized.
+   * Target cells with no source values are NaN. Does not allocate.
+   *
+   * @param src the source field (y, x), starting at srcOffset
+   * @param srcOffset start of the field in src
+   * @param dest the target field (y, x), starting at destOffset
+   * @param destOffset start of the field in dest
+   */
+  public void regrid(float[] src, int srcOffset, float[] dest, int destOffset) {
+    weights.apply(src, srcOffset, dest, destOffset, 0, weights.getNumTargets());
+  }
+
+  /**
+   * Regrid nfields consecutive fields, in parallel when large.
+   *
+   * @param src nfields source fields, each (y, x)
+   * @param dest nfields target fields, each (y, x)
+   * @param nfields the number of fields
+   */
+  public void regrid(float[] src, float[] dest, int nfields) {
+    int nsource = weights.getNumSources();
+    int ntarget = weights.getNumTargets();
+    Preconditions.checkArgument(src.length >= (long) nfields * nsource, "src too small");
+    Preconditions.checkArgument(dest.length >= (long) nfields * ntarget, "dest too small");
+
+    int ntasks = Math.max(1, ntarget / taskSize); // per field
+    IntStream tasks = IntStream.range(0, nfields * ntasks);
+    if ((long) nfields * ntarget >= parallelThreshold) {
+      tasks = tasks.parallel();
+    }
+    tasks.forEach(task -> {
+      int field = task / ntasks;
+      int part = task % ntasks;
+      int from = (int) ((long) part * ntarget / ntasks);
+      int to = (int) ((long) (part + 1) * ntarget / ntasks);
+      weights.apply(src, field * nsource, dest, field * ntarget, from, to);
+    });
+  }
+
+  /**
+   * Regrid an Array whose last two dimensions are the source (y, x).
+   *
+   * @return Array of the same shape, with the last two dimensions replaced by the target (y, x).
+   */
+  public Array<Float> regrid(Array<Number> data) {
+    int[] shape = data.getShape();
+    Preconditions.checkArgument(shape.length >= 2, "data must have rank >= 2");
+    Preconditions.checkArgument(shape[shape.length - 2] == source.getYHorizAxis().getNominalSize()
+        && shape[shape.length - 1] == source.getXHorizAxis().getNominalSize(), "data does not match the source");
+    int nfields = (int) (data.length() / weights.getNumSources());
+
+    float[] src = toFloats(data);
+    float[] dest = new float[nfields * weights.getNumTargets()];
+    regrid(src, dest, nfields);
+
+    int[] resultShape = shape.clone();
+    resultShape[shape.length - 2] = target.getYHorizAxis().getNominalSize();
+    resultShape[shape.length - 1] = target.getXHorizAxis().getNominalSize();
+    return Arrays.factory(ArrayType.FLOAT, resultShape, dest);
+  }
+
+  /** Regrid a GridReferencedArray whose horizontal coordinate system is the source. */
+  public GridReferencedArray regrid(GridReferencedArray data) {
+    MaterializedCoordinateSystem mcs = data.materializedCoordinateSystem();
+    Preconditions.checkArgument(source.equals(mcs.getHorizCoordinateSystem()),
+        "data horizontal coordinate system does not match the source");
+    Array<Float> regridded = regrid(data.data());
+    MaterializedCoordinateSystem regriddedCs = mcs.toBuilder().setHorizCoordSys(target).build();
+    return new GridReferencedArray(data.name(), ArrayType.FLOAT, (Array<Number>) (Array<?>) regridded,
+        regriddedCs);
+  }
+
+  private static float[] toFloats(Array<Number> data) {
+    if (data.getArrayType() == ArrayType.FLOAT) {
+      return (float[]) Arrays.copyPrimitiveArray(data);
+    }
+    float[] result = new float[(int) data.length()];
+    int count = 0;
+    for (Number val : data) {
+      result[count++] = val.floatValue();
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("GridRegridder{%s %s -> %s, %d weights}", method, source.getShape(), target.getShape(),
+        weights.getNumWeights());
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package dev.ucdm.grid.internal;
+
+import dev.ucdm.array.Array;
+import dev.ucdm.array.Arrays;
+import dev.ucdm.array.Immutable;
+
+/**
+ * A spatial index over the cells of a curvilinear grid. Each cell's lat/lon bounding box is put into the buckets of a
+ * regular lat/lon grid that it overlaps, so finding the cell that contains a point only has to test the cells in
+ * one bucket. Thread-safe once built.
+ */
+@Immutable
+class CurvilinearCellIndex {
+  private final int nrows; // number of cells, not edges
+  private final int ncols;
+  private final double[] latEdge; // (nrows+1) x (ncols+1)
+  private final double[] lonEdge;
+
+  private final double latMin, latMax, lonMin, lonMax;
+  private final int nbLat, nbLon; // number of buckets
+  private final double latScale, lonScale; // buckets per unit lat, lon
+  private final int[] bucketStart; // cells in bucket b are cells[bucketStart[b] .. bucketStart[b+1])
+  private final int[] cells; // cell = row * ncols + col
+
+  CurvilinearCellIndex(Array<Double> latEdges, Array<Double> lonEdges) {
+    int[] shape = latEdges.getShape();
+    this.nrows = shape[0] - 1;
+    this.ncols = shape[1] - 1;
+    this.latEdge = (double[]) Arrays.copyPrimitiveArray(latEdges);
+    this.lonEdge = (double[]) Arrays.copyPrimitiveArray(lonEdges);
+
+    double latmin = Double.MAX_VALUE, latmax = -Double.MAX_VALUE;
+    double lonmin = Double.MAX_VALUE, lonmax = -Double.MAX_VALUE;
+    for (int i = 0; i < latEdge.length; i++) {
+      if (!Double.isNaN(latEdge[i]) && !Double.isNaN(lonEdge[i])) {
+        latmin = Math.min(latmin, latEdge[i]);
+        latmax = Math.max(latmax, latEdge[i]);
+        lonmin = Math.min(lonmin, lonEdge[i]);
+        lonmax = Math.max(lonmax, lonEdge[i]);
+      }
+    }
+    this.latMin = latmin;
+    this.latMax = latmax;
+    this.lonMin = lonmin;
+    this.lonMax = lonmax;
+
+    // about one bucket for each cell
+    int nb = Math.max(1, (int) Math.sqrt((double) nrows * ncols));
+    this.nbLat = nb;
+    this.nbLon = nb;
+    this.latScale = (latmax > latmin) ? nbLat / (latmax - latmin) : 0;
+    this.lonScale = (lonmax > lonmin) ? nbLon / (lonmax - lonmin) : 0;
+
+    // first pass counts the cells in each bucket, second pass fills them in
+    int[] count = new int[nbLat * nbLon + 1];
+    forEachCellBucket((cell, bucket) -> count[bucket + 1]++);
+    for (int b = 0; b < nbLat * nbLon; b++) {
+      count[b + 1] += count[b];
+    }
+    this.bucketStart = count.clone();
+    this.cells = new int[count[nbLat * nbLon]];
+    forEachCellBucket((cell, bucket) -> cells[count[bucket]++] = cell);
+  }
+
+  private interface CellBucketFn {
+    void accept(int cell, int bucket);
+  }
+
+  private void forEachCellBucket(CellBucketFn fn) {
+    for (int row = 0; row < nrows; row++) {
+      for (int col = 0; col < ncols; col++) {
+        int e00 = edge(row, col);
+        int e01 = e00 + 1;
+        int e10 = e00 + ncols + 1;
+        int e11 = e10 + 1;
+        double cellLatMin = Math.min(Math.min(latEdge[e00], latEdge[e01]), Math.min(latEdge[e10], latEdge[e11]));
+        double cellLatMax = Math.max(Math.max(latEdge[e00], latEdge[e01]), Math.max(latEdge[e10], latEdge[e11]));
+        double cellLonMin = Math.min(Math.min(lonEdge[e00], lonEdge[e01]), Math.min(lonEdge[e10], lonEdge[e11]));
+        double cellLonMax = Math.max(Math.max(lonEdge[e00], lonEdge[e01]), Math.max(lonEdge[e10], lonEdge[e11]));
+        if (Double.isNaN(cellLatMin) || Double.isNaN(cellLatMax) || Double.isNaN(cellLonMin)
+            || Double.isNaN(cellLonMax)) {
+          continue; // missing edges, never contains a point
+        }
+        int cell = row * ncols + col;
+        int blat1 = latBucket(cellLatMin);
+        int blat2 = latBucket(cellLatMax);
+        int blon1 = lonBucket(cellLonMin);
+        int blon2 = lonBucket(cellLonMax);
+        for (int blat = blat1; blat <= blat2; blat++) {
+          for (int blon = blon1; blon <= blon2; blon++) {
+            fn.accept(cell, blat * nbLon + blon);
+          }
+        }
+      }
+    }
+  }
+
+  private int edge(int row, int col) {
+    return row * (ncols + 1) + col;
+  }
+
+  private int latBucket(double lat) {
+    return Math.max(Math.min((int) ((lat - latMin) * latScale), nbLat - 1), 0);
+  }
+
+  private int lonBucket(double lon) {
+    return Math.max(Math.min((int) ((lon - lonMin) * lonScale), nbLon - 1), 0);
+  }
+
+  int getNcols() {
+    return ncols;
+  }
+
+  /**
+   * Find the cell that contains the point.
+   * If more than one cell contains it (eg overlapping extrapolated edges), use the cell with the nearest midpoint.
+   *
+   * @return the cell as row * ncols + col, or -1 if not in the grid.
+   */
+  int findCell(double wantLat, double wantLon) {
+    if (!(wantLat >= latMin && wantLat <= latMax && wantLon >= lonMin && wantLon <= lonMax)) {
+      return -1; // also rejects NaN
+    }
+    int bucket = latBucket(wantLat) * nbLon + lonBucket(wantLon);
+    int start = bucketStart[bucket];
+    int end = bucketStart[bucket + 1];
+
+    int found = findCell(wantLat, wantLon, start, end, false);
+    if (found < 0) {
+      // points exactly on a cell edge
+      found = findCell(wantLat, wantLon, start, end, true);
+    }
+    return found;
+  }
+
+  private int findCell(double wantLat, double wantLon, int start, int end, boolean inclusive) {
+    int found = -1;
+    double foundDist = 0;
+    for (int k = start; k < end; k++) {
+      int cell = cells[k];
+      if (!contains(cell, wantLat, wantLon, inclusive)) {
+        continue;
+      }
+      if (found < 0) {
+        found = cell;
+        foundDist = Double.NaN; // computed lazily
+      } else {
+        if (Double.isNaN(foundDist)) {
+          foundDist = midpointDist2(found, wantLat, wantLon);
+        }
+        double dist = midpointDist2(cell, wantLat, wantLon);
+        if (dist < foundDist) {
+          found = cell;
+          foundDist = dist;
+        }
+      }
+    }
+    return found;
+  }
+
+  private double midpointDist2(int cell, double wantLat, double wantLon) {
+    int e00 = edge(cell / ncols, cell % ncols);
+    int e10 = e00 + ncols + 1;
+    double lat = (latEdge[e00] + latEdge[e00 + 1] + latEdge[e10] + latEdge[e10 + 1]) / 4;
+    double lon = (lonEdge[e00] + lonEdge[e00 + 1] + lonEdge[e10] + lonEdge[e10 + 1]) / 4;
+    return (lat - wantLat) * (lat - wantLat) + (lon - wantLon) * (lon - wantLon);
+  }
+
+  /** Same test as CurvilinearCoords.contains(): tracing around the cell, all determinants have the same sign. */
+  private boolean contains(int cell, double wantLat, double wantLon, boolean inclusive) {
+    int e1 = edge(cell / ncols, cell % ncols);
+    int e2 = e1 + 1;
+    int e4 = e1 + ncols + 1;
+    int e3 = e4 + 1;
+
+    double det1 = det(lonEdge[e1], latEdge[e1], lonEdge[e2], latEdge[e2], wantLon, wantLat);
+    double det2 = det(lonEdge[e2], latEdge[e2], lonEdge[e3], latEdge[e3], wantLon, wantLat);
+    double det3 = det(lonEdge[e3], latEdge[e3], lonEdge[e4], latEdge[e4], wantLon, wantLat);
+    double det4 = det(lonEdge[e4], latEdge[e4], lonEdge[e1], latEdge[e1], wantLon, wantLat);
+
+    if (inclusive) {
+      return (det1 >= 0 && det2 >= 0 && det3 >= 0 && det4 >= 0) || (det1 <= 0 && det2 <= 0 && det3 <= 0 && det4 <= 0);
+    }
+    boolean sign = det1 > 0;
+    return (sign == det2 > 0) && (sign == det3 > 0) && (sign == det4 > 0);
+  }
+
+  private static double det(double x0, double y0, double x1, double y1, double x2, double y2) {
+    return (x1 * y2 - y1 * x2 - x0 * y2 + y0 * x2 + x0 * y1 - y0 * x1);
+  }
+}
@@ -5,6 +5,9 @@
 
 package dev.ucdm.grid.internal;
 
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import dev.ucdm.array.Array;
 import dev.ucdm.array.ArrayType;
 import dev.ucdm.array.Arrays;
@@ -19,10 +22,13 @@ import java.util.HashSet;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 /**
  * Helper class for curvilinear lat, lon coordinates. The longitude values must use projection coordinates,
  * i.e. continuous values that are not normalized to a 360 cylinder.
+ * <p>
+ * Finding the cell containing a lat, lon point uses a spatial index over the cells, built on first use.
  */
 public class CurvilinearCoords {
 
@@ -76,6 +82,12 @@ public class CurvilinearCoords {
 
   private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CurvilinearCoords.class);
   private static final boolean debug = false;
+  private static int parallelThreshold = 10000;
+
+  /** Batches with at least this many points are searched in parallel. */
+  public static void setParallelThreshold(int npts) {
+    parallelThreshold = npts;
+  }
 
   private final String name;
   private final Array<Double> latEdge;
@@ -84,6 +96,7 @@ public class CurvilinearCoords {
   private final MinMax lonMinMax;
   private final int ncols;
   private final int nrows;
+  private final Supplier<CurvilinearCellIndex> cellIndex;
 
   public CurvilinearCoords(String name, Array<Number> lat, Array<Number> lon) {
     this.name = name;
@@ -96,6 +109,7 @@ public class CurvilinearCoords {
     // midpoints, not edges
     this.nrows = shape[0];
     this.ncols = shape[1];
+    this.cellIndex = Suppliers.memoize(() -> new CurvilinearCellIndex(this.latEdge, this.lonEdge));
   }
 
   public CurvilinearCoords(String name, Array<Double> latedge, Array<Double> lonedge, MinMax latMinmax,
@@ -110,6 +124,7 @@ public class CurvilinearCoords {
     // midpoints, not edges
     this.nrows = shape[0] - 1;
     this.ncols = shape[1] - 1;
+    this.cellIndex = Suppliers.memoize(() -> new CurvilinearCellIndex(this.latEdge, this.lonEdge));
   }
 
   public Array<Double> getLatEdges() {
@@ -187,8 +202,8 @@ public class CurvilinearCoords {
   }
 
   /**
-   * Find the best index for the given lat,lon point. Uses a simple gradient search, starting from the
-   * initial guess if it exists.
+   * Find the best index for the given lat,lon point. If there is an initial guess, first use a simple gradient search
+   * starting from it, otherwise (or if that fails) use the spatial index.
    *
    * @param wantLat lat of point
    * @param wantLon lon of point
@@ -196,6 +211,45 @@ public class CurvilinearCoords {
    * @return empty if not in the grid.
    */
   public Optional<CoordReturn> findIndexFromLatLon(double wantLat, double wantLon, @Nullable int[] initial) {
+    if (initial != null) {
+      Optional<CoordReturn> result = searchFromInitial(wantLat, wantLon, initial.clone());
+      if (result.isPresent()) {
+        return result;
+      }
+    }
+    int cell = cellIndex.get().findCell(wantLat, wantLon);
+    if (cell < 0) {
+      return Optional.empty();
+    }
+    return Optional.of(new CoordReturn(wantLat, wantLon, cell / ncols, cell % ncols));
+  }
+
+  /**
+   * Find the indices of a batch of lat,lon points, in parallel for large batches.
+   *
+   * @param wantLat lats of the points
+   * @param wantLon lons of the points, same length as wantLat
+   * @param latIndex on return, the lat (row) index of each point, or -1 if not in the grid
+   * @param lonIndex on return, the lon (col) index of each point, or -1 if not in the grid
+   */
+  public void findIndexFromLatLon(double[] wantLat, double[] wantLon, int[] latIndex, int[] lonIndex) {
+    int npts = wantLat.length;
+    Preconditions.checkArgument(wantLon.length == npts && latIndex.length >= npts && lonIndex.length >= npts);
+    CurvilinearCellIndex index = cellIndex.get();
+
+    IntStream points = IntStream.range(0, npts);
+    if (npts >= parallelThreshold) {
+      points = points.parallel();
+    }
+    points.forEach(i -> {
+      int cell = index.findCell(wantLat[i], wantLon[i]);
+      latIndex[i] = (cell < 0) ? -1 : cell / ncols;
+      lonIndex[i] = (cell < 0) ? -1 : cell % ncols;
+    });
+  }
+
+  // gradient search from the initial guess, which is modified.
+  private Optional<CoordReturn> searchFromInitial(double wantLat, double wantLon, int[] initial) {
     if (wantLat < latMinMax.min()) {
       return Optional.empty();
     }
@@ -209,17 +263,7 @@ public class CurvilinearCoords {
       return Optional.empty();
     }
 
-    // initial guess
     int[] rectIndex = initial;
-    if (rectIndex == null) {
-      double gradientLat = (latMinMax.max() - latMinMax.min()) / nrows;
-      double gradientLon = (lonMinMax.max() - lonMinMax.min()) / ncols;
-      double diffLat = wantLat - latMinMax.min();
-      double diffLon = wantLon - lonMinMax.min();
-      rectIndex = new int[2];
-      rectIndex[0] = (int) (Math.round(diffLat / gradientLat)); // row
-      rectIndex[1] = (int) (Math.round(diffLon / gradientLon)); // col
-    }
 
     if (debug) {
       System.out.printf("%nfindIndexFromLatLon [%f,%f]%n", wantLat, wantLon);
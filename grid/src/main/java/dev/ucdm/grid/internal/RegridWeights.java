@@ -0,0 +1,612 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grid.internal;
+
+import com.google.common.base.Preconditions;
+import dev.ucdm.array.Array;
+import dev.ucdm.array.Immutable;
+import dev.ucdm.core.constants.AxisType;
+import dev.ucdm.dataset.geoloc.LatLonPoint;
+import dev.ucdm.dataset.geoloc.LatLonPoints;
+import dev.ucdm.grid.api.CoordInterval;
+import dev.ucdm.grid.api.GridAxisPoint;
+import dev.ucdm.grid.api.GridHorizCoordinateSystem;
+import dev.ucdm.grid.api.GridHorizCurvilinear;
+
+import java.util.Arrays;
+
+/**
+ * Sparse interpolation weights from a source to a target horizontal grid, in compressed row form.
+ * Target cell t (y * nx + x) is the weighted mean of the source cells col[rowStart[t]] .. col[rowStart[t+1] - 1],
+ * with source index y * nx + x. Computed once, then applied to any number of fields.
+ */
+@Immutable
+public class RegridWeights {
+  private static volatile int conservativeSamples = 4;
+
+  /**
+   * Set the number of samples along each side of a target cell, used for conservative weights when the source
+   * and target are not in the same projection, default 4.
+   */
+  public static void setConservativeSamples(int nsamples) {
+    Preconditions.checkArgument(nsamples > 0);
+    conservativeSamples = nsamples;
+  }
+
+  /** The number of samples along each side of a target cell, for conservative weights. */
+  public static int getConservativeSamples() {
+    return conservativeSamples;
+  }
+
+  /** Each target cell takes the value of the source cell that contains its center. */
+  public static RegridWeights nearest(GridHorizCoordinateSystem source, GridHorizCoordinateSystem target) {
+    int snx = source.getXHorizAxis().getNominalSize();
+    int ntarget = size(target);
+    double[] x = new double[ntarget];
+    double[] y = new double[ntarget];
+    targetCenters(source, target, x, y);
+
+    GridHorizCoordinateSystem.CoordIndices indices = source.findXYindexFromCoords(x, y);
+    Builder builder = new Builder(ntarget);
+    for (int t = 0; t < ntarget; t++) {
+      if (indices.isFound(t)) {
+        builder.add(indices.yindex[t] * snx + indices.xindex[t], 1.0);
+      }
+      builder.endRow();
+    }
+    return builder.build(size(source));
+  }
+
+  /**
+   * Each target cell is interpolated from the 4 source cell centers around its center.
+   * Between the outermost source centers and the source edges, the outermost value is used.
+   */
+  public static RegridWeights bilinear(GridHorizCoordinateSystem source, GridHorizCoordinateSystem target) {
+    if (source instanceof GridHorizCurvilinear curvilinear) {
+      return bilinearCurvilinear(curvilinear, target);
+    }
+    int snx = source.getXHorizAxis().getNominalSize();
+    int ntarget = size(target);
+    double[] x = new double[ntarget];
+    double[] y = new double[ntarget];
+    targetCenters(source, target, x, y);
+
+    AxisLocator xloc = new AxisLocator(source.getXHorizAxis(), source.isGlobalLon());
+    AxisLocator yloc = new AxisLocator(source.getYHorizAxis(), false);
+    Builder builder = new Builder(ntarget);
+    for (int t = 0; t < ntarget; t++) {
+      if (xloc.locate(x[t]) && yloc.locate(y[t])) {
+        double wx0 = 1 - xloc.frac;
+        double wy0 = 1 - yloc.frac;
+        builder.add(yloc.i0 * snx + xloc.i0, wy0 * wx0);
+        builder.add(yloc.i0 * snx + xloc.i1, wy0 * xloc.frac);
+        builder.add(yloc.i1 * snx + xloc.i0, yloc.frac * wx0);
+        builder.add(yloc.i1 * snx + xloc.i1, yloc.frac * xloc.frac);
+      }
+      builder.endRow();
+    }
+    return builder.build(size(source));
+  }
+
+  /**
+   * First order conservative: each target cell is the area weighted mean of the source cells that overlap it.
+   * When source and target are orthogonal grids in the same projection, the overlaps are exact. Otherwise they are
+   * estimated by sampling each target cell with setConservativeSamples() points on a side.
+   */
+  public static RegridWeights conservative(GridHorizCoordinateSystem source, GridHorizCoordinateSystem target) {
+    return conservative(source, target, conservativeSamples);
+  }
+
+  /**
+   * First order conservative, as above.
+   *
+   * @param nsamples the number of samples along each side of a target cell, when the overlaps are estimated.
+   */
+  public static RegridWeights conservative(GridHorizCoordinateSystem source, GridHorizCoordinateSystem target,
+      int nsamples) {
+    Preconditions.checkArgument(nsamples > 0);
+    boolean orthogonal = !source.isCurvilinear() && !target.isCurvilinear();
+    boolean sameProjection = (source.isLatLon() && target.isLatLon())
+        || source.getProjection().equals(target.getProjection());
+    if (orthogonal && sameProjection) {
+      return conservativeSameProjection(source, target);
+    }
+    return conservativeSampled(source, target, nsamples);
+  }
+
+  private static int size(GridHorizCoordinateSystem hcs) {
+    return hcs.getXHorizAxis().getNominalSize() * hcs.getYHorizAxis().getNominalSize();
+  }
+
+  // the centers of the target cells, as source coordinates: projection x, y, or lon, lat when curvilinear
+  private static void targetCenters(GridHorizCoordinateSystem source, GridHorizCoordinateSystem target, double[] x,
+      double[] y) {
+    GridAxisPoint xaxis = target.getXHorizAxis();
+    GridAxisPoint yaxis = target.getYHorizAxis();
+    int nx = xaxis.getNominalSize();
+    int ny = yaxis.getNominalSize();
+    double[] lat = new double[nx * ny];
+    double[] lon = new double[nx * ny];
+    if (target.isCurvilinear()) {
+      for (int j = 0; j < ny; j++) {
+        for (int i = 0; i < nx; i++) {
+          LatLonPoint llpt = target.getLatLon(i, j);
+          lat[j * nx + i] = llpt.latitude();
+          lon[j * nx + i] = llpt.longitude();
+        }
+      }
+    } else {
+      for (int j = 0; j < ny; j++) {
+        for (int i = 0; i < nx; i++) {
+          x[j * nx + i] = xaxis.getCoordinate(i).doubleValue();
+          y[j * nx + i] = yaxis.getCoordinate(j).doubleValue();
+        }
+      }
+      toLatLon(target, x, y, lat, lon);
+    }
+    toSource(source, lat, lon, x, y);
+  }
+
+  // projection x, y of an orthogonal grid to lat, lon
+  private static void toLatLon(GridHorizCoordinateSystem hcs, double[] x, double[] y, double[] lat, double[] lon) {
+    if (hcs.isLatLon()) {
+      System.arraycopy(y, 0, lat, 0, y.length);
+      System.arraycopy(x, 0, lon, 0, x.length);
+    } else {
+      hcs.getProjection().projToLatLon(x, y, lat, lon);
+    }
+  }
+
+  // lat, lon to source coordinates: projection x, y, or lon, lat when curvilinear
+  private static void toSource(GridHorizCoordinateSystem source, double[] lat, double[] lon, double[] x, double[] y) {
+    if (source.isCurvilinear()) {
+      System.arraycopy(lon, 0, x, 0, lon.length);
+      System.arraycopy(lat, 0, y, 0, lat.length);
+    } else {
+      source.getProjection().latLonToProj(lat, lon, x, y);
+    }
+  }
+
+  private static RegridWeights bilinearCurvilinear(GridHorizCurvilinear source, GridHorizCoordinateSystem target) {
+    int snx = source.getXHorizAxis().getNominalSize();
+    int sny = source.getYHorizAxis().getNominalSize();
+    if (snx < 2 || sny < 2) {
+      return nearest(source, target);
+    }
+    double[] clat = new double[snx * sny];
+    double[] clon = new double[snx * sny];
+    for (int j = 0; j < sny; j++) {
+      for (int i = 0; i < snx; i++) {
+        LatLonPoint llpt = source.getLatLon(i, j);
+        clat[j * snx + i] = llpt.latitude();
+        clon[j * snx + i] = llpt.longitude();
+      }
+    }
+
+    int ntarget = size(target);
+    double[] lon = new double[ntarget];
+    double[] lat = new double[ntarget];
+    targetCenters(source, target, lon, lat);
+    GridHorizCoordinateSystem.CoordIndices indices = source.findXYindexFromCoords(lon, lat);
+
+    double[] st = new double[2];
+    Builder builder = new Builder(ntarget);
+    for (int t = 0; t < ntarget; t++) {
+      if (indices.isFound(t)) {
+        // the quad of centers around the point is next to the cell that contains it
+        int i0 = Math.min(indices.xindex[t], snx - 2);
+        int j0 = Math.min(indices.yindex[t], sny - 2);
+        for (int iter = 0;; iter++) {
+          inverseBilinear(clat, clon, snx, i0, j0, lat[t], lon[t], st);
+          boolean moved = false;
+          if (st[0] < 0 && i0 > 0) {
+            i0--;
+            moved = true;
+          } else if (st[0] > 1 && i0 < snx - 2) {
+            i0++;
+            moved = true;
+          }
+          if (st[1] < 0 && j0 > 0) {
+            j0--;
+            moved = true;
+          } else if (st[1] > 1 && j0 < sny - 2) {
+            j0++;
+            moved = true;
+          }
+          if (!moved || iter == 3) {
+            break;
+          }
+        }
+        double s = Math.min(Math.max(st[0], 0), 1);
+        double u = Math.min(Math.max(st[1], 0), 1);
+        int k00 = j0 * snx + i0;
+        builder.add(k00, (1 - s) * (1 - u));
+        builder.add(k00 + 1, s * (1 - u));
+        builder.add(k00 + snx, (1 - s) * u);
+        builder.add(k00 + snx + 1, s * u);
+      }
+      builder.endRow();
+    }
+    return builder.build(size(source));
+  }
+
+  // Find (s, t) where the bilinear map of the quad of centers (i0, j0) to (i0 + 1, j0 + 1) equals (lon, lat),
+  // by Newton's method. s, t are in [0, 1] when the point is inside the quad.
+  private static void inverseBilinear(double[] clat, double[] clon, int nx, int i0, int j0, double lat, double lon,
+      double[] st) {
+    int k00 = j0 * nx + i0;
+    int k10 = k00 + 1;
+    int k01 = k00 + nx;
+    int k11 = k01 + 1;
+    double ref = clon[k00];
+    double x10 = LatLonPoints.lonNormal(clon[k10] - ref);
+    double x01 = LatLonPoints.lonNormal(clon[k01] - ref);
+    double x11 = LatLonPoints.lonNormal(clon[k11] - ref);
+    double px = LatLonPoints.lonNormal(lon - ref);
+    double y00 = clat[k00];
+    double y10 = clat[k10];
+    double y01 = clat[k01];
+    double y11 = clat[k11];
+
+    double s = 0.5;
+    double t = 0.5;
+    for (int iter = 0; iter < 20; iter++) {
+      double fx = s * (1 - t) * x10 + s * t * x11 + (1 - s) * t * x01 - px;
+      double fy = (1 - s) * (1 - t) * y00 + s * (1 - t) * y10 + s * t * y11 + (1 - s) * t * y01 - lat;
+      double dxds = (1 - t) * x10 + t * (x11 - x01);
+      double dxdt = (1 - s) * x01 + s * (x11 - x10);
+      double dyds = (1 - t) * (y10 - y00) + t * (y11 - y01);
+      double dydt = (1 - s) * (y01 - y00) + s * (y11 - y10);
+      double det = dxds * dydt - dxdt * dyds;
+      if (det == 0) {
+        break;
+      }
+      double ds = (fx * dydt - dxdt * fy) / det;
+      double dt = (dxds * fy - fx * dyds) / det;
+      s -= ds;
+      t -= dt;
+      if (Math.abs(ds) + Math.abs(dt) < 1.0e-12) {
+        break;
+      }
+    }
+    st[0] = s;
+    st[1] = t;
+  }
+
+  private static RegridWeights conservativeSameProjection(GridHorizCoordinateSystem source,
+      GridHorizCoordinateSystem target) {
+    boolean isLatLon = source.isLatLon();
+    Overlaps xoverlaps = new Overlaps(target.getXHorizAxis(), source.getXHorizAxis(), isLatLon, false);
+    Overlaps yoverlaps = new Overlaps(target.getYHorizAxis(), source.getYHorizAxis(), false, isLatLon);
+    int snx = source.getXHorizAxis().getNominalSize();
+    int tnx = target.getXHorizAxis().getNominalSize();
+    int tny = target.getYHorizAxis().getNominalSize();
+
+    Builder builder = new Builder(tnx * tny);
+    for (int j = 0; j < tny; j++) {
+      for (int i = 0; i < tnx; i++) {
+        for (int ky = yoverlaps.start[j]; ky < yoverlaps.start[j + 1]; ky++) {
+          for (int kx = xoverlaps.start[i]; kx < xoverlaps.start[i + 1]; kx++) {
+            builder.add(yoverlaps.index[ky] * snx + xoverlaps.index[kx],
+                yoverlaps.fraction[ky] * xoverlaps.fraction[kx]);
+          }
+        }
+        builder.endRow();
+      }
+    }
+    return builder.build(size(source));
+  }
+
+  // For each target cell of an axis, the source cells that overlap it, and the fraction of the target cell they cover.
+  private static class Overlaps {
+    final int[] start; // target k uses index[start[k]] .. index[start[k+1] - 1]
+    int[] index = new int[16];
+    double[] fraction = new double[16];
+    int n;
+
+    Overlaps(GridAxisPoint target, GridAxisPoint source, boolean isLon, boolean isLat) {
+      int ns = source.getNominalSize();
+      double[] slo = new double[ns];
+      double[] shi = new double[ns];
+      double srcMin = Double.MAX_VALUE;
+      for (int c = 0; c < ns; c++) {
+        CoordInterval intv = source.getCoordInterval(c);
+        slo[c] = Math.min(intv.start(), intv.end());
+        shi[c] = Math.max(intv.start(), intv.end());
+        srcMin = Math.min(srcMin, slo[c]);
+      }
+
+      int nt = target.getNominalSize();
+      this.start = new int[nt + 1];
+      for (int k = 0; k < nt; k++) {
+        CoordInterval intv = target.getCoordInterval(k);
+        double a = Math.min(intv.start(), intv.end());
+        double b = Math.max(intv.start(), intv.end());
+        if (isLon) {
+          double a2 = LatLonPoints.lonNormalFrom(a, srcMin);
+          b = a2 + (b - a);
+          a = a2;
+        }
+        double measure = measure(a, b, isLat);
+        if (measure > 0) {
+          for (int c = 0; c < ns; c++) {
+            // the target may extend past the end of a global longitude source, onto its start
+            for (double shift = 0; shift <= (isLon ? 360 : 0); shift += 360) {
+              double lo = Math.max(a, slo[c] + shift);
+              double hi = Math.min(b, shi[c] + shift);
+              if (hi > lo) {
+                add(c, measure(lo, hi, isLat) / measure);
+              }
+            }
+          }
+        }
+        start[k + 1] = n;
+      }
+    }
+
+    // latitude cells are weighted by area, proportional to the difference of the sines
+    private static double measure(double lo, double hi, boolean isLat) {
+      if (!isLat) {
+        return hi - lo;
+      }
+      double lo90 = Math.max(-90, Math.min(90, lo));
+      double hi90 = Math.max(-90, Math.min(90, hi));
+      return Math.sin(Math.toRadians(hi90)) - Math.sin(Math.toRadians(lo90));
+    }
+
+    private void add(int c, double frac) {
+      if (n == index.length) {
+        index = Arrays.copyOf(index, 2 * n);
+        fraction = Arrays.copyOf(fraction, 2 * n);
+      }
+      index[n] = c;
+      fraction[n] = frac;
+      n++;
+    }
+  }
+
+  private static RegridWeights conservativeSampled(GridHorizCoordinateSystem source,
+      GridHorizCoordinateSystem target, int nsamples) {
+    int perCell = nsamples * nsamples;
+    int snx = source.getXHorizAxis().getNominalSize();
+    GridAxisPoint xaxis = target.getXHorizAxis();
+    GridAxisPoint yaxis = target.getYHorizAxis();
+    int tnx = xaxis.getNominalSize();
+    int tny = yaxis.getNominalSize();
+
+    // one row of target cells at a time
+    int npts = tnx * perCell;
+    double[] x = new double[npts];
+    double[] y = new double[npts];
+    double[] lat = new double[npts];
+    double[] lon = new double[npts];
+    int[] cells = new int[perCell];
+    Array<Double> latedge = null;
+    Array<Double> lonedge = null;
+    if (target instanceof GridHorizCurvilinear curvilinear) {
+      latedge = curvilinear.getLatEdges();
+      lonedge = curvilinear.getLonEdges();
+    }
+
+    Builder builder = new Builder(tnx * tny);
+    for (int j = 0; j < tny; j++) {
+      CoordInterval yintv = yaxis.getCoordInterval(j);
+      for (int i = 0; i < tnx; i++) {
+        CoordInterval xintv = xaxis.getCoordInterval(i);
+        for (int a = 0; a < nsamples; a++) {
+          double u = (a + 0.5) / nsamples;
+          for (int c = 0; c < nsamples; c++) {
+            double s = (c + 0.5) / nsamples;
+            int k = i * perCell + a * nsamples + c;
+            if (latedge != null) {
+              // blend the corners of the curvilinear cell
+              double ref = lonedge.get(j, i);
+              lat[k] = blend(s, u, latedge.get(j, i), latedge.get(j, i + 1), latedge.get(j + 1, i + 1),
+                  latedge.get(j + 1, i));
+              lon[k] = ref + blend(s, u, 0, LatLonPoints.lonNormal(lonedge.get(j, i + 1) - ref),
+                  LatLonPoints.lonNormal(lonedge.get(j + 1, i + 1) - ref),
+                  LatLonPoints.lonNormal(lonedge.get(j + 1, i) - ref));
+            } else {
+              x[k] = xintv.start() + s * (xintv.end() - xintv.start());
+              y[k] = yintv.start() + u * (yintv.end() - yintv.start());
+            }
+          }
+        }
+      }
+      if (latedge == null) {
+        toLatLon(target, x, y, lat, lon);
+      }
+      toSource(source, lat, lon, x, y);
+      GridHorizCoordinateSystem.CoordIndices indices = source.findXYindexFromCoords(x, y);
+
+      for (int i = 0; i < tnx; i++) {
+        int m = 0;
+        for (int k = i * perCell; k < (i + 1) * perCell; k++) {
+          if (indices.isFound(k)) {
+            cells[m++] = indices.yindex[k] * snx + indices.xindex[k];
+          }
+        }
+        Arrays.sort(cells, 0, m);
+        for (int k = 0; k < m;) {
+          int count = 1;
+          while (k + count < m && cells[k + count] == cells[k]) {
+            count++;
+          }
+          builder.add(cells[k], (double) count / perCell);
+          k += count;
+        }
+        builder.endRow();
+      }
+    }
+    return builder.build(size(source));
+  }
+
+  // the bilinear blend of corner values v00, v10, v11, v01 at (s, u)
+  private static double blend(double s, double u, double v00, double v10, double v11, double v01) {
+    return (1 - s) * (1 - u) * v00 + s * (1 - u) * v10 + s * u * v11 + (1 - s) * u * v01;
+  }
+
+  // Locates a coordinate value between two cell centers of an orthogonal axis. Not thread safe.
+  private static class AxisLocator {
+    private final double[] coords; // times sign, so ascending
+    private final double sign;
+    private final double lower, upper; // the outer edges, times sign
+    private final double origMin; // the smallest edge, not times sign
+    private final boolean isLon, wraps;
+    int i0, i1; // the cells on each side
+    double frac; // the weight of i1
+
+    AxisLocator(GridAxisPoint axis, boolean isGlobal) {
+      int n = axis.getNominalSize();
+      boolean ascending = n < 2 || axis.getCoordinate(n - 1).doubleValue() >= axis.getCoordinate(0).doubleValue();
+      this.sign = ascending ? 1 : -1;
+      this.coords = new double[n];
+      for (int k = 0; k < n; k++) {
+        coords[k] = sign * axis.getCoordinate(k).doubleValue();
+      }
+      CoordInterval first = axis.getCoordInterval(0);
+      CoordInterval last = axis.getCoordInterval(n - 1);
+      this.lower = Math.min(sign * first.start(), sign * first.end());
+      this.upper = Math.max(sign * last.start(), sign * last.end());
+      this.origMin = Math.min(Math.min(first.start(), first.end()), Math.min(last.start(), last.end()));
+      this.isLon = axis.getAxisType() == AxisType.Lon;
+      this.wraps = isLon && isGlobal && ascending;
+    }
+
+    /** Set i0, i1 and frac for value; return false if value is outside of the axis. */
+    boolean locate(double value) {
+      double v = isLon ? LatLonPoints.lonNormalFrom(value, origMin) : value;
+      double vs = sign * v;
+      int n = coords.length;
+      if (wraps && (vs < coords[0] || vs > coords[n - 1])) {
+        // between the last and first centers, across the longitude seam
+        double gap = coords[0] + 360 - coords[n - 1];
+        double d = (vs > coords[n - 1]) ? vs - coords[n - 1] : vs + 360 - coords[n - 1];
+        i0 = n - 1;
+        i1 = 0;
+        frac = (gap > 0) ? d / gap : 0;
+        return true;
+      }
+      if (vs < lower || vs > upper) {
+        return false;
+      }
+      if (vs <= coords[0]) {
+        set(0, 0, 0);
+      } else if (vs >= coords[n - 1]) {
+        set(n - 1, n - 1, 0);
+      } else {
+        int k = Arrays.binarySearch(coords, vs);
+        if (k >= 0) {
+          set(k, k, 0);
+        } else {
+          int above = -k - 1; // coords[above - 1] < vs < coords[above]
+          set(above - 1, above, (vs - coords[above - 1]) / (coords[above] - coords[above - 1]));
+        }
+      }
+      return true;
+    }
+
+    private void set(int i0, int i1, double frac) {
+      this.i0 = i0;
+      this.i1 = i1;
+      this.frac = frac;
+    }
+  }
+
+  // Accumulates the rows of weights, in target order.
+  private static class Builder {
+    private final int[] rowStart;
+    private int[] col = new int[1024];
+    private float[] weight = new float[1024];
+    private int n;
+    private int row;
+
+    Builder(int ntarget) {
+      this.rowStart = new int[ntarget + 1];
+    }
+
+    void add(int source, double w) {
+      if (w <= 0) {
+        return;
+      }
+      if (n == col.length) {
+        col = Arrays.copyOf(col, 2 * n);
+        weight = Arrays.copyOf(weight, 2 * n);
+      }
+      col[n] = source;
+      weight[n] = (float) w;
+      n++;
+    }
+
+    void endRow() {
+      rowStart[++row] = n;
+    }
+
+    RegridWeights build(int nsource) {
+      Preconditions.checkState(row == rowStart.length - 1);
+      return new RegridWeights(nsource, rowStart, Arrays.copyOf(col, n), Arrays.copyOf(weight, n));
+    }
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////////////////
+
+  private final int nsource;
+  private final int[] rowStart;
+  private final int[] col;
+  private final float[] weight;
+
+  private RegridWeights(int nsource, int[] rowStart, int[] col, float[] weight) {
+    this.nsource = nsource;
+    this.rowStart = rowStart;
+    this.col = col;
+    this.weight = weight;
+  }
+
+  /** The number of source cells. */
+  public int getNumSources() {
+    return nsource;
+  }
+
+  /** The number of target cells. */
+  public int getNumTargets() {
+    return rowStart.length - 1;
+  }
+
+  /** The number of non-zero weights. */
+  public int getNumWeights() {
+    return col.length;
+  }
+
+  /** The total weight of the source cells used by the target cell; less than 1 where the source covers it partially. */
+  public double getCoverage(int target) {
+    double sum = 0;
+    for (int k = rowStart[target]; k < rowStart[target + 1]; k++) {
+      sum += weight[k];
+    }
+    return sum;
+  }
+
+  /**
+   * Regrid the target cells [from, to) of one field. Missing (NaN) source values are skipped, and the remaining
+   * weights renormalized. A target cell with no source values is NaN. Does not allocate.
+   *
+   * @param src source field, y * nx + x, starting at srcOffset
+   * @param dest target field, y * nx + x, starting at destOffset
+   */
+  public void apply(float[] src, int srcOffset, float[] dest, int destOffset, int from, int to) {
+    for (int t = from; t < to; t++) {
+      double sum = 0;
+      double wsum = 0;
+      for (int k = rowStart[t]; k < rowStart[t + 1]; k++) {
+        float val = src[srcOffset + col[k]];
+        if (!Float.isNaN(val)) {
+          sum += weight[k] * val;
+          wsum += weight[k];
+        }
+      }
+      dest[destOffset + t] = (wsum > 0) ? (float) (sum / wsum) : Float.NaN;
+    }
+  }
+}
@@ -112,6 +112,24 @@ public class TestGridHorizCurvilinear {
     assertThat(hcs.findXYindexFromCoord(0, 0)).isEqualTo(hcs.findXYindexFromCoord(0, 0, null));
   }
 
+  @Test
+  public void testFindXYindexFromCoords() {
+    make(ny, nx, (y, x) -> 1.1 * y + .1 * x, (y, x) -> 1.2 * x + .1 * y);
+    GridHorizCurvilinear hcs = GridHorizCurvilinear.create(xaxis, yaxis, lat2d, lon2d);
+
+    double[] lon = new double[] {0, 5.3, 12.1, -100};
+    double[] lat = new double[] {0, 4.4, 8.9, -100};
+    GridHorizCoordinateSystem.CoordIndices result = hcs.findXYindexFromCoords(lon, lat);
+    assertThat(result.size()).isEqualTo(4);
+    for (int i = 0; i < 3; i++) {
+      assertThat(result.isFound(i)).isTrue();
+      GridHorizCoordinateSystem.CoordReturn expected = hcs.findXYindexFromCoord(lon[i], lat[i]).orElseThrow();
+      assertThat(result.xindex[i]).isEqualTo(expected.xindex);
+      assertThat(result.yindex[i]).isEqualTo(expected.yindex);
+    }
+    assertThat(result.isFound(3)).isFalse();
+  }
+
   @Test
   public void testCreateFromEdges() {
     GridAxisPoint.Builder<?> xbuilder = GridAxisPoint.builder().setAxisType(AxisType.Lon).setName("xname")
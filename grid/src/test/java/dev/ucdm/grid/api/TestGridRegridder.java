@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 1998-2021 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package dev.ucdm.grid.api;
+
+import dev.ucdm.array.Array;
+import dev.ucdm.array.ArrayType;
+import dev.ucdm.array.Arrays;
+import dev.ucdm.core.constants.AxisType;
+import dev.ucdm.dataset.geoloc.LatLonPoint;
+import dev.ucdm.dataset.geoloc.LatLonProjection;
+import dev.ucdm.dataset.geoloc.projection.LambertConformal;
+import dev.ucdm.grid.internal.RegridWeights;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/** Test {@link GridRegridder} */
+public class TestGridRegridder {
+
+  @AfterEach
+  public void cleanup() {
+    GridRegridder.setCacheSize(10_000_000);
+    RegridWeights.setConservativeSamples(4);
+  }
+
+  private static GridAxisPoint axis(AxisType type, String units, int n, double start, double incr) {
+    return GridAxisPoint.builder().setAxisType(type).setName(type.toString()).setUnits(units).setDescription("desc")
+        .setRegular(n, start, incr).setSpacing(GridAxisSpacing.regularPoint).build();
+  }
+
+  private static GridHorizCoordinateSystem latlon(int nlon, double lon0, double dlon, int nlat, double lat0,
+      double dlat) {
+    return new GridHorizCoordinateSystem(axis(AxisType.Lon, "degE", nlon, lon0, dlon),
+        axis(AxisType.Lat, "degN", nlat, lat0, dlat), new LatLonProjection());
+  }
+
+  private interface Fn {
+    double compute(double lat, double lon);
+  }
+
+  private static float[] field(GridHorizCoordinateSystem hcs, Fn fn) {
+    int nx = hcs.getXHorizAxis().getNominalSize();
+    int ny = hcs.getYHorizAxis().getNominalSize();
+    float[] result = new float[nx * ny];
+    for (int j = 0; j < ny; j++) {
+      for (int i = 0; i < nx; i++) {
+        LatLonPoint llpt = hcs.getLatLon(i, j);
+        result[j * nx + i] = (float) fn.compute(llpt.latitude(), llpt.longitude());
+      }
+    }
+    return result;
+  }
+
+  private static float[] random(int n, long seed) {
+    Random random = new Random(seed);
+    float[] result = new float[n];
+    for (int i = 0; i < n; i++) {
+      result[i] = random.nextFloat() * 100;
+    }
+    return result;
+  }
+
+  private static void assertClose(String what, float[] actual, float[] expected, double tolerance) {
+    assertThat(actual.length).isEqualTo(expected.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertWithMessage(what + " " + i).that((double) actual[i]).isWithin(tolerance).of(expected[i]);
+    }
+  }
+
+  private static float[] regrid(GridRegridder regridder, float[] src) {
+    GridHorizCoordinateSystem target = regridder.getTarget();
+    float[] dest = new float[target.getXHorizAxis().getNominalSize() * target.getYHorizAxis().getNominalSize()];
+    regridder.regrid(src, 0, dest, 0);
+    return dest;
+  }
+
+  @Test
+  public void testIdentity() {
+    GridHorizCoordinateSystem hcs = latlon(36, -175, 10, 17, -80, 10);
+    float[] src = random(36 * 17, 7);
+    for (GridRegridder.Method method : GridRegridder.Method.values()) {
+      float[] dest = regrid(GridRegridder.create(hcs, hcs, method), src);
+      assertClose(method.toString(), dest, src, 1.0e-4);
+    }
+  }
+
+  @Test
+  public void testBilinearIsExactForLinearFields() {
+    GridHorizCoordinateSystem source = latlon(61, -120, 1, 41, 10, 1);
+    GridHorizCoordinateSystem target = latlon(150, -115.1, 0.3, 90, 12.2, 0.3);
+    Fn fn = (lat, lon) -> 2 * lat + 0.5 * lon;
+
+    GridRegridder regridder = GridRegridder.create(source, target, GridRegridder.Method.bilinear);
+    float[] dest = regrid(regridder, field(source, fn));
+    assertClose("linear", dest, field(target, fn), 1.0e-3);
+    System.out.printf("%s%n", regridder);
+  }
+
+  @Test
+  public void testBilinearAcrossLongitudeSeam() {
+    GridHorizCoordinateSystem source = latlon(360, 0.5, 1, 20, 0.5, 1);
+    GridHorizCoordinateSystem target = latlon(5, -1.0, 0.5, 1, 5.5, 1);
+    float[] src = new float[360 * 20];
+    for (int j = 0; j < 20; j++) {
+      src[j * 360] = 10; // lon 0.5
+      src[j * 360 + 359] = 20; // lon 359.5
+    }
+    float[] dest = regrid(GridRegridder.create(source, target, GridRegridder.Method.bilinear), src);
+    // lon -1, -.5, 0, .5, 1
+    assertClose("seam", dest, new float[] {10, 20, 15, 10, 5}, 1.0e-4);
+  }
+
+  @Test
+  public void testNearest() {
+    GridHorizCoordinateSystem source = latlon(10, 0.5, 1, 10, 0.5, 1);
+    GridHorizCoordinateSystem target = latlon(3, 2.2, 3, 3, 4.6, 3);
+    float[] src = new float[100];
+    for (int i = 0; i < 100; i++) {
+      src[i] = i;
+    }
+    float[] dest = regrid(GridRegridder.create(source, target, GridRegridder.Method.nearest), src);
+    // lat 4.6 -> y 4, lon 2.2 -> x 2; lat 10.6 is outside
+    assertThat(dest[0]).isEqualTo(42);
+    assertThat(dest[1]).isEqualTo(45);
+    assertThat(dest[2]).isEqualTo(48);
+    assertThat(dest[3]).isEqualTo(72);
+    assertThat(dest[6]).isNaN();
+    assertThat(dest[8]).isNaN();
+  }
+
+  // area weighted sum, using the exact area of each lat/lon cell
+  private static double integral(GridHorizCoordinateSystem hcs, float[] data) {
+    int nx = hcs.getXHorizAxis().getNominalSize();
+    int ny = hcs.getYHorizAxis().getNominalSize();
+    double sum = 0;
+    for (int j = 0; j < ny; j++) {
+      CoordInterval lat = hcs.getYHorizAxis().getCoordInterval(j);
+      double area = Math.abs(Math.sin(Math.toRadians(lat.end())) - Math.sin(Math.toRadians(lat.start())));
+      for (int i = 0; i < nx; i++) {
+        CoordInterval lon = hcs.getXHorizAxis().getCoordInterval(i);
+        sum += data[j * nx + i] * area * Math.abs(lon.end() - lon.start());
+      }
+    }
+    return sum;
+  }
+
+  @Test
+  public void testConservativePreservesIntegral() {
+    GridHorizCoordinateSystem source = latlon(360, 0.5, 1, 180, -89.5, 1);
+    // a different longitude origin, that crosses the seam
+    GridHorizCoordinateSystem target = latlon(144, -178.75, 2.5, 72, -88.75, 2.5);
+    float[] src = random(360 * 180, 17);
+
+    GridRegridder regridder = GridRegridder.create(source, target, GridRegridder.Method.conservative);
+    float[] dest = regrid(regridder, src);
+    double expected = integral(source, src);
+    assertThat(integral(target, dest)).isWithin(expected * 1.0e-5).of(expected);
+    assertThat(regridder.getCoverage(0, 0)).isWithin(1.0e-6).of(1.0);
+    System.out.printf("%s%n", regridder);
+  }
+
+  @Test
+  public void testConservativeToProjection() {
+    GridHorizCoordinateSystem source = latlon(360, 0.5, 1, 180, -89.5, 1);
+    GridAxisPoint xaxis = axis(AxisType.GeoX, "km", 50, -2500, 100);
+    GridAxisPoint yaxis = axis(AxisType.GeoY, "km", 40, -2000, 100);
+    GridHorizCoordinateSystem target =
+        new GridHorizCoordinateSystem(xaxis, yaxis, new LambertConformal(40, -100, 30, 60));
+
+    float[] src = new float[360 * 180];
+    java.util.Arrays.fill(src, 7.0f);
+    GridRegridder regridder = GridRegridder.create(source, target, GridRegridder.Method.conservative);
+    float[] dest = regrid(regridder, src);
+    for (float val : dest) {
+      assertThat(val).isWithin(1.0e-5f).of(7.0f);
+    }
+    assertThat(regridder.getCoverage(25, 20)).isWithin(1.0e-6).of(1.0);
+  }
+
+  @Test
+  public void testMissingValues() {
+    GridHorizCoordinateSystem source = latlon(4, 0.5, 1, 4, 0.5, 1);
+    GridHorizCoordinateSystem target = latlon(2, 1, 2, 2, 1, 2);
+    float[] src = new float[16];
+    java.util.Arrays.fill(src, 1.0f);
+    src[0] = Float.NaN;
+    src[1] = 4.0f;
+    src[4] = 4.0f;
+    src[5] = 4.0f; // the other 3 cells of target (0, 0)
+    for (int i : new int[] {10, 11, 14, 15}) {
+      src[i] = Float.NaN; // all 4 cells of target (1, 1)
+    }
+    float[] dest = regrid(GridRegridder.create(source, target, GridRegridder.Method.conservative), src);
+    assertThat(dest[0]).isWithin(1.0e-6f).of(4.0f);
+    assertThat(dest[1]).isWithin(1.0e-6f).of(1.0f);
+    assertThat(dest[3]).isNaN();
+  }
+
+  @Test
+  public void testManyFieldsInParallel() {
+    GridHorizCoordinateSystem source = latlon(360, 0.5, 1, 180, -89.5, 1);
+    GridHorizCoordinateSystem target = latlon(500, 0, 0.72, 240, -89.625, 0.75);
+    int nfields = 12;
+    int nsource = 360 * 180;
+    int ntarget = 500 * 240;
+    float[] src = random(nfields * nsource, 3);
+
+    GridRegridder regridder = GridRegridder.create(source, target, GridRegridder.Method.bilinear);
+    float[] dest = new float[nfields * ntarget];
+    regridder.regrid(src, dest, nfields);
+
+    float[] expected = new float[nfields * ntarget];
+    for (int f = 0; f < nfields; f++) {
+      regridder.regrid(src, f * nsource, expected, f * ntarget);
+    }
+    assertThat(dest).isEqualTo(expected);
+  }
+
+  @Test
+  public void testRegridArray() {
+    GridHorizCoordinateSystem source = latlon(20, 0.5, 1, 10, 0.5, 1);
+    GridHorizCoordinateSystem target = latlon(10, 1, 2, 5, 1, 2);
+    float[] src = random(3 * 200, 11);
+    Array<Number> data = Arrays.factory(ArrayType.FLOAT, new int[] {3, 10, 20}, src);
+
+    GridRegridder regridder = GridRegridder.create(source, target, GridRegridder.Method.conservative);
+    Array<Float> result = regridder.regrid(data);
+    assertThat(result.getShape()).isEqualTo(new int[] {3, 5, 10});
+    float[] expected = new float[3 * 50];
+    regridder.regrid(src, expected, 3);
+    assertThat((float[]) Arrays.copyPrimitiveArray(result)).isEqualTo(expected);
+  }
+
+  @Test
+  public void testCurvilinearBilinear() {
+    int nx = 30;
+    int ny = 25;
+    double[] latdata = new double[ny * nx];
+    double[] londata = new double[ny * nx];
+    for (int y = 0; y < ny; y++) {
+      for (int x = 0; x < nx; x++) {
+        // a rotated grid
+        latdata[y * nx + x] = 30 + 0.9 * y + 0.2 * x;
+        londata[y * nx + x] = -100 + 1.1 * x - 0.3 * y;
+      }
+    }
+    int[] shape = new int[] {ny, nx};
+    GridHorizCurvilinear source = GridHorizCurvilinear.create(axis(AxisType.GeoX, "", nx, 0, 1),
+        axis(AxisType.GeoY, "", ny, 0, 1), Arrays.factory(ArrayType.DOUBLE, shape, latdata),
+        Arrays.factory(ArrayType.DOUBLE, shape, londata));
+    GridHorizCoordinateSystem target = latlon(10, -96, 1, 10, 36, 1);
+    Fn fn = (lat, lon) -> lat - 2 * lon;
+
+    GridRegridder regridder = GridRegridder.create(source, target, GridRegridder.Method.bilinear);
+    float[] dest = regrid(regridder, field(source, fn));
+    assertClose("linear", dest, field(target, fn), 1.0e-3);
+  }
+
+  @Test
+  public void testWeightsAreCached() {
+    GridHorizCoordinateSystem source = latlon(360, 0.5, 1, 180, -89.5, 1);
+    GridHorizCoordinateSystem target = latlon(144, -178.75, 2.5, 72, -88.75, 2.5);
+    GridRegridder first = GridRegridder.create(source, target, GridRegridder.Method.conservative);
+    GridRegridder second = GridRegridder.create(latlon(360, 0.5, 1, 180, -89.5, 1), target,
+        GridRegridder.Method.conservative);
+    assertThat(second.getWeights()).isSameInstanceAs(first.getWeights());
+
+    GridRegridder.setCacheSize(0);
+    GridRegridder uncached = GridRegridder.create(source, target, GridRegridder.Method.conservative);
+    assertThat(uncached.getWeights()).isNotSameInstanceAs(first.getWeights());
+    assertThat(uncached.getNumWeights()).isEqualTo(first.getNumWeights());
+  }
+
+  @Test
+  public void testConservativeSamplesChange() {
+    GridHorizCoordinateSystem source = latlon(360, 0.5, 1, 180, -89.5, 1);
+    GridHorizCoordinateSystem target = new GridHorizCoordinateSystem(axis(AxisType.GeoX, "km", 20, -1000, 100),
+        axis(AxisType.GeoY, "km", 20, -1000, 100), new LambertConformal(40, -100, 30, 60));
+    GridRegridder four = GridRegridder.create(source, target, GridRegridder.Method.conservative);
+
+    RegridWeights.setConservativeSamples(1);
+    GridRegridder one = GridRegridder.create(source, target, GridRegridder.Method.conservative);
+    assertThat(one.getWeights()).isNotSameInstanceAs(four.getWeights());
+    assertThat(one.getNumWeights()).isEqualTo(20 * 20); // one sample per target cell
+    assertThat(four.getNumWeights()).isGreaterThan(one.getNumWeights());
+
+    // the weights of other methods dont depend on it
+    GridRegridder bilinear = GridRegridder.create(source, target, GridRegridder.Method.bilinear);
+    RegridWeights.setConservativeSamples(4);
+    assertThat(GridRegridder.create(source, target, GridRegridder.Method.bilinear).getWeights())
+        .isSameInstanceAs(bilinear.getWeights());
+    assertThat(GridRegridder.create(source, target, GridRegridder.Method.conservative).getWeights())
+        .isSameInstanceAs(four.getWeights());
+  }
+}
@@ -166,6 +166,48 @@ public class TestCurvilinearCoords {
     assertThat(hcs.findIndexFromLatLon(10, 10).isEmpty());
   }
 
+  // strongly curved grid, like an ocean model grid bent around a coastline
+  @Test
+  public void testStronglyCurved() {
+    int ny = 60;
+    int nx = 80;
+    make(ny, nx, (y, x) -> (10 + y) * Math.sin(x * Math.PI / nx), (y, x) -> (10 + y) * Math.cos(x * Math.PI / nx));
+    CurvilinearCoords hcs = new CurvilinearCoords("curved", lat2d, lon2d);
+
+    testRandomValues(hcs, 500);
+
+    // the inside of the arc is not in the grid
+    assertThat(hcs.findIndexFromLatLon(1, 0).isEmpty()).isTrue();
+
+    // batch agrees with single points
+    int npts = 2000;
+    double[] lats = new double[npts];
+    double[] lons = new double[npts];
+    for (int i = 0; i < npts; i++) {
+      CoordReturn mid = hcs.midpoint(random.nextInt(ny - 1), random.nextInt(nx - 1));
+      lats[i] = mid.lat;
+      lons[i] = mid.lon;
+    }
+    lats[0] = 1; // not found
+    lons[0] = 0;
+
+    CurvilinearCoords.setParallelThreshold(100);
+    try {
+      int[] latIndex = new int[npts];
+      int[] lonIndex = new int[npts];
+      hcs.findIndexFromLatLon(lats, lons, latIndex, lonIndex);
+      assertThat(latIndex[0]).isEqualTo(-1);
+      assertThat(lonIndex[0]).isEqualTo(-1);
+      for (int i = 1; i < npts; i++) {
+        CoordReturn cr = hcs.findIndexFromLatLon(lats[i], lons[i]).orElseThrow();
+        assertThat(latIndex[i]).isEqualTo(cr.latindex);
+        assertThat(lonIndex[i]).isEqualTo(cr.lonindex);
+      }
+    } finally {
+      CurvilinearCoords.setParallelThreshold(10000);
+    }
+  }
+
   private static final Random random = new Random();
 
   private void testRandomValues(CurvilinearCoords cc, int repeat) {